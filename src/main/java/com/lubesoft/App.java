@@ -1,8 +1,13 @@
 package com.lubesoft;
 
+import com.lubesoft.analytics.AnalyticsStore;
 import com.lubesoft.db.DatabaseManager;
 import com.lubesoft.db.DatabaseInitializer;
 import com.lubesoft.service.LicenseService;
+import com.lubesoft.service.POSService;
+import com.lubesoft.service.ProductIndex;
+import com.lubesoft.service.ReceivablesService;
+import com.lubesoft.util.UiExecutor;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -26,6 +31,9 @@ public class App extends Application {
             throw new RuntimeException("Failed to connect to database", e);
         }
         DatabaseInitializer.initialize();
+        warmCaches();
+        ReceivablesService.getInstance().startNightlyRoll();
+        POSService.getInstance().startReservationSweep();
 
         // Check license
         LicenseService licenseService = LicenseService.getInstance();
@@ -42,6 +50,34 @@ public class App extends Application {
         stage.show();
     }
 
+    private static void warmCaches() {
+        Thread warmer = new Thread(() -> {
+            try {
+                ProductIndex.getInstance().warm();
+            } catch (java.sql.SQLException e) {
+                // Lookups fall back to the database until the index is warmed
+                System.err.println("Product index warm-up failed: " + e.getMessage());
+            }
+            try {
+                AnalyticsStore.getInstance().refresh();
+            } catch (java.sql.SQLException e) {
+                // The first report loads it instead
+                System.err.println("Analytics store warm-up failed: " + e.getMessage());
+            }
+        }, "cache-warmup");
+        warmer.setDaemon(true);
+        warmer.start();
+    }
+
+    @Override
+    public void stop() {
+        // Sales left open on exit would keep their stock reserved
+        POSService.getInstance().shutdown();
+        ReceivablesService.getInstance().shutdown();
+        UiExecutor.getInstance().shutdown();
+        DatabaseManager.getInstance().shutdown();
+    }
+
     public static void loadScene(String fxmlPath, String title, double width, double height) throws IOException {
         URL resource = App.class.getResource(fxmlPath);
         if (resource == null) {
@@ -1,10 +1,38 @@
 package com.lubesoft;
 
+import com.lubesoft.dao.SalesRollupDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
 /**
  * Main entry point - required when running from a JAR to avoid JavaFX module issues.
+ * {@code --rebuild-sales-rollup} recomputes the daily sales rollup and exits without
+ * starting the UI.
  */
 public class MainApp {
     public static void main(String[] args) {
+        if (Arrays.asList(args).contains("--rebuild-sales-rollup")) {
+            rebuildSalesRollup();
+            return;
+        }
         App.main(args);
     }
+
+    private static void rebuildSalesRollup() {
+        int status = 0;
+        try {
+            DatabaseInitializer.initialize();
+            int buckets = new SalesRollupDAO().rebuild();
+            System.out.println("Sales rollup rebuilt: " + buckets + " day buckets");
+        } catch (SQLException e) {
+            System.err.println("Sales rollup rebuild failed: " + e.getMessage());
+            status = 1;
+        } finally {
+            DatabaseManager.getInstance().shutdown();
+        }
+        if (status != 0) System.exit(status);
+    }
 }
@@ -0,0 +1,178 @@
+package com.lubesoft.analytics;
+
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.HistoryChanged;
+import com.lubesoft.event.Subscription;
+import com.lubesoft.model.DateRange;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory, read-optimized copy of the history tables the heavier reports aggregate:
+ * inventory_transactions, completed invoices and time_entries. Each is held as primitive
+ * column arrays split into one partition per UTC day, with text columns such as the
+ * transaction type and invoice status dictionary-encoded, and aggregated with fork-join
+ * scans over the partitions in range. Reports then cost the transactional database only
+ * the rows written since the last refresh.
+ *
+ * The first use loads everything. After that every query refreshes first: new rowids
+ * are appended, and the days reported in {@link HistoryChanged} events (checkouts, voids,
+ * clock-outs) are reloaded.
+ */
+public class AnalyticsStore {
+
+    /** Units sold and net waste of one product over a range. */
+    public record ProductMovement(int productId, double sold, double waste) {}
+
+    /** Paid invoices, their revenue in cents, and hours clocked by one user over a range. */
+    public record StaffActivity(int userId, int invoices, long revenueCents, double hours) {}
+
+    // Beyond this many pending day ranges the next refresh simply reloads everything
+    private static final int MAX_PENDING_RANGES = 64;
+
+    private static AnalyticsStore instance;
+
+    private final Dictionary txTypes = new Dictionary();
+    private final Dictionary invoiceStatuses = new Dictionary();
+    private final DayTable<InventoryDay> inventory = new DayTable<>("inventory_transactions", "created_at",
+            "product_id, type, qty_change", null, base -> new InventoryDay.Builder(base, txTypes));
+    private final DayTable<InvoiceDay> invoices = new DayTable<>("invoices", "completed_at",
+            "COALESCE(technician_id, 0), status, total_cents", "completed_at IS NOT NULL",
+            base -> new InvoiceDay.Builder(base, invoiceStatuses));
+    private final DayTable<TimeDay> timeEntries = new DayTable<>("time_entries", "clock_in",
+            "user_id, clock_in, clock_out", null, TimeDay.Builder::new);
+
+    private final Object pendingLock = new Object();
+    private final List<DateRange> pendingRanges = new ArrayList<>();
+    private boolean reloadAll = true;
+    private long refreshes;
+    private final Subscription subscription;
+
+    AnalyticsStore() {
+        // Inline: marking days is cheap, and the next query must see the change
+        subscription = EventBus.getInstance().subscribeInline(HistoryChanged.class, e -> markChanged(e.days()));
+    }
+
+    public static synchronized AnalyticsStore getInstance() {
+        if (instance == null) {
+            instance = new AnalyticsStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Brings the copy up to date with committed changes. Cheap when little was written:
+     * one rowid probe per table plus the rows of changed days.
+     */
+    public synchronized void refresh() throws SQLException {
+        boolean all;
+        List<DateRange> ranges;
+        synchronized (pendingLock) {
+            all = reloadAll;
+            ranges = new ArrayList<>(pendingRanges);
+            reloadAll = false;
+            pendingRanges.clear();
+        }
+        List<DateRange> changed = all ? null : ranges;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+            inventory.refresh(conn, changed);
+            invoices.refresh(conn, changed);
+            timeEntries.refresh(conn, changed);
+        } catch (SQLException | RuntimeException e) {
+            // Try the same days again next time
+            if (all) markChanged(null);
+            else ranges.forEach(this::markChanged);
+            throw e;
+        }
+        refreshes++;
+    }
+
+    /**
+     * Units sold ({@code SALE}) and net waste ({@code WASTE}) per product in {@code range},
+     * for products with either.
+     */
+    public List<ProductMovement> productMovement(DateRange range, Runnable checkpoint) throws SQLException {
+        refresh();
+        byte sale = txTypes.code("SALE");
+        byte waste = txTypes.code("WASTE");
+        KeyedSums sums = PartitionScan.run(inventory.partitions(range), () -> new KeyedSums(2), (acc, day) -> {
+            for (int i = 0; i < day.size; i++) {
+                byte type = day.type[i];
+                if (type == sale) acc.add(day.productId[i], 0, Math.abs(day.qtyChange[i]));
+                else if (type == waste) acc.add(day.productId[i], 1, day.qtyChange[i]);
+            }
+        }, KeyedSums::merge, checkpoint);
+
+        List<ProductMovement> result = new ArrayList<>();
+        for (Map.Entry<Integer, double[]> e : sums.asMap().entrySet()) {
+            double[] s = e.getValue();
+            if (s[0] > 0 || s[1] > 0) result.add(new ProductMovement(e.getKey(), s[0], s[1]));
+        }
+        return result;
+    }
+
+    /**
+     * Paid invoices and revenue per technician by completion day, and hours per user by
+     * clock-in day, over {@code range}. Open time entries count up to {@code nowEpochSecond}.
+     */
+    public Map<Integer, StaffActivity> staffActivity(DateRange range, long nowEpochSecond, Runnable checkpoint)
+            throws SQLException {
+        refresh();
+        byte paid = invoiceStatuses.code("PAID");
+        KeyedSums sales = PartitionScan.run(invoices.partitions(range), () -> new KeyedSums(2), (acc, day) -> {
+            for (int i = 0; i < day.size; i++) {
+                if (day.status[i] != paid) continue;
+                acc.add(day.technicianId[i], 0, 1);
+                // Whole cents add exactly in a double up to 2^53
+                acc.add(day.technicianId[i], 1, day.total[i]);
+            }
+        }, KeyedSums::merge, checkpoint);
+        KeyedSums hours = PartitionScan.run(timeEntries.partitions(range), () -> new KeyedSums(1), (acc, day) -> {
+            for (int i = 0; i < day.size; i++) {
+                long out = day.clockOut[i] == TimeDay.OPEN ? nowEpochSecond : day.clockOut[i];
+                acc.add(day.userId[i], 0, (out - day.clockIn[i]) / 3600.0);
+            }
+        }, KeyedSums::merge, checkpoint);
+
+        Map<Integer, StaffActivity> result = new HashMap<>();
+        sales.asMap().forEach((user, s) -> result.put(user, new StaffActivity(user, (int) s[0], (long) s[1], 0)));
+        hours.asMap().forEach((user, h) -> result.merge(user, new StaffActivity(user, 0, 0, h[0]),
+                (a, b) -> new StaffActivity(user, a.invoices(), a.revenueCents(), b.hours())));
+        return result;
+    }
+
+    /** Rows held across the three tables. */
+    public long getRowCount() {
+        return inventory.rowCount() + invoices.rowCount() + timeEntries.rowCount();
+    }
+
+    public int getPartitionCount() {
+        return inventory.dayCount() + invoices.dayCount() + timeEntries.dayCount();
+    }
+
+    public synchronized long getRefreshCount() {
+        return refreshes;
+    }
+
+    /** Stops following changes; used when a store is discarded. */
+    public void close() {
+        subscription.close();
+    }
+
+    private void markChanged(DateRange days) {
+        synchronized (pendingLock) {
+            if (days == null || pendingRanges.size() >= MAX_PENDING_RANGES) {
+                reloadAll = true;
+                pendingRanges.clear();
+            } else if (!reloadAll) {
+                pendingRanges.add(days);
+            }
+        }
+    }
+}
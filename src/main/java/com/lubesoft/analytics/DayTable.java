@@ -0,0 +1,151 @@
+package com.lubesoft.analytics;
+
+import com.lubesoft.model.DateRange;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Columnar copy of one table, partitioned by the UTC day of a timestamp column. Readers
+ * get an immutable map of partitions; a refresh builds the changed partitions aside and
+ * swaps in a new map, so scans never see a half-applied refresh.
+ *
+ * A refresh reads the rows whose rowid is above the last one seen and appends them to
+ * their days. Rows that were updated in place (a checkout, a void, a clock-out) are picked
+ * up by reloading the days the caller reports as changed. Callers serialize refreshes.
+ */
+final class DayTable<P extends Partition> {
+
+    private final String name;
+    private final String dayColumn;
+    private final String select;
+    private final Function<P, Partition.Builder<P>> builders;
+
+    private volatile NavigableMap<Long, P> days = Collections.emptyNavigableMap();
+    private long lastRowid;
+
+    /**
+     * @param columns  the columns the partitions hold, read from index 3
+     * @param filter   rows to keep, or null for all
+     * @param builders a builder seeded with the given partition's rows (none when null)
+     */
+    DayTable(String name, String dayColumn, String columns, String filter, Function<P, Partition.Builder<P>> builders) {
+        this.name = name;
+        this.dayColumn = dayColumn;
+        this.select = "SELECT rowid, " + dayColumn + ", " + columns + " FROM " + name
+                + " WHERE " + (filter != null ? filter : "1") + " AND ";
+        this.builders = builders;
+    }
+
+    /** Partitions of the days in {@code range}, oldest first. */
+    List<P> partitions(DateRange range) {
+        return new ArrayList<>(days.subMap(range.getFrom().toEpochDay(), true, range.getTo().toEpochDay(), true).values());
+    }
+
+    int dayCount() {
+        return days.size();
+    }
+
+    long rowCount() {
+        long rows = 0;
+        for (P p : days.values()) rows += p.size();
+        return rows;
+    }
+
+    /**
+     * Appends rows added since the last refresh and reloads every row of the {@code changed}
+     * days; everything is reloaded when {@code changed} is null.
+     */
+    void refresh(Connection conn, List<DateRange> changed) throws SQLException {
+        long maxRowid = maxRowid(conn);
+        Map<Long, Partition.Builder<P>> building = new HashMap<>();
+        TreeMap<Long, P> next;
+        if (changed == null) {
+            next = new TreeMap<>();
+            read(conn, "rowid <= ?", new Object[]{maxRowid}, next, building, null);
+        } else {
+            next = new TreeMap<>(days);
+            List<DateRange> reload = coalesce(changed);
+            for (DateRange r : reload) {
+                next.subMap(r.getFrom().toEpochDay(), true, r.getTo().toEpochDay(), true).clear();
+                read(conn, dayColumn + " >= ? AND " + dayColumn + " < ? AND rowid <= ?",
+                        new Object[]{r.getStart(), r.getEndExclusive(), maxRowid}, next, building, null);
+            }
+            if (maxRowid > lastRowid) {
+                read(conn, "rowid > ? AND rowid <= ?", new Object[]{lastRowid, maxRowid}, next, building, reload);
+            }
+        }
+        for (Map.Entry<Long, Partition.Builder<P>> e : building.entrySet()) {
+            P built = e.getValue().build();
+            if (built.size() > 0) next.put(e.getKey(), built);
+        }
+        days = Collections.unmodifiableNavigableMap(next);
+        lastRowid = maxRowid;
+    }
+
+    private long maxRowid(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(rowid), 0) FROM " + name)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /** Adds matching rows to their day's builder, skipping days inside {@code skip}. */
+    private void read(Connection conn, String condition, Object[] params, NavigableMap<Long, P> current,
+                      Map<Long, Partition.Builder<P>> building, List<DateRange> skip) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(select + condition)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                String lastPrefix = null;
+                long day = 0;
+                while (rs.next()) {
+                    String ts = rs.getString(2);
+                    if (ts == null || ts.length() < 10) continue;
+                    if (lastPrefix == null || !ts.startsWith(lastPrefix)) {
+                        lastPrefix = ts.substring(0, 10);
+                        day = LocalDate.parse(lastPrefix).toEpochDay();
+                    }
+                    if (skip != null && covers(skip, day)) continue;
+                    building.computeIfAbsent(day, k -> builders.apply(current.get(k))).add(rs);
+                }
+            }
+        }
+    }
+
+    private static boolean covers(List<DateRange> ranges, long day) {
+        for (DateRange r : ranges) {
+            if (day >= r.getFrom().toEpochDay() && day <= r.getTo().toEpochDay()) return true;
+        }
+        return false;
+    }
+
+    /** Sorts the ranges and merges overlapping or adjacent ones, so no day is read twice. */
+    static List<DateRange> coalesce(List<DateRange> ranges) {
+        List<DateRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparing(DateRange::getFrom));
+        List<DateRange> merged = new ArrayList<>();
+        for (DateRange r : sorted) {
+            int last = merged.size() - 1;
+            if (last >= 0 && !r.getFrom().isAfter(merged.get(last).getTo().plusDays(1))) {
+                DateRange prev = merged.get(last);
+                if (r.getTo().isAfter(prev.getTo())) merged.set(last, new DateRange(prev.getFrom(), r.getTo()));
+            } else {
+                merged.add(r);
+            }
+        }
+        return merged;
+    }
+}
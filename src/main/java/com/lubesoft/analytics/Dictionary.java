@@ -0,0 +1,46 @@
+package com.lubesoft.analytics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dictionary encoding for low-cardinality text columns such as a transaction type or an
+ * invoice status: each distinct value gets a small code and rows store one byte. Codes are
+ * only ever added, so a code looked up before a scan stays valid for the whole scan.
+ */
+final class Dictionary {
+
+    static final byte MISSING = -1;
+
+    private final Map<String, Byte> codes = new ConcurrentHashMap<>();
+    private final List<String> values = new CopyOnWriteArrayList<>();
+
+    /** Code for {@code value}, assigning the next one if it is new. */
+    synchronized byte encode(String value) {
+        Byte code = codes.get(value);
+        if (code != null) return code;
+        if (values.size() == Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct values to dictionary-encode: " + value);
+        }
+        byte next = (byte) values.size();
+        values.add(value);
+        codes.put(value, next);
+        return next;
+    }
+
+    /** Code for {@code value}, or {@link #MISSING} if no row has it. */
+    byte code(String value) {
+        Byte code = codes.get(value);
+        return code != null ? code : MISSING;
+    }
+
+    String decode(byte code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
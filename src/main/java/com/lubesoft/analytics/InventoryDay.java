@@ -0,0 +1,62 @@
+package com.lubesoft.analytics;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/** One day of inventory_transactions: product, dictionary-coded type and quantity change. */
+final class InventoryDay implements Partition {
+
+    final int size;
+    final int[] productId;
+    final byte[] type;
+    final double[] qtyChange;
+
+    private InventoryDay(int size, int[] productId, byte[] type, double[] qtyChange) {
+        this.size = size;
+        this.productId = productId;
+        this.type = type;
+        this.qtyChange = qtyChange;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    static final class Builder implements Partition.Builder<InventoryDay> {
+        private final Dictionary types;
+        private int size;
+        private int[] productId;
+        private byte[] type;
+        private double[] qtyChange;
+
+        Builder(InventoryDay base, Dictionary types) {
+            this.types = types;
+            int capacity = base == null ? 16 : Math.max(16, base.size * 2);
+            productId = base == null ? new int[capacity] : Arrays.copyOf(base.productId, capacity);
+            type = base == null ? new byte[capacity] : Arrays.copyOf(base.type, capacity);
+            qtyChange = base == null ? new double[capacity] : Arrays.copyOf(base.qtyChange, capacity);
+            size = base == null ? 0 : base.size;
+        }
+
+        @Override
+        public void add(ResultSet rs) throws SQLException {
+            if (size == productId.length) {
+                productId = Arrays.copyOf(productId, size * 2);
+                type = Arrays.copyOf(type, size * 2);
+                qtyChange = Arrays.copyOf(qtyChange, size * 2);
+            }
+            productId[size] = rs.getInt(3);
+            type[size] = types.encode(rs.getString(4));
+            qtyChange[size] = rs.getDouble(5);
+            size++;
+        }
+
+        @Override
+        public InventoryDay build() {
+            return new InventoryDay(size, Arrays.copyOf(productId, size), Arrays.copyOf(type, size),
+                    Arrays.copyOf(qtyChange, size));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.lubesoft.analytics;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * One completion day of invoices: technician (0 when none), dictionary-coded status and
+ * total in cents. Invoices that were never completed are not held.
+ */
+final class InvoiceDay implements Partition {
+
+    final int size;
+    final int[] technicianId;
+    final byte[] status;
+    final long[] total;
+
+    private InvoiceDay(int size, int[] technicianId, byte[] status, long[] total) {
+        this.size = size;
+        this.technicianId = technicianId;
+        this.status = status;
+        this.total = total;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    static final class Builder implements Partition.Builder<InvoiceDay> {
+        private final Dictionary statuses;
+        private int size;
+        private int[] technicianId;
+        private byte[] status;
+        private long[] total;
+
+        Builder(InvoiceDay base, Dictionary statuses) {
+            this.statuses = statuses;
+            int capacity = base == null ? 16 : Math.max(16, base.size * 2);
+            technicianId = base == null ? new int[capacity] : Arrays.copyOf(base.technicianId, capacity);
+            status = base == null ? new byte[capacity] : Arrays.copyOf(base.status, capacity);
+            total = base == null ? new long[capacity] : Arrays.copyOf(base.total, capacity);
+            size = base == null ? 0 : base.size;
+        }
+
+        @Override
+        public void add(ResultSet rs) throws SQLException {
+            if (size == technicianId.length) {
+                technicianId = Arrays.copyOf(technicianId, size * 2);
+                status = Arrays.copyOf(status, size * 2);
+                total = Arrays.copyOf(total, size * 2);
+            }
+            technicianId[size] = rs.getInt(3);
+            status[size] = statuses.encode(rs.getString(4));
+            total[size] = rs.getLong(5);
+            size++;
+        }
+
+        @Override
+        public InvoiceDay build() {
+            return new InvoiceDay(size, Arrays.copyOf(technicianId, size), Arrays.copyOf(status, size),
+                    Arrays.copyOf(total, size));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.lubesoft.analytics;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Running sums of a fixed number of measures per integer key; one per scan slice. */
+final class KeyedSums {
+
+    private final int width;
+    private final Map<Integer, double[]> sums = new HashMap<>();
+
+    KeyedSums(int width) {
+        this.width = width;
+    }
+
+    void add(int key, int measure, double value) {
+        sums.computeIfAbsent(key, k -> new double[width])[measure] += value;
+    }
+
+    /** Folds {@code other} into this and returns this. */
+    KeyedSums merge(KeyedSums other) {
+        for (Map.Entry<Integer, double[]> e : other.sums.entrySet()) {
+            double[] mine = sums.computeIfAbsent(e.getKey(), k -> new double[width]);
+            double[] theirs = e.getValue();
+            for (int i = 0; i < width; i++) mine[i] += theirs[i];
+        }
+        return this;
+    }
+
+    Map<Integer, double[]> asMap() {
+        return sums;
+    }
+}
@@ -0,0 +1,18 @@
+package com.lubesoft.analytics;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/** Column arrays holding one table's rows for one day. Never modified once built. */
+interface Partition {
+
+    int size();
+
+    /** Collects a day's rows into a new partition, starting from a copy of an existing one. */
+    interface Builder<P extends Partition> {
+        /** Adds the current row; its columns start at index 3, after the rowid and day. */
+        void add(ResultSet rs) throws SQLException;
+
+        P build();
+    }
+}
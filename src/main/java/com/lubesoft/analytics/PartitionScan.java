@@ -0,0 +1,67 @@
+package com.lubesoft.analytics;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Fork-join aggregation over day partitions. The list is halved until a slice holds few
+ * enough rows to scan on one thread; each slice fills its own accumulator and the halves
+ * are merged on the way back up. {@code checkpoint} runs before every partition, so a
+ * cancelled report stops within one day's rows.
+ */
+final class PartitionScan<P extends Partition, R> extends RecursiveTask<R> {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int SEQUENTIAL_ROWS = 16_384;
+
+    private final List<P> parts;
+    private final long[] rowsBefore;
+    private final int lo;
+    private final int hi;
+    private final Supplier<R> identity;
+    private final BiConsumer<R, P> scan;
+    private final BinaryOperator<R> merge;
+    private final Runnable checkpoint;
+
+    private PartitionScan(List<P> parts, long[] rowsBefore, int lo, int hi, Supplier<R> identity,
+                          BiConsumer<R, P> scan, BinaryOperator<R> merge, Runnable checkpoint) {
+        this.parts = parts;
+        this.rowsBefore = rowsBefore;
+        this.lo = lo;
+        this.hi = hi;
+        this.identity = identity;
+        this.scan = scan;
+        this.merge = merge;
+        this.checkpoint = checkpoint;
+    }
+
+    static <P extends Partition, R> R run(List<P> parts, Supplier<R> identity, BiConsumer<R, P> scan,
+                                          BinaryOperator<R> merge, Runnable checkpoint) {
+        long[] rowsBefore = new long[parts.size() + 1];
+        for (int i = 0; i < parts.size(); i++) rowsBefore[i + 1] = rowsBefore[i] + parts.get(i).size();
+        return ForkJoinPool.commonPool().invoke(
+                new PartitionScan<>(parts, rowsBefore, 0, parts.size(), identity, scan, merge, checkpoint));
+    }
+
+    @Override
+    protected R compute() {
+        if (hi - lo <= 1 || rowsBefore[hi] - rowsBefore[lo] <= SEQUENTIAL_ROWS) {
+            R acc = identity.get();
+            for (int i = lo; i < hi; i++) {
+                checkpoint.run();
+                scan.accept(acc, parts.get(i));
+            }
+            return acc;
+        }
+        int mid = (lo + hi) >>> 1;
+        PartitionScan<P, R> left = new PartitionScan<>(parts, rowsBefore, lo, mid, identity, scan, merge, checkpoint);
+        left.fork();
+        R right = new PartitionScan<>(parts, rowsBefore, mid, hi, identity, scan, merge, checkpoint).compute();
+        return merge.apply(left.join(), right);
+    }
+}
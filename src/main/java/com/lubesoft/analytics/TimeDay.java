@@ -0,0 +1,73 @@
+package com.lubesoft.analytics;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/** One clock-in day of time_entries: user and clock times in UTC epoch seconds. */
+final class TimeDay implements Partition {
+
+    /** clockOut of an entry that is still open. */
+    static final long OPEN = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    final int size;
+    final int[] userId;
+    final long[] clockIn;
+    final long[] clockOut;
+
+    private TimeDay(int size, int[] userId, long[] clockIn, long[] clockOut) {
+        this.size = size;
+        this.userId = userId;
+        this.clockIn = clockIn;
+        this.clockOut = clockOut;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    static long epochSeconds(String timestamp) {
+        return LocalDateTime.parse(timestamp, TIMESTAMP).toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static final class Builder implements Partition.Builder<TimeDay> {
+        private int size;
+        private int[] userId;
+        private long[] clockIn;
+        private long[] clockOut;
+
+        Builder(TimeDay base) {
+            int capacity = base == null ? 16 : Math.max(16, base.size * 2);
+            userId = base == null ? new int[capacity] : Arrays.copyOf(base.userId, capacity);
+            clockIn = base == null ? new long[capacity] : Arrays.copyOf(base.clockIn, capacity);
+            clockOut = base == null ? new long[capacity] : Arrays.copyOf(base.clockOut, capacity);
+            size = base == null ? 0 : base.size;
+        }
+
+        @Override
+        public void add(ResultSet rs) throws SQLException {
+            if (size == userId.length) {
+                userId = Arrays.copyOf(userId, size * 2);
+                clockIn = Arrays.copyOf(clockIn, size * 2);
+                clockOut = Arrays.copyOf(clockOut, size * 2);
+            }
+            String out = rs.getString(5);
+            userId[size] = rs.getInt(3);
+            clockIn[size] = epochSeconds(rs.getString(4));
+            clockOut[size] = out != null ? epochSeconds(out) : OPEN;
+            size++;
+        }
+
+        @Override
+        public TimeDay build() {
+            return new TimeDay(size, Arrays.copyOf(userId, size), Arrays.copyOf(clockIn, size),
+                    Arrays.copyOf(clockOut, size));
+        }
+    }
+}
@@ -3,11 +3,20 @@ package com.lubesoft.controller;
 import com.lubesoft.dao.CustomerDAO;
 import com.lubesoft.dao.ServiceHistoryDAO;
 import com.lubesoft.dao.VehicleDAO;
+import com.lubesoft.event.CustomerUpdated;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.Subscription;
 import com.lubesoft.model.Customer;
+import com.lubesoft.model.Money;
+import com.lubesoft.model.PageCursor;
 import com.lubesoft.model.ServiceHistory;
 import com.lubesoft.model.Vehicle;
+import com.lubesoft.service.ReceivablesService;
 import com.lubesoft.util.AlertUtil;
-import javafx.application.Platform;
+import com.lubesoft.util.PagedObservableList;
+import com.lubesoft.util.SearchPipeline;
+import com.lubesoft.util.TaskScope;
+import com.lubesoft.util.UiExecutor;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -17,7 +26,7 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import java.sql.SQLException;
 import java.util.List;
 
-public class CustomerController {
+public class CustomerController implements DisposableView {
 
     // Customer list
     @FXML private TableView<Customer> customersTable;
@@ -50,14 +59,46 @@ public class CustomerController {
     private final CustomerDAO customerDAO = new CustomerDAO();
     private final VehicleDAO vehicleDAO = new VehicleDAO();
     private final ServiceHistoryDAO serviceHistoryDAO = new ServiceHistoryDAO();
+    private final ReceivablesService receivablesService = ReceivablesService.getInstance();
+    private final TaskScope tasks = new TaskScope("customers");
 
     private final ObservableList<Customer> customers = FXCollections.observableArrayList();
+    private final SearchPipeline<Customer> customerSearch = new SearchPipeline<>(tasks, "customers",
+            q -> q.isEmpty() ? List.of() : customerDAO.search(q), customers,
+            SearchPipeline.wordPrefixMatcher(Customer::getName, Customer::getPhone, Customer::getCompany));
+    // Every customer, paged in as the table scrolls; shown while the search box is empty
+    private final PagedObservableList<Customer> customerPages = new PagedObservableList<>(tasks, "customer-pages",
+            new PagedObservableList.PageSource<>() {
+                @Override
+                public int count() throws SQLException {
+                    return customerDAO.count();
+                }
+
+                @Override
+                public List<Customer> fetchPage(PageCursor after, int limit) throws SQLException {
+                    return customerDAO.findPage(after, limit);
+                }
+
+                @Override
+                public PageCursor cursorAt(int offset) throws SQLException {
+                    return customerDAO.cursorAt(offset);
+                }
+
+                @Override
+                public PageCursor cursorOf(Customer row) {
+                    return CustomerDAO.cursorOf(row);
+                }
+            });
     private Customer selectedCustomer;
+    private Subscription customerEvents;
 
     @FXML
     public void initialize() {
         setupTables();
         loadCustomers();
+        // Saves, payments and credit sales from any screen patch the rows they touched
+        customerEvents = EventBus.getInstance().subscribe(CustomerUpdated.class,
+                e -> UiExecutor.getInstance().runOnUi(() -> applyCustomerChange(e.customerId())));
 
         customersTable.getSelectionModel().selectedItemProperty().addListener((obs, old, newVal) -> {
             if (newVal != null) onCustomerSelected(newVal);
@@ -66,6 +107,11 @@ public class CustomerController {
         vehiclesTable.getSelectionModel().selectedItemProperty().addListener((obs, old, newVal) -> {
             if (newVal != null) loadServiceHistory(newVal.getId());
         });
+
+        searchField.textProperty().addListener((obs, old, text) -> {
+            showResultsFor(text);
+            if (!text.isBlank()) customerSearch.submit(text);
+        });
     }
 
     private void setupTables() {
@@ -73,7 +119,7 @@ public class CustomerController {
         colCustPhone.setCellValueFactory(new PropertyValueFactory<>("phone"));
         colCustCompany.setCellValueFactory(new PropertyValueFactory<>("company"));
         colCustBalance.setCellValueFactory(new PropertyValueFactory<>("currentBalance"));
-        customersTable.setItems(customers);
+        PagedObservableList.disableSortWhenPaged(customersTable);
 
         colVehiclePlate.setCellValueFactory(new PropertyValueFactory<>("licensePlate"));
         colVehicleMake.setCellValueFactory(new PropertyValueFactory<>("make"));
@@ -85,32 +131,42 @@ public class CustomerController {
         colHistOil.setCellValueFactory(new PropertyValueFactory<>("oilGrade"));
     }
 
+    @Override
+    public void dispose() {
+        customerEvents.close();
+        tasks.close();
+    }
+
+    /** Re-reads one changed customer into the rows showing it; re-counts the list only when a customer came or went. */
+    private void applyCustomerChange(int customerId) {
+        if (tasks.isClosed()) return;
+        customerSearch.invalidate();
+        tasks.run(() -> new Reloaded(customerDAO.findById(customerId).orElse(null), customerDAO.count()), r -> {
+            if (r.row() == null) customers.removeIf(c -> c.getId() == customerId);
+            else customers.replaceAll(c -> c.getId() == customerId ? r.row() : c);
+            boolean patched = r.row() != null && customerPages.replace(c -> c.getId() == customerId, r.row());
+            if (!patched && r.total() != customerPages.size()) customerPages.refresh();
+        }, e -> System.err.println("Failed to reload customer " + customerId + ": " + e.getMessage()));
+    }
+
+    /** Reloads the list for whatever is in the search box, skipping cached results. */
     private void loadCustomers() {
-        new Thread(() -> {
-            try {
-                List<Customer> list = customerDAO.findAll();
-                Platform.runLater(() -> customers.setAll(list));
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        customerSearch.invalidate();
+        customerPages.refresh();
+        handleSearch();
     }
 
     @FXML
     private void handleSearch() {
-        String query = searchField.getText().trim();
-        if (query.isEmpty()) {
-            loadCustomers();
-            return;
-        }
-        new Thread(() -> {
-            try {
-                List<Customer> results = customerDAO.search(query);
-                Platform.runLater(() -> customers.setAll(results));
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        String text = searchField.getText();
+        showResultsFor(text);
+        if (!text.isBlank()) customerSearch.submitNow(text);
+    }
+
+    /** Blank search shows the paged customer list; anything else shows the search results. */
+    private void showResultsFor(String text) {
+        ObservableList<Customer> items = text.isBlank() ? customerPages : customers;
+        if (customersTable.getItems() != items) customersTable.setItems(items);
     }
 
     @FXML
@@ -121,13 +177,12 @@ public class CustomerController {
             c.setPhone(custPhoneField.getText().trim());
             c.setEmail(custEmailField.getText().trim());
             c.setCompany(custCompanyField.getText().trim());
-            c.setCreditLimit(custCreditLimitField.getText().isEmpty() ? 0
-                    : Double.parseDouble(custCreditLimitField.getText()));
+            c.setCreditLimitCents(custCreditLimitField.getText().isEmpty() ? 0
+                    : Money.parse(custCreditLimitField.getText()));
 
             customerDAO.save(c);
             AlertUtil.showInfo("Saved", "Customer saved.");
             clearForm();
-            loadCustomers();
         } catch (NumberFormatException e) {
             AlertUtil.showError("Invalid Input", "Credit limit must be a number.");
         } catch (SQLException e) {
@@ -147,41 +202,53 @@ public class CustomerController {
         if (!AlertUtil.showConfirm("Delete", "Delete customer " + selectedCustomer.getName() + "?")) return;
         try {
             customerDAO.delete(selectedCustomer.getId());
-            loadCustomers();
             clearForm();
         } catch (SQLException e) {
             AlertUtil.showError("Error", e.getMessage());
         }
     }
 
+    @FXML
+    private void handleRecordPayment() {
+        if (selectedCustomer == null) return;
+        TextInputDialog dialog = new TextInputDialog(Money.format(selectedCustomer.getBalanceCents()));
+        dialog.setTitle("Record Payment");
+        dialog.setHeaderText("Payment from " + selectedCustomer.getName());
+        dialog.setContentText("Amount:");
+        var input = dialog.showAndWait();
+        if (input.isEmpty()) return;
+        try {
+            long balance = receivablesService.postPayment(selectedCustomer.getId(),
+                    Money.parse(input.get()), null);
+            selectedCustomer.setBalanceCents(balance);
+            custBalanceLabel.setText("Balance: " + Money.format(balance));
+        } catch (NumberFormatException e) {
+            AlertUtil.showError("Invalid Input", "Payment amount must be a number.");
+        } catch (IllegalArgumentException e) {
+            AlertUtil.showError("Invalid Payment", e.getMessage());
+        } catch (SQLException e) {
+            AlertUtil.showError("Database Error", e.getMessage());
+        }
+    }
+
     private void onCustomerSelected(Customer c) {
         selectedCustomer = c;
         custNameField.setText(c.getName());
         custPhoneField.setText(c.getPhone() != null ? c.getPhone() : "");
         custEmailField.setText(c.getEmail() != null ? c.getEmail() : "");
         custCompanyField.setText(c.getCompany() != null ? c.getCompany() : "");
-        custCreditLimitField.setText(String.valueOf(c.getCreditLimit()));
-        if (custBalanceLabel != null) custBalanceLabel.setText(String.format("Balance: %.2f", c.getCurrentBalance()));
-
-        new Thread(() -> {
-            try {
-                List<Vehicle> vehicles = vehicleDAO.findByCustomerId(c.getId());
-                Platform.runLater(() -> vehiclesTable.setItems(FXCollections.observableArrayList(vehicles)));
-            } catch (SQLException e) {
-                // ignore
-            }
-        }).start();
+        custCreditLimitField.setText(Money.format(c.getCreditLimitCents()));
+        if (custBalanceLabel != null) custBalanceLabel.setText("Balance: " + Money.format(c.getBalanceCents()));
+
+        tasks.latest("vehicles", () -> vehicleDAO.findByCustomerId(c.getId()),
+                vehicles -> vehiclesTable.setItems(FXCollections.observableArrayList(vehicles)),
+                e -> { /* ignore */ });
     }
 
     private void loadServiceHistory(int vehicleId) {
-        new Thread(() -> {
-            try {
-                List<ServiceHistory> history = serviceHistoryDAO.findByVehicleId(vehicleId);
-                Platform.runLater(() -> historyTable.setItems(FXCollections.observableArrayList(history)));
-            } catch (SQLException e) {
-                // ignore
-            }
-        }).start();
+        tasks.latest("history", () -> serviceHistoryDAO.findByVehicleId(vehicleId),
+                history -> historyTable.setItems(FXCollections.observableArrayList(history)),
+                e -> { /* ignore */ });
     }
 
     private void clearForm() {
@@ -191,4 +258,7 @@ public class CustomerController {
         vehiclesTable.setItems(FXCollections.observableArrayList());
         historyTable.setItems(FXCollections.observableArrayList());
     }
+
+    /** A changed row read back, or null if it was deleted, with the new row count. */
+    private record Reloaded(Customer row, int total) {}
 }
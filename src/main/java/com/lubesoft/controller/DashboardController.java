@@ -1,27 +1,35 @@
 package com.lubesoft.controller;
 
-import com.lubesoft.dao.InvoiceDAO;
-import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.model.DashboardSnapshot;
 import com.lubesoft.model.Invoice;
+import com.lubesoft.model.Money;
 import com.lubesoft.model.Product;
 import com.lubesoft.service.AuthService;
-import javafx.application.Platform;
+import com.lubesoft.service.DashboardService;
+import com.lubesoft.util.TaskScope;
+import com.lubesoft.util.UiExecutor;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
+import javafx.scene.Scene;
 import javafx.scene.control.Label;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
 
-import java.sql.SQLException;
-import java.util.List;
+import java.util.function.Consumer;
 
-public class DashboardController {
+/**
+ * Shows today's sales, recent transactions, low stock and outstanding credit. The first
+ * snapshot is loaded when the view opens; after that {@link DashboardService} pushes a new
+ * one whenever sales, stock or payments change, so there is nothing to refresh by hand.
+ */
+public class DashboardController implements DisposableView {
 
     @FXML private Label todaySalesLabel;
     @FXML private Label lowStockLabel;
     @FXML private Label pendingCreditsLabel;
     @FXML private Label welcomeLabel;
+    @FXML private Label loadTimeLabel;
 
     @FXML private TableView<Invoice> recentTransactionsTable;
     @FXML private TableColumn<Invoice, String> colInvoiceNum;
@@ -34,18 +42,25 @@ public class DashboardController {
     @FXML private TableColumn<Product, Double> colStockQty;
     @FXML private TableColumn<Product, Double> colMinStock;
 
-    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
-    private final ProductDAO productDAO = new ProductDAO();
+    private final DashboardService dashboardService = DashboardService.getInstance();
+    private final TaskScope tasks = new TaskScope("dashboard");
+    private final Consumer<DashboardSnapshot> pushListener =
+            snapshot -> UiExecutor.getInstance().runOnUi(() -> show(snapshot));
+    private long openedAt;
+    private long shownVersion;
+    private boolean firstPaintMeasured;
 
     @FXML
     public void initialize() {
+        openedAt = System.nanoTime();
         var user = AuthService.getCurrentUser();
         if (user != null) {
             welcomeLabel.setText("Welcome, " + user.getUsername() + "!");
         }
 
         setupTables();
-        loadDataAsync();
+        dashboardService.addListener(pushListener);
+        tasks.latest("dashboard", dashboardService::load, this::show, e -> todaySalesLabel.setText("Error"));
     }
 
     private void setupTables() {
@@ -59,31 +74,42 @@ public class DashboardController {
         colMinStock.setCellValueFactory(new PropertyValueFactory<>("minStock"));
     }
 
-    private void loadDataAsync() {
-        new Thread(() -> {
-            try {
-                double todayRevenue = invoiceDAO.getTodayRevenue();
-                List<Invoice> recent = invoiceDAO.findRecentPaid(10);
-                List<Product> lowStock = productDAO.findLowStock();
-
-                Platform.runLater(() -> {
-                    todaySalesLabel.setText(String.format("%.2f", todayRevenue));
-                    lowStockLabel.setText(String.valueOf(lowStock.size()));
-                    pendingCreditsLabel.setText("0"); // Placeholder
-
-                    recentTransactionsTable.setItems(FXCollections.observableArrayList(recent));
-                    lowStockTable.setItems(FXCollections.observableArrayList(lowStock));
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> {
-                    todaySalesLabel.setText("Error");
-                });
-            }
-        }).start();
+    @Override
+    public void dispose() {
+        dashboardService.removeListener(pushListener);
+        tasks.close();
     }
 
-    @FXML
-    private void handleRefresh() {
-        loadDataAsync();
+    private void show(DashboardSnapshot snapshot) {
+        // A push can overtake the initial load, and pushes can arrive after the view closed
+        if (tasks.isClosed() || snapshot.getVersion() <= shownVersion) return;
+        shownVersion = snapshot.getVersion();
+
+        todaySalesLabel.setText(Money.format(snapshot.getTodayRevenueCents()));
+        lowStockLabel.setText(String.valueOf(snapshot.getLowStock().size()));
+        pendingCreditsLabel.setText(Money.format(snapshot.getPendingCreditsCents()));
+
+        recentTransactionsTable.setItems(FXCollections.observableArrayList(snapshot.getRecentPaid()));
+        lowStockTable.setItems(FXCollections.observableArrayList(snapshot.getLowStock()));
+        if (!firstPaintMeasured) measureFirstPaint(snapshot);
+    }
+
+    /**
+     * Records the time from opening the view to the first frame laid out with data in it,
+     * and shows it at the foot of the view.
+     */
+    private void measureFirstPaint(DashboardSnapshot snapshot) {
+        Scene scene = todaySalesLabel.getScene();
+        if (scene == null) return;
+        firstPaintMeasured = true;
+        Runnable[] once = new Runnable[1];
+        once[0] = () -> {
+            // The pulse is iterating its listeners, so leave them alone until it is over
+            UiExecutor.getInstance().postToUi(() -> scene.removePostLayoutPulseListener(once[0]));
+            dashboardService.recordFirstPaint((System.nanoTime() - openedAt) / 1_000_000, snapshot.getLoadNanos() / 1_000_000);
+            loadTimeLabel.setText("Opened in " + dashboardService.getFirstPaintMillis() + " ms (data "
+                    + dashboardService.getFirstPaintDataMillis() + " ms)");
+        };
+        scene.addPostLayoutPulseListener(once[0]);
     }
 }
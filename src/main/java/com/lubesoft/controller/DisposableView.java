@@ -0,0 +1,9 @@
+package com.lubesoft.controller;
+
+/**
+ * Implemented by view controllers that hold background work or subscriptions.
+ * MainLayoutController calls {@link #dispose} when it swaps the view out.
+ */
+public interface DisposableView {
+    void dispose();
+}
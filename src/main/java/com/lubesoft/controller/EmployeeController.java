@@ -6,7 +6,7 @@ import com.lubesoft.model.TimeEntry;
 import com.lubesoft.model.User;
 import com.lubesoft.service.AuthService;
 import com.lubesoft.util.AlertUtil;
-import javafx.application.Platform;
+import com.lubesoft.util.TaskScope;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -15,10 +15,8 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import org.mindrot.jbcrypt.BCrypt;
 
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Optional;
 
-public class EmployeeController {
+public class EmployeeController implements DisposableView {
 
     // Time clock section
     @FXML private Label clockStatusLabel;
@@ -44,6 +42,7 @@ public class EmployeeController {
 
     private final TimeEntryDAO timeEntryDAO = new TimeEntryDAO();
     private final UserDAO userDAO = new UserDAO();
+    private final TaskScope tasks = new TaskScope("employees");
     private TimeEntry activeEntry;
     private User selectedEmployee;
 
@@ -78,46 +77,37 @@ public class EmployeeController {
         }
     }
 
+    @Override
+    public void dispose() {
+        tasks.close();
+    }
+
     private void loadCurrentUserClock() {
         var user = AuthService.getCurrentUser();
         if (user == null) return;
 
-        new Thread(() -> {
-            try {
-                Optional<TimeEntry> activeOpt = timeEntryDAO.findActiveEntry(user.getId());
-                Platform.runLater(() -> {
-                    if (activeOpt.isPresent()) {
-                        activeEntry = activeOpt.get();
-                        clockStatusLabel.setText("Clocked in since: " + activeEntry.getClockIn());
-                        if (clockInButton != null) clockInButton.setDisable(true);
-                        if (clockOutButton != null) clockOutButton.setDisable(false);
-                    } else {
-                        clockStatusLabel.setText("Not clocked in");
-                        if (clockInButton != null) clockInButton.setDisable(false);
-                        if (clockOutButton != null) clockOutButton.setDisable(true);
-                    }
-                });
-            } catch (SQLException e) {
-                // ignore
+        tasks.run(() -> timeEntryDAO.findActiveEntry(user.getId()), activeOpt -> {
+            if (activeOpt.isPresent()) {
+                activeEntry = activeOpt.get();
+                clockStatusLabel.setText("Clocked in since: " + activeEntry.getClockIn());
+                if (clockInButton != null) clockInButton.setDisable(true);
+                if (clockOutButton != null) clockOutButton.setDisable(false);
+            } else {
+                clockStatusLabel.setText("Not clocked in");
+                if (clockInButton != null) clockInButton.setDisable(false);
+                if (clockOutButton != null) clockOutButton.setDisable(true);
             }
-        }).start();
+        }, e -> { /* ignore */ });
     }
 
     private void loadTimeEntries() {
         var user = AuthService.getCurrentUser();
         if (user == null) return;
 
-        new Thread(() -> {
-            try {
-                List<TimeEntry> entries = timeEntryDAO.findByUser(user.getId());
-                Platform.runLater(() -> {
-                    if (timeEntriesTable != null)
-                        timeEntriesTable.setItems(FXCollections.observableArrayList(entries));
-                });
-            } catch (SQLException e) {
-                // ignore
-            }
-        }).start();
+        tasks.latest("timeEntries", () -> timeEntryDAO.findByUser(user.getId()), entries -> {
+            if (timeEntriesTable != null)
+                timeEntriesTable.setItems(FXCollections.observableArrayList(entries));
+        }, e -> { /* ignore */ });
     }
 
     @FXML
@@ -125,54 +115,37 @@ public class EmployeeController {
         var user = AuthService.getCurrentUser();
         if (user == null) return;
 
-        new Thread(() -> {
-            try {
-                TimeEntry entry = timeEntryDAO.clockIn(user.getId(), "");
-                Platform.runLater(() -> {
-                    activeEntry = entry;
-                    clockStatusLabel.setText("Clocked in since: " + entry.getClockIn());
-                    if (clockInButton != null) clockInButton.setDisable(true);
-                    if (clockOutButton != null) clockOutButton.setDisable(false);
-                    loadTimeEntries();
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        tasks.run(() -> timeEntryDAO.clockIn(user.getId(), ""), entry -> {
+            activeEntry = entry;
+            clockStatusLabel.setText("Clocked in since: " + entry.getClockIn());
+            if (clockInButton != null) clockInButton.setDisable(true);
+            if (clockOutButton != null) clockOutButton.setDisable(false);
+            loadTimeEntries();
+        });
     }
 
     @FXML
     private void handleClockOut() {
         if (activeEntry == null) return;
 
-        new Thread(() -> {
-            try {
-                timeEntryDAO.clockOut(activeEntry.getId());
-                Platform.runLater(() -> {
-                    activeEntry = null;
-                    clockStatusLabel.setText("Not clocked in");
-                    if (clockInButton != null) clockInButton.setDisable(false);
-                    if (clockOutButton != null) clockOutButton.setDisable(true);
-                    loadTimeEntries();
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        int entryId = activeEntry.getId();
+        tasks.run(() -> {
+            timeEntryDAO.clockOut(entryId);
+            return null;
+        }, ignored -> {
+            activeEntry = null;
+            clockStatusLabel.setText("Not clocked in");
+            if (clockInButton != null) clockInButton.setDisable(false);
+            if (clockOutButton != null) clockOutButton.setDisable(true);
+            loadTimeEntries();
+        });
     }
 
     private void loadEmployees() {
-        new Thread(() -> {
-            try {
-                List<User> users = userDAO.findAll();
-                Platform.runLater(() -> {
-                    if (employeesTable != null)
-                        employeesTable.setItems(FXCollections.observableArrayList(users));
-                });
-            } catch (SQLException e) {
-                // ignore
-            }
-        }).start();
+        tasks.latest("employees", userDAO::findAll, users -> {
+            if (employeesTable != null)
+                employeesTable.setItems(FXCollections.observableArrayList(users));
+        }, e -> { /* ignore */ });
     }
 
     @FXML
@@ -1,9 +1,18 @@
 package com.lubesoft.controller;
 
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.ProductChanged;
+import com.lubesoft.event.Subscription;
+import com.lubesoft.model.Money;
+import com.lubesoft.model.PageCursor;
 import com.lubesoft.model.Product;
 import com.lubesoft.service.InventoryService;
 import com.lubesoft.util.AlertUtil;
-import javafx.application.Platform;
+import com.lubesoft.util.PagedObservableList;
+import com.lubesoft.util.SearchPipeline;
+import com.lubesoft.util.TaskScope;
+import com.lubesoft.util.UiExecutor;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
@@ -13,7 +22,7 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import java.sql.SQLException;
 import java.util.List;
 
-public class InventoryController {
+public class InventoryController implements DisposableView {
 
     @FXML private TableView<Product> productsTable;
     @FXML private TableColumn<Product, String> colSku;
@@ -39,16 +48,54 @@ public class InventoryController {
 
     private final InventoryService inventoryService = InventoryService.getInstance();
     private final ObservableList<Product> products = FXCollections.observableArrayList();
+    private final TaskScope tasks = new TaskScope("inventory");
+    private final SearchPipeline<Product> productSearch = new SearchPipeline<>(tasks, "products",
+            q -> q.isEmpty() ? List.of() : inventoryService.searchProducts(q), products,
+            SearchPipeline.wordPrefixMatcher(Product::getName, Product::getSku, Product::getBarcode, Product::getCategory));
+    // The whole catalogue, paged in as the table scrolls; shown while the search box is empty
+    private final PagedObservableList<Product> productPages = new PagedObservableList<>(tasks, "product-pages",
+            new PagedObservableList.PageSource<>() {
+                @Override
+                public int count() throws SQLException {
+                    return inventoryService.countProducts();
+                }
+
+                @Override
+                public List<Product> fetchPage(PageCursor after, int limit) throws SQLException {
+                    return inventoryService.getProductPage(after, limit);
+                }
+
+                @Override
+                public PageCursor cursorAt(int offset) throws SQLException {
+                    return inventoryService.productCursorAt(offset);
+                }
+
+                @Override
+                public PageCursor cursorOf(Product row) {
+                    return ProductDAO.cursorOf(row);
+                }
+            });
     private Product selectedProduct;
+    private Subscription productEvents;
 
     @FXML
     public void initialize() {
         setupTable();
         loadProducts();
+        // Saves, adjustments and sales from any screen patch the rows they touched
+        productEvents = EventBus.getInstance().subscribe(ProductChanged.class,
+                e -> UiExecutor.getInstance().runOnUi(() -> {
+                    if (e.isAll()) loadProducts();
+                    else applyProductChange(e.productId());
+                }));
 
         productsTable.getSelectionModel().selectedItemProperty().addListener((obs, old, newVal) -> {
             if (newVal != null) populateForm(newVal);
         });
+        searchField.textProperty().addListener((obs, old, text) -> {
+            showResultsFor(text);
+            if (!text.isBlank()) productSearch.submit(text);
+        });
     }
 
     private void setupTable() {
@@ -58,7 +105,7 @@ public class InventoryController {
         colSellPrice.setCellValueFactory(new PropertyValueFactory<>("sellPrice"));
         colStock.setCellValueFactory(new PropertyValueFactory<>("stockQty"));
         colMinStock.setCellValueFactory(new PropertyValueFactory<>("minStock"));
-        productsTable.setItems(products);
+        PagedObservableList.disableSortWhenPaged(productsTable);
 
         // Highlight low stock rows in red
         productsTable.setRowFactory(tv -> new TableRow<>() {
@@ -74,32 +121,43 @@ public class InventoryController {
         });
     }
 
+    @Override
+    public void dispose() {
+        productEvents.close();
+        tasks.close();
+    }
+
+    /** Re-reads one changed product into the rows showing it; re-counts the list only when a product came or went. */
+    private void applyProductChange(int productId) {
+        if (tasks.isClosed()) return;
+        productSearch.invalidate();
+        tasks.run(() -> new Reloaded(inventoryService.getProduct(productId).orElse(null), inventoryService.countProducts()),
+                r -> {
+                    if (r.row() == null) products.removeIf(p -> p.getId() == productId);
+                    else products.replaceAll(p -> p.getId() == productId ? r.row() : p);
+                    boolean patched = r.row() != null && productPages.replace(p -> p.getId() == productId, r.row());
+                    if (!patched && r.total() != productPages.size()) productPages.refresh();
+                }, e -> System.err.println("Failed to reload product " + productId + ": " + e.getMessage()));
+    }
+
+    /** Reloads the list for whatever is in the search box, skipping cached results. */
     private void loadProducts() {
-        new Thread(() -> {
-            try {
-                List<Product> list = inventoryService.getAllProducts();
-                Platform.runLater(() -> products.setAll(list));
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", "Failed to load products: " + e.getMessage()));
-            }
-        }).start();
+        productSearch.invalidate();
+        productPages.refresh();
+        handleSearch();
     }
 
     @FXML
     private void handleSearch() {
-        String query = searchField.getText().trim();
-        if (query.isEmpty()) {
-            loadProducts();
-            return;
-        }
-        new Thread(() -> {
-            try {
-                List<Product> results = inventoryService.searchProducts(query);
-                Platform.runLater(() -> products.setAll(results));
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        String text = searchField.getText();
+        showResultsFor(text);
+        if (!text.isBlank()) productSearch.submitNow(text);
+    }
+
+    /** Blank search shows the paged catalogue; anything else shows the search results. */
+    private void showResultsFor(String text) {
+        ObservableList<Product> items = text.isBlank() ? productPages : products;
+        if (productsTable.getItems() != items) productsTable.setItems(items);
     }
 
     @FXML
@@ -110,8 +168,8 @@ public class InventoryController {
             p.setName(nameField.getText().trim());
             p.setCategory(categoryField.getText().trim());
             p.setUnit(unitField.getText().trim());
-            p.setSellPrice(Double.parseDouble(sellPriceField.getText()));
-            p.setCostPrice(Double.parseDouble(costPriceField.getText()));
+            p.setSellPriceCents(Money.parse(sellPriceField.getText()));
+            p.setCostPriceCents(Money.parse(costPriceField.getText()));
             p.setStockQty(Double.parseDouble(stockField.getText()));
             p.setMinStock(Double.parseDouble(minStockField.getText()));
             p.setMaxStock(Double.parseDouble(maxStockField.getText()));
@@ -121,7 +179,6 @@ public class InventoryController {
             inventoryService.saveProduct(p);
             AlertUtil.showInfo("Saved", "Product saved successfully.");
             clearForm();
-            loadProducts();
         } catch (NumberFormatException e) {
             AlertUtil.showError("Invalid Input", "Please enter valid numeric values for prices and stock.");
         } catch (SQLException e) {
@@ -150,7 +207,6 @@ public class InventoryController {
                 double change = Double.parseDouble(val);
                 inventoryService.adjustStock(selectedProduct.getId(), change, "Manual adjustment");
                 AlertUtil.showInfo("Done", "Stock adjusted.");
-                loadProducts();
             } catch (NumberFormatException e) {
                 AlertUtil.showError("Error", "Invalid number.");
             } catch (Exception e) {
@@ -165,8 +221,8 @@ public class InventoryController {
         nameField.setText(p.getName());
         categoryField.setText(p.getCategory() != null ? p.getCategory() : "");
         unitField.setText(p.getUnit() != null ? p.getUnit() : "");
-        sellPriceField.setText(String.valueOf(p.getSellPrice()));
-        costPriceField.setText(String.valueOf(p.getCostPrice()));
+        sellPriceField.setText(Money.format(p.getSellPriceCents()));
+        costPriceField.setText(Money.format(p.getCostPriceCents()));
         stockField.setText(String.valueOf(p.getStockQty()));
         minStockField.setText(String.valueOf(p.getMinStock()));
         maxStockField.setText(String.valueOf(p.getMaxStock()));
@@ -180,4 +236,7 @@ public class InventoryController {
         minStockField.clear(); maxStockField.clear(); barcodeField.clear();
         if (isBulkOilCheck != null) isBulkOilCheck.setSelected(false);
     }
+
+    /** A changed row read back, or null if it was deleted, with the new row count. */
+    private record Reloaded(Product row, int total) {}
 }
@@ -3,8 +3,7 @@ package com.lubesoft.controller;
 import com.lubesoft.App;
 import com.lubesoft.service.AuthService;
 import com.lubesoft.service.LicenseService;
-import com.lubesoft.util.AlertUtil;
-import javafx.application.Platform;
+import com.lubesoft.util.TaskScope;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
@@ -20,6 +19,8 @@ public class LoginController {
     @FXML private Label errorLabel;
     @FXML private Label trialLabel;
 
+    private final TaskScope tasks = new TaskScope("login");
+
     @FXML
     public void initialize() {
         errorLabel.setVisible(false);
@@ -52,25 +53,24 @@ public class LoginController {
         errorLabel.setVisible(false);
 
         // Run authentication in background thread
-        new Thread(() -> {
-            AuthService authService = AuthService.getInstance();
-            var user = authService.login(username, password);
-
-            Platform.runLater(() -> {
-                loginButton.setDisable(false);
-                if (user != null) {
-                    try {
-                        App.loadScene("/com/lubesoft/fxml/main_layout.fxml", "LubeSoft POS", 1280, 800);
-                        App.getPrimaryStage().setMaximized(true);
-                    } catch (Exception e) {
-                        showError("Failed to load main screen: " + e.getMessage());
-                    }
-                } else {
-                    showError("Invalid username or password.");
-                    passwordField.clear();
+        tasks.latest("login", () -> AuthService.getInstance().login(username, password), user -> {
+            loginButton.setDisable(false);
+            if (user != null) {
+                try {
+                    tasks.close();
+                    App.loadScene("/com/lubesoft/fxml/main_layout.fxml", "LubeSoft POS", 1280, 800);
+                    App.getPrimaryStage().setMaximized(true);
+                } catch (Exception e) {
+                    showError("Failed to load main screen: " + e.getMessage());
                 }
-            });
-        }).start();
+            } else {
+                showError("Invalid username or password.");
+                passwordField.clear();
+            }
+        }, e -> {
+            loginButton.setDisable(false);
+            showError("Login failed: " + e.getMessage());
+        });
     }
 
     @FXML
@@ -27,6 +27,8 @@ public class MainLayoutController {
     @FXML private Button btnReports;
     @FXML private Button btnEmployees;
 
+    private DisposableView currentView;
+
     @FXML
     public void initialize() {
         var user = AuthService.getCurrentUser();
@@ -62,6 +64,7 @@ public class MainLayoutController {
     @FXML
     private void handleLogout() {
         AuthService.getInstance().logout();
+        disposeCurrentView();
         try {
             App.loadScene("/com/lubesoft/fxml/login.fxml", "LubeSoft - Login", 480, 360);
             App.getPrimaryStage().setMaximized(false);
@@ -79,6 +82,9 @@ public class MainLayoutController {
             }
             FXMLLoader loader = new FXMLLoader(resource);
             Node view = loader.load();
+            // Cancel the outgoing view's loads so they cannot land on a detached screen
+            disposeCurrentView();
+            currentView = loader.getController() instanceof DisposableView d ? d : null;
             rootPane.setCenter(view);
             highlightActiveButton(viewName);
         } catch (IOException e) {
@@ -86,6 +92,13 @@ public class MainLayoutController {
         }
     }
 
+    private void disposeCurrentView() {
+        if (currentView != null) {
+            currentView.dispose();
+            currentView = null;
+        }
+    }
+
     private void highlightActiveButton(String viewName) {
         for (Button btn : new Button[]{btnDashboard, btnPOS, btnInventory, btnCustomers, btnReports, btnEmployees}) {
             btn.getStyleClass().remove("sidebar-active");
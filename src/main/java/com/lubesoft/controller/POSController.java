@@ -1,8 +1,13 @@
 package com.lubesoft.controller;
 
 import com.lubesoft.dao.VehicleDAO;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.InvoiceStatusChanged;
+import com.lubesoft.event.Subscription;
 import com.lubesoft.model.Invoice;
 import com.lubesoft.model.InvoiceItem;
+import com.lubesoft.model.InvoiceTotals;
+import com.lubesoft.model.Money;
 import com.lubesoft.model.Product;
 import com.lubesoft.model.Vehicle;
 import com.lubesoft.service.AuthService;
@@ -10,7 +15,9 @@ import com.lubesoft.service.InventoryService;
 import com.lubesoft.service.POSService;
 import com.lubesoft.util.AlertUtil;
 import com.lubesoft.util.PrintUtil;
-import javafx.application.Platform;
+import com.lubesoft.util.SearchPipeline;
+import com.lubesoft.util.TaskScope;
+import com.lubesoft.util.UiExecutor;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -22,10 +29,11 @@ import javafx.stage.FileChooser;
 
 import java.io.File;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
-public class POSController {
+public class POSController implements DisposableView {
 
     @FXML private TextField searchField;
     @FXML private TextField barcodeField;
@@ -58,17 +66,36 @@ public class POSController {
     @FXML private ComboBox<String> fluidLevelsCombo;
     @FXML private ComboBox<String> tiresCombo;
 
-    private Invoice currentInvoice;
+    // Null until the sale's first line is added; written from the background task that creates it
+    private volatile Invoice currentInvoice;
     private final ObservableList<InvoiceItem> invoiceItems = FXCollections.observableArrayList();
     private final POSService posService = POSService.getInstance();
     private final InventoryService inventoryService = InventoryService.getInstance();
     private final VehicleDAO vehicleDAO = new VehicleDAO();
+    private final TaskScope tasks = new TaskScope("pos");
+    private final ObservableList<Product> searchResults = FXCollections.observableArrayList();
+    // Blank text clears the list instead of listing every product
+    private final SearchPipeline<Product> productSearch = new SearchPipeline<>(tasks, "productSearch",
+            q -> q.isEmpty() ? List.of() : inventoryService.searchProducts(q), searchResults,
+            SearchPipeline.wordPrefixMatcher(Product::getName, Product::getSku, Product::getBarcode, Product::getCategory));
+    // Held and in-progress invoices by id, kept current from invoice events
+    private final Map<Integer, Invoice> parked = new LinkedHashMap<>();
+    private Subscription invoiceEvents;
 
     @FXML
     public void initialize() {
         setupTables();
         setupCombos();
-        newInvoice();
+        loadWipList();
+        invoiceEvents = EventBus.getInstance().subscribe(InvoiceStatusChanged.class,
+                e -> UiExecutor.getInstance().runOnUi(() -> applyInvoiceChange(e)));
+    }
+
+    @Override
+    public void dispose() {
+        leaveCurrentInvoice();
+        invoiceEvents.close();
+        tasks.close();
     }
 
     private void setupTables() {
@@ -82,6 +109,8 @@ public class POSController {
         colProdSku.setCellValueFactory(new PropertyValueFactory<>("sku"));
         colProdPrice.setCellValueFactory(new PropertyValueFactory<>("sellPrice"));
         colProdStock.setCellValueFactory(new PropertyValueFactory<>("stockQty"));
+        productSearchTable.setItems(searchResults);
+        searchField.textProperty().addListener((obs, old, text) -> productSearch.submit(text));
 
         // Double-click product to add to invoice
         productSearchTable.setOnMouseClicked(e -> {
@@ -103,25 +132,35 @@ public class POSController {
         if (tiresCombo != null) tiresCombo.setItems(FXCollections.observableArrayList(conditions));
     }
 
+    /** Starts a blank sale, setting the one on screen aside. The invoice is created with its first line. */
     @FXML
     private void newInvoice() {
-        new Thread(() -> {
-            try {
-                var user = AuthService.getCurrentUser();
-                int techId = user != null ? user.getId() : 0;
-                Invoice inv = posService.createInvoice(techId);
-                Platform.runLater(() -> {
-                    currentInvoice = inv;
-                    invoiceItems.clear();
-                    invoiceNumberLabel.setText(inv.getInvoiceNumber());
-                    vehicleLabel.setText("No vehicle selected");
-                    updateTotals();
-                    refreshWipList();
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", "Could not create invoice: " + e.getMessage()));
-            }
-        }).start();
+        leaveCurrentInvoice();
+        clearInvoice();
+    }
+
+    /** Parks the invoice on screen, if any, so it stops reserving stock: held with lines, voided if empty. */
+    private void leaveCurrentInvoice() {
+        Invoice leaving = currentInvoice;
+        currentInvoice = null;
+        if (leaving != null) posService.parkInvoiceLater(leaving.getId());
+    }
+
+    /** Blanks the screen after the invoice on it was finished, held or parked. */
+    private void clearInvoice() {
+        currentInvoice = null;
+        invoiceItems.clear();
+        invoiceNumberLabel.setText("-");
+        vehicleLabel.setText("No vehicle selected");
+        subtotalLabel.setText(Money.format(0));
+        taxLabel.setText(Money.format(0));
+        totalLabel.setText(Money.format(0));
+    }
+
+    // Runs on the background task; a burst of adds to a blank sale creates one invoice
+    private synchronized Invoice openInvoice(int techId) throws SQLException {
+        if (currentInvoice == null) currentInvoice = posService.createInvoice(techId);
+        return currentInvoice;
     }
 
     @FXML
@@ -129,36 +168,20 @@ public class POSController {
         String barcode = barcodeField.getText().trim();
         if (barcode.isEmpty()) return;
 
-        new Thread(() -> {
-            try {
-                Optional<Product> productOpt = inventoryService.findByBarcode(barcode);
-                Platform.runLater(() -> {
-                    if (productOpt.isPresent()) {
-                        addProductToInvoice(productOpt.get(), 1);
-                    } else {
-                        AlertUtil.showWarning("Not Found", "No product with barcode: " + barcode);
-                    }
-                    barcodeField.clear();
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
+        // Every scan counts, so lookups are not coalesced
+        tasks.run(() -> inventoryService.findByBarcode(barcode), productOpt -> {
+            if (productOpt.isPresent()) {
+                addProductToInvoice(productOpt.get(), 1);
+            } else {
+                AlertUtil.showWarning("Not Found", "No product with barcode: " + barcode);
             }
-        }).start();
+            barcodeField.clear();
+        });
     }
 
     @FXML
     private void handleProductSearch() {
-        String query = searchField.getText().trim();
-        if (query.isEmpty()) return;
-
-        new Thread(() -> {
-            try {
-                List<Product> results = inventoryService.searchProducts(query);
-                Platform.runLater(() -> productSearchTable.setItems(FXCollections.observableArrayList(results)));
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        productSearch.submitNow(searchField.getText());
     }
 
     @FXML
@@ -166,40 +189,28 @@ public class POSController {
         String plate = plateField.getText().trim();
         if (plate.isEmpty()) return;
 
-        new Thread(() -> {
-            try {
-                Optional<Vehicle> vehicleOpt = vehicleDAO.findByLicensePlate(plate);
-                Platform.runLater(() -> {
-                    if (vehicleOpt.isPresent()) {
-                        Vehicle v = vehicleOpt.get();
-                        vehicleLabel.setText(v.getYear() + " " + v.getMake() + " " + v.getModel() + " (" + v.getLicensePlate() + ")");
-                        if (currentInvoice != null) currentInvoice.setVehicleId(v.getId());
-                    } else {
-                        AlertUtil.showWarning("Not Found", "No vehicle with plate: " + plate);
-                    }
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
+        tasks.latest("plate", () -> vehicleDAO.findByLicensePlate(plate), vehicleOpt -> {
+            if (vehicleOpt.isPresent()) {
+                Vehicle v = vehicleOpt.get();
+                vehicleLabel.setText(v.getYear() + " " + v.getMake() + " " + v.getModel() + " (" + v.getLicensePlate() + ")");
+                if (currentInvoice != null) currentInvoice.setVehicleId(v.getId());
+            } else {
+                AlertUtil.showWarning("Not Found", "No vehicle with plate: " + plate);
             }
-        }).start();
+        });
     }
 
     private void addProductToInvoice(Product product, double qty) {
-        if (currentInvoice == null) {
-            AlertUtil.showError("Error", "No active invoice.");
-            return;
-        }
-        new Thread(() -> {
-            try {
-                InvoiceItem item = posService.addItem(currentInvoice.getId(), product.getId(), qty);
-                Platform.runLater(() -> {
-                    invoiceItems.add(item);
-                    updateTotals();
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
+        var user = AuthService.getCurrentUser();
+        int techId = user != null ? user.getId() : 0;
+        Invoice target = currentInvoice;
+        tasks.run(() -> posService.addItem((target != null ? target : openInvoice(techId)).getId(), product.getId(), qty), totals -> {
+            if (currentInvoice != null && currentInvoice.getId() == totals.getInvoiceId()) {
+                invoiceNumberLabel.setText(currentInvoice.getInvoiceNumber());
             }
-        }).start();
+            invoiceItems.add(totals.getItem());
+            applyTotals(totals);
+        });
     }
 
     @FXML
@@ -207,34 +218,24 @@ public class POSController {
         InvoiceItem selected = itemsTable.getSelectionModel().getSelectedItem();
         if (selected == null || currentInvoice == null) return;
 
-        new Thread(() -> {
-            try {
-                posService.removeItem(currentInvoice.getId(), selected.getId());
-                Platform.runLater(() -> {
-                    invoiceItems.remove(selected);
-                    updateTotals();
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        int invoiceId = currentInvoice.getId();
+        tasks.run(() -> posService.removeItem(invoiceId, selected.getId()), totals -> {
+            invoiceItems.remove(selected);
+            applyTotals(totals);
+        });
     }
 
     @FXML
     private void handleHold() {
         if (currentInvoice == null || invoiceItems.isEmpty()) return;
-        new Thread(() -> {
-            try {
-                posService.holdInvoice(currentInvoice.getId());
-                Platform.runLater(() -> {
-                    refreshWipList();
-                    newInvoice();
-                    AlertUtil.showInfo("Held", "Invoice " + currentInvoice.getInvoiceNumber() + " is on hold.");
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        Invoice held = currentInvoice;
+        tasks.run(() -> {
+            posService.holdInvoice(held.getId());
+            return null;
+        }, ignored -> {
+            clearInvoice();
+            AlertUtil.showInfo("Held", "Invoice " + held.getInvoiceNumber() + " is on hold.");
+        });
     }
 
     @FXML
@@ -245,10 +246,10 @@ public class POSController {
         }
 
         String paymentMethod = paymentMethodCombo.getValue();
-        double paid;
+        long paid;
         try {
-            paid = amountPaidField.getText().isEmpty() ? currentInvoice.getTotal()
-                    : Double.parseDouble(amountPaidField.getText());
+            paid = amountPaidField.getText().isEmpty() ? currentInvoice.getTotalCents()
+                    : Money.parse(amountPaidField.getText());
         } catch (NumberFormatException e) {
             AlertUtil.showError("Invalid Amount", "Enter a valid payment amount.");
             return;
@@ -257,27 +258,24 @@ public class POSController {
         // Apply discount
         try {
             if (!discountField.getText().isEmpty()) {
-                double discount = Double.parseDouble(discountField.getText());
-                posService.applyDiscount(currentInvoice.getId(), discount);
-                refreshInvoiceFromDb();
+                long discount = Money.parse(discountField.getText());
+                applyTotals(posService.applyDiscount(currentInvoice.getId(), discount));
             }
         } catch (Exception e) {
             AlertUtil.showError("Discount Error", e.getMessage());
             return;
         }
 
-        final double finalPaid = paid;
-        new Thread(() -> {
-            try {
-                posService.checkout(currentInvoice.getId(), paymentMethod, finalPaid, null);
-                Platform.runLater(() -> {
-                    AlertUtil.showInfo("Paid", "Invoice " + currentInvoice.getInvoiceNumber() + " completed.");
-                    newInvoice();
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> AlertUtil.showError("Checkout Error", e.getMessage()));
-            }
-        }).start();
+        final long finalPaid = paid;
+        Invoice paying = currentInvoice;
+        tasks.run(() -> {
+            posService.checkout(paying.getId(), paymentMethod, finalPaid, null);
+            return null;
+        }, ignored -> {
+            productSearch.invalidate(); // stock moved
+            AlertUtil.showInfo("Paid", "Invoice " + paying.getInvoiceNumber() + " completed.");
+            clearInvoice();
+        }, e -> AlertUtil.showError("Checkout Error", e.getMessage()));
     }
 
     @FXML
@@ -285,17 +283,15 @@ public class POSController {
         if (currentInvoice == null) return;
         if (!AlertUtil.showConfirm("Void Invoice", "Are you sure you want to void this invoice?")) return;
 
-        new Thread(() -> {
-            try {
-                posService.voidInvoice(currentInvoice.getId());
-                Platform.runLater(() -> {
-                    AlertUtil.showInfo("Voided", "Invoice voided.");
-                    newInvoice();
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        int invoiceId = currentInvoice.getId();
+        tasks.run(() -> {
+            posService.voidInvoice(invoiceId);
+            return null;
+        }, ignored -> {
+            productSearch.invalidate(); // stock moved
+            AlertUtil.showInfo("Voided", "Invoice voided.");
+            clearInvoice();
+        });
     }
 
     @FXML
@@ -324,46 +320,68 @@ public class POSController {
             int end = invoiceNumAndId.lastIndexOf(")");
             if (start > 4 && end > start) {
                 int invoiceId = Integer.parseInt(invoiceNumAndId.substring(start, end));
-                new Thread(() -> {
-                    try {
-                        posService.resumeInvoice(invoiceId);
-                        Optional<Invoice> invOpt = posService.getInvoice(invoiceId);
-                        Platform.runLater(() -> {
-                            invOpt.ifPresent(inv -> {
-                                currentInvoice = inv;
-                                invoiceItems.setAll(inv.getItems());
-                                invoiceNumberLabel.setText(inv.getInvoiceNumber());
-                                updateTotals();
-                                refreshWipList();
-                            });
-                        });
-                    } catch (SQLException e) {
-                        Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-                    }
-                }).start();
+                Invoice outgoing = currentInvoice;
+                tasks.latest("resume", () -> {
+                    posService.resumeInvoice(invoiceId);
+                    // Only once the resume took: the sale on screen is set aside, not left reserving stock
+                    if (outgoing != null && outgoing.getId() != invoiceId) posService.parkInvoice(outgoing.getId());
+                    return posService.getInvoice(invoiceId);
+                }, invOpt -> invOpt.ifPresent(inv -> {
+                    currentInvoice = inv;
+                    invoiceItems.setAll(inv.getItems());
+                    invoiceNumberLabel.setText(inv.getInvoiceNumber());
+                    updateTotals();
+                }));
             }
         } catch (NumberFormatException e) {
             AlertUtil.showError("Error", "Could not parse invoice ID.");
         }
     }
 
-    private void refreshWipList() {
-        new Thread(() -> {
-            try {
-                List<Invoice> held = posService.getHeldInvoices();
-                List<Invoice> wip = posService.getWipInvoices();
-                held.addAll(wip);
-                Platform.runLater(() -> {
-                    ObservableList<String> items = FXCollections.observableArrayList();
-                    for (Invoice inv : held) {
-                        items.add(inv.getInvoiceNumber() + " [" + inv.getStatus() + "] (id=" + inv.getId() + ")");
-                    }
-                    wipList.setItems(items);
-                });
-            } catch (SQLException e) {
-                // Ignore
+    private void loadWipList() {
+        tasks.latest("wipList", () -> {
+            List<Invoice> held = posService.getHeldInvoices();
+            held.addAll(posService.getWipInvoices());
+            return held;
+        }, held -> {
+            parked.clear();
+            for (Invoice inv : held) parked.put(inv.getId(), inv);
+            showWipList();
+        }, e -> { /* Ignore */ });
+    }
+
+    /** Moves one invoice on or off the list; only an invoice the list has not seen is read. */
+    private void applyInvoiceChange(InvoiceStatusChanged e) {
+        if (tasks.isClosed()) return;
+        Invoice known = parked.get(e.invoiceId());
+        if (!e.isParked()) {
+            if (known != null) {
+                parked.remove(e.invoiceId());
+                showWipList();
             }
-        }).start();
+        } else if (known != null) {
+            known.setStatus(e.status());
+            showWipList();
+        } else {
+            tasks.run(() -> posService.getInvoice(e.invoiceId()), invOpt -> invOpt.ifPresent(inv -> {
+                // Re-check: a later event may have moved it on while this was read
+                if (!InvoiceStatusChanged.isParked(inv.getStatus())) return;
+                parked.put(inv.getId(), inv);
+                showWipList();
+            }), err -> { /* Ignore */ });
+        }
+    }
+
+    private void showWipList() {
+        ObservableList<String> items = FXCollections.observableArrayList();
+        for (String status : List.of("HELD", "WIP")) {
+            for (Invoice inv : parked.values()) {
+                if (status.equals(inv.getStatus())) {
+                    items.add(inv.getInvoiceNumber() + " [" + inv.getStatus() + "] (id=" + inv.getId() + ")");
+                }
+            }
+        }
+        wipList.setItems(items);
     }
 
     @FXML
@@ -374,21 +392,16 @@ public class POSController {
         }
     }
 
-    private void refreshInvoiceFromDb() throws SQLException {
-        if (currentInvoice == null) return;
-        Optional<Invoice> invOpt = posService.getInvoice(currentInvoice.getId());
-        invOpt.ifPresent(inv -> {
-            currentInvoice = inv;
-            invoiceItems.setAll(inv.getItems());
-            updateTotals();
-        });
+    private void applyTotals(InvoiceTotals totals) {
+        if (currentInvoice == null || currentInvoice.getId() != totals.getInvoiceId()) return;
+        totals.applyTo(currentInvoice);
+        updateTotals();
     }
 
     private void updateTotals() {
         if (currentInvoice == null) return;
-        double subtotal = invoiceItems.stream().mapToDouble(InvoiceItem::getTotal).sum();
-        subtotalLabel.setText(String.format("%.2f", subtotal));
-        taxLabel.setText(String.format("%.2f", currentInvoice.getTax()));
-        totalLabel.setText(String.format("%.2f", currentInvoice.getTotal()));
+        subtotalLabel.setText(Money.format(currentInvoice.getSubtotalCents()));
+        taxLabel.setText(Money.format(currentInvoice.getTaxCents()));
+        totalLabel.setText(Money.format(currentInvoice.getTotalCents()));
     }
 }
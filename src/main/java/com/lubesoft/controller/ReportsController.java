@@ -1,21 +1,27 @@
 package com.lubesoft.controller;
 
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.model.DateRange;
 import com.lubesoft.model.Invoice;
+import com.lubesoft.model.Money;
+import com.lubesoft.model.PageCursor;
+import com.lubesoft.service.ReportJobService;
 import com.lubesoft.service.ReportService;
 import com.lubesoft.util.AlertUtil;
-import javafx.application.Platform;
-import javafx.collections.FXCollections;
+import com.lubesoft.util.PagedObservableList;
+import com.lubesoft.util.TaskScope;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.FileChooser;
 
 import java.io.File;
-import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.DoubleConsumer;
 
-public class ReportsController {
+public class ReportsController implements DisposableView {
 
     @FXML private DatePicker fromDatePicker;
     @FXML private DatePicker toDatePicker;
@@ -29,7 +35,13 @@ public class ReportsController {
     @FXML private TableColumn<Invoice, Double> colSalesTotal;
     @FXML private Label salesTotalLabel;
 
+    @FXML private ProgressBar exportProgress;
+    @FXML private Button cancelExportButton;
+
     private final ReportService reportService = ReportService.getInstance();
+    private final ReportJobService reportJobs = ReportJobService.getInstance();
+    private final TaskScope tasks = new TaskScope("reports");
+    private TaskScope.Task<Integer> exportTask;
 
     @FXML
     public void initialize() {
@@ -40,11 +52,17 @@ public class ReportsController {
         loadSalesReport();
     }
 
+    @Override
+    public void dispose() {
+        tasks.close();
+    }
+
     private void setupSalesTable() {
         colSalesInv.setCellValueFactory(new PropertyValueFactory<>("invoiceNumber"));
         colSalesDate.setCellValueFactory(new PropertyValueFactory<>("completedAt"));
         colSalesPayment.setCellValueFactory(new PropertyValueFactory<>("paymentMethod"));
         colSalesTotal.setCellValueFactory(new PropertyValueFactory<>("total"));
+        PagedObservableList.disableSortWhenPaged(salesTable);
     }
 
     @FXML
@@ -59,73 +77,72 @@ public class ReportsController {
     }
 
     private void loadSalesReport() {
-        String from = getFromDate();
-        String to = getToDate();
-        new Thread(() -> {
-            try {
-                List<Invoice> invoices = reportService.getSalesReport(from, to);
-                double total = reportService.getSalesTotal(from, to);
-                Platform.runLater(() -> {
-                    salesTable.setItems(FXCollections.observableArrayList(invoices));
-                    if (salesTotalLabel != null) salesTotalLabel.setText("Total: " + String.format("%.2f", total));
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
+        DateRange range = getRange();
+        PagedObservableList<Invoice> invoices = new PagedObservableList<>(tasks, "sales-pages", salesPages(range));
+        salesTable.setItems(invoices);
+        invoices.refresh();
+        tasks.latest("sales", reportJobs.salesSummary(range).getResult(), summary -> {
+            if (salesTotalLabel != null) salesTotalLabel.setText("Total: " + Money.format(summary.getRevenueCents()));
+        });
+    }
+
+    /** Invoices in the range, newest first, read a page at a time as the table scrolls. */
+    private PagedObservableList.PageSource<Invoice> salesPages(DateRange range) {
+        return new PagedObservableList.PageSource<>() {
+            @Override
+            public int count() throws Exception {
+                return reportService.countSales(range);
+            }
+
+            @Override
+            public List<Invoice> fetchPage(PageCursor after, int limit) throws Exception {
+                return reportService.getSalesPage(range, after, limit);
+            }
+
+            @Override
+            public PageCursor cursorAt(int offset) throws Exception {
+                return reportService.salesCursorAt(range, offset);
             }
-        }).start();
+
+            @Override
+            public PageCursor cursorOf(Invoice row) {
+                return InvoiceDAO.cursorOf(row);
+            }
+        };
     }
 
     private void loadCreditAging() {
-        new Thread(() -> {
-            try {
-                var aging = reportService.getCreditAging();
-                Platform.runLater(() -> {
-                    StringBuilder sb = new StringBuilder("Credit Aging Summary:\n");
-                    aging.forEach((bucket, customers) ->
-                            sb.append(bucket).append(" days: ").append(customers.size()).append(" customer(s)\n"));
-                    AlertUtil.showInfo("Credit Aging", sb.toString());
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
-            }
-        }).start();
+        tasks.latest("creditAging", reportJobs.creditAging().getResult(), aging -> {
+            StringBuilder sb = new StringBuilder("Credit Aging Summary:\n");
+            aging.forEach((bucket, customers) ->
+                    sb.append(bucket).append(" days: ").append(customers.size()).append(" customer(s)\n"));
+            AlertUtil.showInfo("Credit Aging", sb.toString());
+        });
     }
 
     private void loadLeakageReport() {
-        new Thread(() -> {
-            try {
-                var leakage = reportService.getInventoryLeakage(getFromDate(), getToDate());
-                Platform.runLater(() -> {
-                    StringBuilder sb = new StringBuilder("Inventory Leakage:\n");
-                    for (var row : leakage) {
-                        sb.append(row.get("name")).append(": sold=").append(row.get("sold"))
-                          .append(", waste=").append(row.get("waste")).append("\n");
-                    }
-                    AlertUtil.showInfo("Inventory Leakage", sb.toString());
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
+        DateRange range = getRange();
+        tasks.latest("leakage", reportJobs.inventoryLeakage(range).getResult(), leakage -> {
+            StringBuilder sb = new StringBuilder("Inventory Leakage:\n");
+            for (var row : leakage) {
+                sb.append(row.get("name")).append(": sold=").append(row.get("sold"))
+                  .append(", waste=").append(row.get("waste")).append("\n");
             }
-        }).start();
+            AlertUtil.showInfo("Inventory Leakage", sb.toString());
+        });
     }
 
     private void loadProductivityReport() {
-        new Thread(() -> {
-            try {
-                var productivity = reportService.getEmployeeProductivity(getFromDate(), getToDate());
-                Platform.runLater(() -> {
-                    StringBuilder sb = new StringBuilder("Employee Productivity:\n");
-                    for (var row : productivity) {
-                        sb.append(row.get("username")).append(": ")
-                          .append(row.get("invoice_count")).append(" invoices, ")
-                          .append(String.format("%.1f", row.get("hours_worked"))).append(" hrs\n");
-                    }
-                    AlertUtil.showInfo("Employee Productivity", sb.toString());
-                });
-            } catch (SQLException e) {
-                Platform.runLater(() -> AlertUtil.showError("Error", e.getMessage()));
+        DateRange range = getRange();
+        tasks.latest("productivity", reportJobs.employeeProductivity(range).getResult(), productivity -> {
+            StringBuilder sb = new StringBuilder("Employee Productivity:\n");
+            for (var row : productivity) {
+                sb.append(row.get("username")).append(": ")
+                  .append(row.get("invoice_count")).append(" invoices, ")
+                  .append(String.format("%.1f", row.get("hours_worked"))).append(" hrs\n");
             }
-        }).start();
+            AlertUtil.showInfo("Employee Productivity", sb.toString());
+        });
     }
 
     @FXML
@@ -137,15 +154,35 @@ public class ReportsController {
         File file = chooser.showSaveDialog(null);
         if (file == null) return;
 
-        new Thread(() -> {
-            try {
-                List<Invoice> invoices = reportService.getSalesReport(getFromDate(), getToDate());
-                reportService.exportSalesToPdf(invoices, file.getAbsolutePath());
-                Platform.runLater(() -> AlertUtil.showInfo("Exported", "Sales report exported to PDF."));
-            } catch (Exception e) {
-                Platform.runLater(() -> AlertUtil.showError("Export Error", e.getMessage()));
-            }
-        }).start();
+        DateRange range = getRange();
+        DoubleConsumer progress = tasks.progress(exportProgress::setProgress);
+        startExport(() -> reportService.exportSalesToPdf(range, file.getAbsolutePath(), progress), "PDF");
+    }
+
+    @FXML
+    private void handleCancelExport() {
+        if (exportTask != null) exportTask.cancel();
+        setExporting(false);
+    }
+
+    /** Runs an export in the background with the progress bar and Cancel button showing. */
+    private void startExport(Callable<Integer> export, String format) {
+        exportProgress.setProgress(0);
+        setExporting(true);
+        exportTask = tasks.latest("export", export, rows -> {
+            setExporting(false);
+            AlertUtil.showInfo("Exported", "Sales report exported to " + format + " (" + rows + " invoices).");
+        }, e -> {
+            setExporting(false);
+            AlertUtil.showError("Export Error", e.getMessage());
+        });
+    }
+
+    private void setExporting(boolean exporting) {
+        for (Control c : new Control[]{exportProgress, cancelExportButton}) {
+            c.setVisible(exporting);
+            c.setManaged(exporting);
+        }
     }
 
     @FXML
@@ -157,22 +194,14 @@ public class ReportsController {
         File file = chooser.showSaveDialog(null);
         if (file == null) return;
 
-        new Thread(() -> {
-            try {
-                List<Invoice> invoices = reportService.getSalesReport(getFromDate(), getToDate());
-                reportService.exportSalesToExcel(invoices, file.getAbsolutePath());
-                Platform.runLater(() -> AlertUtil.showInfo("Exported", "Sales report exported to Excel."));
-            } catch (Exception e) {
-                Platform.runLater(() -> AlertUtil.showError("Export Error", e.getMessage()));
-            }
-        }).start();
-    }
-
-    private String getFromDate() {
-        return fromDatePicker.getValue() != null ? fromDatePicker.getValue().toString() : LocalDate.now().toString();
+        DateRange range = getRange();
+        DoubleConsumer progress = tasks.progress(exportProgress::setProgress);
+        startExport(() -> reportService.exportSalesToExcel(range, file.getAbsolutePath(), progress), "Excel");
     }
 
-    private String getToDate() {
-        return toDatePicker.getValue() != null ? toDatePicker.getValue().toString() : LocalDate.now().toString();
+    private DateRange getRange() {
+        LocalDate from = fromDatePicker.getValue() != null ? fromDatePicker.getValue() : LocalDate.now();
+        LocalDate to = toDatePicker.getValue() != null ? toDatePicker.getValue() : LocalDate.now();
+        return new DateRange(from, to);
     }
 }
@@ -1,7 +1,10 @@
 package com.lubesoft.dao;
 
 import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.event.CustomerUpdated;
+import com.lubesoft.event.EventBus;
 import com.lubesoft.model.Customer;
+import com.lubesoft.model.PageCursor;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -10,9 +13,11 @@ import java.util.Optional;
 
 public class CustomerDAO {
 
+    public static final int DEFAULT_SEARCH_LIMIT = 200;
+
     public Optional<Customer> findById(int id) throws SQLException {
         String sql = "SELECT * FROM customers WHERE id = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -25,7 +30,7 @@ public class CustomerDAO {
     public List<Customer> findAll() throws SQLException {
         List<Customer> list = new ArrayList<>();
         String sql = "SELECT * FROM customers ORDER BY name";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery(sql)) {
             while (rs.next()) list.add(mapRow(rs));
@@ -33,15 +38,70 @@ public class CustomerDAO {
         return list;
     }
 
+    public int count() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM customers";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * One page of customers in (name, id) order, starting after {@code after} (null for the
+     * first page). Seeks through idx_customers_name, so deep pages cost the same as the first.
+     */
+    public List<Customer> findPage(PageCursor after, int limit) throws SQLException {
+        List<Customer> list = new ArrayList<>();
+        String sql = after == null
+                ? "SELECT * FROM customers ORDER BY name, id LIMIT ?"
+                : "SELECT * FROM customers WHERE (name, id) > (?, ?) ORDER BY name, id LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = after == null ? 1 : after.bind(ps, 1);
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Cursor of the row just before {@code offset} in (name, id) order, for jumping straight
+     * to a page. Walks the index only; null for offset 0 or past the end.
+     */
+    public PageCursor cursorAt(int offset) throws SQLException {
+        if (offset <= 0) return null;
+        String sql = "SELECT name, id FROM customers ORDER BY name, id LIMIT 1 OFFSET ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, offset - 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new PageCursor(rs.getString(1), rs.getInt(2)) : null;
+            }
+        }
+    }
+
+    public static PageCursor cursorOf(Customer c) {
+        return new PageCursor(c.getName(), c.getId());
+    }
+
     public List<Customer> search(String query) throws SQLException {
+        return search(query, DEFAULT_SEARCH_LIMIT);
+    }
+
+    /** Ranked prefix search over name, phone and company through the customers_fts index. */
+    public List<Customer> search(String query, int limit) throws SQLException {
         List<Customer> list = new ArrayList<>();
-        String sql = "SELECT * FROM customers WHERE name LIKE ? OR phone LIKE ? OR company LIKE ? ORDER BY name";
-        String pattern = "%" + query + "%";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        String match = FtsQuery.prefixAll(query);
+        if (match == null) return list;
+        String sql = "SELECT c.* FROM customers_fts f JOIN customers c ON c.id = f.rowid " +
+                "WHERE customers_fts MATCH ? ORDER BY bm25(customers_fts, 10.0, 5.0, 3.0), c.name LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, pattern);
-            ps.setString(2, pattern);
-            ps.setString(3, pattern);
+            ps.setString(1, match);
+            ps.setInt(2, limit);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(mapRow(rs));
             }
@@ -49,62 +109,66 @@ public class CustomerDAO {
         return list;
     }
 
+    /** Saves the customer's details; the balance belongs to {@link ReceivablesDAO} and is left alone. */
     public Customer save(Customer customer) throws SQLException {
         if (customer.getId() == 0) {
-            return insert(customer);
+            insert(customer);
         } else {
             update(customer);
-            return customer;
         }
+        EventBus.getInstance().publish(new CustomerUpdated(customer.getId()));
+        return customer;
     }
 
     private Customer insert(Customer c) throws SQLException {
-        String sql = "INSERT INTO customers(name,phone,email,company,credit_limit,current_balance) VALUES(?,?,?,?,?,?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, c.getName());
-            ps.setString(2, c.getPhone());
-            ps.setString(3, c.getEmail());
-            ps.setString(4, c.getCompany());
-            ps.setDouble(5, c.getCreditLimit());
-            ps.setDouble(6, c.getCurrentBalance());
-            ps.executeUpdate();
+        String sql = "INSERT INTO customers(name,phone,email,company,credit_limit_cents) VALUES(?,?,?,?,?)";
+        return DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, c.getName());
+                ps.setString(2, c.getPhone());
+                ps.setString(3, c.getEmail());
+                ps.setString(4, c.getCompany());
+                ps.setLong(5, c.getCreditLimitCents());
+                ps.executeUpdate();
+            }
             try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
                 if (keys.next()) c.setId(keys.getInt(1));
             }
-        }
-        return c;
+            return c;
+        });
     }
 
     private void update(Customer c) throws SQLException {
-        String sql = "UPDATE customers SET name=?,phone=?,email=?,company=?,credit_limit=?,current_balance=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, c.getName());
-            ps.setString(2, c.getPhone());
-            ps.setString(3, c.getEmail());
-            ps.setString(4, c.getCompany());
-            ps.setDouble(5, c.getCreditLimit());
-            ps.setDouble(6, c.getCurrentBalance());
-            ps.setInt(7, c.getId());
-            ps.executeUpdate();
-        }
+        String sql = "UPDATE customers SET name=?,phone=?,email=?,company=?,credit_limit_cents=? WHERE id=?";
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, c.getName());
+                ps.setString(2, c.getPhone());
+                ps.setString(3, c.getEmail());
+                ps.setString(4, c.getCompany());
+                ps.setLong(5, c.getCreditLimitCents());
+                ps.setInt(6, c.getId());
+                return ps.executeUpdate();
+            }
+        });
     }
 
     public void delete(int id) throws SQLException {
         String sql = "DELETE FROM customers WHERE id = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            ps.executeUpdate();
-        }
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, id);
+                return ps.executeUpdate();
+            }
+        });
+        EventBus.getInstance().publish(new CustomerUpdated(id));
     }
 
     /** Returns customers with outstanding balance (credit usage). */
     public List<Customer> findWithBalance() throws SQLException {
         List<Customer> list = new ArrayList<>();
-        String sql = "SELECT * FROM customers WHERE current_balance > 0 ORDER BY current_balance DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        String sql = "SELECT * FROM customers WHERE balance_cents > 0 ORDER BY balance_cents DESC";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery(sql)) {
             while (rs.next()) list.add(mapRow(rs));
@@ -119,8 +183,8 @@ public class CustomerDAO {
         c.setPhone(rs.getString("phone"));
         c.setEmail(rs.getString("email"));
         c.setCompany(rs.getString("company"));
-        c.setCreditLimit(rs.getDouble("credit_limit"));
-        c.setCurrentBalance(rs.getDouble("current_balance"));
+        c.setCreditLimitCents(rs.getLong("credit_limit_cents"));
+        c.setBalanceCents(rs.getLong("balance_cents"));
         c.setCreatedAt(rs.getString("created_at"));
         return c;
     }
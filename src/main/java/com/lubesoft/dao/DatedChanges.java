@@ -0,0 +1,32 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.HistoryChanged;
+import com.lubesoft.model.DateRange;
+
+import java.time.LocalDate;
+
+/**
+ * Publishes {@link HistoryChanged} for the DAOs once a change to dated history is
+ * committed. Most writes are dated today; voids and clock-outs can reach back.
+ */
+final class DatedChanges {
+
+    private DatedChanges() {}
+
+    static void fire(DateRange days) {
+        EventBus.getInstance().publish(new HistoryChanged(days));
+    }
+
+    static void fireToday() {
+        if (EventBus.getInstance().hasSubscribers(HistoryChanged.class)) fire(DateRange.today());
+    }
+
+    /** Days from {@code from} (a stored timestamp or date) through today. */
+    static DateRange sinceDay(String from) {
+        DateRange today = DateRange.today();
+        if (from == null || from.length() < 10) return today;
+        LocalDate day = LocalDate.parse(from.substring(0, 10));
+        return day.isBefore(today.getFrom()) ? new DateRange(day, today.getTo()) : today;
+    }
+}
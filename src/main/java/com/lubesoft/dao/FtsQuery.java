@@ -0,0 +1,29 @@
+package com.lubesoft.dao;
+
+/**
+ * Turns free text typed into a search box into an FTS5 MATCH expression. Every word
+ * becomes a quoted prefix term and all terms must match, so "mob 5w" finds
+ * "Mobil 1 5W-30". Punctuation splits words the same way the unicode61 tokenizer does.
+ */
+final class FtsQuery {
+
+    private FtsQuery() {}
+
+    /** Returns the MATCH expression, or null when the text has no searchable words. */
+    static String prefixAll(String text) {
+        if (text == null) return null;
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            while (i < n && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            int start = i;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) i++;
+            if (i > start) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append('"').append(text, start, i).append("\"*");
+            }
+        }
+        return sb.length() == 0 ? null : sb.toString();
+    }
+}
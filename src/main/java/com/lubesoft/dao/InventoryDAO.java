@@ -1,6 +1,7 @@
 package com.lubesoft.dao;
 
 import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
 import com.lubesoft.model.InventoryTransaction;
 
 import java.sql.*;
@@ -10,9 +11,51 @@ import java.util.List;
 public class InventoryDAO {
 
     public InventoryTransaction record(InventoryTransaction tx) throws SQLException {
+        InventoryTransaction recorded = DatabaseManager.getInstance().write(conn -> insert(conn, tx));
+        DatedChanges.fireToday();
+        return recorded;
+    }
+
+    /**
+     * Moves the product's stock by {@code tx.getQtyChange()} and records {@code tx}, in one
+     * unit of work. The change is applied in SQL rather than by saving a re-read row, so
+     * sales committed in between are kept. Stock may not be taken below what open invoices
+     * have reserved; that throws IllegalStateException and changes nothing.
+     */
+    public InventoryTransaction adjust(InventoryTransaction tx) throws SQLException {
+        String sql = "UPDATE products SET stock_qty = stock_qty + ?, version = version + 1 "
+                + "WHERE id = ? AND (? >= 0 OR stock_qty + ? >= reserved_qty)";
+        InventoryTransaction recorded = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setDouble(1, tx.getQtyChange());
+                ps.setInt(2, tx.getProductId());
+                ps.setDouble(3, tx.getQtyChange());
+                ps.setDouble(4, tx.getQtyChange());
+                if (ps.executeUpdate() == 0) throw refused(conn, tx.getProductId());
+            }
+            return insert(conn, tx);
+        });
+        ProductDAO.fireChanged(tx.getProductId());
+        DatedChanges.fireToday();
+        return recorded;
+    }
+
+    private static RuntimeException refused(Connection conn, int productId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT reserved_qty FROM products WHERE id = ?")) {
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return new IllegalArgumentException("Product not found: " + productId);
+                double reserved = rs.getDouble(1);
+                return new IllegalStateException(reserved > 0
+                        ? "Stock cannot go below the " + reserved + " reserved on open invoices"
+                        : "Stock cannot go below zero");
+            }
+        }
+    }
+
+    private static InventoryTransaction insert(Connection conn, InventoryTransaction tx) throws SQLException {
         String sql = "INSERT INTO inventory_transactions(product_id,type,qty_change,reference_id,notes) VALUES(?,?,?,?,?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, tx.getProductId());
             ps.setString(2, tx.getType());
             ps.setDouble(3, tx.getQtyChange());
@@ -23,9 +66,9 @@ public class InventoryDAO {
             }
             ps.setString(5, tx.getNotes());
             ps.executeUpdate();
-            try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
-                if (keys.next()) tx.setId(keys.getInt(1));
-            }
+        }
+        try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
+            if (keys.next()) tx.setId(keys.getInt(1));
         }
         return tx;
     }
@@ -33,7 +76,7 @@ public class InventoryDAO {
     public List<InventoryTransaction> findByProduct(int productId) throws SQLException {
         List<InventoryTransaction> list = new ArrayList<>();
         String sql = "SELECT * FROM inventory_transactions WHERE product_id=? ORDER BY created_at DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, productId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -44,12 +87,15 @@ public class InventoryDAO {
     }
 
     public List<InventoryTransaction> findByDateRange(String from, String to) throws SQLException {
+        return findByDateRange(DateRange.of(from, to));
+    }
+
+    public List<InventoryTransaction> findByDateRange(DateRange range) throws SQLException {
         List<InventoryTransaction> list = new ArrayList<>();
-        String sql = "SELECT * FROM inventory_transactions WHERE date(created_at) BETWEEN date(?) AND date(?) ORDER BY created_at DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        String sql = "SELECT * FROM inventory_transactions WHERE created_at >= ? AND created_at < ? ORDER BY created_at DESC";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, from);
-            ps.setString(2, to);
+            range.bind(ps, 1);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(mapRow(rs));
             }
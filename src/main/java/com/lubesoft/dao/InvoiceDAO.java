@@ -1,42 +1,67 @@
 package com.lubesoft.dao;
 
 import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.event.CustomerUpdated;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.InvoiceStatusChanged;
+import com.lubesoft.model.DateRange;
 import com.lubesoft.model.Invoice;
 import com.lubesoft.model.InvoiceItem;
+import com.lubesoft.model.InvoiceTotals;
+import com.lubesoft.model.PageCursor;
 
 import java.sql.*;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class InvoiceDAO {
 
+    // Statuses an invoice can still be changed, paid or voided from
+    private static final String UNFINISHED = "('OPEN','WIP','HELD')";
+
+    // Tax on the stored subtotal at a bound rate, rounded to the cent like Money.times
+    private static final String TAX_OF_SUBTOTAL = "CAST(ROUND(subtotal_cents*?) AS INTEGER)";
+
+    private final SalesRollupDAO salesRollup = new SalesRollupDAO();
+    private final ReceivablesDAO receivables = new ReceivablesDAO();
+    private final StockReservationDAO stock = new StockReservationDAO();
+
     public Invoice createInvoice(Invoice invoice) throws SQLException {
-        String sql = "INSERT INTO invoices(invoice_number,customer_id,vehicle_id,technician_id,status,subtotal,tax,discount,total,paid_amount,notes) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, invoice.getInvoiceNumber());
-            setNullableInt(ps, 2, invoice.getCustomerId());
-            setNullableInt(ps, 3, invoice.getVehicleId());
-            setNullableInt(ps, 4, invoice.getTechnicianId());
-            ps.setString(5, invoice.getStatus() != null ? invoice.getStatus() : "OPEN");
-            ps.setDouble(6, invoice.getSubtotal());
-            ps.setDouble(7, invoice.getTax());
-            ps.setDouble(8, invoice.getDiscount());
-            ps.setDouble(9, invoice.getTotal());
-            ps.setDouble(10, invoice.getPaidAmount());
-            ps.setString(11, invoice.getNotes());
-            ps.executeUpdate();
+        String sql = "INSERT INTO invoices(invoice_number,customer_id,vehicle_id,technician_id,status,subtotal_cents,tax_cents,discount_cents,total_cents,paid_cents,notes) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
+        Invoice created = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, invoice.getInvoiceNumber());
+                setNullableInt(ps, 2, invoice.getCustomerId());
+                setNullableInt(ps, 3, invoice.getVehicleId());
+                setNullableInt(ps, 4, invoice.getTechnicianId());
+                ps.setString(5, invoice.getStatus() != null ? invoice.getStatus() : "OPEN");
+                ps.setLong(6, invoice.getSubtotalCents());
+                ps.setLong(7, invoice.getTaxCents());
+                ps.setLong(8, invoice.getDiscountCents());
+                ps.setLong(9, invoice.getTotalCents());
+                ps.setLong(10, invoice.getPaidCents());
+                ps.setString(11, invoice.getNotes());
+                ps.executeUpdate();
+            }
             try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
                 if (keys.next()) invoice.setId(keys.getInt(1));
             }
-        }
-        return invoice;
+            return invoice;
+        });
+        DatedChanges.fireToday();
+        EventBus.getInstance().publish(new InvoiceStatusChanged(created.getId(), created.getStatus() != null ? created.getStatus() : "OPEN"));
+        return created;
     }
 
     public Optional<Invoice> findById(int id) throws SQLException {
         String sql = "SELECT * FROM invoices WHERE id = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -52,7 +77,7 @@ public class InvoiceDAO {
 
     public Optional<Invoice> findByInvoiceNumber(String number) throws SQLException {
         String sql = "SELECT * FROM invoices WHERE invoice_number = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, number);
             try (ResultSet rs = ps.executeQuery()) {
@@ -69,7 +94,7 @@ public class InvoiceDAO {
     public List<Invoice> findByStatus(String status) throws SQLException {
         List<Invoice> list = new ArrayList<>();
         String sql = "SELECT * FROM invoices WHERE status = ? ORDER BY created_at DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, status);
             try (ResultSet rs = ps.executeQuery()) {
@@ -80,12 +105,67 @@ public class InvoiceDAO {
     }
 
     public List<Invoice> findByDateRange(String from, String to) throws SQLException {
+        return findByDateRange(DateRange.of(from, to));
+    }
+
+    public List<Invoice> findByDateRange(DateRange range) throws SQLException {
+        List<Invoice> list = new ArrayList<>();
+        String sql = "SELECT * FROM invoices WHERE created_at >= ? AND created_at < ? ORDER BY created_at DESC";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Streams the range newest first through {@code handler} straight off the cursor,
+     * holding one row at a time. Returns the number of rows handled.
+     */
+    public int forEachByDateRange(DateRange range, RowHandler<Invoice> handler) throws Exception {
+        String sql = "SELECT * FROM invoices WHERE created_at >= ? AND created_at < ? ORDER BY created_at DESC";
+        int rows = 0;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(mapRow(rs));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    public int countByDateRange(DateRange range) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM invoices WHERE created_at >= ? AND created_at < ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * One page of the range, newest first, continuing below {@code before} (null for the
+     * first page). Keyset on (created_at, id) through idx_invoices_created.
+     */
+    public List<Invoice> findPageByDateRange(DateRange range, PageCursor before, int limit) throws SQLException {
         List<Invoice> list = new ArrayList<>();
-        String sql = "SELECT * FROM invoices WHERE date(created_at) BETWEEN date(?) AND date(?) ORDER BY created_at DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        String sql = "SELECT * FROM invoices WHERE created_at >= ? AND created_at < ?"
+                + (before == null ? "" : " AND (created_at, id) < (?, ?)")
+                + " ORDER BY created_at DESC, id DESC LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, from);
-            ps.setString(2, to);
+            int index = range.bind(ps, 1);
+            if (before != null) index = before.bind(ps, index);
+            ps.setInt(index, limit);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(mapRow(rs));
             }
@@ -93,10 +173,29 @@ public class InvoiceDAO {
         return list;
     }
 
+    /** Cursor of the row just before {@code offset} in the range's newest-first order; null for 0. */
+    public PageCursor cursorAt(DateRange range, int offset) throws SQLException {
+        if (offset <= 0) return null;
+        String sql = "SELECT created_at, id FROM invoices WHERE created_at >= ? AND created_at < ? "
+                + "ORDER BY created_at DESC, id DESC LIMIT 1 OFFSET ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = range.bind(ps, 1);
+            ps.setInt(index, offset - 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new PageCursor(rs.getString(1), rs.getInt(2)) : null;
+            }
+        }
+    }
+
+    public static PageCursor cursorOf(Invoice invoice) {
+        return new PageCursor(invoice.getCreatedAt(), invoice.getId());
+    }
+
     public List<Invoice> findRecentPaid(int limit) throws SQLException {
         List<Invoice> list = new ArrayList<>();
         String sql = "SELECT * FROM invoices WHERE status='PAID' ORDER BY completed_at DESC LIMIT ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, limit);
             try (ResultSet rs = ps.executeQuery()) {
@@ -106,71 +205,211 @@ public class InvoiceDAO {
         return list;
     }
 
+    /**
+     * Moves an unfinished invoice between OPEN, WIP and HELD. Moving to HELD gives back the
+     * stock the lines reserved; moving back to OPEN or WIP reserves it again, and fails
+     * with IllegalStateException, leaving the status unchanged, if it has been sold
+     * meanwhile. A paid or void invoice is refused with IllegalStateException. Invoices
+     * are voided only through {@link #voidInvoice}.
+     */
     public void updateStatus(int invoiceId, String status) throws SQLException {
-        String sql = "UPDATE invoices SET status=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, status);
-            ps.setInt(2, invoiceId);
-            ps.executeUpdate();
+        if (!List.of("OPEN", "WIP", "HELD").contains(status)) {
+            throw new IllegalArgumentException("Not a status an invoice can be moved to: " + status);
         }
+        String sql = "UPDATE invoices SET status=? WHERE id=? AND status IN " + UNFINISHED;
+        int[] moved = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, status);
+                ps.setInt(2, invoiceId);
+                if (ps.executeUpdate() == 0) throw notUnfinished(conn, invoiceId);
+            }
+            return switch (status) {
+                case "HELD" -> stock.releaseInvoice(conn, invoiceId);
+                default -> stock.reserveInvoice(conn, invoiceId);
+            };
+        });
+        ProductDAO.fireChanged(moved);
+        EventBus.getInstance().publish(new InvoiceStatusChanged(invoiceId, status));
     }
 
-    public void updateTotals(int invoiceId, double subtotal, double tax, double discount, double total) throws SQLException {
-        String sql = "UPDATE invoices SET subtotal=?,tax=?,discount=?,total=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setDouble(1, subtotal);
-            ps.setDouble(2, tax);
-            ps.setDouble(3, discount);
-            ps.setDouble(4, total);
-            ps.setInt(5, invoiceId);
-            ps.executeUpdate();
-        }
+    /**
+     * Sets aside an invoice its terminal walked away from: one with lines goes to HELD and
+     * gives back its reservations, so it waits in the WIP list instead of holding stock;
+     * an empty one is voided. Returns the new status, or null if the invoice was no
+     * longer OPEN or WIP and was left alone.
+     */
+    public String park(int invoiceId) throws SQLException {
+        String sql = "UPDATE invoices SET status = CASE WHEN EXISTS "
+                + "(SELECT 1 FROM invoice_items i WHERE i.invoice_id = invoices.id) THEN 'HELD' ELSE 'VOID' END "
+                + "WHERE id=? AND status IN ('OPEN','WIP')";
+        Parked parked = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, invoiceId);
+                if (ps.executeUpdate() == 0) return null;
+            }
+            return new Parked(List.of(invoiceId), stock.releaseInvoice(conn, invoiceId), readStatus(conn, invoiceId));
+        });
+        if (parked == null) return null;
+        parked.publish();
+        return parked.status();
     }
 
-    public InvoiceItem addItem(int invoiceId, InvoiceItem item) throws SQLException {
-        String sql = "INSERT INTO invoice_items(invoice_id,product_id,description,qty,unit_price,cost_price,total) VALUES(?,?,?,?,?,?,?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, invoiceId);
-            setNullableInt(ps, 2, item.getProductId());
-            ps.setString(3, item.getDescription());
-            ps.setDouble(4, item.getQty());
-            ps.setDouble(5, item.getUnitPrice());
-            ps.setDouble(6, item.getCostPrice());
-            ps.setDouble(7, item.getTotal());
-            ps.executeUpdate();
-            try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
-                if (keys.next()) item.setId(keys.getInt(1));
+    /**
+     * Holds every OPEN or WIP invoice created more than {@code age} ago that still
+     * reserves stock, giving the stock back: a terminal that crashed or was left on a
+     * half-built sale must not keep products from being sold. Returns how many were held.
+     */
+    public int holdStale(Duration age) throws SQLException {
+        String select = "SELECT id FROM invoices WHERE status IN ('OPEN','WIP') AND created_at < datetime('now', ?) "
+                + "AND EXISTS (SELECT 1 FROM invoice_items i WHERE i.invoice_id = invoices.id AND i.reserved_qty > 0)";
+        Parked parked = DatabaseManager.getInstance().write(conn -> {
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(select)) {
+                ps.setString(1, "-" + age.toSeconds() + " seconds");
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getInt(1));
+                }
+            }
+            Set<Integer> moved = new LinkedHashSet<>();
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE invoices SET status='HELD' WHERE id=?")) {
+                for (int id : ids) {
+                    for (int productId : stock.releaseInvoice(conn, id)) moved.add(productId);
+                    ps.setInt(1, id);
+                    ps.executeUpdate();
+                }
+            }
+            return new Parked(ids, moved.stream().mapToInt(Integer::intValue).toArray(), "HELD");
+        });
+        parked.publish();
+        return parked.invoiceIds().size();
+    }
+
+    /** Invoices set aside in one unit of work, and the products whose reservations they gave back. */
+    private record Parked(List<Integer> invoiceIds, int[] products, String status) {
+        void publish() {
+            ProductDAO.fireChanged(products);
+            for (int id : invoiceIds) {
+                EventBus.getInstance().publish(new InvoiceStatusChanged(id, status));
             }
         }
-        item.setInvoiceId(invoiceId);
-        return item;
+    }
+
+    public void updateTotals(int invoiceId, long subtotalCents, long taxCents, long discountCents, long totalCents) throws SQLException {
+        String sql = "UPDATE invoices SET subtotal_cents=?,tax_cents=?,discount_cents=?,total_cents=? WHERE id=?";
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, subtotalCents);
+                ps.setLong(2, taxCents);
+                ps.setLong(3, discountCents);
+                ps.setLong(4, totalCents);
+                ps.setInt(5, invoiceId);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    public InvoiceItem addItem(int invoiceId, InvoiceItem item) throws SQLException {
+        InvoiceItem added = DatabaseManager.getInstance().write(conn -> insertItem(conn, invoiceId, item));
+        if (item.getProductId() > 0) ProductDAO.fireChanged(item.getProductId());
+        return added;
     }
 
     public void removeItem(int itemId) throws SQLException {
         String sql = "DELETE FROM invoice_items WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, itemId);
-            ps.executeUpdate();
-        }
+        int released = DatabaseManager.getInstance().write(conn -> {
+            int productId = stock.releaseLine(conn, itemId);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, itemId);
+                ps.executeUpdate();
+            }
+            return productId;
+        });
+        if (released > 0) ProductDAO.fireChanged(released);
+    }
+
+    /**
+     * Inserts a line, reserving its stock, and moves the invoice totals by the line total
+     * in one unit of work. Cost does not depend on how many lines the invoice already has.
+     * Throws IllegalStateException if the product no longer has the quantity available.
+     */
+    public InvoiceTotals addItem(int invoiceId, InvoiceItem item, double taxRate) throws SQLException {
+        InvoiceTotals added = DatabaseManager.getInstance().write(conn -> {
+            insertItem(conn, invoiceId, item);
+            applySubtotalDelta(conn, invoiceId, item.getTotalCents(), taxRate);
+            InvoiceTotals totals = readTotals(conn, invoiceId);
+            totals.setItem(item);
+            return totals;
+        });
+        if (item.getProductId() > 0) ProductDAO.fireChanged(item.getProductId());
+        return added;
+    }
+
+    /** Deletes a line, releasing its stock, and takes its total back off the invoice in one unit of work. */
+    public InvoiceTotals removeItem(int invoiceId, int itemId, double taxRate) throws SQLException {
+        Removed removed = DatabaseManager.getInstance().write(conn -> {
+            long lineTotal = 0;
+            boolean found = false;
+            int releasedProduct = 0;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT total_cents FROM invoice_items WHERE id=? AND invoice_id=?")) {
+                ps.setInt(1, itemId);
+                ps.setInt(2, invoiceId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        lineTotal = rs.getLong(1);
+                        found = true;
+                    }
+                }
+            }
+            if (found) {
+                releasedProduct = stock.releaseLine(conn, itemId);
+                try (PreparedStatement ps = conn.prepareStatement("DELETE FROM invoice_items WHERE id=?")) {
+                    ps.setInt(1, itemId);
+                    ps.executeUpdate();
+                }
+                applySubtotalDelta(conn, invoiceId, -lineTotal, taxRate);
+            }
+            return new Removed(readTotals(conn, invoiceId), releasedProduct);
+        });
+        if (removed.productId() > 0) ProductDAO.fireChanged(removed.productId());
+        return removed.totals();
+    }
+
+    private record Removed(InvoiceTotals totals, int productId) {}
+
+    /** Sets the discount and recomputes tax/total from the stored subtotal. */
+    public InvoiceTotals applyDiscount(int invoiceId, long discountCents, double taxRate) throws SQLException {
+        String sql = "UPDATE invoices SET discount_cents=?, tax_cents=" + TAX_OF_SUBTOTAL
+                + ", total_cents=subtotal_cents+" + TAX_OF_SUBTOTAL + "-? WHERE id=?";
+        return DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, discountCents);
+                ps.setDouble(2, taxRate);
+                ps.setDouble(3, taxRate);
+                ps.setLong(4, discountCents);
+                ps.setInt(5, invoiceId);
+                ps.executeUpdate();
+            }
+            return readTotals(conn, invoiceId);
+        });
     }
 
     public void removeAllItems(int invoiceId) throws SQLException {
         String sql = "DELETE FROM invoice_items WHERE invoice_id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, invoiceId);
-            ps.executeUpdate();
-        }
+        int[] released = DatabaseManager.getInstance().write(conn -> {
+            int[] products = stock.releaseInvoice(conn, invoiceId);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, invoiceId);
+                ps.executeUpdate();
+            }
+            return products;
+        });
+        ProductDAO.fireChanged(released);
     }
 
     public List<InvoiceItem> findItems(int invoiceId) throws SQLException {
         List<InvoiceItem> list = new ArrayList<>();
         String sql = "SELECT * FROM invoice_items WHERE invoice_id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, invoiceId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -181,102 +420,214 @@ public class InvoiceDAO {
     }
 
     /**
-     * Checkout with a single SQL TRANSACTION: deduct stock, record inventory
-     * transactions, update invoice to PAID, record service history if vehicle present.
+     * Checkout as one unit of work on the write queue: turn the lines' reservations into
+     * a sale, record inventory transactions, update invoice to PAID, add it to the daily
+     * sales rollup and, for CREDIT, charge the unpaid part to the customer's receivables.
+     * Stock updates and inventory rows are sent as JDBC batches, each statement prepared
+     * once; repeated lines for the same product are folded into one stock update. Throws
+     * IllegalStateException, changing nothing, if a line's stock was not reserved and is
+     * no longer available, or if the invoice is already paid or void, so a second
+     * terminal or a retry can never sell it twice.
      */
-    public void checkout(int invoiceId, String paymentMethod, double paidAmount,
+    public void checkout(int invoiceId, String paymentMethod, long paidCents,
                          List<InvoiceItem> items) throws SQLException {
-        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                // Update invoice to PAID
-                String updateInv = "UPDATE invoices SET status='PAID', payment_method=?, paid_amount=?, completed_at=datetime('now') WHERE id=?";
-                try (PreparedStatement ps = conn.prepareStatement(updateInv)) {
-                    ps.setString(1, paymentMethod);
-                    ps.setDouble(2, paidAmount);
-                    ps.setInt(3, invoiceId);
-                    ps.executeUpdate();
-                }
+        int chargedCustomer = DatabaseManager.getInstance().write(conn -> {
+            // Update invoice to PAID, only from an unfinished status
+            String updateInv = "UPDATE invoices SET status='PAID', payment_method=?, paid_cents=?, completed_at=datetime('now') "
+                    + "WHERE id=? AND status IN " + UNFINISHED;
+            try (PreparedStatement ps = conn.prepareStatement(updateInv)) {
+                ps.setString(1, paymentMethod);
+                ps.setLong(2, paidCents);
+                ps.setInt(3, invoiceId);
+                if (ps.executeUpdate() == 0) throw notUnfinished(conn, invoiceId);
+            }
 
-                // Deduct stock and record inventory transactions for each item
-                for (InvoiceItem item : items) {
-                    if (item.getProductId() > 0) {
-                        // Deduct stock
-                        String deductStock = "UPDATE products SET stock_qty = stock_qty - ? WHERE id=?";
-                        try (PreparedStatement ps = conn.prepareStatement(deductStock)) {
-                            ps.setDouble(1, item.getQty());
-                            ps.setInt(2, item.getProductId());
-                            ps.executeUpdate();
-                        }
-                        // Record inventory transaction
-                        String invTx = "INSERT INTO inventory_transactions(product_id,type,qty_change,reference_id,notes) VALUES(?,'SALE',?,?,?)";
-                        try (PreparedStatement ps = conn.prepareStatement(invTx)) {
-                            ps.setInt(1, item.getProductId());
-                            ps.setDouble(2, -item.getQty());
-                            ps.setInt(3, invoiceId);
-                            ps.setString(4, "Invoice #" + invoiceId);
-                            ps.executeUpdate();
-                        }
-                    }
-                }
+            stock.sellInvoice(conn, invoiceId);
+            recordMovements(conn, invoiceId, items, -1, "SALE", "Invoice #" + invoiceId);
+            salesRollup.applyInvoice(conn, invoiceId, 1);
+            return receivables.chargeInvoice(conn, invoiceId);
+        });
+        publishAfter(invoiceId, "PAID", chargedCustomer, items);
+        DatedChanges.fireToday();
+    }
 
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
+    /**
+     * Voids an invoice. A paid one returns its stock and leaves its day's sales and the
+     * customer's credit; an unpaid one just gives back its reservations. The status is
+     * read inside the unit of work, so a checkout committing just before is undone in
+     * full. Voiding a void invoice throws IllegalStateException.
+     */
+    public void voidInvoice(int invoiceId, List<InvoiceItem> items) throws SQLException {
+        Voided voided = DatabaseManager.getInstance().write(conn -> {
+            int creditedCustomer = 0;
+            String status = readStatus(conn, invoiceId);
+            if (status == null) throw new IllegalArgumentException("Invoice not found: " + invoiceId);
+            if ("VOID".equals(status)) throw new IllegalStateException("Invoice #" + invoiceId + " is already VOID");
+            if ("PAID".equals(status)) {
+                applyStockMovement(conn, invoiceId, items, 1, "ADJUSTMENT", "Void Invoice #" + invoiceId);
+                salesRollup.applyInvoice(conn, invoiceId, -1);
+                creditedCustomer = receivables.reverseInvoice(conn, invoiceId);
+            } else {
+                stock.releaseInvoice(conn, invoiceId);
+            }
+
+            // Mark invoice void
+            String voidSql = "UPDATE invoices SET status='VOID' WHERE id=?";
+            try (PreparedStatement ps = conn.prepareStatement(voidSql)) {
+                ps.setInt(1, invoiceId);
+                ps.executeUpdate();
+            }
+            return new Voided(readCreatedAt(conn, invoiceId), creditedCustomer);
+        });
+        publishAfter(invoiceId, "VOID", voided.creditedCustomer(), items);
+        // The invoice leaves its creation and completion days' reports; stock returns today
+        DatedChanges.fire(DatedChanges.sinceDay(voided.createdAt()));
+    }
+
+    private record Voided(String createdAt, int creditedCustomer) {}
+
+    /** Events for a committed checkout or void; {@code customerId} is 0 when no balance moved. */
+    private static void publishAfter(int invoiceId, String status, int customerId, List<InvoiceItem> items) {
+        ProductDAO.fireChanged(productIds(items));
+        EventBus bus = EventBus.getInstance();
+        bus.publish(new InvoiceStatusChanged(invoiceId, status));
+        if (customerId != 0) bus.publish(new CustomerUpdated(customerId));
+    }
+
+    /** Why a guarded status change matched no row: the invoice is missing or finished. */
+    private static RuntimeException notUnfinished(Connection conn, int invoiceId) throws SQLException {
+        String status = readStatus(conn, invoiceId);
+        if (status == null) return new IllegalArgumentException("Invoice not found: " + invoiceId);
+        return new IllegalStateException("Invoice #" + invoiceId + " is already " + status);
+    }
+
+    private static String readStatus(Connection conn, int invoiceId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT status FROM invoices WHERE id=?")) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
             }
         }
     }
 
-    public void voidInvoice(int invoiceId, List<InvoiceItem> items) throws SQLException {
-        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                // Restore stock for each item
-                for (InvoiceItem item : items) {
-                    if (item.getProductId() > 0) {
-                        String restoreStock = "UPDATE products SET stock_qty = stock_qty + ? WHERE id=?";
-                        try (PreparedStatement ps = conn.prepareStatement(restoreStock)) {
-                            ps.setDouble(1, item.getQty());
-                            ps.setInt(2, item.getProductId());
-                            ps.executeUpdate();
-                        }
-                        String invTx = "INSERT INTO inventory_transactions(product_id,type,qty_change,reference_id,notes) VALUES(?,'ADJUSTMENT',?,?,?)";
-                        try (PreparedStatement ps = conn.prepareStatement(invTx)) {
-                            ps.setInt(1, item.getProductId());
-                            ps.setDouble(2, item.getQty());
-                            ps.setInt(3, invoiceId);
-                            ps.setString(4, "Void Invoice #" + invoiceId);
-                            ps.executeUpdate();
-                        }
-                    }
-                }
-                // Mark invoice void
-                String voidSql = "UPDATE invoices SET status='VOID' WHERE id=?";
-                try (PreparedStatement ps = conn.prepareStatement(voidSql)) {
-                    ps.setInt(1, invoiceId);
-                    ps.executeUpdate();
-                }
-                conn.commit();
-            } catch (SQLException e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
+    private static String readCreatedAt(Connection conn, int invoiceId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT created_at FROM invoices WHERE id=?")) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static int[] productIds(List<InvoiceItem> items) {
+        return items.stream().mapToInt(InvoiceItem::getProductId).filter(id -> id > 0).distinct().toArray();
+    }
+
+    /**
+     * Moves stock for every product line of an invoice in two batches: one aggregated
+     * UPDATE per distinct product and one inventory_transactions row per line.
+     * Must run inside the caller's transaction.
+     */
+    private void applyStockMovement(Connection conn, int invoiceId, List<InvoiceItem> items,
+                                    int direction, String txType, String notes) throws SQLException {
+        Map<Integer, Double> qtyByProduct = new LinkedHashMap<>();
+        for (InvoiceItem item : items) {
+            if (item.getProductId() > 0) {
+                qtyByProduct.merge(item.getProductId(), item.getQty(), Double::sum);
+            }
+        }
+        if (qtyByProduct.isEmpty()) return;
+
+        String stockSql = "UPDATE products SET stock_qty = stock_qty + ?, version = version + 1 WHERE id=?";
+        try (PreparedStatement ps = conn.prepareStatement(stockSql)) {
+            for (Map.Entry<Integer, Double> e : qtyByProduct.entrySet()) {
+                ps.setDouble(1, direction * e.getValue());
+                ps.setInt(2, e.getKey());
+                ps.addBatch();
             }
+            ps.executeBatch();
         }
+        recordMovements(conn, invoiceId, items, direction, txType, notes);
     }
 
-    /** Returns today's total revenue from PAID invoices. */
-    public double getTodayRevenue() throws SQLException {
-        String sql = "SELECT COALESCE(SUM(total),0) FROM invoices WHERE status='PAID' AND date(completed_at)=date('now')";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            return rs.next() ? rs.getDouble(1) : 0;
+    /** One inventory_transactions row per product line, as one batch. */
+    private static void recordMovements(Connection conn, int invoiceId, List<InvoiceItem> items,
+                                        int direction, String txType, String notes) throws SQLException {
+        String invTx = "INSERT INTO inventory_transactions(product_id,type,qty_change,reference_id,notes) VALUES(?,?,?,?,?)";
+        try (PreparedStatement ps = conn.prepareStatement(invTx)) {
+            for (InvoiceItem item : items) {
+                if (item.getProductId() <= 0) continue;
+                ps.setInt(1, item.getProductId());
+                ps.setString(2, txType);
+                ps.setDouble(3, direction * item.getQty());
+                ps.setInt(4, invoiceId);
+                ps.setString(5, notes);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** Returns today's total revenue in cents from PAID invoices, read from the daily rollup. */
+    public long getTodayRevenueCents() throws SQLException {
+        return salesRollup.getSummary(DateRange.today()).getRevenueCents();
+    }
+
+    private InvoiceItem insertItem(Connection conn, int invoiceId, InvoiceItem item) throws SQLException {
+        String sql = "INSERT INTO invoice_items(invoice_id,product_id,description,qty,unit_price_cents,cost_price_cents,total_cents,reserved_qty) VALUES(?,?,?,?,?,?,?,?)";
+        boolean product = item.getProductId() > 0;
+        if (product) stock.reserve(conn, item.getProductId(), item.getQty(), item.getDescription());
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, invoiceId);
+            setNullableInt(ps, 2, item.getProductId());
+            ps.setString(3, item.getDescription());
+            ps.setDouble(4, item.getQty());
+            ps.setLong(5, item.getUnitPriceCents());
+            ps.setLong(6, item.getCostPriceCents());
+            ps.setLong(7, item.getTotalCents());
+            ps.setDouble(8, product ? item.getQty() : 0);
+            ps.executeUpdate();
+            try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
+                if (keys.next()) item.setId(keys.getInt(1));
+            }
+        }
+        item.setInvoiceId(invoiceId);
+        return item;
+    }
+
+    /**
+     * Right-hand sides see the pre-update row, so tax and total follow the new subtotal.
+     * Tax is rounded to the cent before it is added, as Invoice.recalculate does.
+     */
+    private void applySubtotalDelta(Connection conn, int invoiceId, long delta, double taxRate) throws SQLException {
+        String sql = "UPDATE invoices SET subtotal_cents=subtotal_cents+?, tax_cents=CAST(ROUND((subtotal_cents+?)*?) AS INTEGER), "
+                + "total_cents=subtotal_cents+?+CAST(ROUND((subtotal_cents+?)*?) AS INTEGER)-discount_cents WHERE id=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, delta);
+            ps.setLong(2, delta);
+            ps.setDouble(3, taxRate);
+            ps.setLong(4, delta);
+            ps.setLong(5, delta);
+            ps.setDouble(6, taxRate);
+            ps.setInt(7, invoiceId);
+            ps.executeUpdate();
+        }
+    }
+
+    private InvoiceTotals readTotals(Connection conn, int invoiceId) throws SQLException {
+        InvoiceTotals totals = new InvoiceTotals();
+        totals.setInvoiceId(invoiceId);
+        try (PreparedStatement ps = conn.prepareStatement("SELECT subtotal_cents,tax_cents,discount_cents,total_cents FROM invoices WHERE id=?")) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) throw new SQLException("Invoice not found: " + invoiceId);
+                totals.setSubtotalCents(rs.getLong("subtotal_cents"));
+                totals.setTaxCents(rs.getLong("tax_cents"));
+                totals.setDiscountCents(rs.getLong("discount_cents"));
+                totals.setTotalCents(rs.getLong("total_cents"));
+            }
         }
+        return totals;
     }
 
     private void setNullableInt(PreparedStatement ps, int index, int value) throws SQLException {
@@ -296,11 +647,11 @@ public class InvoiceDAO {
         inv.setTechnicianId(rs.getInt("technician_id"));
         inv.setStatus(rs.getString("status"));
         inv.setPaymentMethod(rs.getString("payment_method"));
-        inv.setSubtotal(rs.getDouble("subtotal"));
-        inv.setTax(rs.getDouble("tax"));
-        inv.setDiscount(rs.getDouble("discount"));
-        inv.setTotal(rs.getDouble("total"));
-        inv.setPaidAmount(rs.getDouble("paid_amount"));
+        inv.setSubtotalCents(rs.getLong("subtotal_cents"));
+        inv.setTaxCents(rs.getLong("tax_cents"));
+        inv.setDiscountCents(rs.getLong("discount_cents"));
+        inv.setTotalCents(rs.getLong("total_cents"));
+        inv.setPaidCents(rs.getLong("paid_cents"));
         inv.setCreatedAt(rs.getString("created_at"));
         inv.setCompletedAt(rs.getString("completed_at"));
         inv.setNotes(rs.getString("notes"));
@@ -314,9 +665,9 @@ public class InvoiceDAO {
         item.setProductId(rs.getInt("product_id"));
         item.setDescription(rs.getString("description"));
         item.setQty(rs.getDouble("qty"));
-        item.setUnitPrice(rs.getDouble("unit_price"));
-        item.setCostPrice(rs.getDouble("cost_price"));
-        item.setTotal(rs.getDouble("total"));
+        item.setUnitPriceCents(rs.getLong("unit_price_cents"));
+        item.setCostPriceCents(rs.getLong("cost_price_cents"));
+        item.setTotalCents(rs.getLong("total_cents"));
         return item;
     }
 }
@@ -0,0 +1,68 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseManager;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reserves blocks of invoice numbers per day in invoice_sequence. A row holds the first
+ * number not yet handed out for its day; rows for earlier days are dropped as a new day
+ * starts, so numbering restarts at 1 each day.
+ *
+ * Numbers are "prefix + sequence", e.g. INV-20240131-0042. A block starts after both the
+ * last block reserved, by any process, and the highest sequence already used for the
+ * prefix (read from invoices through the unique index on invoice_number), so it never
+ * overlaps a block another terminal is still handing out or a number already on an
+ * invoice. Numbers reserved by a process that then crashed are skipped, not reused.
+ */
+public class InvoiceSequenceDAO {
+
+    /** Reserves {@code size} numbers for {@code day} and returns the first. */
+    public long reserve(LocalDate day, String prefix, int size) throws SQLException {
+        return DatabaseManager.getInstance().write(conn -> reserve(conn, day, prefix, size));
+    }
+
+    /** {@link #reserve} queued on the writer thread, for fetching the next block ahead of time. */
+    public CompletableFuture<Long> reserveAsync(LocalDate day, String prefix, int size) {
+        return DatabaseManager.getInstance().submitWrite(conn -> reserve(conn, day, prefix, size));
+    }
+
+    private long reserve(Connection conn, LocalDate day, String prefix, int size) throws SQLException {
+        long start = highestUsed(conn, prefix) + 1;
+        String sql = "SELECT next_value FROM invoice_sequence WHERE day = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, day.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) start = Math.max(start, rs.getLong(1));
+            }
+        }
+        String upsert = "INSERT INTO invoice_sequence(day, next_value) VALUES(?,?) "
+                + "ON CONFLICT(day) DO UPDATE SET next_value = excluded.next_value";
+        try (PreparedStatement ps = conn.prepareStatement(upsert)) {
+            ps.setString(1, day.toString());
+            ps.setLong(2, start + size);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM invoice_sequence WHERE day < ?")) {
+            ps.setString(1, day.toString());
+            ps.executeUpdate();
+        }
+        return start;
+    }
+
+    private long highestUsed(Connection conn, String prefix) throws SQLException {
+        // A range on the prefix rather than LIKE, so SQLite can seek the unique index
+        String sql = "SELECT MAX(CAST(substr(invoice_number, ?) AS INTEGER)) FROM invoices "
+                + "WHERE invoice_number >= ? AND invoice_number < ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, prefix.length() + 1);
+            ps.setString(2, prefix);
+            ps.setString(3, prefix.substring(0, prefix.length() - 1) + (char) (prefix.charAt(prefix.length() - 1) + 1));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.lubesoft.dao;
 
 import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.ProductChanged;
+import com.lubesoft.model.PageCursor;
 import com.lubesoft.model.Product;
 
 import java.sql.*;
@@ -10,9 +13,19 @@ import java.util.Optional;
 
 public class ProductDAO {
 
+    public static final int DEFAULT_SEARCH_LIMIT = 200;
+
+    /** Publishes a {@link ProductChanged} per product. Call once the change is committed. */
+    static void fireChanged(int... productIds) {
+        EventBus bus = EventBus.getInstance();
+        for (int id : productIds) {
+            bus.publish(new ProductChanged(id));
+        }
+    }
+
     public Optional<Product> findById(int id) throws SQLException {
         String sql = "SELECT * FROM products WHERE id = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -24,7 +37,7 @@ public class ProductDAO {
 
     public Optional<Product> findByBarcode(String barcode) throws SQLException {
         String sql = "SELECT * FROM products WHERE barcode = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, barcode);
             try (ResultSet rs = ps.executeQuery()) {
@@ -36,7 +49,7 @@ public class ProductDAO {
 
     public Optional<Product> findBySku(String sku) throws SQLException {
         String sql = "SELECT * FROM products WHERE sku = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, sku);
             try (ResultSet rs = ps.executeQuery()) {
@@ -49,7 +62,7 @@ public class ProductDAO {
     public List<Product> findAll() throws SQLException {
         List<Product> list = new ArrayList<>();
         String sql = "SELECT * FROM products ORDER BY name";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery(sql)) {
             while (rs.next()) list.add(mapRow(rs));
@@ -57,16 +70,73 @@ public class ProductDAO {
         return list;
     }
 
+    public int count() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM products";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * One page of products in (name, id) order, starting after {@code after} (null for the
+     * first page). Seeks through idx_products_name, so deep pages cost the same as the first.
+     */
+    public List<Product> findPage(PageCursor after, int limit) throws SQLException {
+        List<Product> list = new ArrayList<>();
+        String sql = after == null
+                ? "SELECT * FROM products ORDER BY name, id LIMIT ?"
+                : "SELECT * FROM products WHERE (name, id) > (?, ?) ORDER BY name, id LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = after == null ? 1 : after.bind(ps, 1);
+            ps.setInt(index, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Cursor of the row just before {@code offset} in (name, id) order, for jumping straight
+     * to a page. Walks the index only; null for offset 0 or past the end.
+     */
+    public PageCursor cursorAt(int offset) throws SQLException {
+        if (offset <= 0) return null;
+        String sql = "SELECT name, id FROM products ORDER BY name, id LIMIT 1 OFFSET ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, offset - 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new PageCursor(rs.getString(1), rs.getInt(2)) : null;
+            }
+        }
+    }
+
+    public static PageCursor cursorOf(Product p) {
+        return new PageCursor(p.getName(), p.getId());
+    }
+
     public List<Product> search(String query) throws SQLException {
+        return search(query, DEFAULT_SEARCH_LIMIT);
+    }
+
+    /**
+     * Ranked prefix search over name, SKU, barcode and category through the products_fts
+     * index. Name matches weigh most, then SKU and barcode, then category.
+     */
+    public List<Product> search(String query, int limit) throws SQLException {
         List<Product> list = new ArrayList<>();
-        String sql = "SELECT * FROM products WHERE name LIKE ? OR sku LIKE ? OR barcode LIKE ? OR category LIKE ? ORDER BY name";
-        String pattern = "%" + query + "%";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        String match = FtsQuery.prefixAll(query);
+        if (match == null) return list;
+        String sql = "SELECT p.* FROM products_fts f JOIN products p ON p.id = f.rowid " +
+                "WHERE products_fts MATCH ? ORDER BY bm25(products_fts, 10.0, 5.0, 5.0, 1.0), p.name LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, pattern);
-            ps.setString(2, pattern);
-            ps.setString(3, pattern);
-            ps.setString(4, pattern);
+            ps.setString(1, match);
+            ps.setInt(2, limit);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(mapRow(rs));
             }
@@ -77,7 +147,7 @@ public class ProductDAO {
     public List<Product> findLowStock() throws SQLException {
         List<Product> list = new ArrayList<>();
         String sql = "SELECT * FROM products WHERE stock_qty <= min_stock ORDER BY name";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery(sql)) {
             while (rs.next()) list.add(mapRow(rs));
@@ -87,64 +157,82 @@ public class ProductDAO {
 
     public Product save(Product p) throws SQLException {
         if (p.getId() == 0) {
-            return insert(p);
+            insert(p);
         } else {
             update(p);
-            return p;
         }
+        fireChanged(p.getId());
+        return p;
     }
 
     private Product insert(Product p) throws SQLException {
-        String sql = "INSERT INTO products(sku,name,category,unit,sell_price,cost_price,stock_qty,min_stock,max_stock,barcode,is_bulk_oil) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, p.getSku());
-            ps.setString(2, p.getName());
-            ps.setString(3, p.getCategory());
-            ps.setString(4, p.getUnit());
-            ps.setDouble(5, p.getSellPrice());
-            ps.setDouble(6, p.getCostPrice());
-            ps.setDouble(7, p.getStockQty());
-            ps.setDouble(8, p.getMinStock());
-            ps.setDouble(9, p.getMaxStock());
-            ps.setString(10, p.getBarcode());
-            ps.setInt(11, p.isBulkOil() ? 1 : 0);
-            ps.executeUpdate();
+        String sql = "INSERT INTO products(sku,name,category,unit,sell_price_cents,cost_price_cents,stock_qty,min_stock,max_stock,barcode,is_bulk_oil) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
+        return DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, p.getSku());
+                ps.setString(2, p.getName());
+                ps.setString(3, p.getCategory());
+                ps.setString(4, p.getUnit());
+                ps.setLong(5, p.getSellPriceCents());
+                ps.setLong(6, p.getCostPriceCents());
+                ps.setDouble(7, p.getStockQty());
+                ps.setDouble(8, p.getMinStock());
+                ps.setDouble(9, p.getMaxStock());
+                ps.setString(10, p.getBarcode());
+                ps.setInt(11, p.isBulkOil() ? 1 : 0);
+                ps.executeUpdate();
+            }
             try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
                 if (keys.next()) p.setId(keys.getInt(1));
             }
-        }
-        return p;
+            return p;
+        });
     }
 
+    /**
+     * Writes the whole row, but only over the version it was loaded at. If a sale or
+     * another terminal changed the product since, nothing is written and SQLException
+     * asks for a reload, instead of the stale stock or prices overwriting theirs.
+     */
     private void update(Product p) throws SQLException {
-        String sql = "UPDATE products SET sku=?,name=?,category=?,unit=?,sell_price=?,cost_price=?,stock_qty=?,min_stock=?,max_stock=?,barcode=?,is_bulk_oil=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, p.getSku());
-            ps.setString(2, p.getName());
-            ps.setString(3, p.getCategory());
-            ps.setString(4, p.getUnit());
-            ps.setDouble(5, p.getSellPrice());
-            ps.setDouble(6, p.getCostPrice());
-            ps.setDouble(7, p.getStockQty());
-            ps.setDouble(8, p.getMinStock());
-            ps.setDouble(9, p.getMaxStock());
-            ps.setString(10, p.getBarcode());
-            ps.setInt(11, p.isBulkOil() ? 1 : 0);
-            ps.setInt(12, p.getId());
-            ps.executeUpdate();
+        String sql = "UPDATE products SET sku=?,name=?,category=?,unit=?,sell_price_cents=?,cost_price_cents=?,stock_qty=?,min_stock=?,max_stock=?,barcode=?,is_bulk_oil=?,version=version+1 WHERE id=? AND version=?";
+        int updated = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, p.getSku());
+                ps.setString(2, p.getName());
+                ps.setString(3, p.getCategory());
+                ps.setString(4, p.getUnit());
+                ps.setLong(5, p.getSellPriceCents());
+                ps.setLong(6, p.getCostPriceCents());
+                ps.setDouble(7, p.getStockQty());
+                ps.setDouble(8, p.getMinStock());
+                ps.setDouble(9, p.getMaxStock());
+                ps.setString(10, p.getBarcode());
+                ps.setInt(11, p.isBulkOil() ? 1 : 0);
+                ps.setInt(12, p.getId());
+                ps.setLong(13, p.getVersion());
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) {
+            throw new SQLException("Product " + p.getName() + " was changed elsewhere since it was loaded; reload it and try again");
         }
+        p.setVersion(p.getVersion() + 1);
     }
 
-    /** Update stock quantity directly (use InventoryDAO for tracked transactions). */
+    /**
+     * Update stock quantity directly (use InventoryDAO for tracked transactions).
+     * Inline subscribers are notified straight away on the caller's thread, which still
+     * holds {@code conn}, so anything they re-read sees the new quantity.
+     */
     public void updateStock(Connection conn, int productId, double newQty) throws SQLException {
-        String sql = "UPDATE products SET stock_qty=? WHERE id=?";
+        String sql = "UPDATE products SET stock_qty=?, version=version+1 WHERE id=?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setDouble(1, newQty);
             ps.setInt(2, productId);
             ps.executeUpdate();
         }
+        fireChanged(productId);
     }
 
     private Product mapRow(ResultSet rs) throws SQLException {
@@ -154,13 +242,15 @@ public class ProductDAO {
         p.setName(rs.getString("name"));
         p.setCategory(rs.getString("category"));
         p.setUnit(rs.getString("unit"));
-        p.setSellPrice(rs.getDouble("sell_price"));
-        p.setCostPrice(rs.getDouble("cost_price"));
+        p.setSellPriceCents(rs.getLong("sell_price_cents"));
+        p.setCostPriceCents(rs.getLong("cost_price_cents"));
         p.setStockQty(rs.getDouble("stock_qty"));
+        p.setReservedQty(rs.getDouble("reserved_qty"));
         p.setMinStock(rs.getDouble("min_stock"));
         p.setMaxStock(rs.getDouble("max_stock"));
         p.setBarcode(rs.getString("barcode"));
         p.setBulkOil(rs.getInt("is_bulk_oil") == 1);
+        p.setVersion(rs.getLong("version"));
         return p;
     }
 }
@@ -0,0 +1,149 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.ProductChanged;
+import com.lubesoft.model.Product;
+
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Writes imported catalog rows into products, matching existing products by SKU, then by
+ * barcode. The FTS triggers on products keep search in step row by row; the change is
+ * announced once the whole import is in, see {@link #fireImported()}.
+ */
+public class ProductImportDAO {
+
+    /** What a batch did: rows inserted and updated, and each failed row's reason (null if it was written). */
+    public record Outcome(int inserted, int updated, String[] failures) {}
+
+    /** One imported product and the numeric columns its row left blank, to be kept on update. */
+    public record Row(Product product, Set<String> blank) {}
+
+    private interface Binder {
+        void bind(PreparedStatement ps, int index, Product p) throws SQLException;
+    }
+
+    // Every column an import may write, and how it is bound from a product
+    private static final Map<String, Binder> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("sku", (ps, i, p) -> ps.setString(i, p.getSku()));
+        COLUMNS.put("barcode", (ps, i, p) -> ps.setString(i, p.getBarcode()));
+        COLUMNS.put("name", (ps, i, p) -> ps.setString(i, p.getName()));
+        COLUMNS.put("category", (ps, i, p) -> ps.setString(i, p.getCategory()));
+        COLUMNS.put("unit", (ps, i, p) -> ps.setString(i, p.getUnit()));
+        COLUMNS.put("sell_price_cents", (ps, i, p) -> ps.setLong(i, p.getSellPriceCents()));
+        COLUMNS.put("cost_price_cents", (ps, i, p) -> ps.setLong(i, p.getCostPriceCents()));
+        COLUMNS.put("stock_qty", (ps, i, p) -> ps.setDouble(i, p.getStockQty()));
+        COLUMNS.put("min_stock", (ps, i, p) -> ps.setDouble(i, p.getMinStock()));
+        COLUMNS.put("max_stock", (ps, i, p) -> ps.setDouble(i, p.getMaxStock()));
+        COLUMNS.put("is_bulk_oil", (ps, i, p) -> ps.setInt(i, p.isBulkOil() ? 1 : 0));
+    }
+
+    // Kept when the file leaves them blank, rather than cleared
+    private static final List<String> KEEP_IF_BLANK = List.of("sku", "barcode", "category", "unit");
+    // Numbers bound as NULL when the row leaves them blank: 0 on insert, kept on update
+    private static final List<String> BLANK_KEEPS = List.of("cost_price_cents", "stock_qty", "min_stock", "max_stock", "is_bulk_oil");
+
+    /**
+     * Inserts or updates {@code products} in one unit of work, writing only
+     * {@code columns}. A row whose SKU or barcode is already in products updates that
+     * product; otherwise it is inserted. Stock is only set on insert: an existing
+     * product's stock moves through inventory transactions, never from a price list.
+     * Blank text and the blank numbers of a row leave an existing product's value alone.
+     *
+     * A row that cannot be written (say its barcode belongs to a different product)
+     * fails alone and the rest of the batch is still written.
+     */
+    public Outcome upsert(List<Row> rows, List<String> columns) throws SQLException {
+        String sql = upsertSql(columns);
+        String[] failures = new String[rows.size()];
+        return DatabaseManager.getInstance().write(conn -> {
+            long lastId = maxId(conn);
+            int written = 0;
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int r = 0; r < rows.size(); r++) {
+                    Product p = rows.get(r).product();
+                    Set<String> blank = rows.get(r).blank();
+                    for (int c = 0; c < columns.size(); c++) {
+                        String column = columns.get(c);
+                        if (blank.contains(column)) {
+                            ps.setNull(c + 1, Types.NULL);
+                        } else {
+                            COLUMNS.get(column).bind(ps, c + 1, p);
+                        }
+                    }
+                    // One row per statement: a constraint failure only undoes its own row
+                    try {
+                        ps.executeUpdate();
+                        written++;
+                    } catch (SQLException e) {
+                        failures[r] = reason(e, p);
+                    }
+                }
+            }
+            int inserted = countSince(conn, lastId);
+            return new Outcome(inserted, written - inserted, failures);
+        });
+    }
+
+    /** Announces a finished import once, instead of a ProductChanged per row. */
+    public void fireImported() {
+        EventBus.getInstance().publish(new ProductChanged(ProductChanged.ALL));
+    }
+
+    private static String reason(SQLException e, Product p) {
+        String message = String.valueOf(e.getMessage());
+        if (message.contains("products.barcode")) return "Barcode " + p.getBarcode() + " belongs to another product";
+        if (message.contains("products.sku")) return "SKU " + p.getSku() + " belongs to another product";
+        return message;
+    }
+
+    private static String upsertSql(List<String> columns) {
+        StringJoiner names = new StringJoiner(",");
+        StringJoiner params = new StringJoiner(",");
+        StringJoiner set = new StringJoiner(", ");
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i);
+            if (!COLUMNS.containsKey(column)) throw new IllegalArgumentException("Not an importable column: " + column);
+            // Numbered, so the update can read a NULL the insert turned into 0
+            String param = "?" + (i + 1);
+            names.add(column);
+            params.add(BLANK_KEEPS.contains(column) ? "COALESCE(" + param + ", 0)" : param);
+            if (column.equals("stock_qty")) continue;
+            if (KEEP_IF_BLANK.contains(column)) {
+                set.add(column + " = COALESCE(excluded." + column + ", " + column + ")");
+            } else if (BLANK_KEEPS.contains(column)) {
+                set.add(column + " = COALESCE(" + param + ", " + column + ")");
+            } else {
+                set.add(column + " = excluded." + column);
+            }
+        }
+        set.add("version = version + 1");
+        return "INSERT INTO products(" + names + ") VALUES(" + params + ") "
+                + "ON CONFLICT(sku) DO UPDATE SET " + set + " "
+                + "ON CONFLICT(barcode) DO UPDATE SET " + set;
+    }
+
+    private static long maxId(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM products")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Ids only grow (AUTOINCREMENT), so rows past the old maximum are this batch's inserts
+    private static int countSince(Connection conn, long lastId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM products WHERE id > ?")) {
+            ps.setLong(1, lastId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
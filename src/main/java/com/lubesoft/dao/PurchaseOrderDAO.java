@@ -0,0 +1,278 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.Money;
+import com.lubesoft.model.PurchaseOrder;
+import com.lubesoft.model.PurchaseOrder.POItem;
+import com.lubesoft.model.PurchaseOrder.ReceivedLine;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Purchase orders and their lines (purchase_orders, po_items), and receiving deliveries
+ * against them into stock.
+ */
+public class PurchaseOrderDAO {
+
+    public PurchaseOrder create(PurchaseOrder po) throws SQLException {
+        String sql = "INSERT INTO purchase_orders(status,notes) VALUES(?,?)";
+        String itemSql = "INSERT INTO po_items(po_id,product_id,qty_ordered,unit_cost_cents) VALUES(?,?,?,?)";
+        if (po.getStatus() == null) po.setStatus("DRAFT");
+        return DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, po.getStatus());
+                ps.setString(2, po.getNotes());
+                ps.executeUpdate();
+            }
+            try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
+                if (keys.next()) po.setId(keys.getInt(1));
+            }
+            try (PreparedStatement ps = conn.prepareStatement(itemSql)) {
+                for (POItem item : po.getItems()) {
+                    ps.setInt(1, po.getId());
+                    ps.setInt(2, item.getProductId());
+                    ps.setDouble(3, item.getQtyOrdered());
+                    ps.setLong(4, item.getUnitCostCents());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            for (POItem item : po.getItems()) item.setPoId(po.getId());
+            return po;
+        });
+    }
+
+    public Optional<PurchaseOrder> findById(int id) throws SQLException {
+        String sql = "SELECT * FROM purchase_orders WHERE id = ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    PurchaseOrder po = mapRow(rs);
+                    po.setItems(findItems(id));
+                    return Optional.of(po);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<PurchaseOrder> findByStatus(String status) throws SQLException {
+        List<PurchaseOrder> list = new ArrayList<>();
+        String sql = "SELECT * FROM purchase_orders WHERE status = ? ORDER BY created_at DESC";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, status);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapRow(rs));
+            }
+        }
+        return list;
+    }
+
+    public List<POItem> findItems(int poId) throws SQLException {
+        List<POItem> list = new ArrayList<>();
+        String sql = "SELECT * FROM po_items WHERE po_id = ? ORDER BY id";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, poId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(mapItemRow(rs));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Receives a delivery against a purchase order as one unit of work: adds each line to
+     * its product's stock, moves the product's cost to the weighted average of the stock
+     * on hand and the delivery, counts it into the order line's received_qty, records one
+     * PURCHASE inventory transaction per line and sets the order PARTIAL or RECEIVED.
+     *
+     * Lines for the same product are folded together, and every statement is prepared
+     * once and sent as a batch, so the cost grows with the distinct products rather than
+     * with round trips. A product that is not on the order, or a non-positive quantity,
+     * throws IllegalArgumentException and nothing is received.
+     *
+     * Returns the ids of the products whose stock moved.
+     */
+    public int[] receive(int poId, List<ReceivedLine> lines) throws SQLException {
+        Map<Integer, Receipt> byProduct = new LinkedHashMap<>();
+        for (ReceivedLine line : lines) {
+            if (!(line.qty() > 0)) {
+                throw new IllegalArgumentException("Received quantity must be positive for product " + line.productId());
+            }
+            Receipt r = byProduct.computeIfAbsent(line.productId(), id -> new Receipt());
+            r.qty += line.qty();
+            r.valueCents = Money.add(r.valueCents, Money.times(line.unitCostCents(), line.qty()));
+        }
+        int[] productIds = byProduct.keySet().stream().mapToInt(Integer::intValue).toArray();
+
+        DatabaseManager.getInstance().write(conn -> {
+            String status = readStatus(conn, poId);
+            if (status == null) throw new IllegalArgumentException("Purchase order not found: " + poId);
+            if ("CANCELLED".equals(status)) throw new IllegalStateException("Purchase order #" + poId + " is cancelled");
+
+            // The first order line for each product takes the delivery
+            String receivedSql = "UPDATE po_items SET received_qty = received_qty + ? "
+                    + "WHERE id = (SELECT MIN(id) FROM po_items WHERE po_id = ? AND product_id = ?)";
+            try (PreparedStatement ps = conn.prepareStatement(receivedSql)) {
+                for (Map.Entry<Integer, Receipt> e : byProduct.entrySet()) {
+                    ps.setDouble(1, e.getValue().qty);
+                    ps.setInt(2, poId);
+                    ps.setInt(3, e.getKey());
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        throw new IllegalArgumentException("Product " + productIds[i] + " is not on purchase order #" + poId);
+                    }
+                }
+            }
+
+            addStock(conn, byProduct);
+            recordPurchases(conn, lines, poId, "PO #" + poId);
+            return updateOrderStatus(conn, poId);
+        });
+        ProductDAO.fireChanged(productIds);
+        DatedChanges.fireToday();
+        return productIds;
+    }
+
+    /**
+     * Receives one product's delivery, with its cost averaged as in {@link #receive}. It is
+     * counted against {@code poId} when that order lists the product and is not cancelled.
+     * Otherwise (no order, {@code poId} 0, or a product the order did not list) the stock
+     * is received on its own as a PURCHASE, referencing the order if one was given.
+     * Returns true if it was counted against the order.
+     */
+    public boolean receiveLine(int poId, ReceivedLine line) throws SQLException {
+        if (!(line.qty() > 0)) {
+            throw new IllegalArgumentException("Received quantity must be positive for product " + line.productId());
+        }
+        Receipt receipt = new Receipt();
+        receipt.qty = line.qty();
+        receipt.valueCents = Money.times(line.unitCostCents(), line.qty());
+
+        boolean onOrder = DatabaseManager.getInstance().write(conn -> {
+            boolean counted = false;
+            String status = poId > 0 ? readStatus(conn, poId) : null;
+            if (status != null && !"CANCELLED".equals(status)) {
+                String receivedSql = "UPDATE po_items SET received_qty = received_qty + ? "
+                        + "WHERE id = (SELECT MIN(id) FROM po_items WHERE po_id = ? AND product_id = ?)";
+                try (PreparedStatement ps = conn.prepareStatement(receivedSql)) {
+                    ps.setDouble(1, line.qty());
+                    ps.setInt(2, poId);
+                    ps.setInt(3, line.productId());
+                    counted = ps.executeUpdate() > 0;
+                }
+            }
+            if (!addStock(conn, Map.of(line.productId(), receipt))) {
+                throw new IllegalArgumentException("Product not found: " + line.productId());
+            }
+            recordPurchases(conn, List.of(line), poId > 0 ? poId : null, poId > 0 ? "PO #" + poId : "Received without PO");
+            if (counted) updateOrderStatus(conn, poId);
+            return counted;
+        });
+        ProductDAO.fireChanged(line.productId());
+        DatedChanges.fireToday();
+        return onOrder;
+    }
+
+    /** Adds each receipt to its product's stock and averages its cost. Returns false if a product is missing. */
+    private static boolean addStock(Connection conn, Map<Integer, Receipt> byProduct) throws SQLException {
+        // Right-hand sides see the stock before this delivery
+        String stockSql = """
+            UPDATE products SET
+                cost_price_cents = CASE WHEN stock_qty > 0
+                    THEN CAST(ROUND((stock_qty * cost_price_cents + ?) / (stock_qty + ?)) AS INTEGER)
+                    ELSE CAST(ROUND(? / ?) AS INTEGER) END,
+                stock_qty = stock_qty + ?,
+                version = version + 1
+            WHERE id = ?""";
+        try (PreparedStatement ps = conn.prepareStatement(stockSql)) {
+            for (Map.Entry<Integer, Receipt> e : byProduct.entrySet()) {
+                Receipt r = e.getValue();
+                ps.setLong(1, r.valueCents);
+                ps.setDouble(2, r.qty);
+                ps.setDouble(3, r.valueCents);
+                ps.setDouble(4, r.qty);
+                ps.setDouble(5, r.qty);
+                ps.setInt(6, e.getKey());
+                ps.addBatch();
+            }
+            for (int count : ps.executeBatch()) {
+                if (count == 0) return false;
+            }
+            return true;
+        }
+    }
+
+    private static void recordPurchases(Connection conn, List<ReceivedLine> lines, Integer referenceId, String notes)
+            throws SQLException {
+        String invTx = "INSERT INTO inventory_transactions(product_id,type,qty_change,reference_id,notes) VALUES(?,'PURCHASE',?,?,?)";
+        try (PreparedStatement ps = conn.prepareStatement(invTx)) {
+            for (ReceivedLine line : lines) {
+                ps.setInt(1, line.productId());
+                ps.setDouble(2, line.qty());
+                if (referenceId != null) ps.setInt(3, referenceId); else ps.setNull(3, Types.INTEGER);
+                ps.setString(4, notes);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static int updateOrderStatus(Connection conn, int poId) throws SQLException {
+        String statusSql = "UPDATE purchase_orders SET status = CASE WHEN EXISTS "
+                + "(SELECT 1 FROM po_items WHERE po_id = ? AND received_qty < qty_ordered) "
+                + "THEN 'PARTIAL' ELSE 'RECEIVED' END WHERE id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(statusSql)) {
+            ps.setInt(1, poId);
+            ps.setInt(2, poId);
+            return ps.executeUpdate();
+        }
+    }
+
+    /** What a delivery brings of one product: total quantity and total cost. */
+    private static final class Receipt {
+        double qty;
+        long valueCents;
+    }
+
+    private static String readStatus(Connection conn, int poId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT status FROM purchase_orders WHERE id = ?")) {
+            ps.setInt(1, poId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private PurchaseOrder mapRow(ResultSet rs) throws SQLException {
+        PurchaseOrder po = new PurchaseOrder();
+        po.setId(rs.getInt("id"));
+        po.setStatus(rs.getString("status"));
+        po.setCreatedAt(rs.getString("created_at"));
+        po.setNotes(rs.getString("notes"));
+        return po;
+    }
+
+    private POItem mapItemRow(ResultSet rs) throws SQLException {
+        POItem item = new POItem();
+        item.setId(rs.getInt("id"));
+        item.setPoId(rs.getInt("po_id"));
+        item.setProductId(rs.getInt("product_id"));
+        item.setQtyOrdered(rs.getDouble("qty_ordered"));
+        item.setUnitCostCents(rs.getLong("unit_cost_cents"));
+        item.setReceivedQty(rs.getDouble("received_qty"));
+        return item;
+    }
+}
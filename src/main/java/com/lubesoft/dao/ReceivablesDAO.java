@@ -0,0 +1,259 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.event.CustomerUpdated;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.model.Money;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Credit charges and payments per customer (receivables_ledger), with the aging buckets
+ * in credit_aging kept current as they are written. A credit checkout adds the unpaid part
+ * of the invoice to the 0-30 bucket; a payment settles the oldest open charges first and
+ * takes them out of their buckets; the daily roll moves charges that aged past a boundary
+ * into the next bucket. Totals across customers live under customer 0, so the aging
+ * summary is a four-row read. customers.balance_cents follows every change. Amounts are
+ * cents throughout, so buckets, balances and the ledger always agree to the cent.
+ */
+public class ReceivablesDAO {
+
+    public static final String[] BUCKETS = {"0-30", "31-60", "61-90", "90+"};
+    // A charge older than BUCKET_DAYS[b] days belongs after bucket b
+    private static final int[] BUCKET_DAYS = {30, 60, 90};
+    private static final int TOTALS = 0;
+
+    /** Outstanding cents across all customers per bucket, in {@link #BUCKETS} order. */
+    public long[] getAgingTotals() throws SQLException {
+        long[] totals = new long[BUCKETS.length];
+        String sql = "SELECT bucket, amount_cents FROM credit_aging WHERE customer_id = ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, TOTALS);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) totals[rs.getInt(1)] = rs.getLong(2);
+            }
+        }
+        return totals;
+    }
+
+    public long getTotalOutstandingCents() throws SQLException {
+        return getBalanceCents(TOTALS);
+    }
+
+    /** A customer's outstanding credit in cents according to the ledger. */
+    public long getBalanceCents(int customerId) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+            return balanceOf(conn, customerId);
+        }
+    }
+
+    /** Day the buckets were last rolled to, or null if never. */
+    public LocalDate getRolledOn() throws SQLException {
+        String sql = "SELECT rolled_on FROM credit_aging_roll WHERE id = 1";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? LocalDate.parse(rs.getString(1)) : null;
+        }
+    }
+
+    /**
+     * Records the unpaid part of a completed CREDIT invoice as a charge dated on its
+     * completion day. Does nothing for other payment methods, walk-in invoices or invoices
+     * paid in full. Must run inside the caller's transaction. Returns the customer charged,
+     * or 0 if none.
+     */
+    int chargeInvoice(Connection conn, int invoiceId) throws SQLException {
+        String sql = "SELECT customer_id, total_cents - paid_cents, date(completed_at) FROM invoices "
+                + "WHERE id=? AND payment_method='CREDIT' AND customer_id IS NOT NULL AND completed_at IS NOT NULL";
+        int customerId;
+        long owed;
+        String day;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return 0;
+                customerId = rs.getInt(1);
+                owed = rs.getLong(2);
+                day = rs.getString(3);
+            }
+        }
+        if (owed <= 0) return 0;
+        String insert = "INSERT INTO receivables_ledger(customer_id, invoice_id, entry_type, amount_cents, open_cents, bucket, charged_on) "
+                + "VALUES(?,?,'CHARGE',?,?,0,?)";
+        try (PreparedStatement ps = conn.prepareStatement(insert)) {
+            ps.setInt(1, customerId);
+            ps.setInt(2, invoiceId);
+            ps.setLong(3, owed);
+            ps.setLong(4, owed);
+            ps.setString(5, day);
+            ps.executeUpdate();
+        }
+        adjust(conn, customerId, 0, owed);
+        return customerId;
+    }
+
+    /**
+     * Writes off whatever is still open on a voided invoice's charge. Runs inside the void.
+     * Returns the customer whose balance dropped, or 0 if none.
+     */
+    int reverseInvoice(Connection conn, int invoiceId) throws SQLException {
+        List<OpenCharge> open = new ArrayList<>();
+        String sql = "SELECT id, customer_id, bucket, open_cents FROM receivables_ledger "
+                + "WHERE invoice_id=? AND entry_type='CHARGE' AND open_cents > 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) open.add(new OpenCharge(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getLong(4)));
+            }
+        }
+        for (OpenCharge charge : open) {
+            settle(conn, charge, charge.open());
+        }
+        return open.isEmpty() ? 0 : open.get(0).customerId();
+    }
+
+    /**
+     * Posts a payment against a customer's credit and applies it to their open charges,
+     * oldest first. Returns the balance left afterwards, in cents.
+     *
+     * @throws IllegalArgumentException if the amount is not positive or exceeds the balance
+     */
+    public long postPayment(int customerId, long paidCents, String notes) throws SQLException {
+        if (paidCents <= 0) throw new IllegalArgumentException("Payment amount must be positive");
+        long left = DatabaseManager.getInstance().write(conn -> {
+            long outstanding = balanceOf(conn, customerId);
+            if (paidCents > outstanding) {
+                throw new IllegalArgumentException("Payment " + Money.format(paidCents)
+                        + " exceeds the outstanding balance " + Money.format(outstanding));
+            }
+            String insert = "INSERT INTO receivables_ledger(customer_id, entry_type, amount_cents, charged_on, notes) "
+                    + "VALUES(?,'PAYMENT',?,date('now'),?)";
+            try (PreparedStatement ps = conn.prepareStatement(insert)) {
+                ps.setInt(1, customerId);
+                ps.setLong(2, paidCents);
+                ps.setString(3, notes);
+                ps.executeUpdate();
+            }
+
+            List<OpenCharge> open = new ArrayList<>();
+            String sql = "SELECT id, customer_id, bucket, open_cents FROM receivables_ledger "
+                    + "WHERE customer_id=? AND open_cents > 0 ORDER BY charged_on, id";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, customerId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) open.add(new OpenCharge(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getLong(4)));
+                }
+            }
+            long remaining = paidCents;
+            for (OpenCharge charge : open) {
+                if (remaining == 0) break;
+                long applied = Math.min(charge.open(), remaining);
+                settle(conn, charge, applied);
+                remaining -= applied;
+            }
+            return outstanding - paidCents;
+        });
+        EventBus.getInstance().publish(new CustomerUpdated(customerId));
+        return left;
+    }
+
+    /**
+     * Moves open charges that have aged past a bucket boundary as of {@code today} into
+     * the bucket they now belong to, and records the day. Only charges crossing a boundary
+     * are touched, so a daily roll costs about a day's worth of charges; after missed days
+     * the cascade through the buckets catches up. Returns the number of charges moved.
+     */
+    public int rollBuckets(LocalDate today) throws SQLException {
+        // Each matching customer's sum, plus the grand total under customer 0, leaves
+        // bucket `from` and lands in bucket `from + 1`
+        String moveSums = """
+            WITH moved(customer_id, total) AS (
+                SELECT customer_id, SUM(open_cents) FROM receivables_ledger
+                WHERE open_cents > 0 AND bucket = ? AND charged_on < ? GROUP BY customer_id
+                UNION ALL
+                SELECT 0, SUM(open_cents) FROM receivables_ledger
+                WHERE open_cents > 0 AND bucket = ? AND charged_on < ? HAVING COUNT(*) > 0
+            ), side(bucket, sign) AS (VALUES(?, -1), (?, 1))
+            INSERT INTO credit_aging(customer_id, bucket, amount_cents)
+            SELECT m.customer_id, s.bucket, s.sign * m.total FROM moved m, side s WHERE true
+            ON CONFLICT(customer_id, bucket) DO UPDATE SET amount_cents = amount_cents + excluded.amount_cents""";
+        String moveCharges = "UPDATE receivables_ledger SET bucket = ? WHERE open_cents > 0 AND bucket = ? AND charged_on < ?";
+        String stamp = "INSERT INTO credit_aging_roll(id, rolled_on) VALUES(1, ?) "
+                + "ON CONFLICT(id) DO UPDATE SET rolled_on = excluded.rolled_on";
+        return DatabaseManager.getInstance().write(conn -> {
+            int moved = 0;
+            for (int from = 0; from < BUCKET_DAYS.length; from++) {
+                String cutoff = today.minusDays(BUCKET_DAYS[from]).toString();
+                try (PreparedStatement ps = conn.prepareStatement(moveSums)) {
+                    ps.setInt(1, from);
+                    ps.setString(2, cutoff);
+                    ps.setInt(3, from);
+                    ps.setString(4, cutoff);
+                    ps.setInt(5, from);
+                    ps.setInt(6, from + 1);
+                    ps.executeUpdate();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(moveCharges)) {
+                    ps.setInt(1, from + 1);
+                    ps.setInt(2, from);
+                    ps.setString(3, cutoff);
+                    moved += ps.executeUpdate();
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(stamp)) {
+                ps.setString(1, today.toString());
+                ps.executeUpdate();
+            }
+            return moved;
+        });
+    }
+
+    /** Takes {@code cents} off an open charge and out of its bucket. */
+    private static void settle(Connection conn, OpenCharge charge, long cents) throws SQLException {
+        String sql = "UPDATE receivables_ledger SET open_cents = open_cents - ? WHERE id=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, cents);
+            ps.setInt(2, charge.id());
+            ps.executeUpdate();
+        }
+        adjust(conn, charge.customerId(), charge.bucket(), -cents);
+    }
+
+    /** Adds {@code delta} to a customer's bucket, the totals and the customer's balance. */
+    private static void adjust(Connection conn, int customerId, int bucket, long delta) throws SQLException {
+        String aging = "INSERT INTO credit_aging(customer_id, bucket, amount_cents) VALUES(?,?,?),(?,?,?) "
+                + "ON CONFLICT(customer_id, bucket) DO UPDATE SET amount_cents = amount_cents + excluded.amount_cents";
+        try (PreparedStatement ps = conn.prepareStatement(aging)) {
+            ps.setInt(1, customerId);
+            ps.setInt(2, bucket);
+            ps.setLong(3, delta);
+            ps.setInt(4, TOTALS);
+            ps.setInt(5, bucket);
+            ps.setLong(6, delta);
+            ps.executeUpdate();
+        }
+        String balance = "UPDATE customers SET balance_cents = balance_cents + ? WHERE id=?";
+        try (PreparedStatement ps = conn.prepareStatement(balance)) {
+            ps.setLong(1, delta);
+            ps.setInt(2, customerId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static long balanceOf(Connection conn, int customerId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(amount_cents), 0) FROM credit_aging WHERE customer_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, customerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private record OpenCharge(int id, int customerId, int bucket, long open) {}
+}
@@ -0,0 +1,10 @@
+package com.lubesoft.dao;
+
+/**
+ * Receives rows one at a time while the query's result set is still open, so a large
+ * result never has to be held as a list. Throwing stops the read.
+ */
+@FunctionalInterface
+public interface RowHandler<T> {
+    void handle(T row) throws Exception;
+}
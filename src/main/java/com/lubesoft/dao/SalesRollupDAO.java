@@ -0,0 +1,94 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import com.lubesoft.model.SalesSummary;
+
+import java.sql.*;
+
+/**
+ * Reads and maintains daily_sales_rollup: one row per completion day, payment method
+ * and technician, so revenue over a range costs O(days) instead of O(invoices).
+ * InvoiceDAO folds each checkout and void into it inside the same transaction.
+ * Amounts are cents; a line's cost is rounded to the cent per line so sums stay exact.
+ */
+public class SalesRollupDAO {
+
+    public SalesSummary getSummary(DateRange range) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(invoice_count),0), COALESCE(SUM(revenue_cents),0), COALESCE(SUM(tax_cents),0), "
+                + "COALESCE(SUM(discount_cents),0), COALESCE(SUM(cost_cents),0) FROM daily_sales_rollup WHERE day >= ? AND day < ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            range.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                SalesSummary s = new SalesSummary();
+                if (rs.next()) {
+                    s.setInvoiceCount(rs.getInt(1));
+                    s.setRevenueCents(rs.getLong(2));
+                    s.setTaxCents(rs.getLong(3));
+                    s.setDiscountCents(rs.getLong(4));
+                    s.setCostCents(rs.getLong(5));
+                }
+                return s;
+            }
+        }
+    }
+
+    /**
+     * Adds ({@code sign} = 1) or removes ({@code sign} = -1) a PAID invoice's totals in
+     * its completion-day bucket. Must run inside the caller's transaction.
+     */
+    void applyInvoice(Connection conn, int invoiceId, int sign) throws SQLException {
+        String sql = """
+            INSERT INTO daily_sales_rollup(day, payment_method, technician_id, invoice_count, revenue_cents, tax_cents, discount_cents, cost_cents)
+            SELECT date(i.completed_at), COALESCE(i.payment_method, ''), COALESCE(i.technician_id, 0),
+                   ?, ? * i.total_cents, ? * i.tax_cents, ? * i.discount_cents,
+                   ? * COALESCE((SELECT SUM(CAST(ROUND(qty * cost_price_cents) AS INTEGER)) FROM invoice_items WHERE invoice_id = i.id), 0)
+            FROM invoices i
+            WHERE i.id = ? AND i.completed_at IS NOT NULL
+            ON CONFLICT(day, payment_method, technician_id) DO UPDATE SET
+                invoice_count = invoice_count + excluded.invoice_count,
+                revenue_cents = revenue_cents + excluded.revenue_cents,
+                tax_cents = tax_cents + excluded.tax_cents,
+                discount_cents = discount_cents + excluded.discount_cents,
+                cost_cents = cost_cents + excluded.cost_cents""";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= 5; i++) ps.setInt(i, sign);
+            ps.setInt(6, invoiceId);
+            ps.executeUpdate();
+        }
+    }
+
+    /** Recomputes the whole rollup from PAID invoices. Returns the number of buckets written. */
+    public int rebuild() throws SQLException {
+        return rebuild(null);
+    }
+
+    /**
+     * Recomputes the buckets for the given days (all days when {@code range} is null)
+     * from PAID invoices in one transaction. Returns the number of buckets written.
+     */
+    public int rebuild(DateRange range) throws SQLException {
+        String filter = range == null ? "" : " AND i.completed_at >= ? AND i.completed_at < ?";
+        String delete = "DELETE FROM daily_sales_rollup" + (range == null ? "" : " WHERE day >= ? AND day < ?");
+        String insert = """
+            INSERT INTO daily_sales_rollup(day, payment_method, technician_id, invoice_count, revenue_cents, tax_cents, discount_cents, cost_cents)
+            SELECT date(i.completed_at), COALESCE(i.payment_method, ''), COALESCE(i.technician_id, 0),
+                   COUNT(*), SUM(i.total_cents), SUM(i.tax_cents), SUM(i.discount_cents),
+                   SUM(COALESCE((SELECT SUM(CAST(ROUND(qty * cost_price_cents) AS INTEGER)) FROM invoice_items WHERE invoice_id = i.id), 0))
+            FROM invoices i
+            WHERE i.status = 'PAID' AND i.completed_at IS NOT NULL""" + filter + " GROUP BY 1, 2, 3";
+        int buckets = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(delete)) {
+                if (range != null) range.bind(ps, 1);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(insert)) {
+                if (range != null) range.bind(ps, 1);
+                return ps.executeUpdate();
+            }
+        });
+        DatedChanges.fire(range);
+        return buckets;
+    }
+}
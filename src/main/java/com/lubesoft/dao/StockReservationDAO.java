@@ -0,0 +1,163 @@
+package com.lubesoft.dao;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stock held by the product lines of unfinished invoices. invoice_items.reserved_qty is
+ * what a line holds and products.reserved_qty the sum over a product's lines, so the
+ * stock another terminal can still sell is stock_qty - reserved_qty.
+ *
+ * Each step is a single conditional UPDATE that only matches while enough stock is
+ * available. Two terminals racing for the last units cannot both win: the loser's
+ * UPDATE matches no row, it gets an IllegalStateException and its unit of work rolls
+ * back. Bulk oil is counted but never refused, as the POS has always allowed.
+ *
+ * Every method runs inside the caller's transaction and returns the products it moved,
+ * for the caller to announce once committed. Each change bumps the product's version, so
+ * a cached or loaded copy with the old reservation is recognised as older.
+ */
+class StockReservationDAO {
+
+    // Quantities are REAL; allow for the drift of summing fractions
+    private static final double QTY_EPSILON = 1e-9;
+    private static final String AVAILABLE = "(is_bulk_oil = 1 OR stock_qty - reserved_qty >= ?)";
+
+    /** Reserves {@code qty} of a product for a new line. */
+    void reserve(Connection conn, int productId, double qty, String description) throws SQLException {
+        String sql = "UPDATE products SET reserved_qty = reserved_qty + ?, version = version + 1 WHERE id = ? AND " + AVAILABLE;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDouble(1, qty);
+            ps.setInt(2, productId);
+            ps.setDouble(3, qty - QTY_EPSILON);
+            if (ps.executeUpdate() == 0) throw insufficient(description);
+        }
+    }
+
+    /** Reserves whatever the invoice's lines do not hold yet, e.g. when it is resumed. */
+    int[] reserveInvoice(Connection conn, int invoiceId) throws SQLException {
+        List<Line> missing = lines(conn, invoiceId, "SUM(qty) - SUM(reserved_qty)", "HAVING SUM(qty) - SUM(reserved_qty) > 0");
+        for (Line line : missing) {
+            reserve(conn, line.productId, line.qty, line.description);
+        }
+        markLines(conn, invoiceId, "qty");
+        return productIds(missing);
+    }
+
+    /** Gives back everything the invoice's lines hold, when it is held or voided unpaid. */
+    int[] releaseInvoice(Connection conn, int invoiceId) throws SQLException {
+        List<Line> held = lines(conn, invoiceId, "SUM(reserved_qty)", "HAVING SUM(reserved_qty) > 0");
+        String sql = "UPDATE products SET reserved_qty = MAX(reserved_qty - ?, 0), version = version + 1 WHERE id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Line line : held) {
+                ps.setDouble(1, line.qty);
+                ps.setInt(2, line.productId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        markLines(conn, invoiceId, "0");
+        return productIds(held);
+    }
+
+    /** Gives back what one line holds, before it is deleted. Returns its product, or 0. */
+    int releaseLine(Connection conn, int itemId) throws SQLException {
+        int productId = 0;
+        double reserved = 0;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT product_id, reserved_qty FROM invoice_items WHERE id = ?")) {
+            ps.setInt(1, itemId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    productId = rs.getInt(1);
+                    reserved = rs.getDouble(2);
+                }
+            }
+        }
+        if (productId == 0 || reserved <= 0) return 0;
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE products SET reserved_qty = MAX(reserved_qty - ?, 0), version = version + 1 WHERE id = ?")) {
+            ps.setDouble(1, reserved);
+            ps.setInt(2, productId);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE invoice_items SET reserved_qty = 0 WHERE id = ?")) {
+            ps.setInt(1, itemId);
+            ps.executeUpdate();
+        }
+        return productId;
+    }
+
+    /**
+     * Turns the invoice's reservations into a sale: stock goes down by each product's
+     * quantity and its reservation is dropped. Any part a line did not hold (a line from
+     * before reservations existed, or an invoice checked out straight from hold) must
+     * still be available.
+     */
+    int[] sellInvoice(Connection conn, int invoiceId) throws SQLException {
+        List<Line> sold = new ArrayList<>();
+        String select = "SELECT product_id, SUM(qty), SUM(reserved_qty), MIN(description) FROM invoice_items "
+                + "WHERE invoice_id = ? AND product_id IS NOT NULL GROUP BY product_id";
+        try (PreparedStatement ps = conn.prepareStatement(select)) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sold.add(new Line(rs.getInt(1), rs.getDouble(2), rs.getDouble(3), rs.getString(4)));
+                }
+            }
+        }
+        if (sold.isEmpty()) return new int[0];
+
+        String sql = "UPDATE products SET stock_qty = stock_qty - ?, reserved_qty = MAX(reserved_qty - ?, 0), "
+                + "version = version + 1 WHERE id = ? AND " + AVAILABLE;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Line line : sold) {
+                ps.setDouble(1, line.qty);
+                ps.setDouble(2, line.reserved);
+                ps.setInt(3, line.productId);
+                ps.setDouble(4, line.qty - line.reserved - QTY_EPSILON);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) throw insufficient(sold.get(i).description);
+            }
+        }
+        markLines(conn, invoiceId, "0");
+        return productIds(sold);
+    }
+
+    private record Line(int productId, double qty, double reserved, String description) {
+        Line(int productId, double qty, String description) {
+            this(productId, qty, 0, description);
+        }
+    }
+
+    private static List<Line> lines(Connection conn, int invoiceId, String qty, String having) throws SQLException {
+        List<Line> lines = new ArrayList<>();
+        String sql = "SELECT product_id, " + qty + ", MIN(description) FROM invoice_items "
+                + "WHERE invoice_id = ? AND product_id IS NOT NULL GROUP BY product_id " + having;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) lines.add(new Line(rs.getInt(1), rs.getDouble(2), rs.getString(3)));
+            }
+        }
+        return lines;
+    }
+
+    private static void markLines(Connection conn, int invoiceId, String reserved) throws SQLException {
+        String sql = "UPDATE invoice_items SET reserved_qty = " + reserved + " WHERE invoice_id = ? AND product_id IS NOT NULL";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, invoiceId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static int[] productIds(List<Line> lines) {
+        return lines.stream().mapToInt(Line::productId).toArray();
+    }
+
+    private static IllegalStateException insufficient(String description) {
+        return new IllegalStateException("Insufficient stock for: " + description);
+    }
+}
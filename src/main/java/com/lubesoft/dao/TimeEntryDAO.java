@@ -1,6 +1,7 @@
 package com.lubesoft.dao;
 
 import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
 import com.lubesoft.model.TimeEntry;
 
 import java.sql.*;
@@ -12,32 +13,44 @@ public class TimeEntryDAO {
 
     public TimeEntry clockIn(int userId, String notes) throws SQLException {
         String sql = "INSERT INTO time_entries(user_id,clock_in,notes) VALUES(?,datetime('now'),?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, userId);
-            ps.setString(2, notes);
-            ps.executeUpdate();
+        TimeEntry entry = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, userId);
+                ps.setString(2, notes);
+                ps.executeUpdate();
+            }
             try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
                 if (keys.next()) {
                     return findById(keys.getInt(1)).orElseThrow();
                 }
             }
-        }
-        throw new SQLException("Clock-in failed");
+            throw new SQLException("Clock-in failed");
+        });
+        DatedChanges.fireToday();
+        return entry;
     }
 
     public void clockOut(int entryId) throws SQLException {
         String sql = "UPDATE time_entries SET clock_out=datetime('now') WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, entryId);
-            ps.executeUpdate();
-        }
+        String clockIn = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, entryId);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT clock_in FROM time_entries WHERE id=?")) {
+                ps.setInt(1, entryId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getString(1) : null;
+                }
+            }
+        });
+        // Hours count on the clock-in day, which may be before today
+        DatedChanges.fire(DatedChanges.sinceDay(clockIn));
     }
 
     public Optional<TimeEntry> findActiveEntry(int userId) throws SQLException {
         String sql = "SELECT * FROM time_entries WHERE user_id=? AND clock_out IS NULL ORDER BY clock_in DESC LIMIT 1";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -49,7 +62,7 @@ public class TimeEntryDAO {
 
     public Optional<TimeEntry> findById(int id) throws SQLException {
         String sql = "SELECT * FROM time_entries WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -62,7 +75,7 @@ public class TimeEntryDAO {
     public List<TimeEntry> findByUser(int userId) throws SQLException {
         List<TimeEntry> list = new ArrayList<>();
         String sql = "SELECT * FROM time_entries WHERE user_id=? ORDER BY clock_in DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -73,12 +86,15 @@ public class TimeEntryDAO {
     }
 
     public List<TimeEntry> findByDateRange(String from, String to) throws SQLException {
+        return findByDateRange(DateRange.of(from, to));
+    }
+
+    public List<TimeEntry> findByDateRange(DateRange range) throws SQLException {
         List<TimeEntry> list = new ArrayList<>();
-        String sql = "SELECT * FROM time_entries WHERE date(clock_in) BETWEEN date(?) AND date(?) ORDER BY clock_in DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        String sql = "SELECT * FROM time_entries WHERE clock_in >= ? AND clock_in < ? ORDER BY clock_in DESC";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, from);
-            ps.setString(2, to);
+            range.bind(ps, 1);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) list.add(mapRow(rs));
             }
@@ -13,7 +13,7 @@ public class UserDAO {
 
     public Optional<User> findByUsername(String username) throws SQLException {
         String sql = "SELECT id, username, password_hash, role, active FROM users WHERE username = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
@@ -27,7 +27,7 @@ public class UserDAO {
 
     public Optional<User> findById(int id) throws SQLException {
         String sql = "SELECT id, username, password_hash, role, active FROM users WHERE id = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -42,7 +42,7 @@ public class UserDAO {
     public List<User> findAll() throws SQLException {
         List<User> users = new ArrayList<>();
         String sql = "SELECT id, username, password_hash, role, active FROM users ORDER BY username";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery(sql)) {
             while (rs.next()) {
@@ -63,42 +63,45 @@ public class UserDAO {
 
     private User insert(User user) throws SQLException {
         String sql = "INSERT INTO users(username, password_hash, role, active) VALUES(?,?,?,?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, user.getUsername());
-            ps.setString(2, user.getPasswordHash());
-            ps.setString(3, user.getRole());
-            ps.setInt(4, user.isActive() ? 1 : 0);
-            ps.executeUpdate();
+        return DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, user.getUsername());
+                ps.setString(2, user.getPasswordHash());
+                ps.setString(3, user.getRole());
+                ps.setInt(4, user.isActive() ? 1 : 0);
+                ps.executeUpdate();
+            }
             try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
                 if (keys.next()) user.setId(keys.getInt(1));
             }
-        }
-        return user;
+            return user;
+        });
     }
 
     private void update(User user) throws SQLException {
         String sql = "UPDATE users SET username=?, password_hash=?, role=?, active=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, user.getUsername());
-            ps.setString(2, user.getPasswordHash());
-            ps.setString(3, user.getRole());
-            ps.setInt(4, user.isActive() ? 1 : 0);
-            ps.setInt(5, user.getId());
-            ps.executeUpdate();
-        }
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, user.getUsername());
+                ps.setString(2, user.getPasswordHash());
+                ps.setString(3, user.getRole());
+                ps.setInt(4, user.isActive() ? 1 : 0);
+                ps.setInt(5, user.getId());
+                return ps.executeUpdate();
+            }
+        });
     }
 
     public void changePassword(int userId, String newPassword) throws SQLException {
         String hash = BCrypt.hashpw(newPassword, BCrypt.gensalt());
         String sql = "UPDATE users SET password_hash=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, hash);
-            ps.setInt(2, userId);
-            ps.executeUpdate();
-        }
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, hash);
+                ps.setInt(2, userId);
+                return ps.executeUpdate();
+            }
+        });
     }
 
     private User mapRow(ResultSet rs) throws SQLException {
@@ -12,7 +12,7 @@ public class VehicleDAO {
 
     public Optional<Vehicle> findById(int id) throws SQLException {
         String sql = "SELECT * FROM vehicles WHERE id = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -24,7 +24,7 @@ public class VehicleDAO {
 
     public Optional<Vehicle> findByLicensePlate(String plate) throws SQLException {
         String sql = "SELECT * FROM vehicles WHERE license_plate = ?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, plate.toUpperCase().trim());
             try (ResultSet rs = ps.executeQuery()) {
@@ -37,7 +37,7 @@ public class VehicleDAO {
     public List<Vehicle> findByCustomerId(int customerId) throws SQLException {
         List<Vehicle> list = new ArrayList<>();
         String sql = "SELECT * FROM vehicles WHERE customer_id = ? ORDER BY year DESC";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, customerId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -58,51 +58,54 @@ public class VehicleDAO {
 
     private Vehicle insert(Vehicle v) throws SQLException {
         String sql = "INSERT INTO vehicles(customer_id,license_plate,vin,make,model,year,mileage,oil_grade,notes) VALUES(?,?,?,?,?,?,?,?,?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, v.getCustomerId());
-            ps.setString(2, v.getLicensePlate() != null ? v.getLicensePlate().toUpperCase().trim() : null);
-            ps.setString(3, v.getVin());
-            ps.setString(4, v.getMake());
-            ps.setString(5, v.getModel());
-            ps.setInt(6, v.getYear());
-            ps.setInt(7, v.getMileage());
-            ps.setString(8, v.getOilGrade());
-            ps.setString(9, v.getNotes());
-            ps.executeUpdate();
+        return DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, v.getCustomerId());
+                ps.setString(2, v.getLicensePlate() != null ? v.getLicensePlate().toUpperCase().trim() : null);
+                ps.setString(3, v.getVin());
+                ps.setString(4, v.getMake());
+                ps.setString(5, v.getModel());
+                ps.setInt(6, v.getYear());
+                ps.setInt(7, v.getMileage());
+                ps.setString(8, v.getOilGrade());
+                ps.setString(9, v.getNotes());
+                ps.executeUpdate();
+            }
             try (var _gkStmt = conn.createStatement(); ResultSet keys = _gkStmt.executeQuery("SELECT last_insert_rowid()")) {
                 if (keys.next()) v.setId(keys.getInt(1));
             }
-        }
-        return v;
+            return v;
+        });
     }
 
     private void update(Vehicle v) throws SQLException {
         String sql = "UPDATE vehicles SET customer_id=?,license_plate=?,vin=?,make=?,model=?,year=?,mileage=?,oil_grade=?,notes=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, v.getCustomerId());
-            ps.setString(2, v.getLicensePlate() != null ? v.getLicensePlate().toUpperCase().trim() : null);
-            ps.setString(3, v.getVin());
-            ps.setString(4, v.getMake());
-            ps.setString(5, v.getModel());
-            ps.setInt(6, v.getYear());
-            ps.setInt(7, v.getMileage());
-            ps.setString(8, v.getOilGrade());
-            ps.setString(9, v.getNotes());
-            ps.setInt(10, v.getId());
-            ps.executeUpdate();
-        }
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, v.getCustomerId());
+                ps.setString(2, v.getLicensePlate() != null ? v.getLicensePlate().toUpperCase().trim() : null);
+                ps.setString(3, v.getVin());
+                ps.setString(4, v.getMake());
+                ps.setString(5, v.getModel());
+                ps.setInt(6, v.getYear());
+                ps.setInt(7, v.getMileage());
+                ps.setString(8, v.getOilGrade());
+                ps.setString(9, v.getNotes());
+                ps.setInt(10, v.getId());
+                return ps.executeUpdate();
+            }
+        });
     }
 
     public void updateMileage(int vehicleId, int mileage) throws SQLException {
         String sql = "UPDATE vehicles SET mileage=? WHERE id=?";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, mileage);
-            ps.setInt(2, vehicleId);
-            ps.executeUpdate();
-        }
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, mileage);
+                ps.setInt(2, vehicleId);
+                return ps.executeUpdate();
+            }
+        });
     }
 
     private Vehicle mapRow(ResultSet rs) throws SQLException {
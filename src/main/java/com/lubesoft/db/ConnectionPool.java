@@ -0,0 +1,381 @@
+package com.lubesoft.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded SQLite connection pool: one dedicated writer connection and up to N reader
+ * connections. PRAGMAs are applied once when a physical connection is opened, and callers
+ * receive a handle whose close() returns the connection to the pool.
+ *
+ * A thread that already holds a connection gets a nested handle on the same one, so DAO
+ * methods that call each other never wait on themselves. Reads made while holding the
+ * writer run on the writer and therefore see that thread's uncommitted changes.
+ *
+ * Each physical connection carries a {@link StatementCache}, so prepareStatement(sql)
+ * on a handle reuses the already-compiled statement for that SQL text.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final long ACQUIRE_TIMEOUT_MS = 30_000;
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+    private static final long LEAK_CHECK_INTERVAL_MS = 10_000;
+
+    private final String url;
+    private final int maxReaders;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+
+    private final Slot writer = new Slot(true);
+    private final Semaphore writerPermit = new Semaphore(1, true);
+    private final BlockingQueue<Slot> idleReaders;
+    private final List<Slot> readers = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Slot> heldWriter = new ThreadLocal<>();
+    private final ThreadLocal<Slot> heldReader = new ThreadLocal<>();
+    private final ScheduledExecutorService leakDetector;
+    private volatile boolean closed;
+
+    private final AtomicInteger readersCreated = new AtomicInteger();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+
+    /**
+     * @param statementCacheSize prepared statements kept per connection; 0 disables caching
+     */
+    public ConnectionPool(String url, int maxReaders, long leakThresholdMs, int statementCacheSize) {
+        if (maxReaders < 1) throw new IllegalArgumentException("maxReaders must be at least 1");
+        this.url = url;
+        this.maxReaders = maxReaders;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.idleReaders = new ArrayBlockingQueue<>(maxReaders);
+        this.leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-leak-detector");
+            t.setDaemon(true);
+            return t;
+        });
+        leakDetector.scheduleWithFixedDelay(this::detectLeaks,
+                LEAK_CHECK_INTERVAL_MS, LEAK_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a handle on the single writer connection, waiting for it if another thread holds it.
+     */
+    public Connection getWriteConnection() throws SQLException {
+        Slot held = owned(heldWriter);
+        if (held != null) return nested(held);
+
+        ensureOpen();
+        long start = System.nanoTime();
+        try {
+            if (!writerPermit.tryAcquire(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the writer connection", e);
+        }
+        try {
+            if (writer.physical == null) open(writer);
+        } catch (SQLException e) {
+            writerPermit.release();
+            throw e;
+        }
+        return lease(writer, heldWriter, start);
+    }
+
+    /**
+     * Returns a handle on a reader connection. Inside a write the writer itself is returned.
+     */
+    public Connection getReadConnection() throws SQLException {
+        Slot held = owned(heldWriter);
+        if (held == null) held = owned(heldReader);
+        if (held != null) return nested(held);
+
+        ensureOpen();
+        long start = System.nanoTime();
+        Slot slot = idleReaders.poll();
+        if (slot == null) slot = createReader();
+        if (slot == null) {
+            try {
+                slot = idleReaders.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for a reader connection", e);
+            }
+            if (slot == null) throw new SQLException("Timed out waiting for a reader connection");
+        }
+        try {
+            if (slot.physical == null) open(slot);
+        } catch (SQLException e) {
+            idleReaders.offer(slot);
+            throw e;
+        }
+        return lease(slot, heldReader, start);
+    }
+
+    /** True when the calling thread currently holds the writer connection. */
+    public boolean holdsWriter() {
+        return owned(heldWriter) != null;
+    }
+
+    /**
+     * Marks the writer as running a transaction owned by {@link WriteQueue}. While set,
+     * handles refuse setAutoCommit, commit and rollback so a unit of work cannot end
+     * the shared transaction underneath the rest of its batch.
+     */
+    void setManagedTransaction(boolean managed) {
+        writer.managedTransaction = managed;
+    }
+
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(connectionsCreated.get(), inUse.get(), idleReaders.size(),
+                acquisitions.get(), totalWaitNanos.get(), maxWaitNanos.get(), leaksDetected.get(),
+                statementHits.get(), statementMisses.get(), statementEvictions.get());
+    }
+
+    /** Closes every physical connection. Handles still in use are closed underneath their holders. */
+    @Override
+    public void close() {
+        closed = true;
+        leakDetector.shutdownNow();
+        closeQuietly(writer);
+        for (Slot slot : readers) closeQuietly(slot);
+        idleReaders.clear();
+    }
+
+    private Slot createReader() {
+        while (true) {
+            int created = readersCreated.get();
+            if (created >= maxReaders) return null;
+            if (readersCreated.compareAndSet(created, created + 1)) {
+                Slot slot = new Slot(false);
+                readers.add(slot);
+                return slot;
+            }
+        }
+    }
+
+    private Slot owned(ThreadLocal<Slot> local) {
+        Slot slot = local.get();
+        if (slot == null) return null;
+        if (slot.owner == Thread.currentThread() && slot.holdCount > 0) return slot;
+        local.remove();
+        return null;
+    }
+
+    private Connection nested(Slot slot) {
+        slot.holdCount++;
+        return handle(slot);
+    }
+
+    private Connection lease(Slot slot, ThreadLocal<Slot> local, long startNanos) {
+        long waited = System.nanoTime() - startNanos;
+        acquisitions.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        inUse.incrementAndGet();
+
+        slot.owner = Thread.currentThread();
+        slot.holdCount = 1;
+        slot.leasedAtMillis = System.currentTimeMillis();
+        slot.leakReported = false;
+        local.set(slot);
+        return handle(slot);
+    }
+
+    private void release(Slot slot) {
+        if (--slot.holdCount > 0) return;
+
+        Connection conn = slot.physical;
+        if (conn != null) {
+            try {
+                if (!conn.getAutoCommit()) {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                // Connection is in an unknown state; drop it and reopen on next lease
+                closeQuietly(slot);
+            }
+        }
+        if (slot.owner == Thread.currentThread()) {
+            (slot.writer ? heldWriter : heldReader).remove();
+        }
+        slot.owner = null;
+        inUse.decrementAndGet();
+
+        if (slot.writer) {
+            writerPermit.release();
+        } else {
+            idleReaders.offer(slot);
+        }
+    }
+
+    private void open(Slot slot) throws SQLException {
+        boolean forWriter = slot.writer;
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA journal_mode=WAL");
+            st.execute("PRAGMA foreign_keys=ON");
+            st.execute("PRAGMA busy_timeout=" + BUSY_TIMEOUT_MS);
+            if (!forWriter) {
+                // Readers must never write; anything routed here by mistake fails loudly
+                st.execute("PRAGMA query_only=1");
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        connectionsCreated.incrementAndGet();
+        slot.statements = statementCacheSize > 0
+                ? new StatementCache(conn, statementCacheSize, statementHits, statementMisses, statementEvictions)
+                : null;
+        slot.physical = conn;
+    }
+
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        checkLeak(writer, now);
+        for (Slot slot : readers) checkLeak(slot, now);
+    }
+
+    private void checkLeak(Slot slot, long now) {
+        Thread owner = slot.owner;
+        if (owner == null || slot.leakReported) return;
+        long heldFor = now - slot.leasedAtMillis;
+        if (heldFor < leakThresholdMs) return;
+
+        slot.leakReported = true;
+        leaksDetected.incrementAndGet();
+        System.err.println("Possible connection leak: " + (slot.writer ? "writer" : "reader")
+                + " connection held for " + heldFor + " ms by thread " + owner.getName());
+        for (StackTraceElement frame : owner.getStackTrace()) {
+            System.err.println("\tat " + frame);
+        }
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+    }
+
+    private void closeQuietly(Slot slot) {
+        Connection conn = slot.physical;
+        slot.physical = null;
+        if (conn == null) return;
+        if (slot.statements != null) {
+            slot.statements.clear();
+            slot.statements = null;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // ignore
+        }
+    }
+
+    private Connection handle(Slot slot) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Handle(slot));
+    }
+
+    /** One pooled physical connection and its current lease. */
+    private static final class Slot {
+        final boolean writer;
+        volatile Connection physical;
+        volatile Thread owner;
+        volatile long leasedAtMillis;
+        volatile boolean leakReported;
+        volatile boolean managedTransaction;
+        int holdCount;
+        StatementCache statements;
+
+        Slot(boolean writer) {
+            this.writer = writer;
+        }
+    }
+
+    /** Caller-facing view of a pooled connection; close() releases instead of closing. */
+    private final class Handle implements InvocationHandler {
+        private final Slot slot;
+        private boolean closed;
+
+        Handle(Slot slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(slot);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || slot.physical == null || slot.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + (slot.writer ? "writer" : "reader") + "]";
+                }
+                case "setAutoCommit", "commit", "rollback", "setSavepoint", "releaseSavepoint" -> {
+                    if (closed) throw new SQLException("Connection handle is closed");
+                    if (slot.managedTransaction) {
+                        throw new SQLException(method.getName() + " is not allowed inside a write-queue unit of work");
+                    }
+                    return invokePhysical(method, args);
+                }
+                case "prepareStatement" -> {
+                    if (closed) throw new SQLException("Connection handle is closed");
+                    if (slot.statements != null && args.length == 1) {
+                        return slot.statements.prepare((String) args[0]);
+                    }
+                    return invokePhysical(method, args);
+                }
+                default -> {
+                    if (closed) throw new SQLException("Connection handle is closed");
+                    return invokePhysical(method, args);
+                }
+            }
+        }
+
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(slot.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
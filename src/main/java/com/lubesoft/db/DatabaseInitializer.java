@@ -9,13 +9,16 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 /**
- * Creates all application tables and seeds initial data on first run.
+ * Creates all application tables and seeds initial data on first run, then brings the
+ * schema up to date through {@link SchemaMigrator}.
  */
 public class DatabaseInitializer {
 
     public static void initialize() {
-        try (Connection conn = DatabaseManager.getInstance().getConnection()) {
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
             createTables(conn);
+            createSearchIndexes(conn);
+            SchemaMigrator.migrate(conn);
             seedAdminUser(conn);
             seedLicenseInfo(conn);
         } catch (SQLException e) {
@@ -179,6 +182,85 @@ public class DatabaseInitializer {
         }
     }
 
+    /**
+     * FTS5 indexes backing product and customer search. They are external-content tables
+     * over the base rows, kept in step by triggers; an index created against existing data
+     * is rebuilt once.
+     */
+    private static void createSearchIndexes(Connection conn) throws SQLException {
+        boolean productsNew = !tableExists(conn, "products_fts");
+        boolean customersNew = !tableExists(conn, "customers_fts");
+        try (Statement st = conn.createStatement()) {
+            st.execute("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS products_fts USING fts5(
+                    name, sku, barcode, category,
+                    content='products', content_rowid='id',
+                    tokenize='unicode61', prefix='1 2 3'
+                )""");
+
+            st.execute("""
+                CREATE TRIGGER IF NOT EXISTS products_fts_ai AFTER INSERT ON products BEGIN
+                    INSERT INTO products_fts(rowid, name, sku, barcode, category)
+                    VALUES (new.id, new.name, new.sku, new.barcode, new.category);
+                END""");
+
+            st.execute("""
+                CREATE TRIGGER IF NOT EXISTS products_fts_ad AFTER DELETE ON products BEGIN
+                    INSERT INTO products_fts(products_fts, rowid, name, sku, barcode, category)
+                    VALUES ('delete', old.id, old.name, old.sku, old.barcode, old.category);
+                END""");
+
+            // Only fires when an indexed column changes, so stock updates cost nothing here
+            st.execute("""
+                CREATE TRIGGER IF NOT EXISTS products_fts_au AFTER UPDATE OF name, sku, barcode, category ON products BEGIN
+                    INSERT INTO products_fts(products_fts, rowid, name, sku, barcode, category)
+                    VALUES ('delete', old.id, old.name, old.sku, old.barcode, old.category);
+                    INSERT INTO products_fts(rowid, name, sku, barcode, category)
+                    VALUES (new.id, new.name, new.sku, new.barcode, new.category);
+                END""");
+
+            st.execute("""
+                CREATE VIRTUAL TABLE IF NOT EXISTS customers_fts USING fts5(
+                    name, phone, company,
+                    content='customers', content_rowid='id',
+                    tokenize='unicode61', prefix='1 2 3'
+                )""");
+
+            st.execute("""
+                CREATE TRIGGER IF NOT EXISTS customers_fts_ai AFTER INSERT ON customers BEGIN
+                    INSERT INTO customers_fts(rowid, name, phone, company)
+                    VALUES (new.id, new.name, new.phone, new.company);
+                END""");
+
+            st.execute("""
+                CREATE TRIGGER IF NOT EXISTS customers_fts_ad AFTER DELETE ON customers BEGIN
+                    INSERT INTO customers_fts(customers_fts, rowid, name, phone, company)
+                    VALUES ('delete', old.id, old.name, old.phone, old.company);
+                END""");
+
+            st.execute("""
+                CREATE TRIGGER IF NOT EXISTS customers_fts_au AFTER UPDATE OF name, phone, company ON customers BEGIN
+                    INSERT INTO customers_fts(customers_fts, rowid, name, phone, company)
+                    VALUES ('delete', old.id, old.name, old.phone, old.company);
+                    INSERT INTO customers_fts(rowid, name, phone, company)
+                    VALUES (new.id, new.name, new.phone, new.company);
+                END""");
+
+            if (productsNew) st.execute("INSERT INTO products_fts(products_fts) VALUES('rebuild')");
+            if (customersNew) st.execute("INSERT INTO customers_fts(customers_fts) VALUES('rebuild')");
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String name) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type='table' AND name=?")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
     private static void seedAdminUser(Connection conn) throws SQLException {
         // Only insert if no users exist
         try (Statement st = conn.createStatement();
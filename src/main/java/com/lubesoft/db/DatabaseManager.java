@@ -2,26 +2,45 @@ package com.lubesoft.db;
 
 import java.io.File;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Singleton database manager. Opens the SQLite database at ~/.lubesoft/lubesoft.db
- * and configures WAL mode for better concurrency.
+ * (overridable with the {@code lubesoft.db.path} system property) and hands out
+ * connections from a {@link ConnectionPool} configured for WAL mode. Application writes
+ * go through {@link #write} / {@link #submitWrite}, which serialize them on the
+ * {@link WriteQueue}'s single writer thread.
  */
 public class DatabaseManager {
 
     private static DatabaseManager instance;
     private static final String DB_DIR = System.getProperty("user.home") + File.separator + ".lubesoft";
-    private static final String DB_PATH = DB_DIR + File.separator + "lubesoft.db";
-    private static final String DB_URL = "jdbc:sqlite:" + DB_PATH;
+    private static final String DEFAULT_DB_PATH = DB_DIR + File.separator + "lubesoft.db";
+    private static final int DEFAULT_READERS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    private static final long DEFAULT_LEAK_THRESHOLD_MS = 60_000;
+    private static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+    private static final int DEFAULT_WRITE_QUEUE_CAPACITY = 1024;
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 32;
+    private static final long WRITE_QUEUE_OFFER_TIMEOUT_MS = 30_000;
+
+    private final String dbPath;
+    private final ConnectionPool pool;
+    private final WriteQueue writeQueue;
 
     private DatabaseManager() {
-        File dir = new File(DB_DIR);
-        if (!dir.exists()) {
+        dbPath = System.getProperty("lubesoft.db.path", DEFAULT_DB_PATH);
+        File dir = new File(dbPath).getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
             dir.mkdirs();
         }
+        int readers = Integer.getInteger("lubesoft.db.readers", DEFAULT_READERS);
+        long leakThreshold = Long.getLong("lubesoft.db.leakThresholdMs", DEFAULT_LEAK_THRESHOLD_MS);
+        int statementCache = Integer.getInteger("lubesoft.db.statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE);
+        pool = new ConnectionPool("jdbc:sqlite:" + dbPath, readers, leakThreshold, statementCache);
+        int queueCapacity = Integer.getInteger("lubesoft.db.writeQueueCapacity", DEFAULT_WRITE_QUEUE_CAPACITY);
+        int batchSize = Integer.getInteger("lubesoft.db.writeBatchSize", DEFAULT_WRITE_BATCH_SIZE);
+        writeQueue = new WriteQueue(pool, queueCapacity, batchSize, WRITE_QUEUE_OFFER_TIMEOUT_MS);
     }
 
     public static synchronized DatabaseManager getInstance() {
@@ -32,19 +51,70 @@ public class DatabaseManager {
     }
 
     /**
-     * Returns a new connection each call; callers must close it (try-with-resources).
+     * Returns a general-purpose (writer) connection; callers must close it (try-with-resources).
      */
     public Connection getConnection() throws SQLException {
-        Connection conn = DriverManager.getConnection(DB_URL);
-        // Enable WAL mode and foreign keys
-        try (Statement st = conn.createStatement()) {
-            st.execute("PRAGMA journal_mode=WAL");
-            st.execute("PRAGMA foreign_keys=ON");
+        return pool.getWriteConnection();
+    }
+
+    /** Returns a pooled read-only connection; callers must close it. */
+    public Connection getReadConnection() throws SQLException {
+        return pool.getReadConnection();
+    }
+
+    /**
+     * Returns the single pooled writer connection; callers must close it. Prefer
+     * {@link #write} for application writes; this is for schema setup and bulk jobs
+     * that manage their own transaction.
+     */
+    public Connection getWriteConnection() throws SQLException {
+        return pool.getWriteConnection();
+    }
+
+    /**
+     * Runs {@code work} on one reader inside a read transaction, so every query it makes
+     * sees the same committed state. DAO reads called from {@code work} on this thread
+     * get the same reader and join the snapshot. Inside a write it runs on the writer.
+     */
+    public <T> T readSnapshot(UnitOfWork<T> work) throws SQLException {
+        try (Connection conn = pool.getReadConnection()) {
+            // Already inside a snapshot or a write: join it
+            if (pool.holdsWriter() || !conn.getAutoCommit()) return work.execute(conn);
+            conn.setAutoCommit(false);
+            try {
+                return work.execute(conn);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
         }
-        return conn;
+    }
+
+    /** Runs a unit of work on the writer thread and returns its result once committed. */
+    public <T> T write(UnitOfWork<T> work) throws SQLException {
+        return writeQueue.execute(work);
+    }
+
+    /** Queues a unit of work on the writer thread without waiting for it. */
+    public <T> CompletableFuture<T> submitWrite(UnitOfWork<T> work) {
+        return writeQueue.submit(work);
+    }
+
+    public WriteQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    public PoolMetrics getPoolMetrics() {
+        return pool.getMetrics();
+    }
+
+    /** Closes all pooled connections. Called once on application exit. */
+    public void shutdown() {
+        writeQueue.close();
+        pool.close();
     }
 
     public String getDbPath() {
-        return DB_PATH;
+        return dbPath;
     }
 }
@@ -0,0 +1,62 @@
+package com.lubesoft.db;
+
+/**
+ * Point-in-time snapshot of {@link ConnectionPool} counters.
+ */
+public class PoolMetrics {
+
+    private final long connectionsCreated;
+    private final int inUse;
+    private final int idleReaders;
+    private final long acquisitions;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long leaksDetected;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final long statementCacheEvictions;
+
+    public PoolMetrics(long connectionsCreated, int inUse, int idleReaders, long acquisitions,
+                       long totalWaitNanos, long maxWaitNanos, long leaksDetected,
+                       long statementCacheHits, long statementCacheMisses, long statementCacheEvictions) {
+        this.connectionsCreated = connectionsCreated;
+        this.inUse = inUse;
+        this.idleReaders = idleReaders;
+        this.acquisitions = acquisitions;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.leaksDetected = leaksDetected;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.statementCacheEvictions = statementCacheEvictions;
+    }
+
+    public long getConnectionsCreated() { return connectionsCreated; }
+    public int getInUse() { return inUse; }
+    public int getIdleReaders() { return idleReaders; }
+    public long getAcquisitions() { return acquisitions; }
+    public long getTotalWaitNanos() { return totalWaitNanos; }
+    public long getMaxWaitNanos() { return maxWaitNanos; }
+    public long getLeaksDetected() { return leaksDetected; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+    public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+    public double getAverageWaitMillis() {
+        return acquisitions == 0 ? 0 : totalWaitNanos / (double) acquisitions / 1_000_000.0;
+    }
+
+    public double getStatementCacheHitRate() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : statementCacheHits / (double) lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("created=%d inUse=%d idleReaders=%d acquisitions=%d avgWait=%.3fms maxWait=%.3fms leaks=%d"
+                        + " stmtHits=%d stmtMisses=%d stmtEvictions=%d",
+                connectionsCreated, inUse, idleReaders, acquisitions,
+                getAverageWaitMillis(), maxWaitNanos / 1_000_000.0, leaksDetected,
+                statementCacheHits, statementCacheMisses, statementCacheEvictions);
+    }
+}
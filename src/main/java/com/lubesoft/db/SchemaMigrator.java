@@ -0,0 +1,263 @@
+package com.lubesoft.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Versioned schema changes on top of the baseline tables from DatabaseInitializer.
+ * The applied version lives in {@code PRAGMA user_version}; each pending migration runs
+ * in its own transaction together with the version bump, so a failed step leaves the
+ * database at the previous version. To change the schema, append a step to MIGRATIONS;
+ * never edit or reorder one that has shipped.
+ */
+public class SchemaMigrator {
+
+    interface Migration {
+        void apply(Statement st) throws SQLException;
+    }
+
+    // Version N is MIGRATIONS[N - 1]
+    private static final Migration[] MIGRATIONS = {
+            SchemaMigrator::v1IndexPack,
+            SchemaMigrator::v2DailySalesRollup,
+            SchemaMigrator::v3ReceivablesLedger,
+            SchemaMigrator::v4CompletedInvoices,
+            SchemaMigrator::v5MoneyInCents,
+            SchemaMigrator::v6InvoiceSequence,
+            SchemaMigrator::v7StockReservations,
+            SchemaMigrator::v8PurchaseOrderLines,
+    };
+
+    public static int latestVersion() {
+        return MIGRATIONS.length;
+    }
+
+    public static int currentVersion(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /** Applies every pending migration and returns the resulting schema version. */
+    public static int migrate(Connection conn) throws SQLException {
+        int version = currentVersion(conn);
+        if (version > MIGRATIONS.length) {
+            throw new SQLException("Database schema version " + version
+                    + " is newer than this application supports (" + MIGRATIONS.length + ")");
+        }
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement()) {
+            while (version < MIGRATIONS.length) {
+                try {
+                    MIGRATIONS[version].apply(st);
+                    st.execute("PRAGMA user_version = " + (version + 1));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Schema migration to version " + (version + 1) + " failed", e);
+                }
+                version++;
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return version;
+    }
+
+    /** Secondary indexes for the foreign keys, status/date filters and sorts the DAOs use. */
+    private static void v1IndexPack(Statement st) throws SQLException {
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoice_items_invoice ON invoice_items(invoice_id)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_status_created ON invoices(status, created_at)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_created ON invoices(created_at)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_customer ON invoices(customer_id)");
+        // Paid invoices by completion time, covering the revenue sums
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_paid_completed ON invoices(completed_at, total) WHERE status = 'PAID'");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_paid_technician ON invoices(technician_id, completed_at, total) WHERE status = 'PAID'");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_inventory_tx_product_created ON inventory_transactions(product_id, created_at)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_inventory_tx_created ON inventory_transactions(created_at)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_vehicles_customer ON vehicles(customer_id, year)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_service_history_vehicle ON service_history(vehicle_id, service_date)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_time_entries_user ON time_entries(user_id, clock_in)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_time_entries_open ON time_entries(user_id, clock_in) WHERE clock_out IS NULL");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_time_entries_clock_in ON time_entries(clock_in)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_po_items_po ON po_items(po_id)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_customers_name ON customers(name)");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_customers_balance ON customers(current_balance) WHERE current_balance > 0");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_products_name ON products(name)");
+    }
+
+    /**
+     * Per-day sales totals by payment method and technician, maintained by checkout and
+     * void. Null keys are stored as '' and 0 so they take part in the primary key.
+     */
+    private static void v2DailySalesRollup(Statement st) throws SQLException {
+        st.execute("""
+            CREATE TABLE IF NOT EXISTS daily_sales_rollup (
+                day TEXT NOT NULL,
+                payment_method TEXT NOT NULL DEFAULT '',
+                technician_id INTEGER NOT NULL DEFAULT 0,
+                invoice_count INTEGER NOT NULL DEFAULT 0,
+                revenue REAL NOT NULL DEFAULT 0,
+                tax REAL NOT NULL DEFAULT 0,
+                discount REAL NOT NULL DEFAULT 0,
+                cost REAL NOT NULL DEFAULT 0,
+                PRIMARY KEY (day, payment_method, technician_id)
+            ) WITHOUT ROWID""");
+        st.execute("""
+            INSERT INTO daily_sales_rollup(day, payment_method, technician_id, invoice_count, revenue, tax, discount, cost)
+            SELECT date(i.completed_at), COALESCE(i.payment_method, ''), COALESCE(i.technician_id, 0),
+                   COUNT(*), SUM(i.total), SUM(i.tax), SUM(i.discount),
+                   SUM(COALESCE((SELECT SUM(qty * cost_price) FROM invoice_items WHERE invoice_id = i.id), 0))
+            FROM invoices i
+            WHERE i.status = 'PAID' AND i.completed_at IS NOT NULL
+            GROUP BY 1, 2, 3""");
+    }
+
+    /**
+     * Receivables ledger of credit charges and payments, with per-customer aging buckets
+     * kept beside it (customer 0 holds the totals). Existing balances are carried over as
+     * one opening charge per customer, dated at their oldest paid credit invoice.
+     */
+    private static void v3ReceivablesLedger(Statement st) throws SQLException {
+        st.execute("""
+            CREATE TABLE IF NOT EXISTS receivables_ledger (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                customer_id INTEGER NOT NULL REFERENCES customers(id),
+                invoice_id INTEGER REFERENCES invoices(id),
+                entry_type TEXT NOT NULL CHECK(entry_type IN ('CHARGE','PAYMENT')),
+                amount REAL NOT NULL,
+                open_amount REAL NOT NULL DEFAULT 0,
+                bucket INTEGER NOT NULL DEFAULT 0,
+                charged_on TEXT NOT NULL,
+                notes TEXT,
+                created_at TEXT DEFAULT (datetime('now'))
+            )""");
+        // Open charges oldest first per customer, for applying payments
+        st.execute("CREATE INDEX IF NOT EXISTS idx_ledger_open_customer ON receivables_ledger(customer_id, charged_on, id) WHERE open_amount > 0");
+        // Open charges by bucket and age, for the nightly roll
+        st.execute("CREATE INDEX IF NOT EXISTS idx_ledger_open_bucket ON receivables_ledger(bucket, charged_on) WHERE open_amount > 0");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_ledger_invoice ON receivables_ledger(invoice_id)");
+        st.execute("""
+            CREATE TABLE IF NOT EXISTS credit_aging (
+                customer_id INTEGER NOT NULL,
+                bucket INTEGER NOT NULL,
+                amount REAL NOT NULL DEFAULT 0,
+                PRIMARY KEY (customer_id, bucket)
+            ) WITHOUT ROWID""");
+        st.execute("""
+            CREATE TABLE IF NOT EXISTS credit_aging_roll (
+                id INTEGER PRIMARY KEY CHECK(id = 1),
+                rolled_on TEXT NOT NULL
+            )""");
+        st.execute("""
+            INSERT INTO receivables_ledger(customer_id, entry_type, amount, open_amount, bucket, charged_on, notes)
+            SELECT c.id, 'CHARGE', ROUND(c.current_balance, 2), ROUND(c.current_balance, 2), 0,
+                   COALESCE((SELECT date(MIN(i.created_at)) FROM invoices i
+                             WHERE i.customer_id = c.id AND i.payment_method = 'CREDIT' AND i.status = 'PAID'),
+                            date('now')),
+                   'Opening balance'
+            FROM customers c
+            WHERE c.current_balance > 0""");
+        st.execute("""
+            UPDATE receivables_ledger SET bucket = CASE
+                WHEN charged_on >= date('now', '-30 days') THEN 0
+                WHEN charged_on >= date('now', '-60 days') THEN 1
+                WHEN charged_on >= date('now', '-90 days') THEN 2
+                ELSE 3 END""");
+        st.execute("""
+            INSERT INTO credit_aging(customer_id, bucket, amount)
+            SELECT customer_id, bucket, SUM(open_amount) FROM receivables_ledger GROUP BY customer_id, bucket""");
+        st.execute("""
+            INSERT INTO credit_aging(customer_id, bucket, amount)
+            SELECT 0, bucket, SUM(open_amount) FROM receivables_ledger GROUP BY bucket""");
+        st.execute("INSERT INTO credit_aging_roll(id, rolled_on) VALUES(1, date('now'))");
+    }
+
+    /** Completed invoices of any status by completion time, for reloading a day of them. */
+    private static void v4CompletedInvoices(Statement st) throws SQLException {
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_completed ON invoices(completed_at) WHERE completed_at IS NOT NULL");
+    }
+
+    /**
+     * Money columns become INTEGER cents, named *_cents so an old REAL binding fails loudly
+     * instead of writing units into a cents column. Indexes over the old columns are
+     * dropped first, since SQLite refuses to drop an indexed column, and rebuilt on the
+     * new ones.
+     */
+    private static void v5MoneyInCents(Statement st) throws SQLException {
+        st.execute("DROP INDEX IF EXISTS idx_invoices_paid_completed");
+        st.execute("DROP INDEX IF EXISTS idx_invoices_paid_technician");
+        st.execute("DROP INDEX IF EXISTS idx_customers_balance");
+        st.execute("DROP INDEX IF EXISTS idx_ledger_open_customer");
+        st.execute("DROP INDEX IF EXISTS idx_ledger_open_bucket");
+
+        toCents(st, "products", "sell_price", "sell_price_cents");
+        toCents(st, "products", "cost_price", "cost_price_cents");
+        toCents(st, "customers", "credit_limit", "credit_limit_cents");
+        toCents(st, "customers", "current_balance", "balance_cents");
+        toCents(st, "invoices", "subtotal", "subtotal_cents");
+        toCents(st, "invoices", "tax", "tax_cents");
+        toCents(st, "invoices", "discount", "discount_cents");
+        toCents(st, "invoices", "total", "total_cents");
+        toCents(st, "invoices", "paid_amount", "paid_cents");
+        toCents(st, "invoice_items", "unit_price", "unit_price_cents");
+        toCents(st, "invoice_items", "cost_price", "cost_price_cents");
+        toCents(st, "invoice_items", "total", "total_cents");
+        toCents(st, "po_items", "unit_cost", "unit_cost_cents");
+        toCents(st, "receivables_ledger", "amount", "amount_cents");
+        toCents(st, "receivables_ledger", "open_amount", "open_cents");
+        toCents(st, "credit_aging", "amount", "amount_cents");
+
+        // The rollup's cost is a sum of qty * cost over lines, so rebuild it from the lines
+        // in cents rather than rounding the old sums
+        toCents(st, "daily_sales_rollup", "revenue", "revenue_cents");
+        toCents(st, "daily_sales_rollup", "tax", "tax_cents");
+        toCents(st, "daily_sales_rollup", "discount", "discount_cents");
+        toCents(st, "daily_sales_rollup", "cost", "cost_cents");
+        st.execute("""
+            UPDATE daily_sales_rollup SET cost_cents = COALESCE((
+                SELECT SUM(CAST(ROUND(it.qty * it.cost_price_cents) AS INTEGER))
+                FROM invoices i JOIN invoice_items it ON it.invoice_id = i.id
+                WHERE i.status = 'PAID' AND date(i.completed_at) = daily_sales_rollup.day
+                  AND COALESCE(i.payment_method, '') = daily_sales_rollup.payment_method
+                  AND COALESCE(i.technician_id, 0) = daily_sales_rollup.technician_id), 0)""");
+
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_paid_completed ON invoices(completed_at, total_cents) WHERE status = 'PAID'");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_invoices_paid_technician ON invoices(technician_id, completed_at, total_cents) WHERE status = 'PAID'");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_customers_balance ON customers(balance_cents) WHERE balance_cents > 0");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_ledger_open_customer ON receivables_ledger(customer_id, charged_on, id) WHERE open_cents > 0");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_ledger_open_bucket ON receivables_ledger(bucket, charged_on) WHERE open_cents > 0");
+    }
+
+    /** High-water mark of reserved invoice numbers per day, for InvoiceSequenceDAO. */
+    private static void v6InvoiceSequence(Statement st) throws SQLException {
+        st.execute("CREATE TABLE IF NOT EXISTS invoice_sequence (day TEXT PRIMARY KEY, next_value INTEGER NOT NULL) WITHOUT ROWID");
+    }
+
+    /**
+     * Stock reserved by open invoice lines, per line and summed per product, and a row
+     * version on products for optimistic saves. Lines already open stay unreserved until
+     * their invoice is resumed or checked out.
+     */
+    private static void v7StockReservations(Statement st) throws SQLException {
+        st.execute("ALTER TABLE products ADD COLUMN reserved_qty REAL NOT NULL DEFAULT 0");
+        st.execute("ALTER TABLE products ADD COLUMN version INTEGER NOT NULL DEFAULT 0");
+        st.execute("ALTER TABLE invoice_items ADD COLUMN reserved_qty REAL NOT NULL DEFAULT 0");
+    }
+
+    /** Order lines by product within an order, for matching a delivery to its lines. */
+    private static void v8PurchaseOrderLines(Statement st) throws SQLException {
+        st.execute("DROP INDEX IF EXISTS idx_po_items_po");
+        st.execute("CREATE INDEX IF NOT EXISTS idx_po_items_po_product ON po_items(po_id, product_id)");
+    }
+
+    private static void toCents(Statement st, String table, String column, String centsColumn) throws SQLException {
+        st.execute("ALTER TABLE " + table + " ADD COLUMN " + centsColumn + " INTEGER NOT NULL DEFAULT 0");
+        st.execute("UPDATE " + table + " SET " + centsColumn + " = CAST(ROUND(" + column + " * 100) AS INTEGER)");
+        st.execute("ALTER TABLE " + table + " DROP COLUMN " + column);
+    }
+}
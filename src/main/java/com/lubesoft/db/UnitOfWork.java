@@ -0,0 +1,14 @@
+package com.lubesoft.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A piece of transactional write work run by {@link WriteQueue} on the writer connection.
+ * The queue owns the transaction: implementations just issue their statements and must
+ * not call setAutoCommit, commit or rollback. Throwing undoes this unit's changes only.
+ */
+@FunctionalInterface
+public interface UnitOfWork<T> {
+    T execute(Connection conn) throws SQLException;
+}
@@ -0,0 +1,268 @@
+package com.lubesoft.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serializes all application writes onto one thread that owns the writer connection.
+ *
+ * Callers submit {@link UnitOfWork}s and get a future back. The writer thread takes
+ * whatever is queued (up to {@code maxBatch}) and runs it in a single BEGIN IMMEDIATE
+ * transaction, each unit inside its own savepoint, so one failing unit is rolled back
+ * alone while the rest of the group shares one commit. Futures complete after that
+ * commit, on the writer thread, so callbacks chained on them should be short.
+ *
+ * The queue is bounded: when it is full, submit blocks the caller for up to
+ * {@code offerTimeoutMs} before failing. Work submitted from the writer thread, or from
+ * a thread already holding the writer connection, runs inline in the current transaction.
+ */
+public class WriteQueue implements AutoCloseable {
+
+    private static final int SQLITE_BUSY = 5;
+    private static final int BEGIN_ATTEMPTS = 5;
+
+    private final ConnectionPool pool;
+    private final BlockingQueue<Job<?>> queue;
+    private final int maxBatch;
+    private final long offerTimeoutMs;
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    private final AtomicLong unitsCommitted = new AtomicLong();
+    private final AtomicLong unitsFailed = new AtomicLong();
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong busyRetries = new AtomicLong();
+
+    public WriteQueue(ConnectionPool pool, int capacity, int maxBatch, long offerTimeoutMs) {
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be at least 1");
+        this.pool = pool;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.writerThread = new Thread(this::run, "db-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /** Queues a unit of work; the future completes once its transaction has committed. */
+    public <T> CompletableFuture<T> submit(UnitOfWork<T> work) {
+        if (runsInline()) {
+            try {
+                return CompletableFuture.completedFuture(runInline(work));
+            } catch (SQLException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        Job<T> job = new Job<>(work);
+        if (closed) {
+            job.future.completeExceptionally(new SQLException("Write queue is closed"));
+            return job.future;
+        }
+        try {
+            if (!queue.offer(job, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                job.future.completeExceptionally(new SQLException("Write queue is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.future.completeExceptionally(new SQLException("Interrupted waiting to queue a write", e));
+        }
+        return job.future;
+    }
+
+    /**
+     * Runs a unit of work through the queue and waits for it to commit. Once queued the
+     * unit commits whether or not the caller is interrupted, so the wait is not cut short:
+     * the caller gets the real outcome (and can publish what it changed), and the
+     * interrupt is restored on return.
+     */
+    public <T> T execute(UnitOfWork<T> work) throws SQLException {
+        if (runsInline()) return runInline(work);
+        CompletableFuture<T> future = submit(work);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new SQLException("Write failed", cause);
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getUnitsCommitted() {
+        return unitsCommitted.get();
+    }
+
+    public long getUnitsFailed() {
+        return unitsFailed.get();
+    }
+
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    public long getBusyRetries() {
+        return busyRetries.get();
+    }
+
+    /** Stops accepting work, finishes what is already queued and stops the writer thread. */
+    @Override
+    public void close() {
+        closed = true;
+        writerThread.interrupt();
+        try {
+            writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Job<?> job;
+        while ((job = queue.poll()) != null) {
+            job.future.completeExceptionally(new SQLException("Write queue is closed"));
+        }
+    }
+
+    private boolean runsInline() {
+        return Thread.currentThread() == writerThread || pool.holdsWriter();
+    }
+
+    private <T> T runInline(UnitOfWork<T> work) throws SQLException {
+        try (Connection conn = pool.getWriteConnection()) {
+            return work.execute(conn);
+        }
+    }
+
+    private void run() {
+        List<Job<?>> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                if (closed) {
+                    Job<?> next = queue.poll();
+                    if (next == null) return;
+                    batch.add(next);
+                } else {
+                    batch.add(queue.take());
+                }
+            } catch (InterruptedException e) {
+                // close() wakes us up; drain what is left before exiting
+                continue;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+            runBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void runBatch(List<Job<?>> batch) {
+        try (Connection conn = pool.getWriteConnection();
+             Statement st = conn.createStatement()) {
+            begin(st);
+            try {
+                runUnits(conn, st, batch);
+                st.execute("COMMIT");
+                batchesCommitted.incrementAndGet();
+            } catch (SQLException e) {
+                rollbackQuietly(st);
+                throw e;
+            }
+        } catch (SQLException e) {
+            // BEGIN or COMMIT failed: nothing in the batch is durable
+            for (Job<?> job : batch) {
+                if (job.failure == null) job.failure = e;
+            }
+        }
+
+        for (Job<?> job : batch) {
+            if (job.failure == null) unitsCommitted.incrementAndGet();
+            else unitsFailed.incrementAndGet();
+            job.complete();
+        }
+    }
+
+    private void runUnits(Connection conn, Statement st, List<Job<?>> batch) throws SQLException {
+        pool.setManagedTransaction(true);
+        try {
+            for (Job<?> job : batch) {
+                st.execute("SAVEPOINT unit");
+                try {
+                    job.run(conn);
+                    st.execute("RELEASE unit");
+                } catch (SQLException | RuntimeException | Error e) {
+                    st.execute("ROLLBACK TO unit");
+                    st.execute("RELEASE unit");
+                    job.failure = e;
+                }
+            }
+        } finally {
+            pool.setManagedTransaction(false);
+        }
+    }
+
+    private void begin(Statement st) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                st.execute("BEGIN IMMEDIATE");
+                return;
+            } catch (SQLException e) {
+                // Another process holds the write lock beyond busy_timeout; back off and retry
+                if ((e.getErrorCode() & 0xff) != SQLITE_BUSY || attempt == BEGIN_ATTEMPTS) throw e;
+                busyRetries.incrementAndGet();
+                try {
+                    Thread.sleep(50L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Statement st) {
+        try {
+            st.execute("ROLLBACK");
+        } catch (SQLException e) {
+            // the failed statement already ended the transaction
+        }
+    }
+
+    private static final class Job<T> {
+        final UnitOfWork<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        Throwable failure;
+
+        Job(UnitOfWork<T> work) {
+            this.work = work;
+        }
+
+        void run(Connection conn) throws SQLException {
+            result = work.execute(conn);
+        }
+
+        void complete() {
+            if (failure == null) future.complete(result);
+            else future.completeExceptionally(failure);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.lubesoft.event;
+
+/** A customer was saved or deleted, or their credit balance changed. */
+public record CustomerUpdated(int customerId) implements DomainEvent {
+
+    @Override
+    public long aggregateKey() {
+        return DomainEvent.key(3, customerId);
+    }
+}
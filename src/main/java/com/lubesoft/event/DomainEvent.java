@@ -0,0 +1,19 @@
+package com.lubesoft.event;
+
+/**
+ * Something that changed in the database, published on the {@link EventBus} once the
+ * change is committed. Events are small immutable records naming what changed, not the
+ * new state; subscribers read what they need.
+ */
+public interface DomainEvent {
+
+    /**
+     * Identifies the row (or history) the event is about. Events with the same key reach
+     * each subscriber in the order they were published.
+     */
+    long aggregateKey();
+
+    static long key(int kind, int id) {
+        return ((long) kind << 32) | (id & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,202 @@
+package com.lubesoft.event;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus for {@link DomainEvent}s, published by the DAOs after each commit.
+ *
+ * {@link #subscribe} handlers run on one of a few lane threads, never on the publisher's
+ * thread or the FX thread; UI subscribers marshal back with UiExecutor. An event's lane
+ * follows from its aggregate key, and each lane delivers in publish order, so events
+ * about the same row arrive in order while unrelated rows do not wait on each other.
+ *
+ * {@link #subscribeInline} handlers run on the publishing thread before publish returns.
+ * They are for caches that must not serve stale data to the caller's next read, and
+ * should be quick, since the publisher waits for them.
+ *
+ * Publishing allocates nothing beyond the event itself: handlers are held in arrays
+ * swapped on subscribe, and the event object is what gets queued.
+ *
+ * Publishing never waits on a lane, since the publisher may be the FX thread. If a lane
+ * has fallen so far behind that its queue is full, the event is dropped for its lane
+ * subscribers and counted in {@link #getDropped}.
+ */
+public class EventBus {
+
+    static final int DEFAULT_LANES = 4;
+    private static final int LANE_CAPACITY = 8192;
+
+    private static EventBus instance;
+
+    private volatile Map<Class<?>, Consumer<DomainEvent>[]> inlineHandlers = Map.of();
+    private volatile Map<Class<?>, Consumer<DomainEvent>[]> laneHandlers = Map.of();
+    private final Lane[] lanes;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    EventBus(int laneCount) {
+        this(laneCount, LANE_CAPACITY);
+    }
+
+    EventBus(int laneCount, int laneCapacity) {
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane("event-lane-" + i, laneCapacity);
+            lanes[i].start();
+        }
+    }
+
+    public static synchronized EventBus getInstance() {
+        if (instance == null) {
+            instance = new EventBus(DEFAULT_LANES);
+        }
+        return instance;
+    }
+
+    /** Delivers events of {@code type} to {@code handler} on a lane thread. */
+    public <E extends DomainEvent> Subscription subscribe(Class<E> type, Consumer<? super E> handler) {
+        return add(type, handler, false);
+    }
+
+    /** Delivers events of {@code type} to {@code handler} on the publishing thread. */
+    public <E extends DomainEvent> Subscription subscribeInline(Class<E> type, Consumer<? super E> handler) {
+        return add(type, handler, true);
+    }
+
+    /** Call once the change is committed. */
+    public void publish(DomainEvent event) {
+        Class<?> type = event.getClass();
+        Consumer<DomainEvent>[] inline = inlineHandlers.get(type);
+        if (inline != null) deliver(inline, event);
+        if (!laneHandlers.containsKey(type)) return;
+
+        pending.incrementAndGet();
+        Lane lane = lanes[Math.floorMod(Long.hashCode(event.aggregateKey() * 0x9E3779B97F4A7C15L), lanes.length)];
+        if (lane.queue.offer(event)) {
+            published.incrementAndGet();
+        } else {
+            pending.decrementAndGet();
+            long n = dropped.incrementAndGet();
+            // Logged at the 1st, 2nd, 4th, 8th... drop, so a stalled lane cannot flood stderr
+            if ((n & (n - 1)) == 0) {
+                System.err.println(lane.getName() + " is full; dropped " + event + " (" + n + " so far)");
+            }
+        }
+    }
+
+    /** Whether publishing an event of {@code type} would reach anyone. */
+    public boolean hasSubscribers(Class<? extends DomainEvent> type) {
+        return inlineHandlers.containsKey(type) || laneHandlers.containsKey(type);
+    }
+
+    /**
+     * Waits until every event published so far has been handled. For tests and shutdown;
+     * returns false on timeout.
+     */
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (pending.get() > 0) {
+            if (System.currentTimeMillis() >= deadline) return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /** Events queued to lanes since startup. */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /** Events lane subscribers missed because their lane was full. */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /** Handler calls that threw. */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /** Stops the lane threads; queued events are dropped. */
+    public void shutdown() {
+        for (Lane lane : lanes) lane.interrupt();
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <E extends DomainEvent> Subscription add(Class<E> type, Consumer<? super E> handler,
+                                                                  boolean inline) {
+        Consumer<DomainEvent> h = e -> handler.accept((E) e);
+        swap(type, h, inline, true);
+        return () -> swap(type, h, inline, false);
+    }
+
+    private synchronized void swap(Class<?> type, Consumer<DomainEvent> h, boolean inline, boolean adding) {
+        Map<Class<?>, Consumer<DomainEvent>[]> next = new HashMap<>(inline ? inlineHandlers : laneHandlers);
+        Consumer<DomainEvent>[] current = next.getOrDefault(type, handlers(0));
+        if (adding) {
+            Consumer<DomainEvent>[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = h;
+            next.put(type, grown);
+        } else {
+            Consumer<DomainEvent>[] shrunk = Arrays.stream(current).filter(c -> c != h).toArray(EventBus::handlers);
+            if (shrunk.length == current.length) return;
+            if (shrunk.length == 0) next.remove(type);
+            else next.put(type, shrunk);
+        }
+        if (inline) inlineHandlers = Map.copyOf(next);
+        else laneHandlers = Map.copyOf(next);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Consumer<DomainEvent>[] handlers(int length) {
+        return new Consumer[length];
+    }
+
+    private void deliver(Consumer<DomainEvent>[] handlers, DomainEvent event) {
+        for (Consumer<DomainEvent> h : handlers) {
+            try {
+                h.accept(event);
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                System.err.println("Event handler failed for " + event + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private final class Lane extends Thread {
+
+        final BlockingQueue<DomainEvent> queue;
+
+        Lane(String name, int capacity) {
+            super(name);
+            queue = new ArrayBlockingQueue<>(capacity);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    DomainEvent event = queue.take();
+                    try {
+                        // Read at delivery, so a handler unsubscribed meanwhile is skipped
+                        Consumer<DomainEvent>[] handlers = laneHandlers.get(event.getClass());
+                        if (handlers != null) deliver(handlers, event);
+                    } finally {
+                        pending.decrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Shut down
+            }
+        }
+    }
+}
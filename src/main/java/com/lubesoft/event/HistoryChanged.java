@@ -0,0 +1,17 @@
+package com.lubesoft.event;
+
+import com.lubesoft.model.DateRange;
+
+/**
+ * History dated within {@code days} changed: invoices, stock movements or time entries.
+ * {@code days} is null when any day may have changed (a full rebuild). Most writes are
+ * dated today; voids and clock-outs can reach back.
+ */
+public record HistoryChanged(DateRange days) implements DomainEvent {
+
+    @Override
+    public long aggregateKey() {
+        // One key for all history, so ranges arrive in the order they were written
+        return DomainEvent.key(4, 0);
+    }
+}
@@ -0,0 +1,19 @@
+package com.lubesoft.event;
+
+/** An invoice was created or moved to {@code status} (HELD, WIP, PAID, VOID...). */
+public record InvoiceStatusChanged(int invoiceId, String status) implements DomainEvent {
+
+    @Override
+    public long aggregateKey() {
+        return DomainEvent.key(1, invoiceId);
+    }
+
+    /** Whether the invoice now belongs on the held/in-progress list. */
+    public boolean isParked() {
+        return isParked(status);
+    }
+
+    public static boolean isParked(String status) {
+        return "HELD".equals(status) || "WIP".equals(status);
+    }
+}
@@ -0,0 +1,19 @@
+package com.lubesoft.event;
+
+/**
+ * A product row changed: saved, deleted, or its stock moved. {@code productId} is
+ * {@link #ALL} when too many changed to name them one by one (a catalog import).
+ */
+public record ProductChanged(int productId) implements DomainEvent {
+
+    public static final int ALL = 0;
+
+    public boolean isAll() {
+        return productId == ALL;
+    }
+
+    @Override
+    public long aggregateKey() {
+        return DomainEvent.key(2, productId);
+    }
+}
@@ -0,0 +1,8 @@
+package com.lubesoft.event;
+
+/** Returned by {@link EventBus#subscribe}; closing it stops delivery. */
+@FunctionalInterface
+public interface Subscription extends AutoCloseable {
+    @Override
+    void close();
+}
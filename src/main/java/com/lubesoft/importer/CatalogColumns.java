@@ -0,0 +1,188 @@
+package com.lubesoft.importer;
+
+import com.lubesoft.model.Money;
+import com.lubesoft.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Where each product field sits in a catalog file, read from its header row, and how a
+ * data row becomes a {@link Product}. Headers match case-insensitively, with "_" and "-"
+ * read as spaces, so "Sell_Price", "sell price" and "PRICE" are the same column.
+ * Unknown columns are ignored.
+ */
+public final class CatalogColumns {
+
+    /** A product field a catalog can carry, with its products column and header aliases. */
+    public enum Column {
+        SKU("sku", "sku", "item code", "part number", "part no"),
+        BARCODE("barcode", "barcode", "ean", "upc"),
+        NAME("name", "name", "description", "product"),
+        CATEGORY("category", "category"),
+        UNIT("unit", "unit", "uom"),
+        SELL_PRICE("sell_price_cents", "sell price", "price", "retail price"),
+        COST_PRICE("cost_price_cents", "cost price", "cost"),
+        STOCK("stock_qty", "stock", "stock qty", "qty"),
+        MIN_STOCK("min_stock", "min stock", "reorder level"),
+        MAX_STOCK("max_stock", "max stock"),
+        BULK_OIL("is_bulk_oil", "bulk oil", "is bulk oil");
+
+        private final String dbColumn;
+        private final String[] aliases;
+
+        Column(String dbColumn, String... aliases) {
+            this.dbColumn = dbColumn;
+            this.aliases = aliases;
+        }
+
+        public String getDbColumn() { return dbColumn; }
+    }
+
+    // Numbers a row may leave blank: an update keeps the product's value, an insert stores 0
+    private static final Set<Column> OPTIONAL_NUMBERS = EnumSet.of(
+            Column.COST_PRICE, Column.STOCK, Column.MIN_STOCK, Column.MAX_STOCK, Column.BULK_OIL);
+
+    private final Map<Column, Integer> positions;
+
+    private CatalogColumns(Map<Column, Integer> positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * Maps a header row. A catalog needs a name column and a SKU or barcode column to
+     * match products by; without them IllegalArgumentException says what is missing.
+     */
+    public static CatalogColumns fromHeader(String[] header) {
+        Map<Column, Integer> positions = new EnumMap<>(Column.class);
+        for (int i = 0; i < header.length; i++) {
+            String name = normalize(header[i]);
+            if (name == null) continue;
+            for (Column c : Column.values()) {
+                if (!positions.containsKey(c) && Arrays.asList(c.aliases).contains(name)) {
+                    positions.put(c, i);
+                    break;
+                }
+            }
+        }
+        if (!positions.containsKey(Column.NAME)) {
+            throw new IllegalArgumentException("Catalog has no name column");
+        }
+        if (!positions.containsKey(Column.SKU) && !positions.containsKey(Column.BARCODE)) {
+            throw new IllegalArgumentException("Catalog needs a SKU or barcode column");
+        }
+        return new CatalogColumns(positions);
+    }
+
+    public boolean has(Column c) {
+        return positions.containsKey(c);
+    }
+
+    /** The products columns this catalog carries, in {@link Column} order. */
+    public List<String> dbColumns() {
+        List<String> columns = new ArrayList<>();
+        for (Column c : positions.keySet()) columns.add(c.dbColumn);
+        return columns;
+    }
+
+    /**
+     * One data row as a product. Blank text is null and blank numbers are 0 (see
+     * {@link #blankNumbers}), except the sell price, which must be given when the catalog
+     * has the column. Throws IllegalArgumentException naming the first thing wrong with
+     * the row.
+     */
+    public Product parse(String[] cells) {
+        Product p = new Product();
+        p.setName(text(cells, Column.NAME));
+        p.setSku(text(cells, Column.SKU));
+        p.setBarcode(text(cells, Column.BARCODE));
+        p.setCategory(text(cells, Column.CATEGORY));
+        p.setUnit(text(cells, Column.UNIT));
+        if (p.getName() == null) throw new IllegalArgumentException("Name is required");
+        if (p.getSku() == null && p.getBarcode() == null) throw new IllegalArgumentException("SKU or barcode is required");
+
+        if (has(Column.SELL_PRICE) && text(cells, Column.SELL_PRICE) == null) {
+            throw new IllegalArgumentException("Sell price is required");
+        }
+        p.setSellPriceCents(money(cells, Column.SELL_PRICE));
+        p.setCostPriceCents(money(cells, Column.COST_PRICE));
+        p.setStockQty(qty(cells, Column.STOCK));
+        p.setMinStock(qty(cells, Column.MIN_STOCK));
+        p.setMaxStock(qty(cells, Column.MAX_STOCK));
+        p.setBulkOil(flag(cells, Column.BULK_OIL));
+        return p;
+    }
+
+    /** The products columns of the numbers this catalog carries but the row leaves blank. */
+    public Set<String> blankNumbers(String[] cells) {
+        Set<String> blank = null;
+        for (Column c : OPTIONAL_NUMBERS) {
+            if (has(c) && text(cells, c) == null) {
+                if (blank == null) blank = new HashSet<>();
+                blank.add(c.dbColumn);
+            }
+        }
+        return blank == null ? Set.of() : blank;
+    }
+
+    private String text(String[] cells, Column c) {
+        Integer i = positions.get(c);
+        if (i == null || i >= cells.length || cells[i] == null) return null;
+        String value = cells[i].strip();
+        return value.isEmpty() ? null : value;
+    }
+
+    private long money(String[] cells, Column c) {
+        String value = text(cells, c);
+        if (value == null) return 0;
+        long cents;
+        try {
+            cents = Money.parse(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(label(c) + " is not an amount: " + value);
+        }
+        if (cents < 0) throw new IllegalArgumentException(label(c) + " cannot be negative");
+        return cents;
+    }
+
+    private double qty(String[] cells, Column c) {
+        String value = text(cells, c);
+        if (value == null) return 0;
+        double qty;
+        try {
+            qty = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(label(c) + " is not a number: " + value);
+        }
+        if (!(qty >= 0) || Double.isInfinite(qty)) throw new IllegalArgumentException(label(c) + " must be zero or more");
+        return qty;
+    }
+
+    private boolean flag(String[] cells, Column c) {
+        String value = text(cells, c);
+        if (value == null) return false;
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "1", "true", "yes", "y" -> true;
+            case "0", "false", "no", "n" -> false;
+            default -> throw new IllegalArgumentException(label(c) + " must be yes or no: " + value);
+        };
+    }
+
+    private static String label(Column c) {
+        String alias = c.aliases[0];
+        return Character.toUpperCase(alias.charAt(0)) + alias.substring(1);
+    }
+
+    private static String normalize(String header) {
+        if (header == null) return null;
+        String name = header.strip().toLowerCase(Locale.ROOT).replace('_', ' ').replace('-', ' ');
+        return name.isEmpty() ? null : name.replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,26 @@
+package com.lubesoft.importer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Streams the rows of a catalog file, header first, without holding the file in memory.
+ */
+public interface CatalogReader {
+
+    /** Receives each row as it is read; {@code row} is 1-based and counts the header. */
+    interface RowSink {
+        void row(int row, String[] cells) throws InterruptedException;
+    }
+
+    void read(RowSink sink) throws IOException, InterruptedException;
+
+    /** A reader for {@code file} by its extension: .csv or .txt, or .xlsx. */
+    static CatalogReader forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv") || name.endsWith(".txt")) return new CsvCatalogReader(file);
+        if (name.endsWith(".xlsx")) return new XlsxCatalogReader(file);
+        throw new IllegalArgumentException("Unsupported catalog file (expected .csv or .xlsx): " + file.getFileName());
+    }
+}
@@ -0,0 +1,83 @@
+package com.lubesoft.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Comma-separated values as RFC 4180 writes them: fields may be quoted, a quoted field
+ * may hold commas, line breaks and doubled quotes. Reads UTF-8, skipping a leading BOM,
+ * and skips blank lines.
+ */
+public class CsvCatalogReader implements CatalogReader {
+
+    private final Path file;
+
+    public CsvCatalogReader(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void read(RowSink sink) throws IOException, InterruptedException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            read(in, sink);
+        }
+    }
+
+    static void read(Reader in, RowSink sink) throws IOException, InterruptedException {
+        List<String> cells = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean first = true;
+        int row = 0;
+        int c;
+        while ((c = in.read()) != -1) {
+            if (first) {
+                first = false;
+                if (c == '\uFEFF') continue;
+            }
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) in.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    in.mark(1);
+                    if (in.read() != '\n') in.reset();
+                }
+                row = emit(cells, field, row, sink);
+            } else {
+                field.append((char) c);
+            }
+        }
+        emit(cells, field, row, sink);
+    }
+
+    private static int emit(List<String> cells, StringBuilder field, int row, RowSink sink) throws InterruptedException {
+        if (cells.isEmpty() && field.isEmpty()) return row;
+        cells.add(field.toString());
+        field.setLength(0);
+        sink.row(++row, cells.toArray(new String[0]));
+        cells.clear();
+        return row;
+    }
+}
@@ -0,0 +1,111 @@
+package com.lubesoft.importer;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The first sheet of an .xlsx workbook, read with POI's SAX event model so only the row
+ * being parsed is in memory. Numbers come through as plain text ("8901234567890",
+ * "12.5") whatever the cell's display format, so barcodes and prices survive intact.
+ */
+public class XlsxCatalogReader implements CatalogReader {
+
+    private final Path file;
+
+    public XlsxCatalogReader(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void read(RowSink sink) throws IOException, InterruptedException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) return;
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                RowCollector rows = new RowCollector(sink);
+                parser.setContentHandler(new XSSFSheetXMLHandler(reader.getStylesTable(),
+                        new ReadOnlySharedStringsTable(pkg), rows, new RawNumbers(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (Interrupted e) {
+            throw e.cause;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Cannot read " + file.getFileName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Ignores display formats: numbers as Excel would show them in a General cell. */
+    private static final class RawNumbers extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString) {
+            return NumberToTextConverter.toText(value);
+        }
+    }
+
+    /** Carries an interrupt out through the SAX parser. */
+    private static final class Interrupted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final InterruptedException cause;
+
+        Interrupted(InterruptedException cause) {
+            this.cause = cause;
+        }
+    }
+
+    private static final class RowCollector implements SheetContentsHandler {
+
+        private final RowSink sink;
+        private final List<String> cells = new ArrayList<>();
+
+        RowCollector(RowSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (cells.stream().allMatch(c -> c == null || c.isBlank())) return;
+            try {
+                sink.row(rowNum + 1, cells.toArray(new String[0]));
+            } catch (InterruptedException e) {
+                throw new Interrupted(e);
+            }
+        }
+
+        @Override
+        public void cell(String ref, String value, XSSFComment comment) {
+            // Empty cells are not reported, so place each value by its column
+            int col = ref == null ? cells.size() : new CellReference(ref).getCol();
+            while (cells.size() < col) cells.add(null);
+            cells.add(value);
+        }
+    }
+}
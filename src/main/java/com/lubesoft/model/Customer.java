@@ -6,8 +6,8 @@ public class Customer {
     private String phone;
     private String email;
     private String company;
-    private double creditLimit;
-    private double currentBalance;
+    private long creditLimitCents;
+    private long balanceCents;
     private String createdAt;
 
     public Customer() {}
@@ -27,11 +27,18 @@ public class Customer {
     public String getCompany() { return company; }
     public void setCompany(String company) { this.company = company; }
 
-    public double getCreditLimit() { return creditLimit; }
-    public void setCreditLimit(double creditLimit) { this.creditLimit = creditLimit; }
+    public long getCreditLimitCents() { return creditLimitCents; }
+    public void setCreditLimitCents(long creditLimitCents) { this.creditLimitCents = creditLimitCents; }
 
-    public double getCurrentBalance() { return currentBalance; }
-    public void setCurrentBalance(double currentBalance) { this.currentBalance = currentBalance; }
+    public long getBalanceCents() { return balanceCents; }
+    public void setBalanceCents(long balanceCents) { this.balanceCents = balanceCents; }
+
+    /** Currency-unit views of the cents fields, for display and data entry. */
+    public double getCreditLimit() { return Money.toDouble(creditLimitCents); }
+    public void setCreditLimit(double creditLimit) { this.creditLimitCents = Money.of(creditLimit); }
+
+    public double getCurrentBalance() { return Money.toDouble(balanceCents); }
+    public void setCurrentBalance(double currentBalance) { this.balanceCents = Money.of(currentBalance); }
 
     public String getCreatedAt() { return createdAt; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
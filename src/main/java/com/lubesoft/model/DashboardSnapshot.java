@@ -0,0 +1,37 @@
+package com.lubesoft.model;
+
+import java.util.List;
+
+/**
+ * Everything the dashboard shows, read from one database snapshot so the tiles agree
+ * with each other. Immutable; the lists cannot be modified. A higher version was loaded
+ * later, so a view can ignore a snapshot older than the one it shows.
+ */
+public final class DashboardSnapshot {
+
+    private final long version;
+    private final long todayRevenueCents;
+    private final List<Invoice> recentPaid;
+    private final List<Product> lowStock;
+    private final long pendingCreditsCents;
+    private final long loadNanos;
+
+    public DashboardSnapshot(long version, long todayRevenueCents, List<Invoice> recentPaid, List<Product> lowStock,
+                             long pendingCreditsCents, long loadNanos) {
+        this.version = version;
+        this.todayRevenueCents = todayRevenueCents;
+        this.recentPaid = List.copyOf(recentPaid);
+        this.lowStock = List.copyOf(lowStock);
+        this.pendingCreditsCents = pendingCreditsCents;
+        this.loadNanos = loadNanos;
+    }
+
+    public long getVersion() { return version; }
+    public long getTodayRevenueCents() { return todayRevenueCents; }
+    public List<Invoice> getRecentPaid() { return recentPaid; }
+    public List<Product> getLowStock() { return lowStock; }
+    public long getPendingCreditsCents() { return pendingCreditsCents; }
+
+    /** Time spent reading the snapshot. */
+    public long getLoadNanos() { return loadNanos; }
+}
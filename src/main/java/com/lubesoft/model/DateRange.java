@@ -0,0 +1,69 @@
+package com.lubesoft.model;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Objects;
+
+/**
+ * An inclusive span of calendar days, queried as the half-open timestamp range
+ * {@code col >= start AND col < endExclusive}. Stored timestamps are SQLite
+ * {@code datetime('now')} text (UTC, "yyyy-MM-dd HH:mm:ss"), which sorts correctly
+ * against the bare "yyyy-MM-dd" bounds, so the column stays index-searchable.
+ */
+public final class DateRange {
+
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public DateRange(LocalDate from, LocalDate to) {
+        this.from = Objects.requireNonNull(from, "from");
+        this.to = Objects.requireNonNull(to, "to");
+    }
+
+    /** Parses ISO dates ("2024-05-01") as sent by the date pickers. */
+    public static DateRange of(String from, String to) {
+        return new DateRange(LocalDate.parse(from), LocalDate.parse(to));
+    }
+
+    /** Today, in the UTC calendar the database timestamps use. */
+    public static DateRange today() {
+        LocalDate day = LocalDate.now(ZoneOffset.UTC);
+        return new DateRange(day, day);
+    }
+
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+
+    /** Inclusive lower bound. */
+    public String getStart() { return from.toString(); }
+
+    /** Exclusive upper bound: the day after {@code to}. */
+    public String getEndExclusive() { return to.plusDays(1).toString(); }
+
+    /** Binds start and end to two consecutive parameters and returns the next index. */
+    public int bind(PreparedStatement ps, int index) throws SQLException {
+        ps.setString(index, getStart());
+        ps.setString(index + 1, getEndExclusive());
+        return index + 2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DateRange)) return false;
+        DateRange other = (DateRange) o;
+        return from.equals(other.from) && to.equals(other.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to);
+    }
+
+    @Override
+    public String toString() {
+        return from + ".." + to;
+    }
+}
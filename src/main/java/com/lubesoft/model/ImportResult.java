@@ -0,0 +1,56 @@
+package com.lubesoft.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a catalog import: how many data rows were read, inserted and updated,
+ * and why the others were skipped. Only the first {@link #MAX_ERRORS} reasons are kept;
+ * {@link #getErrorCount()} counts them all.
+ */
+public class ImportResult {
+
+    public static final int MAX_ERRORS = 1000;
+
+    /** A skipped row: its row number in the file (the header is row 1) and why. */
+    public record RowError(int row, String message) {
+        @Override
+        public String toString() { return "Row " + row + ": " + message; }
+    }
+
+    /** Where a running import has got to, reported after each batch is written. */
+    public record Progress(int rowsRead, int rowsWritten, int errors) {}
+
+    private int rowsRead;
+    private int inserted;
+    private int updated;
+    private int errorCount;
+    private long elapsedMillis;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public int getRowsRead() { return rowsRead; }
+    public void setRowsRead(int rowsRead) { this.rowsRead = rowsRead; }
+
+    public int getInserted() { return inserted; }
+    public void addInserted(int count) { inserted += count; }
+
+    public int getUpdated() { return updated; }
+    public void addUpdated(int count) { updated += count; }
+
+    public int getErrorCount() { return errorCount; }
+
+    public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+    public void addError(int row, String message) {
+        errorCount++;
+        if (errors.size() < MAX_ERRORS) errors.add(new RowError(row, message));
+    }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+    public void setElapsedMillis(long elapsedMillis) { this.elapsedMillis = elapsedMillis; }
+
+    public int getRowsWritten() { return inserted + updated; }
+
+    public Progress toProgress() { return new Progress(rowsRead, getRowsWritten(), errorCount); }
+}
@@ -11,11 +11,11 @@ public class Invoice {
     private int technicianId;
     private String status;        // OPEN, WIP, HELD, PAID, VOID
     private String paymentMethod; // CASH, CREDIT, DIGITAL, SPLIT
-    private double subtotal;
-    private double tax;
-    private double discount;
-    private double total;
-    private double paidAmount;
+    private long subtotalCents;
+    private long taxCents;
+    private long discountCents;
+    private long totalCents;
+    private long paidCents;
     private String createdAt;
     private String completedAt;
     private String notes;
@@ -44,20 +44,36 @@ public class Invoice {
     public String getPaymentMethod() { return paymentMethod; }
     public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
 
-    public double getSubtotal() { return subtotal; }
-    public void setSubtotal(double subtotal) { this.subtotal = subtotal; }
+    public long getSubtotalCents() { return subtotalCents; }
+    public void setSubtotalCents(long subtotalCents) { this.subtotalCents = subtotalCents; }
 
-    public double getTax() { return tax; }
-    public void setTax(double tax) { this.tax = tax; }
+    public long getTaxCents() { return taxCents; }
+    public void setTaxCents(long taxCents) { this.taxCents = taxCents; }
 
-    public double getDiscount() { return discount; }
-    public void setDiscount(double discount) { this.discount = discount; }
+    public long getDiscountCents() { return discountCents; }
+    public void setDiscountCents(long discountCents) { this.discountCents = discountCents; }
 
-    public double getTotal() { return total; }
-    public void setTotal(double total) { this.total = total; }
+    public long getTotalCents() { return totalCents; }
+    public void setTotalCents(long totalCents) { this.totalCents = totalCents; }
 
-    public double getPaidAmount() { return paidAmount; }
-    public void setPaidAmount(double paidAmount) { this.paidAmount = paidAmount; }
+    public long getPaidCents() { return paidCents; }
+    public void setPaidCents(long paidCents) { this.paidCents = paidCents; }
+
+    /** Currency-unit views of the cents fields, for display and data entry. */
+    public double getSubtotal() { return Money.toDouble(subtotalCents); }
+    public void setSubtotal(double subtotal) { this.subtotalCents = Money.of(subtotal); }
+
+    public double getTax() { return Money.toDouble(taxCents); }
+    public void setTax(double tax) { this.taxCents = Money.of(tax); }
+
+    public double getDiscount() { return Money.toDouble(discountCents); }
+    public void setDiscount(double discount) { this.discountCents = Money.of(discount); }
+
+    public double getTotal() { return Money.toDouble(totalCents); }
+    public void setTotal(double total) { this.totalCents = Money.of(total); }
+
+    public double getPaidAmount() { return Money.toDouble(paidCents); }
+    public void setPaidAmount(double paidAmount) { this.paidCents = Money.of(paidAmount); }
 
     public String getCreatedAt() { return createdAt; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
@@ -71,10 +87,15 @@ public class Invoice {
     public List<InvoiceItem> getItems() { return items; }
     public void setItems(List<InvoiceItem> items) { this.items = items; }
 
+    /** Re-derives subtotal, tax and total from the lines; exact, and allocates nothing. */
     public void recalculate(double taxRate) {
-        subtotal = items.stream().mapToDouble(InvoiceItem::getTotal).sum();
-        tax = subtotal * taxRate;
-        total = subtotal + tax - discount;
+        long sum = 0;
+        for (int i = 0, n = items.size(); i < n; i++) {
+            sum = Money.add(sum, items.get(i).getTotalCents());
+        }
+        subtotalCents = sum;
+        taxCents = Money.times(sum, taxRate);
+        totalCents = Money.subtract(Money.add(sum, taxCents), discountCents);
     }
 
     @Override
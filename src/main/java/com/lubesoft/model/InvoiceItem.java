@@ -6,19 +6,19 @@ public class InvoiceItem {
     private int productId;
     private String description;
     private double qty;
-    private double unitPrice;
-    private double costPrice;
-    private double total;
+    private long unitPriceCents;
+    private long costPriceCents;
+    private long totalCents;
 
     public InvoiceItem() {}
 
-    public InvoiceItem(int productId, String description, double qty, double unitPrice, double costPrice) {
+    public InvoiceItem(int productId, String description, double qty, long unitPriceCents, long costPriceCents) {
         this.productId = productId;
         this.description = description;
         this.qty = qty;
-        this.unitPrice = unitPrice;
-        this.costPrice = costPrice;
-        this.total = qty * unitPrice;
+        this.unitPriceCents = unitPriceCents;
+        this.costPriceCents = costPriceCents;
+        this.totalCents = Money.times(unitPriceCents, qty);
     }
 
     public int getId() { return id; }
@@ -36,18 +36,23 @@ public class InvoiceItem {
     public double getQty() { return qty; }
     public void setQty(double qty) {
         this.qty = qty;
-        this.total = qty * unitPrice;
+        this.totalCents = Money.times(unitPriceCents, qty);
     }
 
-    public double getUnitPrice() { return unitPrice; }
-    public void setUnitPrice(double unitPrice) {
-        this.unitPrice = unitPrice;
-        this.total = qty * unitPrice;
+    public long getUnitPriceCents() { return unitPriceCents; }
+    public void setUnitPriceCents(long unitPriceCents) {
+        this.unitPriceCents = unitPriceCents;
+        this.totalCents = Money.times(unitPriceCents, qty);
     }
 
-    public double getCostPrice() { return costPrice; }
-    public void setCostPrice(double costPrice) { this.costPrice = costPrice; }
+    public long getCostPriceCents() { return costPriceCents; }
+    public void setCostPriceCents(long costPriceCents) { this.costPriceCents = costPriceCents; }
 
-    public double getTotal() { return total; }
-    public void setTotal(double total) { this.total = total; }
+    public long getTotalCents() { return totalCents; }
+    public void setTotalCents(long totalCents) { this.totalCents = totalCents; }
+
+    /** Currency-unit views of the cents fields, for display. */
+    public double getUnitPrice() { return Money.toDouble(unitPriceCents); }
+    public double getCostPrice() { return Money.toDouble(costPriceCents); }
+    public double getTotal() { return Money.toDouble(totalCents); }
 }
@@ -0,0 +1,47 @@
+package com.lubesoft.model;
+
+/**
+ * Invoice header totals as they stand after a line or discount change.
+ * {@code item} is the line that was added, when the change was an add.
+ */
+public class InvoiceTotals {
+    private int invoiceId;
+    private long subtotalCents;
+    private long taxCents;
+    private long discountCents;
+    private long totalCents;
+    private InvoiceItem item;
+
+    public InvoiceTotals() {}
+
+    public int getInvoiceId() { return invoiceId; }
+    public void setInvoiceId(int invoiceId) { this.invoiceId = invoiceId; }
+
+    public long getSubtotalCents() { return subtotalCents; }
+    public void setSubtotalCents(long subtotalCents) { this.subtotalCents = subtotalCents; }
+
+    public long getTaxCents() { return taxCents; }
+    public void setTaxCents(long taxCents) { this.taxCents = taxCents; }
+
+    public long getDiscountCents() { return discountCents; }
+    public void setDiscountCents(long discountCents) { this.discountCents = discountCents; }
+
+    public long getTotalCents() { return totalCents; }
+    public void setTotalCents(long totalCents) { this.totalCents = totalCents; }
+
+    public double getSubtotal() { return Money.toDouble(subtotalCents); }
+    public double getTax() { return Money.toDouble(taxCents); }
+    public double getDiscount() { return Money.toDouble(discountCents); }
+    public double getTotal() { return Money.toDouble(totalCents); }
+
+    public InvoiceItem getItem() { return item; }
+    public void setItem(InvoiceItem item) { this.item = item; }
+
+    /** Copies these totals onto an invoice header held by the caller. */
+    public void applyTo(Invoice invoice) {
+        invoice.setSubtotalCents(subtotalCents);
+        invoice.setTaxCents(taxCents);
+        invoice.setDiscountCents(discountCents);
+        invoice.setTotalCents(totalCents);
+    }
+}
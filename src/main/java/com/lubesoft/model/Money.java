@@ -0,0 +1,74 @@
+package com.lubesoft.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a primitive {@code long} count of cents. Amounts are stored, summed and bound
+ * to SQL as cents, so totals and rollups add exactly and the arithmetic allocates nothing.
+ * Every operation throws ArithmeticException on overflow rather than wrapping.
+ *
+ * Multiplying by a quantity or rate rounds half away from zero, the same as SQLite's
+ * ROUND(), so an amount computed in SQL matches one computed here.
+ */
+public final class Money {
+
+    public static final long ZERO = 0;
+    public static final int CENTS_PER_UNIT = 100;
+
+    // Largest magnitude a double product can have and still round into a long
+    private static final double MAX_EXACT = 9.0e18;
+
+    private Money() {}
+
+    /** Cents nearest to {@code amount} in currency units, e.g. 12.345 -> 1235. */
+    public static long of(double amount) {
+        return times(CENTS_PER_UNIT, amount);
+    }
+
+    /**
+     * Parses an entered amount such as "12.5" or "-3.99"; more than two decimals are rounded.
+     *
+     * @throws NumberFormatException if the text is not a number or is out of range
+     */
+    public static long parse(String amount) {
+        try {
+            return new BigDecimal(amount.trim()).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + amount);
+        }
+    }
+
+    /** The amount in currency units, for display and for APIs that take a double. */
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /** {@code cents * factor} rounded to the cent; for quantities and rates. */
+    public static long times(long cents, double factor) {
+        double exact = cents * factor;
+        if (!(Math.abs(exact) < MAX_EXACT)) {
+            throw new ArithmeticException("Money overflow: " + cents + " * " + factor);
+        }
+        return exact < 0 ? -Math.round(-exact) : Math.round(exact);
+    }
+
+    /** Formats with two decimals, e.g. 1235 -> "12.35", -50 -> "-0.50". */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) sb.append('-');
+        sb.append(abs / CENTS_PER_UNIT).append('.');
+        long fraction = abs % CENTS_PER_UNIT;
+        if (fraction < 10) sb.append('0');
+        return sb.append(fraction).toString();
+    }
+}
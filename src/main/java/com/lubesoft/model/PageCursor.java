@@ -0,0 +1,49 @@
+package com.lubesoft.model;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Keyset position in a list ordered by (sort column, id): the last row of the previous
+ * page. The next page is read with {@code (col, id) > (?, ?)} (or {@code <} for
+ * descending lists), which seeks in the index instead of skipping rows like OFFSET.
+ */
+public final class PageCursor {
+
+    private final String sortValue;
+    private final int id;
+
+    public PageCursor(String sortValue, int id) {
+        this.sortValue = Objects.requireNonNull(sortValue, "sortValue");
+        this.id = id;
+    }
+
+    public String getSortValue() { return sortValue; }
+    public int getId() { return id; }
+
+    /** Binds sort value and id to two consecutive parameters and returns the next index. */
+    public int bind(PreparedStatement ps, int index) throws SQLException {
+        ps.setString(index, sortValue);
+        ps.setInt(index + 1, id);
+        return index + 2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PageCursor)) return false;
+        PageCursor other = (PageCursor) o;
+        return id == other.id && sortValue.equals(other.sortValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sortValue, id);
+    }
+
+    @Override
+    public String toString() {
+        return "(" + sortValue + ", " + id + ")";
+    }
+}
@@ -6,13 +6,15 @@ public class Product {
     private String name;
     private String category;
     private String unit;
-    private double sellPrice;
-    private double costPrice;
+    private long sellPriceCents;
+    private long costPriceCents;
     private double stockQty;
+    private double reservedQty;
     private double minStock;
     private double maxStock;
     private String barcode;
     private boolean isBulkOil;
+    private long version;
 
     public Product() {}
 
@@ -31,15 +33,28 @@ public class Product {
     public String getUnit() { return unit; }
     public void setUnit(String unit) { this.unit = unit; }
 
-    public double getSellPrice() { return sellPrice; }
-    public void setSellPrice(double sellPrice) { this.sellPrice = sellPrice; }
+    public long getSellPriceCents() { return sellPriceCents; }
+    public void setSellPriceCents(long sellPriceCents) { this.sellPriceCents = sellPriceCents; }
 
-    public double getCostPrice() { return costPrice; }
-    public void setCostPrice(double costPrice) { this.costPrice = costPrice; }
+    public long getCostPriceCents() { return costPriceCents; }
+    public void setCostPriceCents(long costPriceCents) { this.costPriceCents = costPriceCents; }
+
+    /** Currency-unit views of the cents fields, for display and data entry. */
+    public double getSellPrice() { return Money.toDouble(sellPriceCents); }
+    public void setSellPrice(double sellPrice) { this.sellPriceCents = Money.of(sellPrice); }
+
+    public double getCostPrice() { return Money.toDouble(costPriceCents); }
+    public void setCostPrice(double costPrice) { this.costPriceCents = Money.of(costPrice); }
 
     public double getStockQty() { return stockQty; }
     public void setStockQty(double stockQty) { this.stockQty = stockQty; }
 
+    /** Held by lines on open invoices; see StockReservationDAO. */
+    public double getReservedQty() { return reservedQty; }
+    public void setReservedQty(double reservedQty) { this.reservedQty = reservedQty; }
+
+    public double getAvailableQty() { return stockQty - reservedQty; }
+
     public double getMinStock() { return minStock; }
     public void setMinStock(double minStock) { this.minStock = minStock; }
 
@@ -52,6 +67,10 @@ public class Product {
     public boolean isBulkOil() { return isBulkOil; }
     public void setBulkOil(boolean bulkOil) { isBulkOil = bulkOil; }
 
+    /** Row version at load; ProductDAO.save refuses to overwrite a newer row. */
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
+
     public boolean isLowStock() { return stockQty <= minStock; }
 
     @Override
@@ -32,7 +32,7 @@ public class PurchaseOrder {
         private int poId;
         private int productId;
         private double qtyOrdered;
-        private double unitCost;
+        private long unitCostCents;
         private double receivedQty;
 
         public int getId() { return id; }
@@ -47,10 +47,16 @@ public class PurchaseOrder {
         public double getQtyOrdered() { return qtyOrdered; }
         public void setQtyOrdered(double qtyOrdered) { this.qtyOrdered = qtyOrdered; }
 
-        public double getUnitCost() { return unitCost; }
-        public void setUnitCost(double unitCost) { this.unitCost = unitCost; }
+        public long getUnitCostCents() { return unitCostCents; }
+        public void setUnitCostCents(long unitCostCents) { this.unitCostCents = unitCostCents; }
+
+        public double getUnitCost() { return Money.toDouble(unitCostCents); }
+        public void setUnitCost(double unitCost) { this.unitCostCents = Money.of(unitCost); }
 
         public double getReceivedQty() { return receivedQty; }
         public void setReceivedQty(double receivedQty) { this.receivedQty = receivedQty; }
     }
+
+    /** One line of a delivery: {@code qty} of a product arriving at {@code unitCostCents} each. */
+    public record ReceivedLine(int productId, double qty, long unitCostCents) {}
 }
@@ -0,0 +1,34 @@
+package com.lubesoft.model;
+
+/**
+ * Paid-invoice totals for a span of days, read from the daily sales rollup.
+ */
+public class SalesSummary {
+    private int invoiceCount;
+    private long revenueCents;
+    private long taxCents;
+    private long discountCents;
+    private long costCents;
+
+    public SalesSummary() {}
+
+    public int getInvoiceCount() { return invoiceCount; }
+    public void setInvoiceCount(int invoiceCount) { this.invoiceCount = invoiceCount; }
+
+    public long getRevenueCents() { return revenueCents; }
+    public void setRevenueCents(long revenueCents) { this.revenueCents = revenueCents; }
+
+    public long getTaxCents() { return taxCents; }
+    public void setTaxCents(long taxCents) { this.taxCents = taxCents; }
+
+    public long getDiscountCents() { return discountCents; }
+    public void setDiscountCents(long discountCents) { this.discountCents = discountCents; }
+
+    public long getCostCents() { return costCents; }
+    public void setCostCents(long costCents) { this.costCents = costCents; }
+
+    public double getRevenue() { return Money.toDouble(revenueCents); }
+    public double getTax() { return Money.toDouble(taxCents); }
+    public double getDiscount() { return Money.toDouble(discountCents); }
+    public double getCost() { return Money.toDouble(costCents); }
+}
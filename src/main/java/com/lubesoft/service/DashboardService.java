@@ -0,0 +1,148 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.dao.ReceivablesDAO;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.event.CustomerUpdated;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.HistoryChanged;
+import com.lubesoft.event.ProductChanged;
+import com.lubesoft.event.Subscription;
+import com.lubesoft.model.DashboardSnapshot;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Loads the dashboard tiles as one {@link DashboardSnapshot} and pushes a fresh one to
+ * listeners after checkouts, voids, payments and stock changes.
+ *
+ * The tile queries share one reader inside one read transaction. SQLite snapshots belong
+ * to a connection, so queries spread over several pooled readers could each see a
+ * different commit; the four queries are index lookups that together take well under a
+ * millisecond, so one connection is also the faster choice.
+ *
+ * Changes arriving in a burst (a checkout fires both stock and sales changes) are
+ * coalesced into one reload {@link #PUSH_DELAY_MS} after the first. The service only
+ * subscribes to the {@link EventBus} while someone is listening.
+ */
+public class DashboardService {
+
+    static final long PUSH_DELAY_MS = 250;
+    private static final int RECENT_PAID = 10;
+
+    private static DashboardService instance;
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private final ProductDAO productDAO = new ProductDAO();
+    private final ReceivablesDAO receivablesDAO = new ReceivablesDAO();
+    private final AtomicLong versions = new AtomicLong();
+    private final List<Consumer<DashboardSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+    private final ScheduledExecutorService pusher;
+    private ScheduledFuture<?> pendingPush;
+    private long pushes;
+    private long firstPaintMillis = -1;
+    private long firstPaintDataMillis = -1;
+
+    private DashboardService() {
+        pusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-push");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized DashboardService getInstance() {
+        if (instance == null) {
+            instance = new DashboardService();
+        }
+        return instance;
+    }
+
+    /** Reads every tile from the same snapshot. */
+    public DashboardSnapshot load() throws SQLException {
+        long version = versions.incrementAndGet();
+        long start = System.nanoTime();
+        return DatabaseManager.getInstance().readSnapshot(conn -> new DashboardSnapshot(version,
+                invoiceDAO.getTodayRevenueCents(), invoiceDAO.findRecentPaid(RECENT_PAID), productDAO.findLowStock(),
+                receivablesDAO.getTotalOutstandingCents(), System.nanoTime() - start));
+    }
+
+    /** Calls {@code listener} on the push thread with a new snapshot after each burst of changes. */
+    public synchronized void addListener(Consumer<DashboardSnapshot> listener) {
+        if (listeners.isEmpty()) {
+            EventBus bus = EventBus.getInstance();
+            subscriptions.add(bus.subscribe(ProductChanged.class, e -> schedulePush()));
+            subscriptions.add(bus.subscribe(HistoryChanged.class, e -> schedulePush()));
+            subscriptions.add(bus.subscribe(CustomerUpdated.class, e -> schedulePush()));
+        }
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(Consumer<DashboardSnapshot> listener) {
+        if (listeners.remove(listener) && listeners.isEmpty()) {
+            subscriptions.forEach(Subscription::close);
+            subscriptions.clear();
+            if (pendingPush != null) pendingPush.cancel(false);
+            pendingPush = null;
+        }
+    }
+
+    /** Snapshots pushed to listeners so far. */
+    public synchronized long getPushCount() {
+        return pushes;
+    }
+
+    /**
+     * Records how long the dashboard view took from opening to its first frame with data,
+     * and how much of that was loading the snapshot. The view shows the last figures.
+     */
+    public synchronized void recordFirstPaint(long paintMillis, long dataMillis) {
+        firstPaintMillis = paintMillis;
+        firstPaintDataMillis = dataMillis;
+    }
+
+    /** The last recorded first paint in milliseconds, or -1 if the view has not painted yet. */
+    public synchronized long getFirstPaintMillis() {
+        return firstPaintMillis;
+    }
+
+    public synchronized long getFirstPaintDataMillis() {
+        return firstPaintDataMillis;
+    }
+
+    private synchronized void schedulePush() {
+        if (listeners.isEmpty() || (pendingPush != null && !pendingPush.isDone())) return;
+        pendingPush = pusher.schedule(this::push, PUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void push() {
+        synchronized (this) {
+            // Changes from here on need another reload
+            pendingPush = null;
+        }
+        DashboardSnapshot snapshot;
+        try {
+            snapshot = load();
+        } catch (SQLException e) {
+            System.err.println("Dashboard refresh failed: " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            pushes++;
+        }
+        for (Consumer<DashboardSnapshot> listener : listeners) {
+            listener.accept(snapshot);
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.lubesoft.service;
 
 import com.lubesoft.dao.InventoryDAO;
 import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.dao.PurchaseOrderDAO;
 import com.lubesoft.model.InventoryTransaction;
+import com.lubesoft.model.PageCursor;
 import com.lubesoft.model.Product;
+import com.lubesoft.model.PurchaseOrder.ReceivedLine;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -18,6 +21,7 @@ public class InventoryService {
 
     private final ProductDAO productDAO = new ProductDAO();
     private final InventoryDAO inventoryDAO = new InventoryDAO();
+    private final PurchaseOrderDAO purchaseOrderDAO = new PurchaseOrderDAO();
 
     private InventoryService() {}
 
@@ -32,6 +36,23 @@ public class InventoryService {
         return productDAO.findAll();
     }
 
+    public int countProducts() throws SQLException {
+        return productDAO.count();
+    }
+
+    /** Keyset page of the full product list in name order; see {@link ProductDAO#findPage}. */
+    public List<Product> getProductPage(PageCursor after, int limit) throws SQLException {
+        return productDAO.findPage(after, limit);
+    }
+
+    public PageCursor productCursorAt(int offset) throws SQLException {
+        return productDAO.cursorAt(offset);
+    }
+
+    public Optional<Product> getProduct(int productId) throws SQLException {
+        return productDAO.findById(productId);
+    }
+
     public List<Product> getLowStockProducts() throws SQLException {
         return productDAO.findLowStock();
     }
@@ -41,54 +62,36 @@ public class InventoryService {
     }
 
     /**
-     * Records a stock adjustment and updates product quantity.
+     * Records a stock adjustment and updates product quantity in one write; see
+     * {@link InventoryDAO#adjust}.
      */
     public void adjustStock(int productId, double qtyChange, String reason) throws SQLException {
-        Optional<Product> productOpt = productDAO.findById(productId);
-        if (productOpt.isEmpty()) throw new IllegalArgumentException("Product not found: " + productId);
-
-        Product product = productOpt.get();
-        double newQty = product.getStockQty() + qtyChange;
-        if (newQty < 0) throw new IllegalStateException("Stock cannot go below zero");
-
-        product.setStockQty(newQty);
-        productDAO.save(product);
-
         InventoryTransaction tx = new InventoryTransaction();
         tx.setProductId(productId);
         tx.setType("ADJUSTMENT");
         tx.setQtyChange(qtyChange);
         tx.setNotes(reason);
-        inventoryDAO.record(tx);
+        inventoryDAO.adjust(tx);
     }
 
     /**
-     * Receives purchased stock (from a PO).
+     * Receives purchased stock for one product, averaging its cost. It counts against PO
+     * {@code poId} when that order lists the product; with no PO ({@code poId} 0) or an
+     * unlisted product it is still received, as a plain PURCHASE. See
+     * {@link PurchaseOrderDAO#receiveLine}. Deliveries of many lines against an order
+     * should go through {@link PurchaseOrderService#receive} in one call.
      */
-    public void receiveStock(int productId, double qtyReceived, double unitCost, int poId) throws SQLException {
-        Optional<Product> productOpt = productDAO.findById(productId);
-        if (productOpt.isEmpty()) throw new IllegalArgumentException("Product not found: " + productId);
-
-        Product product = productOpt.get();
-        product.setStockQty(product.getStockQty() + qtyReceived);
-        product.setCostPrice(unitCost); // Update cost price on receipt
-        productDAO.save(product);
-
-        InventoryTransaction tx = new InventoryTransaction();
-        tx.setProductId(productId);
-        tx.setType("PURCHASE");
-        tx.setQtyChange(qtyReceived);
-        tx.setReferenceId(poId);
-        tx.setNotes("PO #" + poId);
-        inventoryDAO.record(tx);
+    public void receiveStock(int productId, double qtyReceived, long unitCostCents, int poId) throws SQLException {
+        purchaseOrderDAO.receiveLine(poId, new ReceivedLine(productId, qtyReceived, unitCostCents));
     }
 
     public List<InventoryTransaction> getTransactions(int productId) throws SQLException {
         return inventoryDAO.findByProduct(productId);
     }
 
+    /** Resolves a scanned barcode through the resident {@link ProductIndex}. */
     public Optional<Product> findByBarcode(String barcode) throws SQLException {
-        return productDAO.findByBarcode(barcode);
+        return ProductIndex.getInstance().findByBarcode(barcode);
     }
 
     public List<Product> searchProducts(String query) throws SQLException {
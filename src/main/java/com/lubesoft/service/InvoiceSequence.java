@@ -0,0 +1,95 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.InvoiceSequenceDAO;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Hands out invoice numbers of the form INV-yyyyMMdd-NNNN, restarting at 1 each day.
+ *
+ * Numbers come from a block reserved in invoice_sequence with one write and are served
+ * from memory. When a block runs low the next one is reserved on the writer thread in the
+ * background, so taking a number normally touches no database at all. Every block starts
+ * after the last one reserved by any terminal on the database, so terminals sharing it
+ * never issue the same number. Numbers go missing when the insert of an invoice that took
+ * one fails, and the rest of a block is skipped when its process exits or crashes.
+ */
+public class InvoiceSequence {
+
+    static final int DEFAULT_BLOCK_SIZE = 50;
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static InvoiceSequence instance;
+
+    private final InvoiceSequenceDAO dao = new InvoiceSequenceDAO();
+    private final int blockSize;
+    private LocalDate day;
+    private String prefix;
+    private long next;
+    private long end;
+    private CompletableFuture<Long> nextBlock;
+    private long reservations;
+
+    InvoiceSequence(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    public static synchronized InvoiceSequence getInstance() {
+        if (instance == null) {
+            instance = new InvoiceSequence(DEFAULT_BLOCK_SIZE);
+        }
+        return instance;
+    }
+
+    /** The next invoice number for today. */
+    public String next() throws SQLException {
+        return next(LocalDate.now());
+    }
+
+    synchronized String next(LocalDate today) throws SQLException {
+        if (!today.equals(day)) {
+            day = today;
+            prefix = "INV-" + today.format(DAY) + "-";
+            nextBlock = null;
+            startBlock(dao.reserve(day, prefix, blockSize));
+        } else if (next == end) {
+            startBlock(awaitNextBlock());
+        }
+        long n = next++;
+        if (nextBlock == null && end - next <= blockSize / 4) {
+            nextBlock = dao.reserveAsync(day, prefix, blockSize);
+        }
+        return prefix + String.format("%04d", n);
+    }
+
+    /** Blocks reserved since startup. */
+    synchronized long getReservations() {
+        return reservations;
+    }
+
+    private void startBlock(long start) {
+        next = start;
+        end = start + blockSize;
+        reservations++;
+    }
+
+    private long awaitNextBlock() throws SQLException {
+        CompletableFuture<Long> pending = nextBlock;
+        nextBlock = null;
+        if (pending != null) {
+            try {
+                return pending.get();
+            } catch (ExecutionException e) {
+                System.err.println("Invoice number prefetch failed, retrying: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for invoice numbers", e);
+            }
+        }
+        return dao.reserve(day, prefix, blockSize);
+    }
+}
@@ -0,0 +1,94 @@
+package com.lubesoft.service;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Progress and cancellation for one running report. Report code calls {@link #row} for
+ * each row it reads, which throws once the job is cancelled. A statement passed to
+ * {@link #watch} is also interrupted inside SQLite on cancel, so an aggregate that has
+ * not produced its first row yet stops as well.
+ */
+public class JobContext {
+
+    /**
+     * For direct calls outside a job: never cancelled, and shared by every such call, so it
+     * keeps no counts and holds on to no statement.
+     */
+    public static final JobContext NONE = new Untracked();
+
+    private volatile int total;
+    private volatile int rows;
+    private volatile boolean cancelled;
+    private volatile Statement statement;
+
+    /** Rows the report expects to read, when known up front. */
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    /** Registers the statement about to run so cancelling can interrupt it. */
+    public void watch(Statement st) {
+        statement = st;
+        checkCancelled();
+    }
+
+    /** Counts one row read and stops the report if the job was cancelled. */
+    public void row() {
+        rows++;
+        checkCancelled();
+    }
+
+    public void checkCancelled() {
+        if (cancelled) throw new CancellationException("Report cancelled");
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    /** Fraction done, or -1 while the total is unknown. */
+    public double getProgress() {
+        int t = total;
+        return t > 0 ? Math.min(1.0, rows / (double) t) : -1;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        cancelled = true;
+        Statement st = statement;
+        if (st != null) {
+            try {
+                st.cancel();
+            } catch (SQLException e) {
+                System.err.println("Failed to interrupt report query: " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class Untracked extends JobContext {
+        @Override
+        public void setTotal(int total) {
+        }
+
+        @Override
+        public void watch(Statement st) {
+        }
+
+        @Override
+        public void row() {
+        }
+
+        @Override
+        public void checkCancelled() {
+        }
+
+        @Override
+        void cancel() {
+        }
+    }
+}
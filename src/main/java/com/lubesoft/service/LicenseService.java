@@ -63,7 +63,7 @@ public class LicenseService {
     }
 
     public boolean isActivated() {
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery("SELECT is_activated FROM license_info LIMIT 1")) {
             if (rs.next()) {
@@ -122,12 +122,15 @@ public class LicenseService {
             return false;
         }
         String machineId = generateMachineId();
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(
-                     "UPDATE license_info SET machine_id=?, license_key=?, is_activated=1, activated_at=datetime('now')")) {
-            ps.setString(1, machineId);
-            ps.setString(2, licenseKey);
-            ps.executeUpdate();
+        String sql = "UPDATE license_info SET machine_id=?, license_key=?, is_activated=1, activated_at=datetime('now')";
+        try {
+            DatabaseManager.getInstance().write(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, machineId);
+                    ps.setString(2, licenseKey);
+                    return ps.executeUpdate();
+                }
+            });
             return true;
         } catch (SQLException e) {
             return false;
@@ -147,7 +150,7 @@ public class LicenseService {
     }
 
     public LicenseInfo getLicenseInfo() {
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery("SELECT * FROM license_info LIMIT 1")) {
             if (rs.next()) {
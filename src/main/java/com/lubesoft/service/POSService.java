@@ -1,33 +1,56 @@
 package com.lubesoft.service;
 
 import com.lubesoft.dao.InvoiceDAO;
-import com.lubesoft.dao.ProductDAO;
 import com.lubesoft.model.Invoice;
 import com.lubesoft.model.InvoiceItem;
+import com.lubesoft.model.InvoiceTotals;
 import com.lubesoft.model.Product;
 
 import java.sql.SQLException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * POS workflow service: invoice lifecycle management.
+ *
+ * Lines of an unfinished invoice reserve stock, so invoices must not be left OPEN when
+ * nobody is working on them. The service remembers the invoices this terminal opened or
+ * resumed and parks whatever is still open on {@link #shutdown()}; invoices abandoned by
+ * a crash or another terminal are held by a sweep once they are
+ * {@code lubesoft.pos.staleHours} (default 12) hours old.
  */
 public class POSService {
 
     private static POSService instance;
 
     private final InvoiceDAO invoiceDAO = new InvoiceDAO();
-    private final ProductDAO productDAO = new ProductDAO();
+    private final ProductIndex productIndex = ProductIndex.getInstance();
+    private final InvoiceSequence invoiceSequence = InvoiceSequence.getInstance();
 
-    private static final AtomicInteger invoiceCounter = new AtomicInteger((int) (System.currentTimeMillis() / 1000) % 100000);
     private static final double TAX_RATE = 0.0; // Set per jurisdiction; configurable
-
-    private POSService() {}
+    private static final Duration STALE_AFTER = Duration.ofHours(Long.getLong("lubesoft.pos.staleHours", 12));
+    private static final long SWEEP_INTERVAL_MINUTES = 30;
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+
+    // Invoices this terminal created or resumed and has not finished, held or parked
+    private final Set<Integer> openHere = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService background;
+    private boolean sweeping;
+
+    private POSService() {
+        background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pos-reservations");
+            t.setDaemon(true);
+            return t;
+        });
+    }
 
     public static synchronized POSService getInstance() {
         if (instance == null) {
@@ -41,59 +64,122 @@ public class POSService {
      */
     public Invoice createInvoice(int technicianId) throws SQLException {
         Invoice inv = new Invoice();
-        inv.setInvoiceNumber(generateInvoiceNumber());
+        inv.setInvoiceNumber(invoiceSequence.next());
         inv.setTechnicianId(technicianId);
         inv.setStatus("OPEN");
-        return invoiceDAO.createInvoice(inv);
+        Invoice created = invoiceDAO.createInvoice(inv);
+        openHere.add(created.getId());
+        return created;
     }
 
     /**
-     * Adds a product to an invoice by product ID, checking stock availability.
-     * Returns the updated invoice.
+     * Adds a product to an invoice by product ID, reserving the quantity so another
+     * terminal cannot sell it meanwhile. Throws IllegalStateException if it is not
+     * available. Returns the invoice totals after the change, carrying the new line.
      */
-    public InvoiceItem addItem(int invoiceId, int productId, double qty) throws SQLException {
-        Optional<Product> productOpt = productDAO.findById(productId);
+    public InvoiceTotals addItem(int invoiceId, int productId, double qty) throws SQLException {
+        Optional<Product> productOpt = productIndex.findById(productId);
         if (productOpt.isEmpty()) {
             throw new IllegalArgumentException("Product not found: " + productId);
         }
         Product product = productOpt.get();
-        if (!product.isBulkOil() && product.getStockQty() < qty) {
-            throw new IllegalStateException("Insufficient stock for: " + product.getName());
-        }
 
         InvoiceItem item = new InvoiceItem(
                 productId,
                 product.getName(),
                 qty,
-                product.getSellPrice(),
-                product.getCostPrice()
+                product.getSellPriceCents(),
+                product.getCostPriceCents()
         );
-        item = invoiceDAO.addItem(invoiceId, item);
-        recalculateInvoice(invoiceId);
-        return item;
+        return invoiceDAO.addItem(invoiceId, item, TAX_RATE);
     }
 
     /**
      * Adds a custom (non-product) line item to an invoice.
      */
-    public InvoiceItem addCustomItem(int invoiceId, String description, double qty, double unitPrice) throws SQLException {
-        InvoiceItem item = new InvoiceItem(0, description, qty, unitPrice, 0);
-        item = invoiceDAO.addItem(invoiceId, item);
-        recalculateInvoice(invoiceId);
-        return item;
+    public InvoiceTotals addCustomItem(int invoiceId, String description, double qty, long unitPriceCents) throws SQLException {
+        InvoiceItem item = new InvoiceItem(0, description, qty, unitPriceCents, 0);
+        return invoiceDAO.addItem(invoiceId, item, TAX_RATE);
     }
 
-    public void removeItem(int invoiceId, int itemId) throws SQLException {
-        invoiceDAO.removeItem(itemId);
-        recalculateInvoice(invoiceId);
+    public InvoiceTotals removeItem(int invoiceId, int itemId) throws SQLException {
+        return invoiceDAO.removeItem(invoiceId, itemId, TAX_RATE);
     }
 
+    /** Puts the invoice aside; its lines stop holding stock until it is resumed. */
     public void holdInvoice(int invoiceId) throws SQLException {
         invoiceDAO.updateStatus(invoiceId, "HELD");
+        openHere.remove(invoiceId);
     }
 
+    /** Reserves the invoice's stock again; throws IllegalStateException if it has been sold meanwhile. */
     public void resumeInvoice(int invoiceId) throws SQLException {
         invoiceDAO.updateStatus(invoiceId, "WIP");
+        openHere.add(invoiceId);
+    }
+
+    /**
+     * Sets aside an invoice the cashier walked away from (see {@link InvoiceDAO#park}):
+     * held if it has lines, voided if empty. Returns the new status, or null if it was
+     * already finished or held.
+     */
+    public String parkInvoice(int invoiceId) throws SQLException {
+        openHere.remove(invoiceId);
+        return invoiceDAO.park(invoiceId);
+    }
+
+    /** {@link #parkInvoice} off the caller's thread, for views that are closing. Failures are logged. */
+    public void parkInvoiceLater(int invoiceId) {
+        openHere.remove(invoiceId);
+        background.execute(() -> {
+            try {
+                invoiceDAO.park(invoiceId);
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Parking invoice #" + invoiceId + " failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Holds OPEN and WIP invoices older than {@code lubesoft.pos.staleHours} that still
+     * reserve stock, giving the stock back. Returns how many were held.
+     */
+    public int holdStaleInvoices() throws SQLException {
+        return invoiceDAO.holdStale(STALE_AFTER);
+    }
+
+    /** Runs {@link #holdStaleInvoices} now and every half hour while the application is open. */
+    public synchronized void startReservationSweep() {
+        if (sweeping) return;
+        sweeping = true;
+        background.scheduleWithFixedDelay(() -> {
+            try {
+                holdStaleInvoices();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Stale invoice sweep failed: " + e.getMessage());
+            }
+        }, 0, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Finishes queued parking, then parks every invoice this terminal still has open so
+     * its stock is not left reserved. Called once on application exit, before the
+     * database is shut down.
+     */
+    public void shutdown() {
+        background.shutdown();
+        try {
+            background.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (int invoiceId : List.copyOf(openHere)) {
+            try {
+                parkInvoice(invoiceId);
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Parking invoice #" + invoiceId + " failed: " + e.getMessage());
+            }
+        }
     }
 
     public List<Invoice> getHeldInvoices() throws SQLException {
@@ -105,59 +191,41 @@ public class POSService {
     }
 
     /**
-     * Completes checkout: validates payment, deducts stock, marks PAID.
+     * Completes checkout: validates payment, turns the reserved stock into a sale, marks PAID.
      * Uses a single SQL TRANSACTION with ROLLBACK on error.
      */
-    public void checkout(int invoiceId, String paymentMethod, double paidAmount,
-                         Map<String, Double> splitAmounts) throws SQLException {
+    public void checkout(int invoiceId, String paymentMethod, long paidCents,
+                         Map<String, Long> splitCents) throws SQLException {
         Optional<Invoice> invOpt = invoiceDAO.findById(invoiceId);
         if (invOpt.isEmpty()) {
             throw new IllegalArgumentException("Invoice not found: " + invoiceId);
         }
         Invoice invoice = invOpt.get();
-        if (paidAmount < invoice.getTotal() && !"CREDIT".equals(paymentMethod)) {
+        if (paidCents < invoice.getTotalCents() && !"CREDIT".equals(paymentMethod)) {
             throw new IllegalStateException("Insufficient payment amount");
         }
 
-        invoiceDAO.checkout(invoiceId, paymentMethod, paidAmount, invoice.getItems());
+        invoiceDAO.checkout(invoiceId, paymentMethod, paidCents, invoice.getItems());
+        openHere.remove(invoiceId);
     }
 
+    /**
+     * Voids the invoice: a paid one returns its stock, sales and credit, an unpaid one its
+     * reservations. Which applies is decided inside the write, so a checkout racing the
+     * void from another terminal is always undone in full.
+     */
     public void voidInvoice(int invoiceId) throws SQLException {
         Optional<Invoice> invOpt = invoiceDAO.findById(invoiceId);
         if (invOpt.isEmpty()) return;
-        Invoice invoice = invOpt.get();
-        // Only restore stock for PAID invoices
-        if ("PAID".equals(invoice.getStatus())) {
-            invoiceDAO.voidInvoice(invoiceId, invoice.getItems());
-        } else {
-            invoiceDAO.updateStatus(invoiceId, "VOID");
-        }
+        invoiceDAO.voidInvoice(invoiceId, invOpt.get().getItems());
+        openHere.remove(invoiceId);
     }
 
     public Optional<Invoice> getInvoice(int invoiceId) throws SQLException {
         return invoiceDAO.findById(invoiceId);
     }
 
-    public void applyDiscount(int invoiceId, double discount) throws SQLException {
-        Optional<Invoice> invOpt = invoiceDAO.findById(invoiceId);
-        if (invOpt.isEmpty()) return;
-        Invoice inv = invOpt.get();
-        inv.setDiscount(discount);
-        double total = inv.getSubtotal() + inv.getTax() - discount;
-        invoiceDAO.updateTotals(invoiceId, inv.getSubtotal(), inv.getTax(), discount, total);
-    }
-
-    private void recalculateInvoice(int invoiceId) throws SQLException {
-        Optional<Invoice> invOpt = invoiceDAO.findById(invoiceId);
-        if (invOpt.isEmpty()) return;
-        Invoice inv = invOpt.get();
-        inv.recalculate(TAX_RATE);
-        invoiceDAO.updateTotals(invoiceId, inv.getSubtotal(), inv.getTax(), inv.getDiscount(), inv.getTotal());
-    }
-
-    private String generateInvoiceNumber() {
-        String date = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        int seq = invoiceCounter.incrementAndGet();
-        return "INV-" + date + "-" + String.format("%04d", seq % 10000);
+    public InvoiceTotals applyDiscount(int invoiceId, long discountCents) throws SQLException {
+        return invoiceDAO.applyDiscount(invoiceId, discountCents, TAX_RATE);
     }
 }
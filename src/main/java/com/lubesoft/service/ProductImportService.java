@@ -0,0 +1,246 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.ProductImportDAO;
+import com.lubesoft.importer.CatalogColumns;
+import com.lubesoft.importer.CatalogReader;
+import com.lubesoft.model.ImportResult;
+import com.lubesoft.model.ImportResult.Progress;
+import com.lubesoft.model.Product;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bulk catalog imports: a distributor's CSV or XLSX price list into products.
+ *
+ * A "catalog-import-reader" thread streams the file and hands rows in chunks to a pool of
+ * "catalog-parse-N" threads, which turn them into products. The calling thread takes the
+ * chunks back in file order, drops rows whose SKU or barcode already appeared earlier in
+ * the file, and writes the rest in large batches through {@link ProductImportDAO}, one
+ * transaction per batch. Reading, parsing and writing overlap, and a bounded queue keeps
+ * the reader from running far ahead of the writer, so memory stays flat however big the
+ * file is.
+ *
+ * Rows that cannot be imported are skipped and reported in the {@link ImportResult};
+ * everything else is still imported. Search follows row by row through the FTS triggers,
+ * and the product index and open screens reload once when the import is done.
+ */
+public class ProductImportService {
+
+    static final int PARSE_CHUNK = 1000;
+    static final int WRITE_BATCH = 5000;
+
+    private static ProductImportService instance;
+
+    private final ProductImportDAO importDAO = new ProductImportDAO();
+    private final ExecutorService parsers;
+    private final int threads;
+    private final int batchSize;
+
+    private ProductImportService() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), WRITE_BATCH);
+    }
+
+    ProductImportService(int threads, int batchSize) {
+        this.threads = threads;
+        this.batchSize = batchSize;
+        AtomicInteger seq = new AtomicInteger();
+        parsers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "catalog-parse-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized ProductImportService getInstance() {
+        if (instance == null) {
+            instance = new ProductImportService();
+        }
+        return instance;
+    }
+
+    /**
+     * Imports a .csv or .xlsx catalog. The first row must be a header naming the columns
+     * (see {@link CatalogColumns}). {@code progress}, if given, is called on this thread
+     * after each batch is written.
+     */
+    public ImportResult importFile(Path file, Consumer<Progress> progress)
+            throws IOException, SQLException, InterruptedException {
+        return importFrom(CatalogReader.forFile(file), progress);
+    }
+
+    public ImportResult importFrom(CatalogReader reader, Consumer<Progress> progress)
+            throws IOException, SQLException, InterruptedException {
+        long start = System.nanoTime();
+        BlockingQueue<Future<Chunk>> chunks = new ArrayBlockingQueue<>(threads * 2 + 2);
+        Thread readerThread = new Thread(() -> readChunks(reader, chunks), "catalog-import-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        ImportResult result = new ImportResult();
+        Batch batch = new Batch();
+        Map<String, Integer> skus = new HashMap<>();
+        Map<String, Integer> barcodes = new HashMap<>();
+        CatalogColumns columns = null;
+        try {
+            for (Chunk chunk = take(chunks); chunk != Chunk.END; chunk = take(chunks)) {
+                columns = chunk.columns();
+                result.setRowsRead(result.getRowsRead() + chunk.rows().size());
+                for (Parsed row : chunk.rows()) {
+                    if (row.error() != null) {
+                        result.addError(row.row(), row.error());
+                        continue;
+                    }
+                    Product p = row.product();
+                    // Both keys are checked before either is claimed, so a rejected row blocks nothing
+                    Integer first = p.getSku() == null ? null : skus.get(p.getSku());
+                    if (first != null) {
+                        result.addError(row.row(), "Duplicate SKU " + p.getSku() + " (first on row " + first + ")");
+                        continue;
+                    }
+                    first = p.getBarcode() == null ? null : barcodes.get(p.getBarcode());
+                    if (first != null) {
+                        result.addError(row.row(), "Duplicate barcode " + p.getBarcode() + " (first on row " + first + ")");
+                        continue;
+                    }
+                    if (p.getSku() != null) skus.put(p.getSku(), row.row());
+                    if (p.getBarcode() != null) barcodes.put(p.getBarcode(), row.row());
+                    batch.add(row);
+                    if (batch.size() >= batchSize) write(batch, columns, result, progress);
+                }
+            }
+            if (batch.size() > 0) write(batch, columns, result, progress);
+        } finally {
+            readerThread.interrupt();
+            if (result.getRowsWritten() > 0) importDAO.fireImported();
+        }
+        result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private void write(Batch batch, CatalogColumns columns, ImportResult result, Consumer<Progress> progress)
+            throws SQLException {
+        ProductImportDAO.Outcome outcome = importDAO.upsert(batch.products, columns.dbColumns());
+        result.addInserted(outcome.inserted());
+        result.addUpdated(outcome.updated());
+        String[] failures = outcome.failures();
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] != null) result.addError(batch.rows.get(i), failures[i]);
+        }
+        batch.clear();
+        if (progress != null) progress.accept(result.toProgress());
+    }
+
+    /** Runs on the reader thread: header first, then data rows in chunks to the parsers. */
+    private void readChunks(CatalogReader reader, BlockingQueue<Future<Chunk>> chunks) {
+        ChunkReader sink = new ChunkReader(chunks);
+        try {
+            reader.read(sink);
+            if (sink.columns == null) throw new IllegalArgumentException("Catalog is empty");
+            sink.submit();
+            chunks.put(CompletableFuture.completedFuture(Chunk.END));
+        } catch (InterruptedException e) {
+            // The import gave up; nobody is waiting for more chunks
+        } catch (Exception e) {
+            try {
+                chunks.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException ignored) {
+                // As above
+            }
+        }
+    }
+
+    private final class ChunkReader implements CatalogReader.RowSink {
+
+        private final BlockingQueue<Future<Chunk>> chunks;
+        private CatalogColumns columns;
+        private List<Raw> pending = new ArrayList<>(PARSE_CHUNK);
+
+        ChunkReader(BlockingQueue<Future<Chunk>> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public void row(int row, String[] cells) throws InterruptedException {
+            if (columns == null) {
+                columns = CatalogColumns.fromHeader(cells);
+                return;
+            }
+            pending.add(new Raw(row, cells));
+            if (pending.size() == PARSE_CHUNK) submit();
+        }
+
+        void submit() throws InterruptedException {
+            if (pending.isEmpty()) return;
+            List<Raw> rows = pending;
+            CatalogColumns header = columns;
+            pending = new ArrayList<>(PARSE_CHUNK);
+            // Queued in file order; put blocks while the writer is behind
+            chunks.put(parsers.submit(() -> parse(header, rows)));
+        }
+    }
+
+    private static Chunk parse(CatalogColumns columns, List<Raw> rows) {
+        List<Parsed> parsed = new ArrayList<>(rows.size());
+        for (Raw raw : rows) {
+            try {
+                Product p = columns.parse(raw.cells());
+                parsed.add(new Parsed(raw.row(), new ProductImportDAO.Row(p, columns.blankNumbers(raw.cells())), null));
+            } catch (IllegalArgumentException e) {
+                parsed.add(new Parsed(raw.row(), null, e.getMessage()));
+            }
+        }
+        return new Chunk(columns, parsed);
+    }
+
+    private static Chunk take(BlockingQueue<Future<Chunk>> chunks)
+            throws IOException, SQLException, InterruptedException {
+        try {
+            return chunks.take().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof SQLException sql) throw sql;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException("Catalog import failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    private record Raw(int row, String[] cells) {}
+
+    private record Parsed(int row, ProductImportDAO.Row imported, String error) {
+        Product product() { return imported.product(); }
+    }
+
+    private record Chunk(CatalogColumns columns, List<Parsed> rows) {
+        static final Chunk END = new Chunk(null, List.of());
+    }
+
+    /** Rows waiting to be written, with their row numbers for error reports. */
+    private static final class Batch {
+        final List<ProductImportDAO.Row> products = new ArrayList<>();
+        final List<Integer> rows = new ArrayList<>();
+
+        void add(Parsed row) {
+            products.add(row.imported());
+            rows.add(row.row());
+        }
+
+        int size() {
+            return products.size();
+        }
+
+        void clear() {
+            products.clear();
+            rows.clear();
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.ProductChanged;
+import com.lubesoft.model.Product;
+import com.lubesoft.util.LongIntHashMap;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resident product index for the POS scan path. Barcode, SKU and id are mapped through
+ * primitive hash maps to slots holding compact immutable product entries, so a warmed
+ * lookup is a hash probe with no JDBC call. ProductChanged events reload
+ * affected entries; a lookup that misses falls back to the database and caches the row.
+ */
+public class ProductIndex {
+
+    private static ProductIndex instance;
+
+    private final ProductDAO productDAO = new ProductDAO();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongIntHashMap byId = new LongIntHashMap(1024);
+    private final LongIntHashMap byBarcode = new LongIntHashMap(1024);
+    private final LongIntHashMap bySku = new LongIntHashMap(1024);
+    private Entry[] slots = new Entry[1024];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int slotCount;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile boolean warmed;
+
+    private ProductIndex() {
+        // Inline, so the POS never prices from a stale entry after a save or checkout
+        EventBus.getInstance().subscribeInline(ProductChanged.class, e -> {
+            if (e.isAll()) rebuild();
+            else reload(e.productId());
+        });
+    }
+
+    public static synchronized ProductIndex getInstance() {
+        if (instance == null) {
+            instance = new ProductIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Loads every product. Safe to call again to rebuild from scratch; an entry reloaded
+     * after the snapshot was read, and so newer than it, is kept.
+     */
+    public void warm() throws SQLException {
+        List<Product> all = productDAO.findAll();
+        lock.writeLock().lock();
+        try {
+            Entry[] old = slots;
+            LongIntHashMap oldById = byId.size() == 0 ? null : new LongIntHashMap(byId.size() * 2);
+            if (oldById != null) {
+                for (int i = 0; i < slotCount; i++) {
+                    if (old[i] != null) oldById.put(old[i].id, i);
+                }
+            }
+            byId.clear();
+            byBarcode.clear();
+            bySku.clear();
+            slots = new Entry[Math.max(1024, all.size() * 2)];
+            slotCount = 0;
+            freeCount = 0;
+            for (Product p : all) {
+                Entry e = new Entry(p);
+                int prior = oldById == null ? LongIntHashMap.MISSING : oldById.get(e.id);
+                insert(prior != LongIntHashMap.MISSING && old[prior].version > e.version ? old[prior] : e);
+            }
+            warmed = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** After a bulk change: reload everything if warmed, else forget what was cached. */
+    private void rebuild() {
+        try {
+            if (warmed) {
+                warm();
+                return;
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to rebuild product index: " + e.getMessage());
+        }
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            byBarcode.clear();
+            bySku.clear();
+            Arrays.fill(slots, null);
+            slotCount = 0;
+            freeCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Optional<Product> findByBarcode(String barcode) throws SQLException {
+        if (barcode == null || barcode.isEmpty()) return Optional.empty();
+        Entry e = probe(byBarcode, LongIntHashMap.hash(barcode));
+        if (e != null && barcode.equals(e.barcode)) {
+            hits.increment();
+            return Optional.of(e.toProduct());
+        }
+        misses.increment();
+        return cache(productDAO.findByBarcode(barcode));
+    }
+
+    public Optional<Product> findBySku(String sku) throws SQLException {
+        if (sku == null || sku.isEmpty()) return Optional.empty();
+        Entry e = probe(bySku, LongIntHashMap.hash(sku));
+        if (e != null && sku.equals(e.sku)) {
+            hits.increment();
+            return Optional.of(e.toProduct());
+        }
+        misses.increment();
+        return cache(productDAO.findBySku(sku));
+    }
+
+    public Optional<Product> findById(int id) throws SQLException {
+        Entry e = probe(byId, id);
+        if (e != null) {
+            hits.increment();
+            return Optional.of(e.toProduct());
+        }
+        misses.increment();
+        return cache(productDAO.findById(id));
+    }
+
+    /** Re-reads the given products so the index matches the database again. */
+    public void reload(int... productIds) {
+        for (int id : productIds) {
+            try {
+                Optional<Product> fresh = productDAO.findById(id);
+                lock.writeLock().lock();
+                try {
+                    if (fresh.isEmpty()) removeById(id);
+                    else replace(new Entry(fresh.get()));
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (SQLException e) {
+                // Drop the entry; the next lookup goes to the database
+                lock.writeLock().lock();
+                try {
+                    removeById(id);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    public boolean isWarmed() {
+        return warmed;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : h / (double) total;
+    }
+
+    private Entry probe(LongIntHashMap map, long key) {
+        lock.readLock().lock();
+        try {
+            int slot = map.get(key);
+            return slot == LongIntHashMap.MISSING ? null : slots[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Caches a row read on a lookup miss; package-private for tests. */
+    Optional<Product> cache(Optional<Product> loaded) {
+        loaded.ifPresent(p -> {
+            lock.writeLock().lock();
+            try {
+                replace(new Entry(p));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Stores {@code e} unless the index already holds a newer version of the product.
+     * Rows are read outside the lock, so a slow lookup miss can arrive after the reload
+     * of a later change and must not put the older row back. Call with the write lock.
+     */
+    private void replace(Entry e) {
+        int slot = byId.get(e.id);
+        if (slot != LongIntHashMap.MISSING && slots[slot].version > e.version) return;
+        removeById(e.id);
+        insert(e);
+    }
+
+    private void insert(Entry e) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == slots.length) slots = Arrays.copyOf(slots, slots.length * 2);
+            slot = slotCount++;
+        }
+        slots[slot] = e;
+        byId.put(e.id, slot);
+        if (e.barcode != null && !e.barcode.isEmpty()) byBarcode.put(LongIntHashMap.hash(e.barcode), slot);
+        if (e.sku != null && !e.sku.isEmpty()) bySku.put(LongIntHashMap.hash(e.sku), slot);
+    }
+
+    private void removeById(int id) {
+        int slot = byId.remove(id);
+        if (slot == LongIntHashMap.MISSING) return;
+        Entry old = slots[slot];
+        slots[slot] = null;
+        if (old.barcode != null && !old.barcode.isEmpty()) removeKey(byBarcode, LongIntHashMap.hash(old.barcode), slot);
+        if (old.sku != null && !old.sku.isEmpty()) removeKey(bySku, LongIntHashMap.hash(old.sku), slot);
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+    }
+
+    private static void removeKey(LongIntHashMap map, long key, int slot) {
+        // Only drop the key if it still points at this entry's slot
+        if (map.get(key) == slot) map.remove(key);
+    }
+
+    /** Immutable copy of the product fields the POS needs. */
+    private static final class Entry {
+        final int id;
+        final String sku;
+        final String barcode;
+        final String name;
+        final String category;
+        final String unit;
+        final long sellPriceCents;
+        final long costPriceCents;
+        final double stockQty;
+        final double reservedQty;
+        final double minStock;
+        final double maxStock;
+        final boolean bulkOil;
+        final long version;
+
+        Entry(Product p) {
+            id = p.getId();
+            sku = p.getSku();
+            barcode = p.getBarcode();
+            name = p.getName();
+            category = p.getCategory();
+            unit = p.getUnit();
+            sellPriceCents = p.getSellPriceCents();
+            costPriceCents = p.getCostPriceCents();
+            stockQty = p.getStockQty();
+            reservedQty = p.getReservedQty();
+            minStock = p.getMinStock();
+            maxStock = p.getMaxStock();
+            bulkOil = p.isBulkOil();
+            version = p.getVersion();
+        }
+
+        Product toProduct() {
+            Product p = new Product();
+            p.setId(id);
+            p.setSku(sku);
+            p.setBarcode(barcode);
+            p.setName(name);
+            p.setCategory(category);
+            p.setUnit(unit);
+            p.setSellPriceCents(sellPriceCents);
+            p.setCostPriceCents(costPriceCents);
+            p.setStockQty(stockQty);
+            p.setReservedQty(reservedQty);
+            p.setMinStock(minStock);
+            p.setMaxStock(maxStock);
+            p.setBulkOil(bulkOil);
+            p.setVersion(version);
+            return p;
+        }
+    }
+}
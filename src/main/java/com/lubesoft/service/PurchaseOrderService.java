@@ -0,0 +1,53 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.PurchaseOrderDAO;
+import com.lubesoft.model.PurchaseOrder;
+import com.lubesoft.model.PurchaseOrder.ReceivedLine;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Purchase orders: raising them and receiving deliveries into stock.
+ */
+public class PurchaseOrderService {
+
+    private static PurchaseOrderService instance;
+
+    private final PurchaseOrderDAO purchaseOrderDAO = new PurchaseOrderDAO();
+
+    private PurchaseOrderService() {}
+
+    public static synchronized PurchaseOrderService getInstance() {
+        if (instance == null) {
+            instance = new PurchaseOrderService();
+        }
+        return instance;
+    }
+
+    public PurchaseOrder createOrder(PurchaseOrder po) throws SQLException {
+        if (po.getItems().isEmpty()) throw new IllegalArgumentException("A purchase order needs at least one line");
+        return purchaseOrderDAO.create(po);
+    }
+
+    public Optional<PurchaseOrder> getOrder(int poId) throws SQLException {
+        return purchaseOrderDAO.findById(poId);
+    }
+
+    public List<PurchaseOrder> getOpenOrders() throws SQLException {
+        List<PurchaseOrder> open = purchaseOrderDAO.findByStatus("DRAFT");
+        open.addAll(purchaseOrderDAO.findByStatus("PARTIAL"));
+        return open;
+    }
+
+    /**
+     * Receives a whole delivery in one transaction: stock, weighted-average cost,
+     * received quantities and inventory transactions for every line, or none of them.
+     * See {@link PurchaseOrderDAO#receive}.
+     */
+    public void receive(int poId, List<ReceivedLine> lines) throws SQLException {
+        if (lines.isEmpty()) return;
+        purchaseOrderDAO.receive(poId, lines);
+    }
+}
@@ -0,0 +1,90 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.ReceivablesDAO;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Customer credit: payment posting, the precomputed aging figures and the nightly bucket
+ * roll. The roll runs when the scheduler starts if the buckets were last rolled before
+ * today (UTC), then shortly after each UTC midnight while the application is open.
+ */
+public class ReceivablesService {
+
+    // Past midnight before rolling, so "today" has clearly turned over
+    private static final long ROLL_DELAY_SECONDS = 60;
+
+    private static ReceivablesService instance;
+
+    private final ReceivablesDAO receivablesDAO = new ReceivablesDAO();
+    private ScheduledExecutorService roller;
+
+    private ReceivablesService() {}
+
+    public static synchronized ReceivablesService getInstance() {
+        if (instance == null) {
+            instance = new ReceivablesService();
+        }
+        return instance;
+    }
+
+    /** Applies a payment to the customer's oldest open charges and returns the balance left, in cents. */
+    public long postPayment(int customerId, long paidCents, String notes) throws SQLException {
+        return receivablesDAO.postPayment(customerId, paidCents, notes);
+    }
+
+    public long getTotalOutstandingCents() throws SQLException {
+        return receivablesDAO.getTotalOutstandingCents();
+    }
+
+    /** Outstanding cents per bucket, in {@link ReceivablesDAO#BUCKETS} order. */
+    public long[] getAgingTotals() throws SQLException {
+        return receivablesDAO.getAgingTotals();
+    }
+
+    /** Rolls the buckets to {@code today} unless that was already done. Returns charges moved. */
+    public int rollIfDue(LocalDate today) throws SQLException {
+        LocalDate rolledOn = receivablesDAO.getRolledOn();
+        if (rolledOn != null && !rolledOn.isBefore(today)) return 0;
+        return receivablesDAO.rollBuckets(today);
+    }
+
+    /** Catches up a missed roll now and schedules one after every UTC midnight. */
+    public synchronized void startNightlyRoll() {
+        if (roller != null) return;
+        roller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "credit-aging-roll");
+            t.setDaemon(true);
+            return t;
+        });
+        roller.execute(this::rollAndReschedule);
+    }
+
+    public synchronized void shutdown() {
+        if (roller != null) {
+            roller.shutdownNow();
+            roller = null;
+        }
+    }
+
+    private void rollAndReschedule() {
+        try {
+            rollIfDue(LocalDate.now(ZoneOffset.UTC));
+        } catch (SQLException e) {
+            System.err.println("Credit aging roll failed: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (roller == null) return;
+            ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+            ZonedDateTime next = now.toLocalDate().plusDays(1).atStartOfDay(ZoneOffset.UTC).plusSeconds(ROLL_DELAY_SECONDS);
+            roller.schedule(this::rollAndReschedule, Duration.between(now, next).toSeconds(), TimeUnit.SECONDS);
+        }
+    }
+}
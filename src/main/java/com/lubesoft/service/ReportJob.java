@@ -0,0 +1,142 @@
+package com.lubesoft.service;
+
+import com.lubesoft.model.DateRange;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Handle for a report submitted to {@link ReportJobService}. The result future completes
+ * on a report worker.
+ *
+ * Identical requests share one run, but each caller gets its own handle and result
+ * future: cancelling one only lets go of the run, which stops (at its next row, or inside
+ * SQLite for a watched statement) once every handle on it has been cancelled.
+ */
+public final class ReportJob<T> {
+
+    private final Run<T> run;
+    private final boolean fromCache;
+    private final CompletableFuture<T> result = new CompletableFuture<>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) run.release();
+            return cancelled;
+        }
+    };
+
+    ReportJob(long id, String type, DateRange range, boolean fromCache) {
+        this(new Run<>(id, type, range), fromCache);
+    }
+
+    private ReportJob(Run<T> run, boolean fromCache) {
+        this.run = run;
+        this.fromCache = fromCache;
+        run.outcome.whenComplete((value, error) -> {
+            if (error == null) {
+                result.complete(ReportJobService.shared(value));
+            } else {
+                result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error);
+            }
+        });
+    }
+
+    /**
+     * A second handle on this job's run, for an identical request, or null if the run
+     * has finished or every handle on it was cancelled.
+     */
+    ReportJob<T> join() {
+        return run.acquire() ? new ReportJob<>(run, false) : null;
+    }
+
+    public long getId() { return run.id; }
+    public String getType() { return run.type; }
+    public DateRange getRange() { return run.range; }
+
+    /** True when the result came straight from the cache without running the report. */
+    public boolean isFromCache() { return fromCache; }
+
+    /** This caller's result; cancelling it is the same as {@link #cancel()}. */
+    public CompletableFuture<T> getResult() { return result; }
+
+    public double getProgress() { return result.isDone() ? 1.0 : run.context.getProgress(); }
+
+    public int getRowsRead() { return run.context.getRows(); }
+
+    public boolean isCancelled() { return result.isCancelled(); }
+
+    /** Gives up this handle; the report itself stops when no other caller is waiting on it. */
+    public void cancel() {
+        result.cancel(true);
+    }
+
+    /** Stops the report for every caller sharing it. */
+    void stop() {
+        run.stop();
+    }
+
+    JobContext getContext() { return run.context; }
+
+    void setFuture(Future<?> future) {
+        run.setFuture(future);
+    }
+
+    void complete(T value) {
+        run.outcome.complete(value);
+    }
+
+    void fail(Exception e) {
+        if (run.context.isCancelled()) {
+            run.outcome.completeExceptionally(new CancellationException("Report cancelled"));
+        } else {
+            run.outcome.completeExceptionally(e);
+        }
+    }
+
+    /** One execution of a report, shared by the handles of identical requests. */
+    private static final class Run<T> {
+        final long id;
+        final String type;
+        final DateRange range;
+        final JobContext context = new JobContext();
+        final CompletableFuture<T> outcome = new CompletableFuture<>();
+        // Handles not yet cancelled; once it reaches 0 the run is stopped and never joined again
+        private final AtomicInteger handles = new AtomicInteger(1);
+        private volatile Future<?> future;
+
+        Run(long id, String type, DateRange range) {
+            this.id = id;
+            this.type = type;
+            this.range = range;
+        }
+
+        boolean acquire() {
+            for (int n = handles.get(); n > 0 && !outcome.isDone(); n = handles.get()) {
+                if (handles.compareAndSet(n, n + 1)) return true;
+            }
+            return false;
+        }
+
+        void release() {
+            if (handles.decrementAndGet() == 0) stop();
+        }
+
+        void stop() {
+            handles.set(0);
+            context.cancel();
+            Future<?> f = future;
+            if (f != null) f.cancel(true);
+            outcome.completeExceptionally(new CancellationException("Report cancelled"));
+        }
+
+        void setFuture(Future<?> future) {
+            this.future = future;
+            if (handles.get() == 0) future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.lubesoft.service;
+
+import com.lubesoft.event.EventBus;
+import com.lubesoft.event.HistoryChanged;
+import com.lubesoft.event.ProductChanged;
+import com.lubesoft.event.Subscription;
+import com.lubesoft.model.Customer;
+import com.lubesoft.model.DateRange;
+import com.lubesoft.model.SalesSummary;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs reports as jobs on a small pool of "report-job-N" threads, each with an id,
+ * progress and cancellation (see {@link JobContext}).
+ *
+ * Results for closed periods (ranges ending before today, UTC) are cached by report type
+ * and range, so repeating one returns a completed job at once. Cached results are dropped
+ * when the DAOs report a change dated inside the range ({@link HistoryChanged}); leakage
+ * results also go when products change, since they show current stock. Open periods are
+ * never cached, but a request identical to one still running joins that job.
+ */
+public class ReportJobService {
+
+    public static final String SALES_SUMMARY = "sales-summary";
+    public static final String CREDIT_AGING = "credit-aging";
+    public static final String INVENTORY_LEAKAGE = "inventory-leakage";
+    public static final String EMPLOYEE_PRODUCTIVITY = "employee-productivity";
+
+    private static final int CACHE_SIZE = 64;
+    // Invalidations remembered for jobs that were running when they happened
+    private static final int CHANGE_HISTORY = 256;
+
+    private static ReportJobService instance;
+
+    private final ReportService reports;
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, ReportJob<?>> active = new ConcurrentHashMap<>();
+    private final Map<JobKey, ReportJob<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<JobKey, Object> cache;
+    private final Deque<Change> recentChanges = new ArrayDeque<>();
+    private final List<Subscription> subscriptions;
+    private long changeSeq;
+    private long cacheHits;
+
+    private ReportJobService() {
+        this(ReportService.getInstance(), Integer.getInteger("lubesoft.report.workers", 2));
+    }
+
+    ReportJobService(ReportService reports, int threads) {
+        this.reports = reports;
+        AtomicInteger seq = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "report-job-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<JobKey, Object> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        // Inline, so a report asked for right after a change never gets the stale result
+        EventBus bus = EventBus.getInstance();
+        subscriptions = List.of(
+                bus.subscribeInline(HistoryChanged.class, e -> invalidate(null, e.days())),
+                bus.subscribeInline(ProductChanged.class, e -> invalidate(INVENTORY_LEAKAGE, null)));
+    }
+
+    public static synchronized ReportJobService getInstance() {
+        if (instance == null) {
+            instance = new ReportJobService();
+        }
+        return instance;
+    }
+
+    public ReportJob<SalesSummary> salesSummary(DateRange range) {
+        return submit(SALES_SUMMARY, range, ctx -> reports.getSalesSummary(range));
+    }
+
+    /** Current balances, so never cached. */
+    public ReportJob<Map<String, List<Customer>>> creditAging() {
+        return submit(CREDIT_AGING, null, reports::getCreditAging);
+    }
+
+    public ReportJob<List<Map<String, Object>>> inventoryLeakage(DateRange range) {
+        return submit(INVENTORY_LEAKAGE, range, ctx -> reports.getInventoryLeakage(range, ctx));
+    }
+
+    public ReportJob<List<Map<String, Object>>> employeeProductivity(DateRange range) {
+        return submit(EMPLOYEE_PRODUCTIVITY, range, ctx -> reports.getEmployeeProductivity(range, ctx));
+    }
+
+    /** A job that is queued or running. */
+    public Optional<ReportJob<?>> findJob(long id) {
+        return Optional.ofNullable(active.get(id));
+    }
+
+    /** Stops a queued or running job for every caller waiting on it. */
+    public boolean cancel(long id) {
+        ReportJob<?> job = active.get(id);
+        if (job == null) return false;
+        job.stop();
+        return true;
+    }
+
+    /** Drops cached results of {@code type} (all types when null) overlapping {@code days} (all when null). */
+    public void invalidate(String type, DateRange days) {
+        synchronized (cache) {
+            recentChanges.addLast(new Change(++changeSeq, type, days));
+            if (recentChanges.size() > CHANGE_HISTORY) recentChanges.removeFirst();
+            cache.keySet().removeIf(key -> key.affectedBy(type, days));
+        }
+    }
+
+    public long getCacheHits() {
+        synchronized (cache) {
+            return cacheHits;
+        }
+    }
+
+    public int getCacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public int getActiveJobs() {
+        return active.size();
+    }
+
+    /** Cancels running jobs and stops the workers. */
+    public void shutdown() {
+        for (ReportJob<?> job : active.values()) job.stop();
+        workers.shutdownNow();
+        subscriptions.forEach(Subscription::close);
+    }
+
+    @FunctionalInterface
+    interface ReportTask<T> {
+        T run(JobContext context) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> ReportJob<T> submit(String type, DateRange range, ReportTask<T> task) {
+        JobKey key = new JobKey(type, range);
+        boolean cacheable = range != null && range.getTo().isBefore(DateRange.today().getFrom());
+        long startSeq;
+        synchronized (cache) {
+            if (cacheable && cache.containsKey(key)) {
+                cacheHits++;
+                ReportJob<T> hit = new ReportJob<>(ids.incrementAndGet(), type, range, true);
+                hit.complete((T) cache.get(key));
+                return hit;
+            }
+            startSeq = changeSeq;
+        }
+        ReportJob<T> job = new ReportJob<>(ids.incrementAndGet(), type, range, false);
+        // Atomic, so two identical requests arriving together still share one job. Joining
+        // fails for a job that already completed (it may be stale) or that every caller gave up
+        List<ReportJob<?>> joined = new ArrayList<>(1);
+        inFlight.compute(key, (k, running) -> {
+            ReportJob<?> handle = running == null ? null : running.join();
+            if (handle == null) return job;
+            joined.add(handle);
+            return running;
+        });
+        if (!joined.isEmpty()) return (ReportJob<T>) joined.get(0);
+
+        active.put(job.getId(), job);
+        job.setFuture(workers.submit(() -> {
+            try {
+                T value = task.run(job.getContext());
+                job.getContext().checkCancelled();
+                if (cacheable) {
+                    value = frozen(value);
+                    store(key, value, startSeq);
+                }
+                job.complete(value);
+            } catch (Exception e) {
+                job.fail(e);
+            } finally {
+                inFlight.remove(key, job);
+                active.remove(job.getId());
+            }
+        }));
+        return job;
+    }
+
+    /** Caches a result unless something it covers changed while it was being computed. */
+    private void store(JobKey key, Object value, long startSeq) {
+        synchronized (cache) {
+            Change oldest = recentChanges.peekFirst();
+            if (oldest != null && oldest.seq > startSeq + 1) return;
+            for (Change change : recentChanges) {
+                if (change.seq > startSeq && key.affectedBy(change.type, change.days)) return;
+            }
+            cache.put(key, value);
+        }
+    }
+
+    /**
+     * An unmodifiable copy of a result, so one cached instance can go to every caller.
+     * Report rows are lists of maps; a SalesSummary is copied for each caller by
+     * {@link #shared}.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T frozen(T value) {
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) copy.add(frozen(item));
+            return (T) Collections.unmodifiableList(copy);
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(k, frozen(v)));
+            return (T) Collections.unmodifiableMap(copy);
+        }
+        return value;
+    }
+
+    /** What each caller gets of a result: its own copy of a SalesSummary, anything else as is. */
+    @SuppressWarnings("unchecked")
+    static <T> T shared(T value) {
+        if (!(value instanceof SalesSummary s)) return value;
+        SalesSummary copy = new SalesSummary();
+        copy.setInvoiceCount(s.getInvoiceCount());
+        copy.setRevenueCents(s.getRevenueCents());
+        copy.setTaxCents(s.getTaxCents());
+        copy.setDiscountCents(s.getDiscountCents());
+        copy.setCostCents(s.getCostCents());
+        return (T) copy;
+    }
+
+    private record JobKey(String type, DateRange range) {
+        boolean affectedBy(String changedType, DateRange days) {
+            if (changedType != null && !changedType.equals(type)) return false;
+            if (days == null || range == null) return true;
+            return !range.getTo().isBefore(days.getFrom()) && !days.getTo().isBefore(range.getFrom());
+        }
+    }
+
+    private record Change(long seq, String type, DateRange days) {}
+}
@@ -4,27 +4,41 @@ import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
+import com.lubesoft.analytics.AnalyticsStore;
 import com.lubesoft.dao.CustomerDAO;
 import com.lubesoft.dao.InvoiceDAO;
 import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.dao.ReceivablesDAO;
+import com.lubesoft.dao.SalesRollupDAO;
 import com.lubesoft.dao.TimeEntryDAO;
 import com.lubesoft.db.DatabaseManager;
 import com.lubesoft.model.Customer;
+import com.lubesoft.model.DateRange;
 import com.lubesoft.model.Invoice;
+import com.lubesoft.model.Money;
+import com.lubesoft.model.PageCursor;
 import com.lubesoft.model.Product;
+import com.lubesoft.model.SalesSummary;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Collectors;
 
 /**
  * Generates business reports: sales, credit aging, inventory leakage, employee productivity.
@@ -37,6 +51,8 @@ public class ReportService {
     private final CustomerDAO customerDAO = new CustomerDAO();
     private final ProductDAO productDAO = new ProductDAO();
     private final TimeEntryDAO timeEntryDAO = new TimeEntryDAO();
+    private final SalesRollupDAO salesRollupDAO = new SalesRollupDAO();
+    private final AnalyticsStore analytics = AnalyticsStore.getInstance();
 
     private ReportService() {}
 
@@ -49,50 +65,65 @@ public class ReportService {
 
     // ---------- Data retrieval methods ----------
 
-    public List<Invoice> getSalesReport(String fromDate, String toDate) throws SQLException {
-        return invoiceDAO.findByDateRange(fromDate, toDate);
+    public List<Invoice> getSalesReport(DateRange range) throws SQLException {
+        return invoiceDAO.findByDateRange(range);
     }
 
-    public double getSalesTotal(String fromDate, String toDate) throws SQLException {
-        String sql = "SELECT COALESCE(SUM(total),0) FROM invoices WHERE status='PAID' AND date(completed_at) BETWEEN date(?) AND date(?)";
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, fromDate);
-            ps.setString(2, toDate);
-            try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rs.getDouble(1) : 0;
-            }
-        }
+    public int countSales(DateRange range) throws SQLException {
+        return invoiceDAO.countByDateRange(range);
+    }
+
+    /** Keyset page of the sales report, newest first; see {@link InvoiceDAO#findPageByDateRange}. */
+    public List<Invoice> getSalesPage(DateRange range, PageCursor before, int limit) throws SQLException {
+        return invoiceDAO.findPageByDateRange(range, before, limit);
+    }
+
+    public PageCursor salesCursorAt(DateRange range, int offset) throws SQLException {
+        return invoiceDAO.cursorAt(range, offset);
+    }
+
+    /** Revenue from PAID invoices completed in the range, summed from the daily rollup. */
+    public long getSalesTotalCents(DateRange range) throws SQLException {
+        return salesRollupDAO.getSummary(range).getRevenueCents();
+    }
+
+    public SalesSummary getSalesSummary(DateRange range) throws SQLException {
+        return salesRollupDAO.getSummary(range);
+    }
+
+    /** Recomputes the daily sales rollup from the invoice history. */
+    public int rebuildSalesRollup() throws SQLException {
+        return salesRollupDAO.rebuild();
     }
 
     /**
-     * Returns customers with credit balances categorized by age (30/60/90 days).
+     * Returns customers with credit balances categorized by age (30/60/90 days), each under
+     * the bucket of their oldest open charge. Reads the aging kept by the receivables ledger.
      * Map keys: "0-30", "31-60", "61-90", "90+"
      */
     public Map<String, List<Customer>> getCreditAging() throws SQLException {
+        return getCreditAging(JobContext.NONE);
+    }
+
+    public Map<String, List<Customer>> getCreditAging(JobContext job) throws SQLException {
         Map<String, List<Customer>> aging = new LinkedHashMap<>();
-        aging.put("0-30", new ArrayList<>());
-        aging.put("31-60", new ArrayList<>());
-        aging.put("61-90", new ArrayList<>());
-        aging.put("90+", new ArrayList<>());
+        for (String bucket : ReceivablesDAO.BUCKETS) aging.put(bucket, new ArrayList<>());
 
         String sql = """
-            SELECT c.*, julianday('now') - julianday(MIN(i.created_at)) as days_old
-            FROM customers c
-            JOIN invoices i ON i.customer_id = c.id AND i.payment_method = 'CREDIT' AND i.status = 'PAID'
-            WHERE c.current_balance > 0
+            SELECT c.*, MAX(a.bucket) as oldest_bucket
+            FROM credit_aging a
+            JOIN customers c ON c.id = a.customer_id
+            WHERE a.amount_cents > 0
             GROUP BY c.id
             """;
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            while (rs.next()) {
-                Customer c = mapCustomerRow(rs);
-                int days = rs.getInt("days_old");
-                if (days <= 30) aging.get("0-30").add(c);
-                else if (days <= 60) aging.get("31-60").add(c);
-                else if (days <= 90) aging.get("61-90").add(c);
-                else aging.get("90+").add(c);
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             Statement st = conn.createStatement()) {
+            job.watch(st);
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    job.row();
+                    aging.get(ReceivablesDAO.BUCKETS[rs.getInt("oldest_bucket")]).add(mapCustomerRow(rs));
+                }
             }
         }
         return aging;
@@ -101,127 +132,179 @@ public class ReportService {
     /**
      * Inventory leakage: products sold vs. inventory recorded differences.
      */
-    public List<Map<String, Object>> getInventoryLeakage(String fromDate, String toDate) throws SQLException {
-        List<Map<String, Object>> result = new ArrayList<>();
-        String sql = """
-            SELECT p.id, p.name, p.sku,
-                   COALESCE(SUM(CASE WHEN it.type='SALE' THEN ABS(it.qty_change) ELSE 0 END),0) as sold,
-                   COALESCE(SUM(CASE WHEN it.type='WASTE' THEN it.qty_change ELSE 0 END),0) as waste,
-                   p.stock_qty
-            FROM products p
-            LEFT JOIN inventory_transactions it ON it.product_id = p.id
-                AND date(it.created_at) BETWEEN date(?) AND date(?)
-            GROUP BY p.id
-            HAVING waste > 0 OR sold > 0
-            ORDER BY waste DESC
-            """;
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, fromDate);
-            ps.setString(2, toDate);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> row = new LinkedHashMap<>();
-                    row.put("id", rs.getInt("id"));
-                    row.put("name", rs.getString("name"));
-                    row.put("sku", rs.getString("sku"));
-                    row.put("sold", rs.getDouble("sold"));
-                    row.put("waste", rs.getDouble("waste"));
-                    row.put("stock_qty", rs.getDouble("stock_qty"));
-                    result.add(row);
+    public List<Map<String, Object>> getInventoryLeakage(DateRange range) throws SQLException {
+        return getInventoryLeakage(range, JobContext.NONE);
+    }
+
+    public List<Map<String, Object>> getInventoryLeakage(DateRange range, JobContext job) throws SQLException {
+        // Aggregated from the columnar copy; only the few products touched are read here
+        List<AnalyticsStore.ProductMovement> moved = analytics.productMovement(range, job::checkCancelled);
+        moved.sort(Comparator.comparingDouble(AnalyticsStore.ProductMovement::waste).reversed());
+        Map<Integer, AnalyticsStore.ProductMovement> byProduct = new LinkedHashMap<>();
+        for (AnalyticsStore.ProductMovement m : moved) byProduct.put(m.productId(), m);
+
+        Map<Integer, Map<String, Object>> rows = new HashMap<>();
+        if (!byProduct.isEmpty()) {
+            String ids = byProduct.keySet().stream().map(String::valueOf).collect(Collectors.joining(","));
+            String sql = "SELECT id, name, sku, stock_qty FROM products WHERE id IN (" + ids + ")";
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+                 Statement st = conn.createStatement()) {
+                job.watch(st);
+                try (ResultSet rs = st.executeQuery(sql)) {
+                    while (rs.next()) {
+                        job.row();
+                        AnalyticsStore.ProductMovement m = byProduct.get(rs.getInt("id"));
+                        Map<String, Object> row = new LinkedHashMap<>();
+                        row.put("id", m.productId());
+                        row.put("name", rs.getString("name"));
+                        row.put("sku", rs.getString("sku"));
+                        row.put("sold", m.sold());
+                        row.put("waste", m.waste());
+                        row.put("stock_qty", rs.getDouble("stock_qty"));
+                        rows.put(m.productId(), row);
+                    }
                 }
             }
         }
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Integer id : byProduct.keySet()) {
+            Map<String, Object> row = rows.get(id);
+            if (row != null) result.add(row);
+        }
         return result;
     }
 
     /**
      * Employee productivity: number of invoices processed per technician in a date range.
      */
-    public List<Map<String, Object>> getEmployeeProductivity(String fromDate, String toDate) throws SQLException {
+    public List<Map<String, Object>> getEmployeeProductivity(DateRange range) throws SQLException {
+        return getEmployeeProductivity(range, JobContext.NONE);
+    }
+
+    public List<Map<String, Object>> getEmployeeProductivity(DateRange range, JobContext job) throws SQLException {
+        Map<Integer, AnalyticsStore.StaffActivity> activity = analytics.staffActivity(range,
+                Instant.now().getEpochSecond(), job::checkCancelled);
         List<Map<String, Object>> result = new ArrayList<>();
-        String sql = """
-            SELECT u.id, u.username, COUNT(i.id) as invoice_count,
-                   COALESCE(SUM(i.total),0) as total_revenue,
-                   COALESCE(SUM(te.total_hours),0) as hours_worked
-            FROM users u
-            LEFT JOIN invoices i ON i.technician_id = u.id
-                AND i.status='PAID'
-                AND date(i.completed_at) BETWEEN date(?) AND date(?)
-            LEFT JOIN (
-                SELECT user_id,
-                       SUM(CAST((julianday(COALESCE(clock_out, datetime('now'))) - julianday(clock_in)) * 24 AS REAL)) as total_hours
-                FROM time_entries
-                WHERE date(clock_in) BETWEEN date(?) AND date(?)
-                GROUP BY user_id
-            ) te ON te.user_id = u.id
-            WHERE u.active=1
-            GROUP BY u.id
-            ORDER BY invoice_count DESC
-            """;
-        try (Connection conn = DatabaseManager.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, fromDate);
-            ps.setString(2, toDate);
-            ps.setString(3, fromDate);
-            ps.setString(4, toDate);
-            try (ResultSet rs = ps.executeQuery()) {
+        String sql = "SELECT id, username FROM users WHERE active=1";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             Statement st = conn.createStatement()) {
+            job.watch(st);
+            try (ResultSet rs = st.executeQuery(sql)) {
                 while (rs.next()) {
+                    job.row();
+                    int id = rs.getInt("id");
+                    AnalyticsStore.StaffActivity a = activity.getOrDefault(id, new AnalyticsStore.StaffActivity(id, 0, 0, 0));
                     Map<String, Object> row = new LinkedHashMap<>();
-                    row.put("id", rs.getInt("id"));
+                    row.put("id", id);
                     row.put("username", rs.getString("username"));
-                    row.put("invoice_count", rs.getInt("invoice_count"));
-                    row.put("total_revenue", rs.getDouble("total_revenue"));
-                    row.put("hours_worked", rs.getDouble("hours_worked"));
+                    row.put("invoice_count", a.invoices());
+                    row.put("total_revenue", Money.toDouble(a.revenueCents()));
+                    row.put("hours_worked", a.hours());
                     result.add(row);
                 }
             }
         }
+        result.sort(Comparator.comparingInt((Map<String, Object> row) -> (Integer) row.get("invoice_count")).reversed());
         return result;
     }
 
     // ---------- PDF Export ----------
 
-    public void exportSalesToPdf(List<Invoice> invoices, String filePath) throws Exception {
-        Document doc = new Document();
-        PdfWriter.getInstance(doc, new FileOutputStream(filePath));
-        doc.open();
+    /** Rows between progress reports and cancellation checks; also the PDF table flush size. */
+    static final int EXPORT_CHUNK_ROWS = 500;
 
-        com.itextpdf.text.Font titleFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 16, com.itextpdf.text.Font.BOLD);
-        com.itextpdf.text.Font headerFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 10, com.itextpdf.text.Font.BOLD);
-        com.itextpdf.text.Font cellFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 9);
+    public int exportSalesToPdf(DateRange range, String filePath) throws Exception {
+        return exportSalesToPdf(range, filePath, fraction -> {});
+    }
 
-        doc.add(new Paragraph("Sales Report", titleFont));
-        doc.add(Chunk.NEWLINE);
+    /**
+     * Writes the sales report for {@code range} to a PDF, streaming invoices off the
+     * database cursor into the document. The table is incomplete (setComplete(false)) and
+     * is added to the document every {@link #EXPORT_CHUNK_ROWS} rows, so iText lays out and
+     * releases each chunk as it goes and memory stays flat whatever the row count.
+     *
+     * {@code progress} gets the fraction done after each chunk. Interrupting the calling
+     * thread (cancelling its task) stops the export and deletes the partial file.
+     * Returns the number of invoices written.
+     */
+    public int exportSalesToPdf(DateRange range, String filePath, DoubleConsumer progress) throws Exception {
+        int expected = invoiceDAO.countByDateRange(range);
+        Path path = Path.of(filePath);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024)) {
+            Document doc = new Document();
+            PdfWriter.getInstance(doc, out);
+            doc.open();
 
-        PdfPTable table = new PdfPTable(5);
-        table.setWidthPercentage(100);
-        for (String h : new String[]{"Invoice#", "Date", "Status", "Payment", "Total"}) {
-            PdfPCell cell = new PdfPCell(new Phrase(h, headerFont));
-            cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
-            table.addCell(cell);
-        }
+            com.itextpdf.text.Font titleFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 16, com.itextpdf.text.Font.BOLD);
+            com.itextpdf.text.Font headerFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 10, com.itextpdf.text.Font.BOLD);
+            com.itextpdf.text.Font cellFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 9);
 
-        double grandTotal = 0;
-        for (Invoice inv : invoices) {
-            table.addCell(new Phrase(inv.getInvoiceNumber(), cellFont));
-            table.addCell(new Phrase(inv.getCreatedAt(), cellFont));
-            table.addCell(new Phrase(inv.getStatus(), cellFont));
-            table.addCell(new Phrase(inv.getPaymentMethod() != null ? inv.getPaymentMethod() : "", cellFont));
-            table.addCell(new Phrase(String.format("%.2f", inv.getTotal()), cellFont));
-            grandTotal += inv.getTotal();
-        }
+            doc.add(new Paragraph("Sales Report " + range.getFrom() + " to " + range.getTo(), titleFont));
+            doc.add(Chunk.NEWLINE);
+
+            PdfPTable table = new PdfPTable(5);
+            table.setWidthPercentage(100);
+            table.setHeaderRows(1);
+            table.setComplete(false);
+            for (String h : new String[]{"Invoice#", "Date", "Status", "Payment", "Total"}) {
+                PdfPCell cell = new PdfPCell(new Phrase(h, headerFont));
+                cell.setBackgroundColor(BaseColor.LIGHT_GRAY);
+                table.addCell(cell);
+            }
+
+            long[] grandTotal = {0};
+            int[] written = {0};
+            invoiceDAO.forEachByDateRange(range, inv -> {
+                table.addCell(new Phrase(inv.getInvoiceNumber(), cellFont));
+                table.addCell(new Phrase(inv.getCreatedAt(), cellFont));
+                table.addCell(new Phrase(inv.getStatus(), cellFont));
+                table.addCell(new Phrase(inv.getPaymentMethod() != null ? inv.getPaymentMethod() : "", cellFont));
+                table.addCell(new Phrase(Money.format(inv.getTotalCents()), cellFont));
+                grandTotal[0] = Money.add(grandTotal[0], inv.getTotalCents());
+                if (++written[0] % EXPORT_CHUNK_ROWS == 0) {
+                    if (Thread.interrupted()) throw new InterruptedException("Export cancelled");
+                    doc.add(table);
+                    progress.accept(expected == 0 ? 1.0 : Math.min(1.0, written[0] / (double) expected));
+                }
+            });
 
-        doc.add(table);
-        doc.add(Chunk.NEWLINE);
-        doc.add(new Paragraph("Grand Total: " + String.format("%.2f", grandTotal), headerFont));
-        doc.close();
+            table.setComplete(true);
+            doc.add(table);
+            doc.add(Chunk.NEWLINE);
+            doc.add(new Paragraph("Grand Total: " + Money.format(grandTotal[0]), headerFont));
+            doc.close();
+            progress.accept(1.0);
+            return written[0];
+        } catch (Exception e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
     }
 
     // ---------- Excel Export ----------
 
-    public void exportSalesToExcel(List<Invoice> invoices, String filePath) throws Exception {
-        try (Workbook wb = new XSSFWorkbook()) {
+    /** Rows SXSSF keeps in memory; older rows go to a compressed temp file. */
+    static final int EXCEL_ROW_WINDOW = 200;
+    /** Leading rows measured to size the columns, in place of autoSizeColumn over the whole sheet. */
+    static final int EXCEL_WIDTH_SAMPLE = 1_000;
+
+    public int exportSalesToExcel(DateRange range, String filePath) throws Exception {
+        return exportSalesToExcel(range, filePath, fraction -> {});
+    }
+
+    /**
+     * Writes the sales report for {@code range} to an .xlsx file with a streaming
+     * SXSSFWorkbook fed straight off the database cursor. Only the last
+     * {@link #EXCEL_ROW_WINDOW} rows are held in memory; column widths come from the first
+     * {@link #EXCEL_WIDTH_SAMPLE} rows. Progress and cancellation work as for
+     * {@link #exportSalesToPdf(DateRange, String, DoubleConsumer)}.
+     */
+    public int exportSalesToExcel(DateRange range, String filePath, DoubleConsumer progress) throws Exception {
+        int expected = invoiceDAO.countByDateRange(range);
+        Path path = Path.of(filePath);
+        SXSSFWorkbook wb = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        wb.setCompressTempFiles(true);
+        try {
             Sheet sheet = wb.createSheet("Sales Report");
             CellStyle headerStyle = wb.createCellStyle();
             org.apache.poi.ss.usermodel.Font boldFont = wb.createFont();
@@ -230,32 +313,54 @@ public class ReportService {
 
             Row header = sheet.createRow(0);
             String[] cols = {"Invoice#", "Date", "Status", "Payment", "Subtotal", "Tax", "Discount", "Total"};
+            int[] widths = new int[cols.length];
             for (int i = 0; i < cols.length; i++) {
                 Cell cell = header.createCell(i);
                 cell.setCellValue(cols[i]);
                 cell.setCellStyle(headerStyle);
+                widths[i] = cols[i].length();
             }
 
-            int rowNum = 1;
-            for (Invoice inv : invoices) {
-                Row row = sheet.createRow(rowNum++);
-                row.createCell(0).setCellValue(inv.getInvoiceNumber());
-                row.createCell(1).setCellValue(inv.getCreatedAt());
-                row.createCell(2).setCellValue(inv.getStatus());
-                row.createCell(3).setCellValue(inv.getPaymentMethod() != null ? inv.getPaymentMethod() : "");
-                row.createCell(4).setCellValue(inv.getSubtotal());
-                row.createCell(5).setCellValue(inv.getTax());
-                row.createCell(6).setCellValue(inv.getDiscount());
-                row.createCell(7).setCellValue(inv.getTotal());
-            }
+            int[] written = {0};
+            invoiceDAO.forEachByDateRange(range, inv -> {
+                Row row = sheet.createRow(++written[0]);
+                String[] text = {inv.getInvoiceNumber(), inv.getCreatedAt(), inv.getStatus(),
+                        inv.getPaymentMethod() != null ? inv.getPaymentMethod() : ""};
+                long[] amounts = {inv.getSubtotalCents(), inv.getTaxCents(), inv.getDiscountCents(), inv.getTotalCents()};
+                for (int i = 0; i < text.length; i++) {
+                    row.createCell(i).setCellValue(text[i]);
+                }
+                for (int i = 0; i < amounts.length; i++) {
+                    row.createCell(text.length + i).setCellValue(Money.toDouble(amounts[i]));
+                }
+                if (written[0] <= EXCEL_WIDTH_SAMPLE) {
+                    for (int i = 0; i < text.length; i++) {
+                        if (text[i] != null) widths[i] = Math.max(widths[i], text[i].length());
+                    }
+                    for (int i = 0; i < amounts.length; i++) {
+                        widths[text.length + i] = Math.max(widths[text.length + i], Money.format(amounts[i]).length());
+                    }
+                }
+                if (written[0] % EXPORT_CHUNK_ROWS == 0) {
+                    if (Thread.interrupted()) throw new InterruptedException("Export cancelled");
+                    progress.accept(expected == 0 ? 1.0 : Math.min(1.0, written[0] / (double) expected));
+                }
+            });
 
             for (int i = 0; i < cols.length; i++) {
-                sheet.autoSizeColumn(i);
+                sheet.setColumnWidth(i, Math.min(255, widths[i] + 2) * 256);
             }
-
-            try (FileOutputStream fos = new FileOutputStream(filePath)) {
-                wb.write(fos);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024)) {
+                wb.write(out);
             }
+            progress.accept(1.0);
+            return written[0];
+        } catch (Exception e) {
+            Files.deleteIfExists(path);
+            throw e;
+        } finally {
+            wb.dispose();
+            wb.close();
         }
     }
 
@@ -266,8 +371,8 @@ public class ReportService {
         c.setPhone(rs.getString("phone"));
         c.setEmail(rs.getString("email"));
         c.setCompany(rs.getString("company"));
-        c.setCreditLimit(rs.getDouble("credit_limit"));
-        c.setCurrentBalance(rs.getDouble("current_balance"));
+        c.setCreditLimitCents(rs.getLong("credit_limit_cents"));
+        c.setBalanceCents(rs.getLong("balance_cents"));
         return c;
     }
 }
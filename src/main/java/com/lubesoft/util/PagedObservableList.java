@@ -0,0 +1,194 @@
+package com.lubesoft.util;
+
+import com.lubesoft.model.PageCursor;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.TableView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Read-only list for a TableView over a table too big to load whole. Only the row count
+ * is known up front; rows are fetched a page at a time when the table asks for them, and
+ * the page after is prefetched so scrolling rarely shows a blank row. At most
+ * {@code maxPages} pages are held, least recently used first out.
+ *
+ * Pages are read by keyset: each loaded page records the cursor its successor starts
+ * after, so scrolling down never uses OFFSET. A jump to an unseen page asks the source
+ * for the cursor at that offset once (an index-only walk) and continues by keyset.
+ *
+ * A row that is not loaded yet reads as null; the list fires a replace change when its
+ * page arrives. All methods must be called on the FX thread.
+ */
+public class PagedObservableList<T> extends ObservableListBase<T> {
+
+    /** Where the rows come from; the fetch methods run on a background worker. */
+    public interface PageSource<T> {
+        int count() throws Exception;
+
+        /** Up to {@code limit} rows following {@code after}, or from the start when null. */
+        List<T> fetchPage(PageCursor after, int limit) throws Exception;
+
+        /** Cursor of the row just before {@code offset}; null for offset 0. */
+        PageCursor cursorAt(int offset) throws Exception;
+
+        /** Cursor positioned on {@code row}, so the next page starts after it. */
+        PageCursor cursorOf(T row);
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int DEFAULT_MAX_PAGES = 10;
+
+    private final TaskScope tasks;
+    private final String key;
+    private final PageSource<T> source;
+    private final int pageSize;
+    private final Map<Integer, List<T>> pages;
+    private final Map<Integer, PageCursor> pageStarts = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int size;
+    private long generation;
+    private long pagesLoaded;
+
+    public PagedObservableList(TaskScope tasks, String key, PageSource<T> source) {
+        this(tasks, key, source, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /** @param maxPages pages kept in memory; at least 3 so the visible page and its neighbours fit */
+    public PagedObservableList(TaskScope tasks, String key, PageSource<T> source, int pageSize, int maxPages) {
+        this.tasks = tasks;
+        this.key = key;
+        this.source = source;
+        this.pageSize = Math.max(1, pageSize);
+        int capacity = Math.max(3, maxPages);
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > capacity;
+            }
+        };
+        pageStarts.put(0, null);
+    }
+
+    /** Re-counts the rows and drops every loaded page; rows reload as the table asks for them. */
+    public void refresh() {
+        tasks.latest(key + "-count", source::count, count -> {
+            generation++;
+            pages.clear();
+            pageStarts.clear();
+            pageStarts.put(0, null);
+            loading.clear();
+            int old = size;
+            size = count;
+            beginChange();
+            if (old > 0) nextRemove(0, new ArrayList<>(Collections.nCopies(old, (T) null)));
+            if (count > 0) nextAdd(0, count);
+            endChange();
+        }, e -> System.err.println("Failed to count " + key + ": " + e.getMessage()));
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        int page = index / pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            return null;
+        }
+        // Neighbours only once this page is in, so the next one can start from its cursor
+        if (page > 0) request(page - 1);
+        request(page + 1);
+        int offset = index % pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /** Pages currently held in memory. */
+    public int getLoadedPages() {
+        return pages.size();
+    }
+
+    /** Page fetches completed since the list was created. */
+    public long getPagesLoaded() {
+        return pagesLoaded;
+    }
+
+    private void request(int page) {
+        if (page * pageSize >= size || pages.containsKey(page) || !loading.add(page)) return;
+        long gen = generation;
+        boolean startKnown = pageStarts.containsKey(page);
+        PageCursor start = pageStarts.get(page);
+        tasks.run(() -> {
+            PageCursor after = startKnown ? start : source.cursorAt(page * pageSize);
+            // Own copy, so replace() can update it in place
+            return new ArrayList<>(source.fetchPage(after, pageSize));
+        }, rows -> {
+            if (gen != generation) return;
+            loading.remove(page);
+            pagesLoaded++;
+            pages.put(page, rows);
+            if (rows.size() == pageSize) pageStarts.put(page + 1, source.cursorOf(rows.get(rows.size() - 1)));
+            int from = page * pageSize;
+            int to = Math.min(from + rows.size(), size);
+            if (to > from) {
+                beginChange();
+                nextReplace(from, to, new ArrayList<>(Collections.nCopies(to - from, (T) null)));
+                endChange();
+            }
+        }, e -> {
+            if (gen == generation) loading.remove(page);
+            System.err.println("Failed to load page " + page + " of " + key + ": " + e.getMessage());
+        });
+    }
+
+    /**
+     * Swaps a fresh copy of a changed row into the loaded page holding it and fires a
+     * change for that row alone. Returns false when no loaded page has a row matching
+     * {@code same}: the row is new, or not loaded and will be read fresh anyway. A row
+     * whose sort key changed keeps its place until the next {@link #refresh}.
+     */
+    public boolean replace(Predicate<T> same, T row) {
+        for (Map.Entry<Integer, List<T>> e : pages.entrySet()) {
+            List<T> rows = e.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                T old = rows.get(i);
+                int index = e.getKey() * pageSize + i;
+                if (old == null || !same.test(old) || index >= size) continue;
+                rows.set(i, row);
+                beginChange();
+                nextSet(index, old);
+                endChange();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops a table sorting its items while they are a paged list, which cannot be
+     * reordered in memory. The table sorts normally again once other items are set.
+     */
+    public static <S> void disableSortWhenPaged(TableView<S> table) {
+        table.setSortPolicy(t -> {
+            if (t.getItems() instanceof PagedObservableList) return false;
+            return TableView.DEFAULT_SORT_POLICY.call(t);
+        });
+    }
+}
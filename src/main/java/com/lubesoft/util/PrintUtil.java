@@ -6,6 +6,7 @@ import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
 import com.lubesoft.model.Invoice;
 import com.lubesoft.model.InvoiceItem;
+import com.lubesoft.model.Money;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -49,18 +50,18 @@ public class PrintUtil {
         for (InvoiceItem item : invoice.getItems()) {
             table.addCell(new PdfPCell(new Phrase(item.getDescription(), NORMAL_FONT)));
             table.addCell(new PdfPCell(new Phrase(String.format("%.2f", item.getQty()), NORMAL_FONT)));
-            table.addCell(new PdfPCell(new Phrase(String.format("%.2f", item.getUnitPrice()), NORMAL_FONT)));
-            table.addCell(new PdfPCell(new Phrase(String.format("%.2f", item.getTotal()), NORMAL_FONT)));
+            table.addCell(new PdfPCell(new Phrase(Money.format(item.getUnitPriceCents()), NORMAL_FONT)));
+            table.addCell(new PdfPCell(new Phrase(Money.format(item.getTotalCents()), NORMAL_FONT)));
         }
 
         document.add(table);
         document.add(Chunk.NEWLINE);
 
         // Totals
-        document.add(new Paragraph(String.format("Subtotal: %.2f", invoice.getSubtotal()), NORMAL_FONT));
-        document.add(new Paragraph(String.format("Tax: %.2f", invoice.getTax()), NORMAL_FONT));
-        document.add(new Paragraph(String.format("Discount: %.2f", invoice.getDiscount()), NORMAL_FONT));
-        Paragraph total = new Paragraph(String.format("TOTAL: %.2f", invoice.getTotal()), HEADER_FONT);
+        document.add(new Paragraph("Subtotal: " + Money.format(invoice.getSubtotalCents()), NORMAL_FONT));
+        document.add(new Paragraph("Tax: " + Money.format(invoice.getTaxCents()), NORMAL_FONT));
+        document.add(new Paragraph("Discount: " + Money.format(invoice.getDiscountCents()), NORMAL_FONT));
+        Paragraph total = new Paragraph("TOTAL: " + Money.format(invoice.getTotalCents()), HEADER_FONT);
         document.add(total);
 
         document.close();
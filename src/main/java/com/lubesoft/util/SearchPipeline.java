@@ -0,0 +1,237 @@
+package com.lubesoft.util;
+
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Search-as-you-type for a text field backed by an ObservableList. Keystrokes are
+ * debounced; the query then runs on the view's {@link TaskScope} under one key, so a
+ * newer query cancels the one in flight and a stale result can never land.
+ *
+ * Recent results are kept in a small LRU. An exact, fresh hit is shown without touching
+ * the database. Otherwise, if a shorter cached prefix of the query is known, its rows are
+ * narrowed locally and shown at once as a provisional answer while the real query runs.
+ * Results reach the list in chunks, one FX pulse each, so a long list does not stall
+ * the UI thread in a single setAll.
+ *
+ * All methods must be called on the FX thread.
+ */
+public class SearchPipeline<T> {
+
+    /** The query itself; blank text is passed through so the source can list everything. */
+    @FunctionalInterface
+    public interface Source<T> {
+        List<T> search(String query) throws Exception;
+    }
+
+    public static final long DEFAULT_DEBOUNCE_MS = 150;
+    public static final int DEFAULT_CACHE_SIZE = 32;
+    public static final long DEFAULT_CACHE_TTL_MS = 15_000;
+    public static final int DEFAULT_CHUNK_SIZE = 50;
+
+    private final TaskScope tasks;
+    private final String key;
+    private final Source<T> source;
+    private final ObservableList<T> target;
+    private final BiPredicate<T, String> matcher;
+    private final UiExecutor executor;
+    private long debounceMs = DEFAULT_DEBOUNCE_MS;
+    private long cacheTtlMs = DEFAULT_CACHE_TTL_MS;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private final Map<String, CachedResult<T>> cache;
+
+    private ScheduledFuture<?> pending;
+    private long generation;
+    private long cacheHits;
+    private long provisionalHits;
+    private long queriesRun;
+
+    /**
+     * @param matcher decides whether a row matches the query text when narrowing a cached
+     *                prefix result locally; null turns provisional results off
+     */
+    public SearchPipeline(TaskScope tasks, String key, Source<T> source, ObservableList<T> target,
+                          BiPredicate<T, String> matcher) {
+        this(tasks, key, source, target, matcher, UiExecutor.getInstance());
+    }
+
+    SearchPipeline(TaskScope tasks, String key, Source<T> source, ObservableList<T> target,
+                   BiPredicate<T, String> matcher, UiExecutor executor) {
+        this.tasks = tasks;
+        this.key = key;
+        this.source = source;
+        this.target = target;
+        this.matcher = matcher;
+        this.executor = executor;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult<T>> eldest) {
+                return size() > DEFAULT_CACHE_SIZE;
+            }
+        };
+    }
+
+    public SearchPipeline<T> withDebounce(long debounceMs) {
+        this.debounceMs = debounceMs;
+        return this;
+    }
+
+    public SearchPipeline<T> withCacheTtl(long cacheTtlMs) {
+        this.cacheTtlMs = cacheTtlMs;
+        return this;
+    }
+
+    public SearchPipeline<T> withChunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+        return this;
+    }
+
+    /** Call on every keystroke; the query runs once typing pauses for the debounce interval. */
+    public void submit(String text) {
+        String query = normalize(text);
+        cancelPending();
+        if (showCached(query)) return;
+        pending = executor.runOnUiAfter(debounceMs, () -> {
+            pending = null;
+            run(query);
+        });
+    }
+
+    /** Runs the query straight away (Enter, Search button). */
+    public void submitNow(String text) {
+        String query = normalize(text);
+        cancelPending();
+        if (showCached(query)) return;
+        run(query);
+    }
+
+    /** Drops cached results so the next query goes to the database (after a save or delete). */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getProvisionalHits() {
+        return provisionalHits;
+    }
+
+    public long getQueriesRun() {
+        return queriesRun;
+    }
+
+    private boolean showCached(String query) {
+        CachedResult<T> hit = cache.get(query);
+        long now = System.currentTimeMillis();
+        if (hit != null && now - hit.storedAt <= cacheTtlMs) {
+            cacheHits++;
+            tasks.cancel(key);
+            show(hit.rows);
+            return true;
+        }
+        if (matcher == null || query.isEmpty()) return false;
+        // Longest fresh cached prefix gives an instant, provisional answer
+        for (int len = query.length() - 1; len > 0; len--) {
+            CachedResult<T> prefix = cache.get(query.substring(0, len));
+            if (prefix != null && now - prefix.storedAt <= cacheTtlMs) {
+                List<T> narrowed = new ArrayList<>();
+                for (T row : prefix.rows) {
+                    if (matcher.test(row, query)) narrowed.add(row);
+                }
+                provisionalHits++;
+                show(narrowed);
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void run(String query) {
+        queriesRun++;
+        tasks.latest(key, () -> source.search(query), rows -> {
+            cache.put(query, new CachedResult<>(List.copyOf(rows), System.currentTimeMillis()));
+            show(rows);
+        });
+    }
+
+    /** Replaces the list contents: the first chunk now, the rest on following pulses. */
+    private void show(List<T> rows) {
+        long gen = ++generation;
+        int first = Math.min(chunkSize, rows.size());
+        target.setAll(rows.subList(0, first));
+        appendFrom(gen, rows, first);
+    }
+
+    private void appendFrom(long gen, List<T> rows, int from) {
+        if (from >= rows.size()) return;
+        executor.postToUi(() -> {
+            // A newer result replaced the list; stop paging in the old one
+            if (gen != generation) return;
+            int to = Math.min(from + chunkSize, rows.size());
+            target.addAll(rows.subList(from, to));
+            appendFrom(gen, rows, to);
+        });
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Matcher mirroring the FTS prefix search: every word of the query must be a prefix
+     * of some word in one of the given fields. Words split on anything that is not a
+     * letter or digit.
+     */
+    @SafeVarargs
+    public static <T> BiPredicate<T, String> wordPrefixMatcher(Function<T, String>... fields) {
+        return (row, query) -> {
+            List<String> words = words(query);
+            if (words.isEmpty()) return true;
+            List<String> haystack = new ArrayList<>();
+            for (Function<T, String> field : fields) {
+                String value = field.apply(row);
+                if (value != null) haystack.addAll(words(value.toLowerCase(Locale.ROOT)));
+            }
+            outer:
+            for (String w : words) {
+                for (String h : haystack) {
+                    if (h.startsWith(w)) continue outer;
+                }
+                return false;
+            }
+            return true;
+        };
+    }
+
+    private static List<String> words(String text) {
+        List<String> out = new ArrayList<>();
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            while (i < n && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            int start = i;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) i++;
+            if (i > start) out.add(text.substring(start, i));
+        }
+        return out;
+    }
+
+    private record CachedResult<T>(List<T> rows, long storedAt) {}
+}
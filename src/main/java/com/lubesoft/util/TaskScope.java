@@ -0,0 +1,234 @@
+package com.lubesoft.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * The background tasks owned by one view. Work runs on the {@link UiExecutor}; its result
+ * or error is handed to the callbacks on the FX thread, unless the task was cancelled by
+ * then, in which case it is dropped. {@link #latest} coalesces repeated requests under a
+ * key so only the newest one delivers (typing, rapid scans). {@link #close} cancels
+ * everything still outstanding and is called when the view is swapped out.
+ *
+ * Methods are meant to be called from the FX thread.
+ */
+public class TaskScope implements AutoCloseable {
+
+    private final String name;
+    private final UiExecutor executor;
+    private final Set<Task<?>> outstanding = ConcurrentHashMap.newKeySet();
+    private final Map<String, Task<?>> latestByKey = new HashMap<>();
+    private volatile boolean closed;
+
+    public TaskScope(String name) {
+        this(name, UiExecutor.getInstance());
+    }
+
+    TaskScope(String name, UiExecutor executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    /** Runs {@code work} in the background; failures are shown in an error dialog. */
+    public <T> Task<T> run(Callable<T> work, Consumer<T> onSuccess) {
+        return run(work, onSuccess, TaskScope::showError);
+    }
+
+    public <T> Task<T> run(Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        return start(null, work, onSuccess, onError);
+    }
+
+    /**
+     * Runs {@code work} after cancelling the previous task submitted under {@code key},
+     * so a stale result can never overwrite a newer one.
+     */
+    public <T> Task<T> latest(String key, Callable<T> work, Consumer<T> onSuccess) {
+        return latest(key, work, onSuccess, TaskScope::showError);
+    }
+
+    public <T> Task<T> latest(String key, Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        cancel(key);
+        return start(key, work, onSuccess, onError);
+    }
+
+    /**
+     * Delivers the outcome of work already running elsewhere (a report job, say) under
+     * {@code key}, with the same superseding rules as {@link #latest}. Cancelling the task
+     * cancels {@code future}.
+     */
+    public <T> Task<T> latest(String key, CompletableFuture<T> future, Consumer<T> onSuccess) {
+        return latest(key, future, onSuccess, TaskScope::showError);
+    }
+
+    public <T> Task<T> latest(String key, CompletableFuture<T> future, Consumer<T> onSuccess,
+                              Consumer<Exception> onError) {
+        cancel(key);
+        Task<T> task = new Task<>(key, null, onSuccess, onError);
+        task.future = future;
+        if (closed) {
+            task.cancelled = true;
+            future.cancel(true);
+            return task;
+        }
+        outstanding.add(task);
+        latestByKey.put(key, task);
+        future.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) return;
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            task.complete(result, cause == null ? null
+                    : cause instanceof Exception e ? e : new RuntimeException(cause));
+        });
+        return task;
+    }
+
+    /**
+     * Wraps a progress callback for background work to report through. Values are handed
+     * to the FX thread, coalesced so at most one update is queued at a time, and dropped
+     * once the scope is closed.
+     */
+    public DoubleConsumer progress(DoubleConsumer onUi) {
+        AtomicLong latest = new AtomicLong();
+        AtomicBoolean queued = new AtomicBoolean();
+        return value -> {
+            latest.set(Double.doubleToRawLongBits(value));
+            if (queued.compareAndSet(false, true)) {
+                executor.runOnUi(() -> {
+                    queued.set(false);
+                    if (!closed) onUi.accept(Double.longBitsToDouble(latest.get()));
+                });
+            }
+        };
+    }
+
+    /** Cancels the task currently running under {@code key}, if any. */
+    public void cancel(String key) {
+        Task<?> task = latestByKey.get(key);
+        if (task != null) task.cancel();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Number of tasks submitted through this scope that have not delivered yet. */
+    public int getOutstanding() {
+        return outstanding.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /** Cancels every outstanding task; later submissions are ignored. */
+    @Override
+    public void close() {
+        closed = true;
+        for (Task<?> task : outstanding) task.cancel();
+        latestByKey.clear();
+    }
+
+    private <T> Task<T> start(String key, Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        Task<T> task = new Task<>(key, work, onSuccess, onError);
+        if (closed) {
+            task.cancelled = true;
+            return task;
+        }
+        outstanding.add(task);
+        if (key != null) latestByKey.put(key, task);
+        task.future = executor.submit(task::execute);
+        return task;
+    }
+
+    private void finish(Task<?> task) {
+        outstanding.remove(task);
+        if (task.key != null) latestByKey.remove(task.key, task);
+    }
+
+    private static void showError(Exception e) {
+        AlertUtil.showError("Error", e.getMessage());
+    }
+
+    /** Handle for a submitted task. */
+    public final class Task<T> {
+        private final String key;
+        private final Callable<T> work;
+        private final Consumer<T> onSuccess;
+        private final Consumer<Exception> onError;
+        private volatile Future<?> future;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        Task(String key, Callable<T> work, Consumer<T> onSuccess, Consumer<Exception> onError) {
+            this.key = key;
+            this.work = work;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+        }
+
+        private void execute() {
+            if (cancelled) return;
+            T result;
+            try {
+                result = work.call();
+            } catch (Exception e) {
+                complete(null, e);
+                return;
+            }
+            complete(result, null);
+        }
+
+        private void complete(T result, Exception error) {
+            if (error != null) {
+                deliver(() -> {
+                    executor.recordFailed();
+                    if (onError != null) onError.accept(error);
+                });
+            } else {
+                deliver(() -> {
+                    executor.recordCompleted();
+                    if (onSuccess != null) onSuccess.accept(result);
+                });
+            }
+        }
+
+        /** Hands the outcome to the FX thread, re-checking cancellation there. */
+        private void deliver(Runnable callback) {
+            executor.runOnUi(() -> {
+                if (cancelled) return;
+                done = true;
+                finish(this);
+                callback.run();
+            });
+        }
+
+        /** Cancels the task: it is interrupted if running and its callbacks never fire. */
+        public void cancel() {
+            if (cancelled || done) return;
+            cancelled = true;
+            finish(this);
+            executor.recordCancelled();
+            Future<?> f = future;
+            if (f != null) f.cancel(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /** True once the task has delivered its result or error, or was cancelled. */
+        public boolean isDone() {
+            return done || cancelled;
+        }
+    }
+}
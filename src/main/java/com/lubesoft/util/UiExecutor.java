@@ -0,0 +1,168 @@
+package com.lubesoft.util;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Shared background executor for controller work. A fixed set of named daemon threads
+ * ("ui-task-N") runs database calls off the FX thread, and {@link #runOnUi} is the one
+ * place results are marshalled back. Controllers do not use this directly; they go
+ * through a {@link TaskScope} so their work is cancelled when the view goes away.
+ */
+public class UiExecutor {
+
+    private static final int DEFAULT_WORKERS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private static UiExecutor instance;
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Executor uiQueue;
+    private final BooleanSupplier onUiThread;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalRunNanos = new AtomicLong();
+
+    private UiExecutor() {
+        this(Integer.getInteger("lubesoft.ui.workers", DEFAULT_WORKERS), Platform::runLater, Platform::isFxApplicationThread);
+    }
+
+    /**
+     * @param uiQueue    always queues an action for a later pass of the UI thread
+     * @param onUiThread true when called on the UI thread
+     */
+    UiExecutor(int threads, Executor uiQueue, BooleanSupplier onUiThread) {
+        this.uiQueue = uiQueue;
+        this.onUiThread = onUiThread;
+        AtomicInteger seq = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "ui-task-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "ui-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public static synchronized UiExecutor getInstance() {
+        if (instance == null) {
+            instance = new UiExecutor();
+        }
+        return instance;
+    }
+
+    /** Runs {@code action} on the FX thread: inline when already there, otherwise via Platform.runLater. */
+    public void runOnUi(Runnable action) {
+        if (onUiThread.getAsBoolean()) {
+            action.run();
+        } else {
+            uiQueue.execute(action);
+        }
+    }
+
+    /** Queues {@code action} for a later FX pulse even when called on the FX thread. */
+    public void postToUi(Runnable action) {
+        uiQueue.execute(action);
+    }
+
+    /** Runs {@code action} on the FX thread after {@code delayMs}; cancel the result to drop it. */
+    public ScheduledFuture<?> runOnUiAfter(long delayMs, Runnable action) {
+        return timer.schedule(() -> runOnUi(action), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queues background work and records how long it waited and ran. */
+    Future<?> submit(Runnable work) {
+        long queuedAt = System.nanoTime();
+        submitted.incrementAndGet();
+        return workers.submit(() -> {
+            long startedAt = System.nanoTime();
+            long wait = startedAt - queuedAt;
+            totalWaitNanos.addAndGet(wait);
+            maxWaitNanos.accumulateAndGet(wait, Math::max);
+            try {
+                work.run();
+            } finally {
+                totalRunNanos.addAndGet(System.nanoTime() - startedAt);
+            }
+        });
+    }
+
+    void recordCompleted() {
+        completed.incrementAndGet();
+    }
+
+    void recordFailed() {
+        failed.incrementAndGet();
+    }
+
+    void recordCancelled() {
+        cancelled.incrementAndGet();
+    }
+
+    /** Tasks queued but not yet started. */
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return workers.getActiveCount();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    /** Mean time tasks spent queued before a worker picked them up. */
+    public double getAverageWaitMillis() {
+        long started = workers.getCompletedTaskCount() + workers.getActiveCount();
+        return started == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / started;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /** Mean time a task spent running on a worker. */
+    public double getAverageRunMillis() {
+        long finished = workers.getCompletedTaskCount();
+        return finished == 0 ? 0 : totalRunNanos.get() / 1_000_000.0 / finished;
+    }
+
+    /** Stops the workers; queued tasks are dropped. Called once on application exit. */
+    public void shutdown() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+    }
+}
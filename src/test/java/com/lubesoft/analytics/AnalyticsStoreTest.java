@@ -0,0 +1,170 @@
+package com.lubesoft.analytics;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import com.lubesoft.model.Invoice;
+import org.junit.jupiter.api.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalyticsStoreTest {
+
+    // A day no other test writes to, refilled on each run
+    private static final DateRange DAY = new DateRange(LocalDate.of(1998, 6, 15), LocalDate.of(1998, 6, 15));
+    private static final Runnable NO_CHECK = () -> {};
+
+    private static int filterId;
+    private static int oilId;
+    private static int wiperId;
+    private static int technicianId;
+
+    private AnalyticsStore store;
+
+    @BeforeAll
+    static void seed() throws SQLException {
+        DatabaseInitializer.initialize();
+        String tag = Long.toString(System.nanoTime(), 36);
+        filterId = insert("INSERT INTO products(sku,name) VALUES('AN-F-" + tag + "','Analytics Filter')");
+        oilId = insert("INSERT INTO products(sku,name) VALUES('AN-O-" + tag + "','Analytics Oil')");
+        wiperId = insert("INSERT INTO products(sku,name) VALUES('AN-W-" + tag + "','Analytics Wiper')");
+        technicianId = insert("INSERT INTO users(username,password_hash,role) VALUES('an-" + tag + "','x','TECHNICIAN')");
+        DatabaseManager.getInstance().write(conn -> {
+            try (Statement st = conn.createStatement()) {
+                st.execute("DELETE FROM inventory_transactions WHERE created_at >= '1998-06-15' AND created_at < '1998-06-16'");
+                st.execute("DELETE FROM time_entries WHERE clock_in >= '1998-06-15' AND clock_in < '1998-06-16'");
+            }
+            String sql = "INSERT INTO inventory_transactions(product_id,type,qty_change,created_at) VALUES(?,?,?,?)";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                Object[][] rows = {
+                        {filterId, "SALE", -2.0, "1998-06-15 09:00:00"},
+                        {filterId, "SALE", -3.0, "1998-06-15 15:00:00"},
+                        {oilId, "WASTE", 1.5, "1998-06-15 10:00:00"},
+                        {oilId, "PURCHASE", 40.0, "1998-06-15 11:00:00"},
+                };
+                for (Object[] row : rows) {
+                    for (int i = 0; i < row.length; i++) ps.setObject(i + 1, row[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO time_entries(user_id,clock_in,clock_out) VALUES(" + technicianId
+                        + ",'1998-06-15 08:00:00','1998-06-15 12:30:00')");
+                st.execute("INSERT INTO time_entries(user_id,clock_in) VALUES(" + technicianId + ",'1998-06-15 20:00:00')");
+            }
+            return null;
+        });
+    }
+
+    @BeforeEach
+    void open() {
+        store = new AnalyticsStore();
+    }
+
+    @AfterEach
+    void close() {
+        store.close();
+    }
+
+    @Test
+    void testProductMovementSumsSalesAndWastePerProduct() throws SQLException {
+        Map<Integer, AnalyticsStore.ProductMovement> moved = movement();
+
+        assertEquals(new AnalyticsStore.ProductMovement(filterId, 5, 0), moved.get(filterId));
+        assertEquals(new AnalyticsStore.ProductMovement(oilId, 0, 1.5), moved.get(oilId));
+        assertTrue(store.getPartitionCount() > 0);
+    }
+
+    @Test
+    void testRefreshAppendsNewRowsWithoutReloading() throws SQLException {
+        movement();
+        long rows = store.getRowCount();
+        insert("INSERT INTO inventory_transactions(product_id,type,qty_change,created_at) VALUES("
+                + wiperId + ",'SALE',-4,'1998-06-15 18:00:00')");
+
+        assertEquals(4, movement().get(wiperId).sold(), 1e-9);
+        assertEquals(rows + 1, store.getRowCount());
+        assertEquals(2, store.getRefreshCount());
+    }
+
+    @Test
+    void testCheckoutAndVoidReloadTheirDay() throws SQLException {
+        DateRange today = DateRange.today();
+        InvoiceDAO invoiceDAO = new InvoiceDAO();
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("AN-" + System.nanoTime());
+        inv.setTechnicianId(technicianId);
+        inv.setTotalCents(80_00);
+        invoiceDAO.createInvoice(inv);
+        assertNull(activity(today).get(technicianId), "Open invoices are not held");
+
+        // Checkout updates the row in place, so only the changed-day reload can see it
+        invoiceDAO.checkout(inv.getId(), "CASH", 80_00, List.of());
+        AnalyticsStore.StaffActivity paid = activity(today).get(technicianId);
+        assertEquals(1, paid.invoices());
+        assertEquals(80_00, paid.revenueCents());
+
+        invoiceDAO.voidInvoice(inv.getId(), List.of());
+        assertNull(activity(today).get(technicianId), "Voided invoice leaves the counts");
+    }
+
+    @Test
+    void testHoursCountOpenEntriesUpToNow() throws SQLException {
+        long now = TimeDay.epochSeconds("1998-06-15 21:00:00");
+
+        AnalyticsStore.StaffActivity a = store.staffActivity(DAY, now, NO_CHECK).get(technicianId);
+
+        assertEquals(4.5 + 1, a.hours(), 1e-9);
+    }
+
+    @Test
+    void testCheckpointCancelsScan() {
+        assertThrows(CancellationException.class, () -> store.productMovement(DAY, () -> {
+            throw new CancellationException("Report cancelled");
+        }));
+    }
+
+    @Test
+    void testCoalesceMergesOverlappingAndAdjacentRanges() {
+        List<DateRange> merged = DayTable.coalesce(List.of(
+                DateRange.of("2024-01-10", "2024-01-12"),
+                DateRange.of("2024-01-01", "2024-01-05"),
+                DateRange.of("2024-01-06", "2024-01-07"),
+                DateRange.of("2024-01-11", "2024-01-11")));
+
+        assertEquals(List.of(DateRange.of("2024-01-01", "2024-01-07"), DateRange.of("2024-01-10", "2024-01-12")), merged);
+    }
+
+    private Map<Integer, AnalyticsStore.ProductMovement> movement() throws SQLException {
+        return store.productMovement(DAY, NO_CHECK).stream()
+                .collect(Collectors.toMap(AnalyticsStore.ProductMovement::productId, m -> m));
+    }
+
+    private Map<Integer, AnalyticsStore.StaffActivity> activity(DateRange range) throws SQLException {
+        return store.staffActivity(range, System.currentTimeMillis() / 1000, NO_CHECK);
+    }
+
+    private static int insert(String sql) throws SQLException {
+        return DatabaseManager.getInstance().write(conn -> {
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate(sql);
+                try (ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            }
+        });
+    }
+}
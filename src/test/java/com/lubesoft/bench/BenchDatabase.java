@@ -0,0 +1,125 @@
+package com.lubesoft.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Shared fixture for benchmarks: points the application at a throwaway database file
+ * (must run before anything touches DatabaseManager) and seeds synthetic data.
+ */
+final class BenchDatabase {
+
+    private BenchDatabase() {}
+
+    static void useTempDatabase(String name) {
+        try {
+            File dir = Files.createTempDirectory("lubesoft-bench-" + name).toFile();
+            dir.deleteOnExit();
+            System.setProperty("lubesoft.db.path", new File(dir, "bench.db").getAbsolutePath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String url() {
+        return "jdbc:sqlite:" + System.getProperty("lubesoft.db.path");
+    }
+
+    static String barcode(int i) {
+        return String.format("890%010d", i);
+    }
+
+    static void seedProducts(Connection conn, int count) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO products(sku,name,category,unit,sell_price_cents,cost_price_cents,stock_qty,min_stock,max_stock,barcode,is_bulk_oil)"
+                        + " VALUES(?,?,?,?,?,?,?,?,?,?,0)")) {
+            for (int i = 0; i < count; i++) {
+                ps.setString(1, "SKU-" + i);
+                ps.setString(2, "Product " + i);
+                ps.setString(3, i % 2 == 0 ? "Oil" : "Filter");
+                ps.setString(4, "ea");
+                ps.setLong(5, (10 + i % 50) * 100L);
+                ps.setLong(6, (5 + i % 25) * 100L);
+                ps.setDouble(7, 1_000_000);
+                ps.setDouble(8, 5);
+                ps.setDouble(9, 100);
+                ps.setString(10, barcode(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Inserts {@code count} PAID invoices spread evenly over the {@code days} days up to
+     * and including today (UTC), with timestamps in the database's datetime('now') format.
+     */
+    static void seedInvoices(Connection conn, int count, int days) throws SQLException {
+        LocalDateTime end = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay();
+        long spanSeconds = days * 86_400L;
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO invoices(invoice_number,status,payment_method,subtotal_cents,total_cents,paid_cents,created_at,completed_at)"
+                        + " VALUES(?,'PAID','CASH',?,?,?,?,?)")) {
+            for (int i = 0; i < count; i++) {
+                String ts = end.minusSeconds(1 + spanSeconds * (count - i) / (count + 1)).format(fmt);
+                long total = (20 + i % 180) * 100L;
+                ps.setString(1, "SEED-" + i);
+                ps.setLong(2, total);
+                ps.setLong(3, total);
+                ps.setLong(4, total);
+                ps.setString(5, ts);
+                ps.setString(6, ts);
+                ps.addBatch();
+                if (i % 10_000 == 9_999) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Inserts {@code count} inventory transactions against products 1..{@code products},
+     * mostly sales with some waste and purchases, spread over the {@code days} days up to
+     * and including today (UTC).
+     */
+    static void seedInventoryTransactions(Connection conn, int count, int products, int days) throws SQLException {
+        LocalDateTime end = LocalDate.now(ZoneOffset.UTC).plusDays(1).atStartOfDay();
+        long spanSeconds = days * 86_400L;
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        String[] types = {"SALE", "SALE", "SALE", "SALE", "SALE", "SALE", "SALE", "WASTE", "PURCHASE", "ADJUSTMENT"};
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO inventory_transactions(product_id,type,qty_change,created_at) VALUES(?,?,?,?)")) {
+            for (int i = 0; i < count; i++) {
+                String type = types[i % types.length];
+                ps.setInt(1, 1 + i % products);
+                ps.setString(2, type);
+                ps.setDouble(3, "SALE".equals(type) ? -(1 + i % 4) : 1 + i % 3);
+                ps.setString(4, end.minusSeconds(1 + spanSeconds * (count - i) / (count + 1)).format(fmt));
+                ps.addBatch();
+                if (i % 10_000 == 9_999) ps.executeBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.ImportResult;
+import com.lubesoft.model.Product;
+import com.lubesoft.service.ProductImportService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a distributor price list of new products, by row count: the CSV through
+ * ProductImportService against the same products saved one at a time with
+ * ProductDAO.save, as catalogs used to be entered. Each invocation loads fresh SKUs.
+ * The target is 100k rows a minute.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.CatalogImportBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogImportBenchmark {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    private final ProductImportService service = ProductImportService.getInstance();
+    private final ProductDAO productDAO = new ProductDAO();
+    private Path file;
+    private List<Product> products;
+    private int run;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        BenchDatabase.useTempDatabase("catalog-import");
+        DatabaseInitializer.initialize();
+        file = Files.createTempFile("catalog", ".csv");
+    }
+
+    @Setup(Level.Invocation)
+    public void writeCatalog() throws IOException {
+        String prefix = "C" + (++run) + "-";
+        products = new ArrayList<>(rows);
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("SKU,Barcode,Name,Category,Unit,Sell Price,Cost Price,Stock,Min Stock\n");
+            for (int i = 0; i < rows; i++) {
+                Product p = new Product();
+                p.setSku(prefix + i);
+                p.setBarcode(prefix + BenchDatabase.barcode(i));
+                p.setName("\"Engine oil 5W-" + (i % 60) + ", " + (1 + i % 5) + "L\" " + prefix + i);
+                p.setCategory("Category " + (i % 40));
+                p.setUnit("EA");
+                p.setSellPriceCents(4_99 + i % 5_000);
+                p.setCostPriceCents(2_50 + i % 2_500);
+                p.setStockQty(i % 100);
+                p.setMinStock(5);
+                products.add(p);
+                out.write(p.getSku() + "," + p.getBarcode() + ",\"" + p.getName().replace("\"", "\"\"") + "\","
+                        + p.getCategory() + ",EA," + p.getSellPrice() + "," + p.getCostPrice() + ","
+                        + p.getStockQty() + ",5\n");
+            }
+        }
+    }
+
+    @Benchmark
+    public ImportResult importCatalog() throws Exception {
+        return service.importFile(file, null);
+    }
+
+    @Benchmark
+    public int saveEach() throws SQLException {
+        for (Product p : products) {
+            productDAO.save(p);
+        }
+        return products.size();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        DatabaseManager.getInstance().shutdown();
+        Files.deleteIfExists(file);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CatalogImportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.Invoice;
+import com.lubesoft.model.InvoiceItem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout latency against invoice line count. Each invocation checks out a fresh WIP
+ * invoice whose lines hold their stock reservations; every third line repeats an earlier
+ * product so stock aggregation is exercised.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.CheckoutBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    private static final int PRODUCTS = 1_000;
+
+    @Param({"1", "10", "30", "100"})
+    public int lines;
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private int invoiceId;
+    private List<InvoiceItem> items;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws SQLException {
+        BenchDatabase.useTempDatabase("checkout");
+        DatabaseInitializer.initialize();
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            BenchDatabase.seedProducts(conn, PRODUCTS);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvoice() throws SQLException {
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("BENCH-" + lines + "-" + sequence++);
+        inv.setStatus("WIP");
+        invoiceId = invoiceDAO.createInvoice(inv).getId();
+
+        items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            int productId = 1 + (i % 3 == 2 ? i - 1 : i) % PRODUCTS;
+            items.add(invoiceDAO.addItem(invoiceId, new InvoiceItem(productId, "Product " + productId, 1, 10_00, 5_00)));
+        }
+    }
+
+    @Benchmark
+    public void checkout() throws SQLException {
+        invoiceDAO.checkout(invoiceId, "CASH", 10_00L * lines, items);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CheckoutBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.dao.SalesRollupDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import com.lubesoft.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date filters on a four-year, one-million-invoice history: the old function-wrapped
+ * predicates (date(col) BETWEEN ...) against the current paths, which are half-open
+ * DateRange queries and, for revenue, the daily sales rollup.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.DateRangeBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateRangeBenchmark {
+
+    private static final int DAYS = 4 * 365;
+
+    @Param({"1000000"})
+    public int invoices;
+
+    private final InvoiceDAO invoiceDAO = new InvoiceDAO();
+    private final ReportService reportService = ReportService.getInstance();
+    private DateRange month;
+    private DateRange day;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        BenchDatabase.useTempDatabase("daterange");
+        DatabaseInitializer.initialize();
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            BenchDatabase.seedInvoices(conn, invoices, DAYS);
+        }
+        new SalesRollupDAO().rebuild();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        month = new DateRange(today.minusDays(400).withDayOfMonth(1), today.minusDays(400).withDayOfMonth(28));
+        day = new DateRange(today.minusDays(100), today.minusDays(100));
+    }
+
+    @Benchmark
+    public long salesTotalMonthLegacy() throws SQLException {
+        return sum("SELECT COALESCE(SUM(total_cents),0) FROM invoices WHERE status='PAID' "
+                + "AND date(completed_at) BETWEEN date(?) AND date(?)", month.getStart(), month.getTo().toString());
+    }
+
+    @Benchmark
+    public long salesTotalMonth() throws SQLException {
+        return reportService.getSalesTotalCents(month);
+    }
+
+    @Benchmark
+    public long todayRevenueLegacy() throws SQLException {
+        return sum("SELECT COALESCE(SUM(total_cents),0) FROM invoices WHERE status='PAID' AND date(completed_at)=date('now')");
+    }
+
+    @Benchmark
+    public long todayRevenue() throws SQLException {
+        return invoiceDAO.getTodayRevenueCents();
+    }
+
+    @Benchmark
+    public int invoicesForDayLegacy() throws SQLException {
+        String sql = "SELECT * FROM invoices WHERE date(created_at) BETWEEN date(?) AND date(?) ORDER BY created_at DESC";
+        int rows = 0;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, day.getStart());
+            ps.setString(2, day.getTo().toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int invoicesForDay() throws SQLException {
+        return invoiceDAO.findByDateRange(day).size();
+    }
+
+    private static long sum(String sql, String... params) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setString(i + 1, params[i]);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DateRangeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,96 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import com.lubesoft.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming sales exports over a year of invoices, one full export per invocation. The
+ * fork runs with a 256 MB heap, so an export that held every row would fail outright;
+ * after each iteration the rows/sec and the peak heap seen during the export are printed.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.ExcelExportBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+@State(Scope.Benchmark)
+public class ExcelExportBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int invoices;
+
+    private final ReportService reportService = ReportService.getInstance();
+    private DateRange year;
+    private Path output;
+    private int rows;
+    private long startedAt;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException, IOException {
+        BenchDatabase.useTempDatabase("export");
+        DatabaseInitializer.initialize();
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            BenchDatabase.seedInvoices(conn, invoices, 365);
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        year = new DateRange(today.minusDays(364), today);
+        output = Files.createTempFile("sales-export", ".xlsx");
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeak() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+        startedAt = System.nanoTime();
+    }
+
+    @Benchmark
+    public int exportExcel() throws Exception {
+        rows = reportService.exportSalesToExcel(year, output.toString());
+        return rows;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() throws IOException {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("%n%,d rows, %,.0f rows/sec, peak heap %,d MB, file %,d KB%n",
+                rows, rows / seconds, peak / (1024 * 1024), Files.size(output) / 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExcelExportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
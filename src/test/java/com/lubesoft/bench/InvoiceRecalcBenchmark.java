@@ -0,0 +1,71 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.model.Invoice;
+import com.lubesoft.model.InvoiceItem;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Invoice.recalculate on cents against the double stream it replaced, by line count.
+ * The legacy case keeps the old arithmetic over a copy of the same lines. Add -prof gc
+ * to compare allocation per call.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.InvoiceRecalcBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvoiceRecalcBenchmark {
+
+    private static final double TAX_RATE = 0.1;
+
+    @Param({"5", "30", "200"})
+    public int lines;
+
+    private Invoice invoice;
+    private List<LegacyLine> legacyLines;
+    private double legacyDiscount;
+
+    /** A line as it was held before cents: qty * unitPrice as a double. */
+    private record LegacyLine(double total) {}
+
+    @Setup(Level.Trial)
+    public void setup() {
+        invoice = new Invoice();
+        legacyLines = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            InvoiceItem item = new InvoiceItem(1 + i, "Product " + i, 1 + i % 3, 4_99 + i * 7L, 2_00);
+            invoice.getItems().add(item);
+            legacyLines.add(new LegacyLine(item.getQty() * item.getUnitPrice()));
+        }
+        invoice.setDiscountCents(1_50);
+        legacyDiscount = 1.5;
+    }
+
+    @Benchmark
+    public double recalculateLegacy() {
+        double subtotal = legacyLines.stream().mapToDouble(LegacyLine::total).sum();
+        double tax = subtotal * TAX_RATE;
+        return subtotal + tax - legacyDiscount;
+    }
+
+    @Benchmark
+    public long recalculate() {
+        invoice.recalculate(TAX_RATE);
+        return invoice.getTotalCents();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InvoiceRecalcBenchmark.class.getSimpleName()).build()).run();
+    }
+}
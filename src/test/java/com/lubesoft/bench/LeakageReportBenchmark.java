@@ -0,0 +1,93 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.analytics.AnalyticsStore;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The leakage aggregation over a quarter of a year's inventory transactions: the GROUP BY
+ * SQLite used to run against the live database versus a fork-join scan of the columnar
+ * store (already loaded; each call still does its incremental refresh).
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.LeakageReportBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LeakageReportBenchmark {
+
+    private static final String SQL = """
+            SELECT product_id,
+                   SUM(CASE WHEN type='SALE' THEN ABS(qty_change) ELSE 0 END) as sold,
+                   SUM(CASE WHEN type='WASTE' THEN qty_change ELSE 0 END) as waste
+            FROM inventory_transactions
+            WHERE created_at >= ? AND created_at < ?
+            GROUP BY product_id
+            """;
+
+    @Param({"1000000"})
+    public int transactions;
+
+    private DateRange quarter;
+    private AnalyticsStore store;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        BenchDatabase.useTempDatabase("leakage");
+        DatabaseInitializer.initialize();
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            BenchDatabase.seedProducts(conn, 2_000);
+            BenchDatabase.seedInventoryTransactions(conn, transactions, 2_000, 365);
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        quarter = new DateRange(today.minusDays(90), today);
+        store = AnalyticsStore.getInstance();
+        store.refresh();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    @Benchmark
+    public double sqlGroupBy() throws SQLException {
+        double sold = 0;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(SQL)) {
+            quarter.bind(ps, 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) sold += rs.getDouble(2);
+            }
+        }
+        return sold;
+    }
+
+    @Benchmark
+    public double columnarScan() throws SQLException {
+        double sold = 0;
+        for (AnalyticsStore.ProductMovement m : store.productMovement(quarter, () -> {})) sold += m.sold();
+        return sold;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LeakageReportBenchmark.class.getSimpleName()).build()).run();
+    }
+}
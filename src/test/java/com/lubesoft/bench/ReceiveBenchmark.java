@@ -0,0 +1,89 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.PurchaseOrder;
+import com.lubesoft.model.PurchaseOrder.POItem;
+import com.lubesoft.model.PurchaseOrder.ReceivedLine;
+import com.lubesoft.service.PurchaseOrderService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receiving a delivery against a fresh purchase order, by line count: the whole delivery
+ * in one PurchaseOrderService.receive call against one call per line, as receiving used
+ * to work product by product.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.ReceiveBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiveBenchmark {
+
+    private static final int PRODUCTS = 1_000;
+
+    @Param({"10", "100", "500"})
+    public int lines;
+
+    private final PurchaseOrderService service = PurchaseOrderService.getInstance();
+    private int poId;
+    private List<ReceivedLine> delivery;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws SQLException {
+        BenchDatabase.useTempDatabase("receive");
+        DatabaseInitializer.initialize();
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            BenchDatabase.seedProducts(conn, PRODUCTS);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupOrder() throws SQLException {
+        PurchaseOrder po = new PurchaseOrder();
+        delivery = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            POItem item = new POItem();
+            item.setProductId(1 + i % PRODUCTS);
+            item.setQtyOrdered(12);
+            item.setUnitCostCents(4_75);
+            po.getItems().add(item);
+            delivery.add(new ReceivedLine(item.getProductId(), 12, 4_75));
+        }
+        poId = service.createOrder(po).getId();
+    }
+
+    @Benchmark
+    public void receiveDelivery() throws SQLException {
+        service.receive(poId, delivery);
+    }
+
+    @Benchmark
+    public void receivePerLine() throws SQLException {
+        for (ReceivedLine line : delivery) {
+            service.receive(poId, List.of(line));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReceiveBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product search on a 50k SKU catalog: the old leading-wildcard LIKE scan against the
+ * products_fts prefix search used by ProductDAO.search.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.SearchBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private static final int PRODUCTS = 50_000;
+
+    @Param({"4213", "Product 4213"})
+    public String query;
+
+    private final ProductDAO productDAO = new ProductDAO();
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        BenchDatabase.useTempDatabase("search");
+        DatabaseInitializer.initialize();
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            BenchDatabase.seedProducts(conn, PRODUCTS);
+        }
+    }
+
+    @Benchmark
+    public int likeScan() throws SQLException {
+        String sql = "SELECT * FROM products WHERE name LIKE ? OR sku LIKE ? OR barcode LIKE ? OR category LIKE ? ORDER BY name";
+        String pattern = "%" + query + "%";
+        int rows = 0;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= 4; i++) ps.setString(i, pattern);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int ftsSearch() throws SQLException {
+        return productDAO.search(query).size();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.lubesoft.bench;
+
+import com.lubesoft.db.ConnectionPool;
+import com.lubesoft.db.DatabaseInitializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan-to-line-item path (barcode lookup + invoice_items insert) with and without the
+ * per-connection statement cache.
+ *
+ * Run: mvn test-compile exec:java -Dexec.classpathScope=test
+ *        -Dexec.mainClass=com.lubesoft.bench.StatementCacheBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementCacheBenchmark {
+
+    private static final int PRODUCTS = 5_000;
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private ConnectionPool pool;
+    private int invoiceId;
+    private int scan;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        BenchDatabase.useTempDatabase("stmt-cache");
+        DatabaseInitializer.initialize();
+        pool = new ConnectionPool(BenchDatabase.url(), 2, 60_000, statementCacheSize);
+        try (Connection conn = pool.getWriteConnection()) {
+            BenchDatabase.seedProducts(conn, PRODUCTS);
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("INSERT INTO invoices(invoice_number,status) VALUES('BENCH-" + System.nanoTime() + "','WIP')");
+                try (ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+                    rs.next();
+                    invoiceId = rs.getInt(1);
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("\n" + pool.getMetrics());
+        pool.close();
+    }
+
+    /** Read half of the scan on its own; the insert below is dominated by the commit. */
+    @Benchmark
+    public long barcodeLookup() throws SQLException {
+        try (Connection conn = pool.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM products WHERE barcode = ?")) {
+            ps.setString(1, BenchDatabase.barcode(scan++ % PRODUCTS));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong("sell_price_cents") : 0;
+            }
+        }
+    }
+
+    @Benchmark
+    public int scanToLineItem() throws SQLException {
+        String barcode = BenchDatabase.barcode(scan++ % PRODUCTS);
+        int productId;
+        String name;
+        long price;
+        long cost;
+        try (Connection conn = pool.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT * FROM products WHERE barcode = ?")) {
+            ps.setString(1, barcode);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                productId = rs.getInt("id");
+                name = rs.getString("name");
+                price = rs.getLong("sell_price_cents");
+                cost = rs.getLong("cost_price_cents");
+            }
+        }
+        try (Connection conn = pool.getWriteConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO invoice_items(invoice_id,product_id,description,qty,unit_price_cents,cost_price_cents,total_cents) VALUES(?,?,?,?,?,?,?)")) {
+            ps.setInt(1, invoiceId);
+            ps.setInt(2, productId);
+            ps.setString(3, name);
+            ps.setDouble(4, 1);
+            ps.setLong(5, price);
+            ps.setLong(6, cost);
+            ps.setLong(7, price);
+            return ps.executeUpdate();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(StatementCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -2,8 +2,13 @@ package com.lubesoft.dao;
 
 import com.lubesoft.db.DatabaseInitializer;
 import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import com.lubesoft.model.InventoryTransaction;
 import com.lubesoft.model.Invoice;
 import com.lubesoft.model.InvoiceItem;
+import com.lubesoft.model.InvoiceTotals;
+import com.lubesoft.model.Product;
+import com.lubesoft.model.SalesSummary;
 import org.junit.jupiter.api.*;
 
 import java.sql.Connection;
@@ -60,7 +65,7 @@ class InvoiceDAOTest {
     @Order(3)
     void testAddItem() throws SQLException {
         Assumptions.assumeTrue(testInvoiceId > 0, "Skipping: invoice not created");
-        InvoiceItem item = new InvoiceItem(0, "Oil Change Service", 1, 49.99, 15.00);
+        InvoiceItem item = new InvoiceItem(0, "Oil Change Service", 1, 49_99, 15_00);
         InvoiceItem saved = invoiceDAO.addItem(testInvoiceId, item);
         assertTrue(saved.getId() > 0, "Item should have a generated ID");
         assertEquals("Oil Change Service", saved.getDescription());
@@ -98,11 +103,11 @@ class InvoiceDAOTest {
     void testCheckoutTransaction() throws SQLException {
         Assumptions.assumeTrue(testInvoiceId > 0, "Skipping: invoice not created");
         invoiceDAO.updateStatus(testInvoiceId, "WIP");
-        invoiceDAO.updateTotals(testInvoiceId, 49.99, 0, 0, 49.99);
+        invoiceDAO.updateTotals(testInvoiceId, 49_99, 0, 0, 49_99);
 
         List<InvoiceItem> items = invoiceDAO.findItems(testInvoiceId);
         // product_id=0 items skip stock deduction
-        invoiceDAO.checkout(testInvoiceId, "CASH", 49.99, items);
+        invoiceDAO.checkout(testInvoiceId, "CASH", 49_99, items);
 
         Optional<Invoice> paid = invoiceDAO.findById(testInvoiceId);
         assertTrue(paid.isPresent());
@@ -113,8 +118,8 @@ class InvoiceDAOTest {
     @Test
     @Order(8)
     void testTodayRevenue() throws SQLException {
-        double revenue = invoiceDAO.getTodayRevenue();
-        assertTrue(revenue >= 49.99, "Today's revenue should include the test invoice");
+        long revenue = invoiceDAO.getTodayRevenueCents();
+        assertTrue(revenue >= 49_99, "Today's revenue should include the test invoice");
     }
 
     @Test
@@ -132,5 +137,112 @@ class InvoiceDAOTest {
         assertTrue(voided.isPresent());
         assertEquals("VOID", voided.get().getStatus());
     }
-}
 
+    @Test
+    @Order(10)
+    void testCheckoutAggregatesRepeatedProductLines() throws SQLException {
+        ProductDAO productDAO = new ProductDAO();
+        Product p = new Product();
+        p.setSku("TEST-SKU-" + System.currentTimeMillis());
+        p.setName("Test Filter");
+        p.setStockQty(10);
+        p = productDAO.save(p);
+
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("TEST-BATCH-" + System.currentTimeMillis());
+        inv.setStatus("WIP");
+        int invoiceId = invoiceDAO.createInvoice(inv).getId();
+        invoiceDAO.addItem(invoiceId, new InvoiceItem(p.getId(), "Test Filter", 2, 5_00, 2_00));
+        invoiceDAO.addItem(invoiceId, new InvoiceItem(p.getId(), "Test Filter", 3, 5_00, 2_00));
+
+        invoiceDAO.checkout(invoiceId, "CASH", 25_00, invoiceDAO.findItems(invoiceId));
+
+        assertEquals(5, productDAO.findById(p.getId()).orElseThrow().getStockQty(), 0.0001);
+        List<InventoryTransaction> txs = new InventoryDAO().findByProduct(p.getId());
+        assertEquals(2, txs.size(), "One inventory transaction per invoice line");
+        assertEquals(-5, txs.stream().mapToDouble(InventoryTransaction::getQtyChange).sum(), 0.0001);
+    }
+
+    @Test
+    @Order(11)
+    void testIncrementalTotals() throws SQLException {
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("TEST-TOTALS-" + System.currentTimeMillis());
+        inv.setStatus("WIP");
+        int invoiceId = invoiceDAO.createInvoice(inv).getId();
+
+        InvoiceTotals t = invoiceDAO.addItem(invoiceId, new InvoiceItem(0, "Labour", 2, 10_00, 0), 0.1);
+        assertTrue(t.getItem().getId() > 0);
+        assertEquals(20_00, t.getSubtotalCents());
+        t = invoiceDAO.addItem(invoiceId, new InvoiceItem(0, "Wipers", 1, 5_00, 0), 0.1);
+        int wipersId = t.getItem().getId();
+        assertEquals(25_00, t.getSubtotalCents());
+        assertEquals(2_50, t.getTaxCents());
+        assertEquals(27_50, t.getTotalCents());
+
+        t = invoiceDAO.applyDiscount(invoiceId, 1_50, 0.1);
+        assertEquals(26_00, t.getTotalCents());
+
+        t = invoiceDAO.removeItem(invoiceId, wipersId, 0.1);
+        assertEquals(20_00, t.getSubtotalCents());
+        assertEquals(20_50, t.getTotalCents());
+
+        Invoice stored = invoiceDAO.findById(invoiceId).orElseThrow();
+        assertEquals(20_50, stored.getTotalCents());
+        assertEquals(1, stored.getItems().size());
+    }
+
+    @Test
+    @Order(12)
+    void testSalesRollupFollowsCheckoutAndVoid() throws SQLException {
+        SalesRollupDAO rollup = new SalesRollupDAO();
+        DateRange today = DateRange.today();
+        SalesSummary before = rollup.getSummary(today);
+
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("TEST-ROLLUP-" + System.currentTimeMillis());
+        inv.setStatus("WIP");
+        int invoiceId = invoiceDAO.createInvoice(inv).getId();
+        invoiceDAO.addItem(invoiceId, new InvoiceItem(0, "Labour", 2, 20_00, 4_00), 0.1);
+        invoiceDAO.checkout(invoiceId, "CASH", 44_00, invoiceDAO.findItems(invoiceId));
+
+        SalesSummary paid = rollup.getSummary(today);
+        assertEquals(before.getInvoiceCount() + 1, paid.getInvoiceCount());
+        assertEquals(before.getRevenueCents() + 44_00, paid.getRevenueCents());
+        assertEquals(before.getTaxCents() + 4_00, paid.getTaxCents());
+        assertEquals(before.getCostCents() + 8_00, paid.getCostCents());
+        assertEquals(paid.getRevenueCents(), invoiceDAO.getTodayRevenueCents());
+
+        rollup.rebuild(today);
+        assertEquals(paid.getRevenueCents(), rollup.getSummary(today).getRevenueCents(),
+                "Rebuild should reproduce the incrementally maintained totals");
+
+        invoiceDAO.voidInvoice(invoiceId, invoiceDAO.findItems(invoiceId));
+        SalesSummary voided = rollup.getSummary(today);
+        assertEquals(before.getInvoiceCount(), voided.getInvoiceCount());
+        assertEquals(before.getRevenueCents(), voided.getRevenueCents());
+    }
+
+    @Test
+    @Order(13)
+    void testStoredTotalsMatchRecalculate() throws SQLException {
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("TEST-CENTS-" + System.currentTimeMillis());
+        inv.setStatus("WIP");
+        int invoiceId = invoiceDAO.createInvoice(inv).getId();
+        double rate = 0.0825;
+        invoiceDAO.addItem(invoiceId, new InvoiceItem(0, "Coolant", 3, 3_33, 0), rate);
+        invoiceDAO.addItem(invoiceId, new InvoiceItem(0, "Bulk Oil", 4.7, 6_49, 0), rate);
+        InvoiceTotals t = invoiceDAO.applyDiscount(invoiceId, 99, rate);
+
+        Invoice stored = invoiceDAO.findById(invoiceId).orElseThrow();
+        stored.recalculate(rate);
+        // 9.99 + 30.503 -> 30.50, tax on 40.49 at 8.25% is 3.340425 -> 3.34
+        assertEquals(40_49, stored.getSubtotalCents());
+        assertEquals(3_34, stored.getTaxCents());
+        assertEquals(stored.getSubtotalCents(), t.getSubtotalCents());
+        assertEquals(stored.getTaxCents(), t.getTaxCents());
+        assertEquals(stored.getTotalCents(), t.getTotalCents());
+        assertEquals(42_84, t.getTotalCents());
+    }
+}
@@ -0,0 +1,106 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.model.DateRange;
+import com.lubesoft.model.Invoice;
+import com.lubesoft.model.PageCursor;
+import com.lubesoft.model.Product;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagingDAOTest {
+
+    private static final String TAG = "pg" + Long.toString(System.currentTimeMillis(), 36);
+
+    private static ProductDAO productDAO;
+    private static InvoiceDAO invoiceDAO;
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        DatabaseInitializer.initialize();
+        productDAO = new ProductDAO();
+        invoiceDAO = new InvoiceDAO();
+
+        // Same name on several rows so pages must break ties on id
+        for (int i = 0; i < 7; i++) {
+            Product p = new Product();
+            p.setName("Paging Oil " + TAG);
+            p.setSku(TAG + "-" + i);
+            productDAO.save(p);
+        }
+        for (int i = 0; i < 5; i++) {
+            Invoice inv = new Invoice();
+            inv.setInvoiceNumber(TAG + "-INV-" + i);
+            inv.setStatus("OPEN");
+            invoiceDAO.createInvoice(inv);
+        }
+    }
+
+    @Test
+    void testProductPagesWalkWholeTableInOrder() throws SQLException {
+        List<Product> walked = new ArrayList<>();
+        PageCursor cursor = null;
+        List<Product> page;
+        do {
+            page = productDAO.findPage(cursor, 3);
+            assertTrue(page.size() <= 3);
+            walked.addAll(page);
+            if (!page.isEmpty()) cursor = ProductDAO.cursorOf(page.get(page.size() - 1));
+        } while (page.size() == 3);
+
+        assertEquals(productDAO.count(), walked.size());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < walked.size(); i++) {
+            assertTrue(ids.add(walked.get(i).getId()), "Row repeated across pages");
+            if (i > 0) {
+                Product prev = walked.get(i - 1);
+                Product cur = walked.get(i);
+                int byName = prev.getName().compareTo(cur.getName());
+                assertTrue(byName < 0 || (byName == 0 && prev.getId() < cur.getId()), "Out of order at " + i);
+            }
+        }
+    }
+
+    @Test
+    void testCursorAtJumpsToOffset() throws SQLException {
+        List<Product> firstRows = productDAO.findPage(null, 10);
+        assertNull(productDAO.cursorAt(0));
+        PageCursor at4 = productDAO.cursorAt(4);
+        assertEquals(ProductDAO.cursorOf(firstRows.get(3)), at4);
+        assertEquals(firstRows.subList(4, 10).stream().map(Product::getId).toList(),
+                productDAO.findPage(at4, 6).stream().map(Product::getId).toList());
+        assertNull(productDAO.cursorAt(productDAO.count() + 1));
+    }
+
+    @Test
+    void testInvoicePagesAreNewestFirst() throws SQLException {
+        DateRange today = DateRange.today();
+        List<Invoice> walked = new ArrayList<>();
+        PageCursor cursor = null;
+        List<Invoice> page;
+        do {
+            page = invoiceDAO.findPageByDateRange(today, cursor, 2);
+            walked.addAll(page);
+            if (!page.isEmpty()) cursor = InvoiceDAO.cursorOf(page.get(page.size() - 1));
+        } while (page.size() == 2);
+
+        assertEquals(invoiceDAO.countByDateRange(today), walked.size());
+        assertTrue(walked.size() >= 5);
+        for (int i = 1; i < walked.size(); i++) {
+            Invoice prev = walked.get(i - 1);
+            Invoice cur = walked.get(i);
+            int byDate = prev.getCreatedAt().compareTo(cur.getCreatedAt());
+            assertTrue(byDate > 0 || (byDate == 0 && prev.getId() > cur.getId()), "Out of order at " + i);
+        }
+        PageCursor at3 = invoiceDAO.cursorAt(today, 3);
+        assertEquals(walked.get(3).getId(), invoiceDAO.findPageByDateRange(today, at3, 1).get(0).getId());
+    }
+}
@@ -0,0 +1,166 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.Customer;
+import com.lubesoft.model.Invoice;
+import com.lubesoft.service.ReceivablesService;
+import com.lubesoft.service.ReportService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReceivablesDAOTest {
+
+    private static final LocalDate TODAY = LocalDate.now(ZoneOffset.UTC);
+
+    private static ReceivablesDAO receivablesDAO;
+    private static InvoiceDAO invoiceDAO;
+    private static CustomerDAO customerDAO;
+
+    @BeforeAll
+    static void setup() {
+        DatabaseInitializer.initialize();
+        receivablesDAO = new ReceivablesDAO();
+        invoiceDAO = new InvoiceDAO();
+        customerDAO = new CustomerDAO();
+    }
+
+    @Test
+    void testPaymentSettlesOldestChargeFirst() throws SQLException {
+        int customerId = newCustomer("Aging Fleet");
+        int older = creditInvoice(customerId, 100_00, 0);
+        creditInvoice(customerId, 50_00, 20_00);
+        assertEquals(130_00, receivablesDAO.getBalanceCents(customerId));
+        assertEquals(130_00, findCustomer(customerId).getBalanceCents());
+
+        age(older, 45);
+        receivablesDAO.rollBuckets(TODAY);
+        assertArrayEquals(new long[]{30_00, 100_00, 0, 0}, buckets(customerId));
+        assertTrue(agingNames("31-60").contains("Aging Fleet"), "Placed by its oldest open charge");
+
+        assertEquals(20_00, receivablesDAO.postPayment(customerId, 110_00, "Cheque"));
+        assertArrayEquals(new long[]{20_00, 0, 0, 0}, buckets(customerId));
+        assertEquals(20_00, findCustomer(customerId).getBalanceCents());
+        assertFalse(agingNames("31-60").contains("Aging Fleet"));
+        assertTotalsMatchCustomers();
+    }
+
+    @Test
+    void testOverpaymentIsRejected() throws SQLException {
+        int customerId = newCustomer("Overpayer");
+        creditInvoice(customerId, 40_00, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> receivablesDAO.postPayment(customerId, 40_01, null));
+        assertThrows(IllegalArgumentException.class, () -> receivablesDAO.postPayment(customerId, 0, null));
+        assertEquals(40_00, receivablesDAO.getBalanceCents(customerId));
+    }
+
+    @Test
+    void testCashCheckoutAndVoidLeaveNoBalance() throws SQLException {
+        int customerId = newCustomer("Voided Credit");
+        Invoice cash = newInvoice(customerId, 25_00);
+        invoiceDAO.checkout(cash.getId(), "CASH", 25_00, List.of());
+        assertEquals(0, receivablesDAO.getBalanceCents(customerId));
+
+        int credit = creditInvoice(customerId, 60_00, 0);
+        receivablesDAO.postPayment(customerId, 15_00, null);
+        invoiceDAO.voidInvoice(credit, List.of());
+
+        assertEquals(0, receivablesDAO.getBalanceCents(customerId));
+        assertEquals(0, findCustomer(customerId).getBalanceCents());
+        assertTotalsMatchCustomers();
+    }
+
+    @Test
+    void testRollCatchesUpMissedDaysOnce() throws SQLException {
+        int customerId = newCustomer("Long Overdue");
+        int invoice = creditInvoice(customerId, 75_00, 0);
+        age(invoice, 100);
+        long[] before = receivablesDAO.getAgingTotals();
+
+        assertTrue(receivablesDAO.rollBuckets(TODAY) >= 3, "One move per boundary crossed");
+        assertArrayEquals(new long[]{0, 0, 0, 75_00}, buckets(customerId));
+        long[] after = receivablesDAO.getAgingTotals();
+        assertEquals(before[0] - 75_00, after[0]);
+        assertEquals(before[3] + 75_00, after[3]);
+
+        assertEquals(TODAY, receivablesDAO.getRolledOn());
+        assertEquals(0, ReceivablesService.getInstance().rollIfDue(TODAY));
+        assertTotalsMatchCustomers();
+    }
+
+    private static int newCustomer(String name) throws SQLException {
+        Customer c = new Customer();
+        c.setName(name + " " + System.nanoTime());
+        return customerDAO.save(c).getId();
+    }
+
+    private static Customer findCustomer(int id) throws SQLException {
+        return customerDAO.findById(id).orElseThrow();
+    }
+
+    private static Invoice newInvoice(int customerId, long totalCents) throws SQLException {
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("AR-" + System.nanoTime());
+        inv.setCustomerId(customerId);
+        inv.setSubtotalCents(totalCents);
+        inv.setTotalCents(totalCents);
+        return invoiceDAO.createInvoice(inv);
+    }
+
+    private static int creditInvoice(int customerId, long totalCents, long paidCents) throws SQLException {
+        Invoice inv = newInvoice(customerId, totalCents);
+        invoiceDAO.checkout(inv.getId(), "CREDIT", paidCents, List.of());
+        return inv.getId();
+    }
+
+    /** Backdates an invoice's charge as if it were taken {@code days} ago. */
+    private static void age(int invoiceId, int days) throws SQLException {
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE receivables_ledger SET charged_on=? WHERE invoice_id=?")) {
+                ps.setString(1, TODAY.minusDays(days).toString());
+                ps.setInt(2, invoiceId);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    private static long[] buckets(int customerId) throws SQLException {
+        long[] amounts = new long[4];
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT bucket, amount_cents FROM credit_aging WHERE customer_id=?")) {
+            ps.setInt(1, customerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) amounts[rs.getInt(1)] = rs.getLong(2);
+            }
+        }
+        return amounts;
+    }
+
+    private static List<String> agingNames(String bucket) throws SQLException {
+        Map<String, List<Customer>> aging = ReportService.getInstance().getCreditAging();
+        return aging.get(bucket).stream().map(c -> c.getName().replaceAll(" \\d+$", "")).toList();
+    }
+
+    private static void assertTotalsMatchCustomers() throws SQLException {
+        String sql = """
+            SELECT t.bucket, t.amount_cents, (SELECT COALESCE(SUM(amount_cents), 0) FROM credit_aging
+                                              WHERE customer_id > 0 AND bucket = t.bucket)
+            FROM credit_aging t WHERE t.customer_id = 0""";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                assertEquals(rs.getLong(3), rs.getLong(2), "Totals for bucket " + rs.getInt(1));
+            }
+        }
+    }
+}
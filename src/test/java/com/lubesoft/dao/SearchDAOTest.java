@@ -0,0 +1,88 @@
+package com.lubesoft.dao;
+
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.model.Customer;
+import com.lubesoft.model.Product;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SearchDAOTest {
+
+    // Unique token per run so rows left by earlier runs do not interfere
+    private static final String TAG = "zq" + Long.toString(System.currentTimeMillis(), 36);
+
+    private static ProductDAO productDAO;
+    private static CustomerDAO customerDAO;
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        DatabaseInitializer.initialize();
+        productDAO = new ProductDAO();
+        customerDAO = new CustomerDAO();
+
+        productDAO.save(product(TAG + " Synthetic 5W-30", "Oil", TAG + "-A"));
+        productDAO.save(product("Oil Filter", TAG + "-filters", TAG + "-B"));
+        for (int i = 0; i < 5; i++) {
+            productDAO.save(product(TAG + " Bulk " + i, "Oil", TAG + "-C" + i));
+        }
+    }
+
+    private static Product product(String name, String category, String sku) {
+        Product p = new Product();
+        p.setName(name);
+        p.setCategory(category);
+        p.setSku(sku);
+        return p;
+    }
+
+    @Test
+    @Order(1)
+    void testPrefixSearchRanksNameAboveCategory() throws SQLException {
+        List<Product> results = productDAO.search(TAG.substring(0, TAG.length() - 1));
+        assertEquals(7, results.size());
+        assertNotEquals("Oil Filter", results.get(0).getName(), "Name matches should rank first");
+        assertEquals("Oil Filter", results.get(results.size() - 1).getName());
+    }
+
+    @Test
+    @Order(2)
+    void testAllWordsMustMatch() throws SQLException {
+        List<Product> results = productDAO.search(TAG + " 5w");
+        assertEquals(1, results.size());
+        assertEquals(TAG + " Synthetic 5W-30", results.get(0).getName());
+    }
+
+    @Test
+    @Order(3)
+    void testLimitAndUpdateSync() throws SQLException {
+        assertEquals(3, productDAO.search(TAG + " bulk", 3).size());
+
+        Product p = productDAO.search(TAG + " synthetic").get(0);
+        p.setName(TAG + " Mineral 20W-50");
+        productDAO.save(p);
+        assertTrue(productDAO.search(TAG + " synthetic").isEmpty(), "Old name should be gone from the index");
+        assertEquals(1, productDAO.search(TAG + " miner").size());
+    }
+
+    @Test
+    @Order(4)
+    void testCustomerSearchAndDelete() throws SQLException {
+        Customer c = new Customer();
+        c.setName("Jordan " + TAG);
+        c.setPhone("555-0199");
+        c.setCompany(TAG + " Fleet Services");
+        c = customerDAO.save(c);
+
+        assertEquals(1, customerDAO.search("jor " + TAG).size());
+        assertEquals(1, customerDAO.search(TAG + " fleet").size());
+        assertTrue(customerDAO.search("--").isEmpty(), "Punctuation only should not match anything");
+
+        customerDAO.delete(c.getId());
+        assertTrue(customerDAO.search(TAG).isEmpty());
+    }
+}
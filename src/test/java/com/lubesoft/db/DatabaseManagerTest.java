@@ -80,4 +80,121 @@ class DatabaseManagerTest {
         DatabaseManager b = DatabaseManager.getInstance();
         assertSame(a, b, "DatabaseManager should be a singleton");
     }
+
+    @Test
+    @Order(6)
+    void testReaderConnectionsAreReused() throws SQLException {
+        DatabaseManager db = DatabaseManager.getInstance();
+        try (Connection warm = db.getReadConnection()) {
+            assertNotNull(warm);
+        }
+        long created = db.getPoolMetrics().getConnectionsCreated();
+        for (int i = 0; i < 20; i++) {
+            try (Connection conn = db.getReadConnection()) {
+                assertFalse(conn.isClosed());
+            }
+        }
+        assertEquals(created, db.getPoolMetrics().getConnectionsCreated(),
+                "Sequential reads should reuse a pooled connection");
+        assertEquals(0, db.getPoolMetrics().getInUse(), "All handles should be returned");
+    }
+
+    @Test
+    @Order(7)
+    void testPragmasAppliedToReaders() throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             var st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("PRAGMA foreign_keys")) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1), "Foreign keys should be enabled on readers");
+            }
+            try (ResultSet rs = st.executeQuery("PRAGMA query_only")) {
+                assertTrue(rs.next());
+                assertEquals(1, rs.getInt(1), "Readers should be query-only");
+            }
+        }
+    }
+
+    @Test
+    @Order(8)
+    void testReadInsideWriteSeesUncommittedChanges() throws SQLException {
+        DatabaseManager db = DatabaseManager.getInstance();
+        try (Connection writer = db.getWriteConnection()) {
+            writer.setAutoCommit(false);
+            try (var ps = writer.prepareStatement("UPDATE license_info SET machine_id=machine_id || '#'")) {
+                ps.executeUpdate();
+            }
+            try (Connection nested = db.getReadConnection();
+                 var st = nested.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT machine_id FROM license_info LIMIT 1")) {
+                assertTrue(rs.next());
+                assertTrue(rs.getString(1).endsWith("#"), "Nested read should run on the writer");
+            }
+            // Closing the outer handle rolls back the open transaction
+        }
+        try (Connection conn = db.getReadConnection();
+             var st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT machine_id FROM license_info LIMIT 1")) {
+            assertTrue(rs.next());
+            assertFalse(rs.getString(1).endsWith("#"), "Uncommitted change should be rolled back on release");
+        }
+    }
+
+    @Test
+    @Order(9)
+    void testPreparedStatementsAreCachedPerConnection() throws SQLException {
+        DatabaseManager db = DatabaseManager.getInstance();
+        String sql = "SELECT COUNT(*) FROM users WHERE role = ?";
+        try (Connection conn = db.getReadConnection()) {
+            try (var ps = conn.prepareStatement(sql)) {
+                ps.setString(1, "ADMIN");
+                ps.executeQuery().close();
+            }
+            long hits = db.getPoolMetrics().getStatementCacheHits();
+            try (var ps = conn.prepareStatement(sql)) {
+                ps.setString(1, "ADMIN");
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertTrue(rs.getInt(1) >= 1);
+                }
+            }
+            assertEquals(hits + 1, db.getPoolMetrics().getStatementCacheHits(),
+                    "Second prepare of the same SQL should hit the cache");
+        }
+    }
+
+    @Test
+    @Order(10)
+    void testReadSnapshotDoesNotSeeLaterCommits() throws SQLException {
+        DatabaseManager db = DatabaseManager.getInstance();
+        String tag = "snap-" + System.nanoTime();
+        String count = "SELECT COUNT(*) FROM users WHERE username LIKE 'snap-%'";
+        int[] seen = db.readSnapshot(conn -> {
+            int before = countOf(conn, count);
+            db.write(w -> {
+                try (var st = w.createStatement()) {
+                    st.executeUpdate("INSERT INTO users(username,password_hash,role) VALUES('" + tag + "','x','TECHNICIAN')");
+                }
+                return null;
+            });
+            // A nested read on this thread joins the snapshot rather than taking a fresh one
+            try (Connection nested = db.getReadConnection()) {
+                return new int[]{before, countOf(conn, count), countOf(nested, count)};
+            }
+        });
+
+        assertEquals(seen[0], seen[1], "Snapshot must not see a commit made after it started");
+        assertEquals(seen[0], seen[2]);
+        try (Connection conn = db.getReadConnection()) {
+            assertEquals(seen[0] + 1, countOf(conn, count));
+            assertTrue(conn.getAutoCommit(), "Reader is back in autocommit after the snapshot");
+        }
+    }
+
+    private static int countOf(Connection conn, String sql) throws SQLException {
+        try (var st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
 }
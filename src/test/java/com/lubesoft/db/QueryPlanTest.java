@@ -0,0 +1,149 @@
+package com.lubesoft.db;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the hot DAO queries against falling back to full table scans. Each statement
+ * is run through EXPLAIN QUERY PLAN; a bare "SCAN table" step fails the test. Keep the
+ * SQL here in step with the DAOs when either side changes.
+ */
+class QueryPlanTest {
+
+    static final String[] HOT_QUERIES = {
+            "SELECT * FROM invoice_items WHERE invoice_id=?",
+            "SELECT * FROM invoices WHERE status=? ORDER BY created_at DESC",
+            "SELECT * FROM invoices WHERE status='PAID' ORDER BY completed_at DESC LIMIT ?",
+            "SELECT * FROM invoices WHERE invoice_number = ?",
+            "SELECT * FROM inventory_transactions WHERE product_id=? ORDER BY created_at DESC",
+            "SELECT * FROM vehicles WHERE customer_id = ? ORDER BY year DESC",
+            "SELECT * FROM service_history WHERE vehicle_id=? ORDER BY service_date DESC",
+            "SELECT * FROM time_entries WHERE user_id=? AND clock_out IS NULL ORDER BY clock_in DESC LIMIT 1",
+            "SELECT * FROM time_entries WHERE user_id=? ORDER BY clock_in DESC",
+            "SELECT * FROM customers WHERE balance_cents > 0 ORDER BY balance_cents DESC",
+            "SELECT * FROM products WHERE barcode = ?",
+            "SELECT * FROM products WHERE sku = ?",
+            "SELECT p.* FROM products_fts f JOIN products p ON p.id = f.rowid WHERE products_fts MATCH ? "
+                    + "ORDER BY bm25(products_fts, 10.0, 5.0, 5.0, 1.0), p.name LIMIT ?",
+            "SELECT * FROM invoices WHERE created_at >= ? AND created_at < ? ORDER BY created_at DESC",
+            "SELECT COALESCE(SUM(invoice_count),0), COALESCE(SUM(revenue_cents),0), COALESCE(SUM(tax_cents),0), "
+                    + "COALESCE(SUM(discount_cents),0), COALESCE(SUM(cost_cents),0) FROM daily_sales_rollup WHERE day >= ? AND day < ?",
+            "SELECT * FROM inventory_transactions WHERE created_at >= ? AND created_at < ? ORDER BY created_at DESC",
+            "SELECT * FROM time_entries WHERE clock_in >= ? AND clock_in < ? ORDER BY clock_in DESC",
+            "SELECT id, customer_id, bucket, open_cents FROM receivables_ledger "
+                    + "WHERE customer_id=? AND open_cents > 0 ORDER BY charged_on, id",
+            "UPDATE receivables_ledger SET bucket = ? WHERE open_cents > 0 AND bucket = ? AND charged_on < ?",
+            "SELECT bucket, amount_cents FROM credit_aging WHERE customer_id = ?",
+            // Analytics store refresh: new rows by rowid, changed days by timestamp
+            "SELECT rowid, created_at, product_id, type, qty_change FROM inventory_transactions WHERE 1 AND rowid > ? AND rowid <= ?",
+            "SELECT rowid, created_at, product_id, type, qty_change FROM inventory_transactions "
+                    + "WHERE 1 AND created_at >= ? AND created_at < ? AND rowid <= ?",
+            "SELECT rowid, completed_at, COALESCE(technician_id, 0), status, total_cents FROM invoices "
+                    + "WHERE completed_at IS NOT NULL AND completed_at >= ? AND completed_at < ? AND rowid <= ?",
+            "SELECT rowid, clock_in, user_id, clock_in, clock_out FROM time_entries "
+                    + "WHERE 1 AND clock_in >= ? AND clock_in < ? AND rowid <= ?",
+            "SELECT id, name, sku, stock_qty FROM products WHERE id IN (1,2,3)",
+    };
+
+    /** Keyset page reads must seek into the index and read it in order, never sort. */
+    static final String[] KEYSET_QUERIES = {
+            "SELECT * FROM products WHERE (name, id) > (?, ?) ORDER BY name, id LIMIT ?",
+            "SELECT * FROM customers WHERE (name, id) > (?, ?) ORDER BY name, id LIMIT ?",
+            "SELECT * FROM invoices WHERE created_at >= ? AND created_at < ? AND (created_at, id) < (?, ?) "
+                    + "ORDER BY created_at DESC, id DESC LIMIT ?",
+    };
+
+    /** Report queries legitimately scan small dimension tables, but never the fact tables. */
+    static final String[] REPORT_QUERIES = {
+            """
+            SELECT c.*, MAX(a.bucket) as oldest_bucket
+            FROM credit_aging a
+            JOIN customers c ON c.id = a.customer_id
+            WHERE a.amount_cents > 0
+            GROUP BY c.id
+            """,
+            "SELECT id, username FROM users WHERE active=1",
+    };
+
+    private static final List<String> FACT_TABLES = List.of("invoices", "i", "invoice_items",
+            "inventory_transactions", "it", "time_entries");
+
+    @BeforeAll
+    static void setup() {
+        DatabaseInitializer.initialize();
+    }
+
+    @Test
+    void testSchemaIsAtLatestVersion() throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+            assertEquals(SchemaMigrator.latestVersion(), SchemaMigrator.currentVersion(conn));
+        }
+    }
+
+    @TestFactory
+    Stream<DynamicTest> testHotQueriesUseIndexes() {
+        return Stream.of(HOT_QUERIES).map(sql -> DynamicTest.dynamicTest(sql, () -> {
+            List<String> plan = explain(sql);
+            for (String step : plan) {
+                assertFalse(isFullScan(step), "Full table scan in plan " + plan + " for: " + sql);
+            }
+        }));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> testKeysetQueriesSeekWithoutSorting() {
+        return Stream.of(KEYSET_QUERIES).map(sql -> DynamicTest.dynamicTest(sql, () -> {
+            List<String> plan = explain(sql);
+            assertTrue(plan.stream().anyMatch(step -> step.startsWith("SEARCH ")), "No index seek in plan " + plan);
+            assertFalse(plan.stream().anyMatch(step -> step.contains("TEMP B-TREE")), "Sort step in plan " + plan);
+        }));
+    }
+
+    @TestFactory
+    Stream<DynamicTest> testReportQueriesDoNotScanFactTables() {
+        return Stream.of(REPORT_QUERIES).map(sql -> DynamicTest.dynamicTest(sql.strip().lines().findFirst().orElse(sql), () -> {
+            List<String> plan = explain(sql);
+            for (String step : plan) {
+                if (isFullScan(step)) {
+                    assertFalse(FACT_TABLES.contains(step.substring("SCAN ".length()).trim()),
+                            "Fact table scan in plan " + plan);
+                }
+            }
+        }));
+    }
+
+    @Test
+    void testDetectsFullScan() throws SQLException {
+        assertTrue(explain("SELECT * FROM invoices WHERE notes = ?").stream().anyMatch(QueryPlanTest::isFullScan),
+                "Unindexed filter should be reported as a scan");
+    }
+
+    static boolean isFullScan(String step) {
+        return step.startsWith("SCAN ") && !step.contains(" USING ") && !step.contains("VIRTUAL TABLE");
+    }
+
+    static List<String> explain(String sql) throws SQLException {
+        List<String> steps = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement ps = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            int params = ps.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= params; i++) ps.setObject(i, null);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) steps.add(rs.getString("detail"));
+            }
+        }
+        return steps;
+    }
+}
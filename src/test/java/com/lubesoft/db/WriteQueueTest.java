@@ -0,0 +1,196 @@
+package com.lubesoft.db;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.model.Invoice;
+import com.lubesoft.model.InvoiceItem;
+import com.lubesoft.model.Product;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteQueueTest {
+
+    private static ConnectionPool pool;
+    private static WriteQueue queue;
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        DatabaseInitializer.initialize();
+        // A private database so batch composition is not disturbed by other tests
+        File file = new File("target/test-db/write-queue.db");
+        file.getParentFile().mkdirs();
+        file.delete();
+        pool = new ConnectionPool("jdbc:sqlite:" + file.getPath(), 2, 60_000, 16);
+        queue = new WriteQueue(pool, 64, 32, 5_000);
+        try (Connection conn = pool.getWriteConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE notes(id INTEGER PRIMARY KEY, body TEXT NOT NULL)");
+        }
+    }
+
+    @AfterAll
+    static void tearDown() {
+        queue.close();
+        pool.close();
+    }
+
+    @Test
+    void testConcurrentCheckoutsCommitWithoutBusyErrors() throws Exception {
+        ProductDAO productDAO = new ProductDAO();
+        InvoiceDAO invoiceDAO = new InvoiceDAO();
+        Product p = new Product();
+        p.setSku("TEST-WQ-" + System.currentTimeMillis());
+        p.setName("Write Queue Oil");
+        p.setStockQty(1000);
+        int productId = productDAO.save(p).getId();
+
+        WriteQueue shared = DatabaseManager.getInstance().getWriteQueue();
+        long failedBefore = shared.getUnitsFailed();
+        long batchesBefore = shared.getBatchesCommitted();
+        int threads = 8;
+        int perThread = 25;
+        String prefix = "TEST-WQ-" + System.nanoTime() + "-";
+        ExecutorService terminals = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int terminal = t;
+            results.add(terminals.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Invoice inv = new Invoice();
+                    inv.setInvoiceNumber(prefix + terminal + "-" + i);
+                    inv.setStatus("WIP");
+                    int invoiceId = invoiceDAO.createInvoice(inv).getId();
+                    invoiceDAO.addItem(invoiceId, new InvoiceItem(productId, "Write Queue Oil", 1, 9_00, 4_00), 0.1);
+                    invoiceDAO.checkout(invoiceId, "CASH", 9_90, invoiceDAO.findItems(invoiceId));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : results) f.get(120, TimeUnit.SECONDS);
+        terminals.shutdown();
+
+        assertEquals(1000 - threads * perThread,
+                productDAO.findById(productId).orElseThrow().getStockQty(), 0.0001,
+                "Every checkout should have moved stock exactly once");
+        assertEquals(failedBefore, shared.getUnitsFailed(), "No unit of work should fail");
+        assertTrue(shared.getBatchesCommitted() > batchesBefore);
+        assertEquals(0, shared.getBusyRetries(), "In-process writers should never see SQLITE_BUSY");
+    }
+
+    @Test
+    void testFailingUnitRollsBackAlone() throws Exception {
+        long batchesBefore = queue.getBatchesCommitted();
+        // Hold the writer thread so the next three units are drained into one batch
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> gate = queue.submit(conn -> {
+            running.countDown();
+            awaitQuietly(release);
+            return null;
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Integer> first = queue.submit(conn -> insertNote(conn, "kept-1"));
+        CompletableFuture<Integer> broken = queue.submit(conn -> {
+            insertNote(conn, "discarded");
+            throw new SQLException("unit failed");
+        });
+        CompletableFuture<Integer> second = queue.submit(conn -> insertNote(conn, "kept-2"));
+        release.countDown();
+
+        gate.get(10, TimeUnit.SECONDS);
+        assertEquals(1, first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, second.get(10, TimeUnit.SECONDS));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> broken.get(10, TimeUnit.SECONDS));
+        assertEquals("unit failed", e.getCause().getMessage());
+        assertEquals(batchesBefore + 2, queue.getBatchesCommitted(), "Three units should share one commit");
+
+        assertEquals(1, countNotes("kept-1"));
+        assertEquals(1, countNotes("kept-2"));
+        assertEquals(0, countNotes("discarded"), "The failed unit's insert should be rolled back");
+    }
+
+    @Test
+    void testUnitCannotEndTheSharedTransaction() {
+        SQLException e = assertThrows(SQLException.class, () -> queue.execute(conn -> {
+            conn.commit();
+            return null;
+        }));
+        assertTrue(e.getMessage().contains("commit"));
+    }
+
+    @Test
+    void testInterruptedCallerStillGetsTheCommittedResult() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue.submit(conn -> {
+            running.countDown();
+            awaitQuietly(release);
+            return null;
+        });
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Object[]> outcome = new CompletableFuture<>();
+        Thread caller = new Thread(() -> {
+            try {
+                int rows = queue.execute(conn -> insertNote(conn, "interrupted"));
+                outcome.complete(new Object[]{rows, Thread.currentThread().isInterrupted()});
+            } catch (Throwable t) {
+                outcome.completeExceptionally(t);
+            }
+        });
+        caller.start();
+        while (queue.getQueueDepth() == 0) Thread.onSpinWait();
+        caller.interrupt();
+        release.countDown();
+
+        Object[] result = outcome.get(10, TimeUnit.SECONDS);
+        assertEquals(1, result[0], "The write committed, so the caller is told it did");
+        assertEquals(true, result[1], "The interrupt is kept for the caller to act on");
+        assertEquals(1, countNotes("interrupted"));
+    }
+
+    @Test
+    void testNestedWriteRunsInline() throws Exception {
+        int rows = queue.submit(conn -> insertNote(conn, "outer") + queue.execute(inner -> insertNote(inner, "inner")))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(2, rows);
+        assertEquals(1, countNotes("inner"));
+    }
+
+    private static int insertNote(Connection conn, String body) throws SQLException {
+        try (var ps = conn.prepareStatement("INSERT INTO notes(body) VALUES(?)")) {
+            ps.setString(1, body);
+            return ps.executeUpdate();
+        }
+    }
+
+    private static int countNotes(String body) throws SQLException {
+        try (Connection conn = pool.getReadConnection();
+             var ps = conn.prepareStatement("SELECT COUNT(*) FROM notes WHERE body = ?")) {
+            ps.setString(1, body);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.lubesoft.event;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.model.Invoice;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+
+    private EventBus bus;
+
+    /** Numbered event about one aggregate. */
+    record Numbered(int aggregate, int seq) implements DomainEvent {
+        @Override
+        public long aggregateKey() {
+            return DomainEvent.key(99, aggregate);
+        }
+    }
+
+    @BeforeEach
+    void open() {
+        bus = new EventBus(EventBus.DEFAULT_LANES);
+    }
+
+    @AfterEach
+    void close() {
+        bus.shutdown();
+    }
+
+    @Test
+    void testEventsForOneAggregateArriveInOrder() throws Exception {
+        Map<Integer, List<Integer>> seen = new ConcurrentHashMap<>();
+        bus.subscribe(Numbered.class, e -> seen.computeIfAbsent(e.aggregate(), k -> new ArrayList<>()).add(e.seq()));
+
+        // Publishers on several threads, each owning some aggregates
+        List<Thread> publishers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int first = p * 8;
+            Thread t = new Thread(() -> {
+                for (int seq = 0; seq < 500; seq++) {
+                    for (int a = first; a < first + 8; a++) bus.publish(new Numbered(a, seq));
+                }
+            });
+            publishers.add(t);
+            t.start();
+        }
+        for (Thread t : publishers) t.join();
+        assertTrue(bus.awaitIdle(5_000));
+
+        assertEquals(32, seen.size());
+        for (List<Integer> order : seen.values()) {
+            assertEquals(500, order.size());
+            for (int i = 0; i < order.size(); i++) assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void testLaneHandlersRunOffThePublishingThreadAndInlineOnIt() throws Exception {
+        BlockingQueue<Thread> lane = new LinkedBlockingQueue<>();
+        List<Thread> inline = new CopyOnWriteArrayList<>();
+        bus.subscribe(ProductChanged.class, e -> lane.add(Thread.currentThread()));
+        bus.subscribeInline(ProductChanged.class, e -> inline.add(Thread.currentThread()));
+
+        bus.publish(new ProductChanged(1));
+
+        assertEquals(List.of(Thread.currentThread()), inline, "Inline handlers finish before publish returns");
+        Thread laneThread = lane.poll(5, TimeUnit.SECONDS);
+        assertNotNull(laneThread);
+        assertNotEquals(Thread.currentThread(), laneThread);
+        assertTrue(laneThread.getName().startsWith("event-lane-"));
+    }
+
+    @Test
+    void testFailingHandlerDoesNotStopOthersAndClosedSubscriptionsStop() throws Exception {
+        List<Integer> delivered = new CopyOnWriteArrayList<>();
+        bus.subscribe(CustomerUpdated.class, e -> { throw new IllegalStateException("boom"); });
+        Subscription sub = bus.subscribe(CustomerUpdated.class, e -> delivered.add(e.customerId()));
+
+        bus.publish(new CustomerUpdated(7));
+        assertTrue(bus.awaitIdle(5_000));
+        sub.close();
+        bus.publish(new CustomerUpdated(8));
+        assertTrue(bus.awaitIdle(5_000));
+
+        assertEquals(List.of(7), delivered);
+        assertEquals(2, bus.getFailures());
+    }
+
+    @Test
+    void testUnwantedEventsAreNotQueued() {
+        bus.publish(new HistoryChanged(null));
+
+        assertFalse(bus.hasSubscribers(HistoryChanged.class));
+        assertEquals(0, bus.getPublished());
+    }
+
+    @Test
+    void testFullLaneDropsInsteadOfBlockingThePublisher() throws Exception {
+        bus.shutdown();
+        bus = new EventBus(1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> delivered = new CopyOnWriteArrayList<>();
+        bus.subscribe(Numbered.class, e -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            delivered.add(e.seq());
+        });
+
+        // One being handled and two queued at most, so the rest cannot fit
+        for (int i = 0; i < 6; i++) bus.publish(new Numbered(1, i));
+        assertTrue(bus.getDropped() >= 3, "Dropped " + bus.getDropped());
+        assertEquals(6, bus.getPublished() + bus.getDropped());
+
+        release.countDown();
+        assertTrue(bus.awaitIdle(5_000));
+        assertEquals(bus.getPublished(), delivered.size());
+        assertEquals(List.of(0, 1), delivered.subList(0, 2), "What was queued still arrives in order");
+    }
+
+    @Test
+    void testInvoiceDaoPublishesStatusChanges() throws Exception {
+        DatabaseInitializer.initialize();
+        InvoiceDAO invoiceDAO = new InvoiceDAO();
+        List<String> statuses = new CopyOnWriteArrayList<>();
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("EV-" + System.nanoTime());
+        Subscription sub = EventBus.getInstance().subscribeInline(InvoiceStatusChanged.class, e -> {
+            if (e.invoiceId() == inv.getId()) statuses.add(e.status());
+        });
+        try {
+            invoiceDAO.createInvoice(inv);
+            invoiceDAO.updateStatus(inv.getId(), "HELD");
+            invoiceDAO.updateStatus(inv.getId(), "WIP");
+            invoiceDAO.checkout(inv.getId(), "CASH", 0, List.of());
+        } finally {
+            sub.close();
+        }
+
+        assertEquals(List.of("OPEN", "HELD", "WIP", "PAID"), statuses);
+    }
+}
@@ -0,0 +1,53 @@
+package com.lubesoft.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testRoundsHalfAwayFromZero() {
+        assertEquals(1235, Money.of(12.345));
+        assertEquals(-1235, Money.of(-12.345));
+        assertEquals(10, Money.of(0.1));
+        assertEquals(3050, Money.times(649, 4.7));
+        assertEquals(-3, Money.times(-25, 0.1));
+    }
+
+    @Test
+    void testParseAndFormat() {
+        assertEquals(1250, Money.parse(" 12.5 "));
+        assertEquals(-399, Money.parse("-3.99"));
+        assertEquals(1, Money.parse("0.005"));
+        assertEquals("12.50", Money.format(1250));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("0.00", Money.format(0));
+        assertThrows(NumberFormatException.class, () -> Money.parse("12,50"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1e30"));
+    }
+
+    @Test
+    void testOverflowThrows() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> Money.of(Double.NaN));
+    }
+
+    @Test
+    void testRecalculateIsExact() {
+        Invoice inv = new Invoice();
+        for (int i = 0; i < 10; i++) {
+            inv.getItems().add(new InvoiceItem(0, "Shop rag", 1, 10, 0));
+        }
+        inv.setDiscountCents(5);
+        inv.recalculate(0.0825);
+
+        // Ten lines of 0.10 summed as doubles come to 0.9999999999999999
+        assertEquals(100, inv.getSubtotalCents());
+        assertEquals(8, inv.getTaxCents());
+        assertEquals(103, inv.getTotalCents());
+        assertEquals(1.03, inv.getTotal());
+    }
+}
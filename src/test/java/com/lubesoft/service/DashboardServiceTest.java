@@ -0,0 +1,68 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.model.DashboardSnapshot;
+import com.lubesoft.model.Invoice;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DashboardServiceTest {
+
+    private final DashboardService service = DashboardService.getInstance();
+
+    @BeforeAll
+    static void init() {
+        DatabaseInitializer.initialize();
+    }
+
+    @Test
+    void testSnapshotIsImmutableAndVersioned() throws Exception {
+        DashboardSnapshot first = service.load();
+        DashboardSnapshot second = service.load();
+
+        assertTrue(second.getVersion() > first.getVersion());
+        assertThrows(UnsupportedOperationException.class, () -> first.getLowStock().clear());
+        assertThrows(UnsupportedOperationException.class, () -> first.getRecentPaid().add(new Invoice()));
+    }
+
+    @Test
+    void testFirstPaintKeepsTheLastFigures() {
+        service.recordFirstPaint(120, 45);
+        service.recordFirstPaint(80, 30);
+        assertEquals(80, service.getFirstPaintMillis());
+        assertEquals(30, service.getFirstPaintDataMillis());
+    }
+
+    @Test
+    void testCheckoutPushesOneSnapshotWithTheSale() throws Exception {
+        BlockingQueue<DashboardSnapshot> pushed = new LinkedBlockingQueue<>();
+        Consumer<DashboardSnapshot> listener = pushed::add;
+        service.addListener(listener);
+        try {
+            long before = service.load().getTodayRevenueCents();
+            InvoiceDAO invoiceDAO = new InvoiceDAO();
+            Invoice inv = new Invoice();
+            inv.setInvoiceNumber("DASH-" + System.nanoTime());
+            inv.setTotalCents(42_00);
+            invoiceDAO.createInvoice(inv);
+            invoiceDAO.checkout(inv.getId(), "CASH", 42_00, List.of());
+
+            // Creation and checkout land in one burst and should be coalesced
+            DashboardSnapshot snapshot = pushed.poll(5, TimeUnit.SECONDS);
+            assertNotNull(snapshot, "Checkout should push a snapshot");
+            assertEquals(before + 42_00, snapshot.getTodayRevenueCents());
+            assertTrue(snapshot.getRecentPaid().stream().anyMatch(i -> i.getId() == inv.getId()));
+            assertNull(pushed.poll(DashboardService.PUSH_DELAY_MS * 2, TimeUnit.MILLISECONDS));
+        } finally {
+            service.removeListener(listener);
+        }
+    }
+}
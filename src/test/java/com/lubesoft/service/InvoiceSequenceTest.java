@@ -0,0 +1,100 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.Invoice;
+import org.junit.jupiter.api.*;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvoiceSequenceTest {
+
+    // Past days of their own, so the tests never touch today's sequence
+    private static final LocalDate CONCURRENT_DAY = LocalDate.of(2001, 1, 1);
+    private static final LocalDate SHARED_DAY = LocalDate.of(2001, 1, 2);
+    private static final LocalDate RESET_DAY = LocalDate.of(2001, 1, 3);
+
+    @BeforeAll
+    static void init() {
+        DatabaseInitializer.initialize();
+    }
+
+    // Blocks now carry over between runs of the same day, so each test starts its days afresh
+    @BeforeEach
+    void clearTestDays() throws Exception {
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM invoice_sequence WHERE day < '2002-01-01'")) {
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @Test
+    void testConcurrentNumbersAreUniqueAndConsecutive() throws Exception {
+        InvoiceSequence sequence = new InvoiceSequence(4);
+        int threads = 8, perThread = 100;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    List<String> taken = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) taken.add(sequence.next(CONCURRENT_DAY));
+                    return taken;
+                }));
+            }
+            Set<Integer> numbers = new TreeSet<>();
+            for (Future<List<String>> f : futures) {
+                for (String number : f.get()) {
+                    assertTrue(number.startsWith("INV-20010101-"), number);
+                    assertTrue(numbers.add(Integer.parseInt(number.substring(13))), "Duplicate " + number);
+                }
+            }
+            int expected = 1;
+            for (int n : numbers) assertEquals(expected++, n);
+            assertEquals(threads * perThread / 4, sequence.getReservations());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testTerminalsSharingADatabaseNeverIssueTheSameNumber() throws Exception {
+        InvoiceDAO invoiceDAO = new InvoiceDAO();
+        InvoiceSequence first = new InvoiceSequence(10);
+        InvoiceSequence second = new InvoiceSequence(10);
+        TreeSet<String> issued = new TreeSet<>();
+        for (int i = 0; i < 25; i++) {
+            for (InvoiceSequence terminal : List.of(first, second)) {
+                Invoice inv = new Invoice();
+                inv.setInvoiceNumber(terminal.next(SHARED_DAY));
+                assertTrue(issued.add(inv.getInvoiceNumber()), "Duplicate " + inv.getInvoiceNumber());
+                invoiceDAO.createInvoice(inv);
+            }
+        }
+
+        // A terminal started after the others skips past every block they still hold
+        String restarted = new InvoiceSequence(10).next(SHARED_DAY);
+        assertTrue(restarted.compareTo(issued.last()) > 0, restarted);
+    }
+
+    @Test
+    void testNumberingRestartsEachDay() throws Exception {
+        InvoiceSequence sequence = new InvoiceSequence(5);
+        assertEquals("INV-20010103-0001", sequence.next(RESET_DAY));
+        assertEquals("INV-20010103-0002", sequence.next(RESET_DAY));
+        assertEquals("INV-20010104-0001", sequence.next(RESET_DAY.plusDays(1)));
+        assertEquals(2, sequence.getReservations());
+    }
+}
@@ -0,0 +1,203 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.model.ImportResult;
+import com.lubesoft.model.Product;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImportServiceTest {
+
+    // One token, so full-text search can find this run's rows
+    private static final String TAG = "imp" + System.nanoTime();
+
+    // Small batches, so a short file still spans several transactions
+    private final ProductImportService service = new ProductImportService(2, 2);
+    private final ProductDAO productDAO = new ProductDAO();
+
+    @BeforeAll
+    static void init() {
+        DatabaseInitializer.initialize();
+    }
+
+    @Test
+    void testCsvInsertsThenUpdatesAndReportsBadRows(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("catalog.csv");
+        Files.writeString(csv, "\uFEFFSKU,Barcode,Name,Category,Sell_Price,Cost,Stock\r\n"
+                + TAG + "-1," + TAG + "01,\"Synthetic 5W-30, 4L " + TAG + "\",Oil,32.50,21.00,12\r\n"
+                + TAG + "-2,," + "\"Filter \"\"Premium\"\" " + TAG + "\",Filters,8.99,4.10,\n"
+                + TAG + "-3," + TAG + "03,\"Wiper\nblade " + TAG + "\",,12,,3\n"
+                + TAG + "-1," + TAG + "09,Duplicate " + TAG + ",Oil,1,1,1\n"
+                + TAG + "-4,,Bad price " + TAG + ",Oil,abc,,\n"
+                + TAG + "-5,,,Oil,1,,\n", StandardCharsets.UTF_8);
+        List<ImportResult.Progress> progress = new ArrayList<>();
+
+        ImportResult first = service.importFile(csv, progress::add);
+        assertEquals(6, first.getRowsRead());
+        assertEquals(3, first.getInserted());
+        assertEquals(0, first.getUpdated());
+        assertEquals(3, first.getErrorCount());
+        assertEquals(List.of(5, 6, 7), first.getErrors().stream().map(ImportResult.RowError::row).toList());
+        assertTrue(first.getErrors().get(0).message().contains("first on row 2"), first.getErrors().get(0).message());
+        assertEquals(2, progress.size(), "Three rows in batches of two");
+        assertEquals(3, progress.get(1).rowsWritten());
+
+        Product oil = productDAO.findBySku(TAG + "-1").orElseThrow();
+        assertEquals("Synthetic 5W-30, 4L " + TAG, oil.getName());
+        assertEquals(32_50, oil.getSellPriceCents());
+        assertEquals(21_00, oil.getCostPriceCents());
+        assertEquals(12, oil.getStockQty(), 0.0001);
+        assertEquals("Filter \"Premium\" " + TAG, productDAO.findBySku(TAG + "-2").orElseThrow().getName());
+        assertEquals("Wiper\nblade " + TAG, productDAO.findBySku(TAG + "-3").orElseThrow().getName());
+        assertEquals(List.of(TAG + "-3"), productDAO.search("blade " + TAG).stream().map(Product::getSku).toList(),
+                "Imported rows are searchable");
+
+        // Cached in the index before the update, so a stale price would show
+        ProductIndex index = ProductIndex.getInstance();
+        assertEquals(32_50, index.findByBarcode(TAG + "01").orElseThrow().getSellPriceCents());
+
+        Path update = dir.resolve("update.csv");
+        Files.writeString(update, "sku,barcode,name,category,price,stock\n"
+                + TAG + "-1,,Synthetic 5W-30 4L " + TAG + ",,34.00,99\n"
+                + "," + TAG + "03,Wiper blade " + TAG + ",Wipers,13.25,99\n", StandardCharsets.UTF_8);
+        ImportResult second = service.importFile(update, null);
+        assertEquals(0, second.getInserted());
+        assertEquals(2, second.getUpdated());
+        assertEquals(0, second.getErrorCount());
+
+        oil = productDAO.findBySku(TAG + "-1").orElseThrow();
+        assertEquals(34_00, oil.getSellPriceCents());
+        assertEquals(TAG + "01", oil.getBarcode(), "A blank barcode keeps the stored one");
+        assertEquals("Oil", oil.getCategory());
+        assertEquals(21_00, oil.getCostPriceCents(), "Columns the file lacks are left alone");
+        assertEquals(12, oil.getStockQty(), 0.0001, "Stock only moves through transactions");
+        Product wiper = productDAO.findByBarcode(TAG + "03").orElseThrow();
+        assertEquals(TAG + "-3", wiper.getSku(), "Matched by barcode");
+        assertEquals("Wipers", wiper.getCategory());
+        assertEquals(34_00, index.findByBarcode(TAG + "01").orElseThrow().getSellPriceCents());
+    }
+
+    @Test
+    void testXlsxReadsNumbersUnformatted(@TempDir Path dir) throws Exception {
+        Path xlsx = dir.resolve("catalog.xlsx");
+        long barcode = 8_900_000_000_000L + System.nanoTime() % 1_000_000_000L;
+        try (XSSFWorkbook wb = new XSSFWorkbook(); OutputStream out = Files.newOutputStream(xlsx)) {
+            Sheet sheet = wb.createSheet("Price list");
+            CellStyle currency = wb.createCellStyle();
+            currency.setDataFormat(wb.createDataFormat().getFormat("$#,##0.00"));
+            Row header = sheet.createRow(0);
+            header.createCell(0).setCellValue("Barcode");
+            header.createCell(1).setCellValue("Name");
+            header.createCell(3).setCellValue("Price");
+            header.createCell(4).setCellValue("Bulk Oil");
+            Row row = sheet.createRow(1);
+            row.createCell(0).setCellValue((double) barcode);
+            row.createCell(1).setCellValue("Gear oil " + TAG);
+            row.createCell(3).setCellValue(1234.5);
+            row.getCell(3).setCellStyle(currency);
+            row.createCell(4).setCellValue(true);
+            wb.write(out);
+        }
+
+        ImportResult result = service.importFile(xlsx, null);
+        assertEquals(1, result.getInserted(), String.valueOf(result.getErrors()));
+        Product p = productDAO.findByBarcode(Long.toString(barcode)).orElseThrow();
+        assertEquals("Gear oil " + TAG, p.getName());
+        assertEquals(1234_50, p.getSellPriceCents());
+        assertTrue(p.isBulkOil());
+        assertNull(p.getSku());
+    }
+
+    @Test
+    void testBarcodeOfAnotherProductIsReported(@TempDir Path dir) throws Exception {
+        Product owner = new Product();
+        owner.setSku(TAG + "-owner");
+        owner.setBarcode(TAG + "77");
+        owner.setName("Owner " + TAG);
+        productDAO.save(owner);
+
+        Path csv = dir.resolve("clash.csv");
+        Files.writeString(csv, "sku,barcode,name,price\n"
+                + TAG + "-clash,,Clash " + TAG + ",5\n"
+                + TAG + "-ok,,Fine " + TAG + ",6\n");
+        service.importFile(csv, null);
+        Files.writeString(csv, "sku,barcode,name,price\n"
+                + TAG + "-clash," + TAG + "77,Clash " + TAG + ",5\n"
+                + TAG + "-ok,,Fine " + TAG + ",7\n");
+
+        ImportResult result = service.importFile(csv, null);
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getErrorCount());
+        assertEquals(new ImportResult.RowError(2, "Barcode " + TAG + "77 belongs to another product"), result.getErrors().get(0));
+        assertNull(productDAO.findBySku(TAG + "-clash").orElseThrow().getBarcode());
+        assertEquals(7_00, productDAO.findBySku(TAG + "-ok").orElseThrow().getSellPriceCents());
+    }
+
+    @Test
+    void testBlankNumbersKeepTheStoredValues(@TempDir Path dir) throws Exception {
+        Product existing = new Product();
+        existing.setSku(TAG + "-keep");
+        existing.setName("Keep " + TAG);
+        existing.setCostPriceCents(7_25);
+        existing.setMinStock(4);
+        existing.setMaxStock(40);
+        existing.setBulkOil(true);
+        productDAO.save(existing);
+
+        Path csv = dir.resolve("blanks.csv");
+        Files.writeString(csv, "sku,name,price,cost,reorder level,max stock,bulk oil\n"
+                + TAG + "-keep,Keep " + TAG + ",9.99,,,,\n"
+                + TAG + "-new,New " + TAG + ",5,,,,\n");
+        ImportResult result = service.importFile(csv, null);
+        assertEquals(1, result.getUpdated(), String.valueOf(result.getErrors()));
+        assertEquals(1, result.getInserted());
+
+        Product kept = productDAO.findBySku(TAG + "-keep").orElseThrow();
+        assertEquals(9_99, kept.getSellPriceCents());
+        assertEquals(7_25, kept.getCostPriceCents(), "A blank cost is not a cost of 0");
+        assertEquals(4, kept.getMinStock(), 0.0001);
+        assertEquals(40, kept.getMaxStock(), 0.0001);
+        assertTrue(kept.isBulkOil());
+        Product added = productDAO.findBySku(TAG + "-new").orElseThrow();
+        assertEquals(0, added.getCostPriceCents());
+        assertEquals(0, added.getMaxStock(), 0.0001);
+        assertFalse(added.isBulkOil());
+    }
+
+    @Test
+    void testRejectedRowDoesNotClaimItsSku(@TempDir Path dir) throws Exception {
+        Path csv = dir.resolve("dupes.csv");
+        Files.writeString(csv, "sku,barcode,name,price\n"
+                + TAG + "-a," + TAG + "55,First " + TAG + ",1\n"
+                + TAG + "-b," + TAG + "55,Wrong barcode " + TAG + ",2\n"
+                + TAG + "-b,,Second " + TAG + ",3\n");
+
+        ImportResult result = service.importFile(csv, null);
+        assertEquals(2, result.getInserted());
+        assertEquals(List.of(new ImportResult.RowError(3, "Duplicate barcode " + TAG + "55 (first on row 2)")), result.getErrors());
+        assertEquals("Second " + TAG, productDAO.findBySku(TAG + "-b").orElseThrow().getName());
+    }
+
+    @Test
+    void testUnusableFilesAreRefused(@TempDir Path dir) throws Exception {
+        Path noName = dir.resolve("no-name.csv");
+        Files.writeString(noName, "sku,price\nA,1\n");
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.importFile(noName, null));
+        assertEquals("Catalog has no name column", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> service.importFile(dir.resolve("catalog.pdf"), null));
+    }
+}
@@ -0,0 +1,104 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.model.Invoice;
+import com.lubesoft.model.InvoiceItem;
+import com.lubesoft.model.Product;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ProductIndexTest {
+
+    private static final String SUFFIX = String.valueOf(System.currentTimeMillis());
+    private static final String BARCODE = "IDX-" + SUFFIX;
+    private static final String SKU = "IDX-SKU-" + SUFFIX;
+
+    private static ProductIndex index;
+    private static final ProductDAO productDAO = new ProductDAO();
+    private static int productId;
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        DatabaseInitializer.initialize();
+        Product p = new Product();
+        p.setSku(SKU);
+        p.setBarcode(BARCODE);
+        p.setName("Index Test Oil");
+        p.setSellPrice(12.5);
+        p.setStockQty(20);
+        productId = productDAO.save(p).getId();
+
+        index = ProductIndex.getInstance();
+        index.warm();
+    }
+
+    @Test
+    @Order(1)
+    void testWarmedLookupsHitTheIndex() throws SQLException {
+        long misses = index.getMissCount();
+        Optional<Product> byBarcode = index.findByBarcode(BARCODE);
+        Optional<Product> bySku = index.findBySku(SKU);
+        Optional<Product> byId = index.findById(productId);
+
+        assertTrue(byBarcode.isPresent());
+        assertEquals(productId, byBarcode.get().getId());
+        assertEquals(productId, bySku.orElseThrow().getId());
+        assertEquals("Index Test Oil", byId.orElseThrow().getName());
+        assertEquals(misses, index.getMissCount(), "Warmed lookups should not miss");
+        assertTrue(index.size() >= 1);
+    }
+
+    @Test
+    @Order(2)
+    void testSaveRefreshesEntry() throws SQLException {
+        Product p = productDAO.findById(productId).orElseThrow();
+        p.setSellPrice(15.0);
+        p.setBarcode(BARCODE + "-B");
+        productDAO.save(p);
+
+        assertEquals(15.0, index.findById(productId).orElseThrow().getSellPrice(), 0.0001);
+        long misses = index.getMissCount();
+        assertEquals(productId, index.findByBarcode(BARCODE + "-B").orElseThrow().getId());
+        assertEquals(misses, index.getMissCount(), "New barcode should be indexed on save");
+        assertTrue(index.findByBarcode(BARCODE).isEmpty(), "Old barcode should no longer resolve");
+    }
+
+    @Test
+    @Order(3)
+    void testCheckoutRefreshesStock() throws SQLException {
+        InvoiceDAO invoiceDAO = new InvoiceDAO();
+        Invoice inv = new Invoice();
+        inv.setInvoiceNumber("IDX-INV-" + SUFFIX);
+        inv.setStatus("WIP");
+        int invoiceId = invoiceDAO.createInvoice(inv).getId();
+        InvoiceItem item = invoiceDAO.addItem(invoiceId, new InvoiceItem(productId, "Index Test Oil", 4, 15_00, 0));
+
+        invoiceDAO.checkout(invoiceId, "CASH", 60_00, List.of(item));
+
+        assertEquals(16, index.findById(productId).orElseThrow().getStockQty(), 0.0001);
+    }
+
+    @Test
+    @Order(4)
+    void testOlderRowNeverReplacesANewerEntry() throws SQLException {
+        // A lookup miss that read the row before the save, and lands after its reload
+        Product stale = productDAO.findById(productId).orElseThrow();
+        Product p = productDAO.findById(productId).orElseThrow();
+        p.setSellPrice(18.0);
+        productDAO.save(p);
+
+        index.cache(Optional.of(stale));
+        assertEquals(18.0, index.findById(productId).orElseThrow().getSellPrice(), 0.0001);
+
+        index.warm();
+        assertEquals(18.0, index.findById(productId).orElseThrow().getSellPrice(), 0.0001);
+    }
+}
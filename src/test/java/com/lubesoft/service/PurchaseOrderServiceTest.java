@@ -0,0 +1,137 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.InventoryDAO;
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.model.Product;
+import com.lubesoft.model.PurchaseOrder;
+import com.lubesoft.model.PurchaseOrder.POItem;
+import com.lubesoft.model.PurchaseOrder.ReceivedLine;
+import org.junit.jupiter.api.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PurchaseOrderServiceTest {
+
+    private static final String TAG = "PO-" + System.nanoTime();
+
+    private final PurchaseOrderService service = PurchaseOrderService.getInstance();
+    private final ProductDAO productDAO = new ProductDAO();
+
+    @BeforeAll
+    static void init() {
+        DatabaseInitializer.initialize();
+    }
+
+    @Test
+    void testReceiveAveragesCostAndTracksReceivedQty() throws Exception {
+        int productId = product("Filter", 10, 4_00);
+        PurchaseOrder po = service.createOrder(order(new int[]{productId}, 20, 5_00));
+        assertEquals("DRAFT", po.getStatus());
+
+        service.receive(po.getId(), List.of(new ReceivedLine(productId, 10, 6_00)));
+        Product p = productDAO.findById(productId).orElseThrow();
+        assertEquals(20, p.getStockQty(), 0.0001);
+        assertEquals(5_00, p.getCostPriceCents(), "10 at 4.00 and 10 at 6.00 average 5.00");
+        PurchaseOrder partial = service.getOrder(po.getId()).orElseThrow();
+        assertEquals("PARTIAL", partial.getStatus());
+        assertEquals(10, partial.getItems().get(0).getReceivedQty(), 0.0001);
+
+        // Two lines for the same product are folded into one stock update
+        service.receive(po.getId(), List.of(new ReceivedLine(productId, 4, 3_00), new ReceivedLine(productId, 6, 8_00)));
+        p = productDAO.findById(productId).orElseThrow();
+        assertEquals(30, p.getStockQty(), 0.0001);
+        assertEquals(5_33, p.getCostPriceCents(), "(20 * 5.00 + 4 * 3.00 + 6 * 8.00) / 30");
+        assertEquals("RECEIVED", service.getOrder(po.getId()).orElseThrow().getStatus());
+        assertEquals(3, new InventoryDAO().findByProduct(productId).size(), "One transaction per delivery line");
+    }
+
+    @Test
+    void testEmptyStockTakesTheDeliveryCost() throws Exception {
+        int productId = product("Gasket", 0, 9_99);
+        PurchaseOrder po = service.createOrder(order(new int[]{productId}, 5, 2_50));
+        service.receive(po.getId(), List.of(new ReceivedLine(productId, 5, 2_50)));
+        assertEquals(2_50, productDAO.findById(productId).orElseThrow().getCostPriceCents());
+    }
+
+    @Test
+    void testUnknownProductReceivesNothing() throws Exception {
+        int onOrder = product("Belt", 3, 1_00);
+        int notOnOrder = product("Hose", 3, 1_00);
+        PurchaseOrder po = service.createOrder(order(new int[]{onOrder}, 5, 1_00));
+
+        assertThrows(IllegalArgumentException.class, () -> service.receive(po.getId(),
+                List.of(new ReceivedLine(onOrder, 5, 1_00), new ReceivedLine(notOnOrder, 1, 1_00))));
+        assertEquals(3, productDAO.findById(onOrder).orElseThrow().getStockQty(), 0.0001);
+        PurchaseOrder unchanged = service.getOrder(po.getId()).orElseThrow();
+        assertEquals("DRAFT", unchanged.getStatus());
+        assertEquals(0, unchanged.getItems().get(0).getReceivedQty(), 0.0001);
+    }
+
+    @Test
+    void testSingleReceiptWorksWithOrWithoutAnOrder() throws Exception {
+        InventoryService inventory = InventoryService.getInstance();
+        int onOrder = product("Clamp", 2, 1_00);
+        int unlisted = product("Fuse", 0, 0);
+        PurchaseOrder po = service.createOrder(order(new int[]{onOrder}, 4, 1_00));
+
+        inventory.receiveStock(onOrder, 4, 2_50, po.getId());
+        assertEquals(6, productDAO.findById(onOrder).orElseThrow().getStockQty(), 0.0001);
+        assertEquals(2_00, productDAO.findById(onOrder).orElseThrow().getCostPriceCents());
+        assertEquals("RECEIVED", service.getOrder(po.getId()).orElseThrow().getStatus());
+
+        inventory.receiveStock(unlisted, 3, 1_20, 0);
+        inventory.receiveStock(unlisted, 1, 1_60, po.getId());
+        Product fuse = productDAO.findById(unlisted).orElseThrow();
+        assertEquals(4, fuse.getStockQty(), 0.0001, "Received even though no order lists it");
+        assertEquals(1_30, fuse.getCostPriceCents());
+        assertEquals(1, service.getOrder(po.getId()).orElseThrow().getItems().size());
+        assertTrue(new InventoryDAO().findByProduct(unlisted).stream().allMatch(tx -> "PURCHASE".equals(tx.getType())));
+        assertThrows(IllegalArgumentException.class, () -> inventory.receiveStock(unlisted, 0, 1_00, 0));
+    }
+
+    @Test
+    void testLargeDeliveryInOneCall() throws Exception {
+        int lines = 500;
+        int[] productIds = new int[lines];
+        for (int i = 0; i < lines; i++) productIds[i] = product("Bulk " + i, 1, 1_00);
+        PurchaseOrder po = service.createOrder(order(productIds, 2, 3_00));
+
+        List<ReceivedLine> delivery = new ArrayList<>();
+        for (int id : productIds) delivery.add(new ReceivedLine(id, 2, 3_00));
+        service.receive(po.getId(), delivery);
+
+        assertEquals("RECEIVED", service.getOrder(po.getId()).orElseThrow().getStatus());
+        for (int id : new int[]{productIds[0], productIds[lines / 2], productIds[lines - 1]}) {
+            Product p = productDAO.findById(id).orElseThrow();
+            assertEquals(3, p.getStockQty(), 0.0001);
+            assertEquals(2_33, p.getCostPriceCents());
+        }
+    }
+
+    private static PurchaseOrder order(int[] productIds, double qty, long unitCostCents) {
+        PurchaseOrder po = new PurchaseOrder();
+        po.setNotes(TAG);
+        for (int id : productIds) {
+            POItem item = new POItem();
+            item.setProductId(id);
+            item.setQtyOrdered(qty);
+            item.setUnitCostCents(unitCostCents);
+            po.getItems().add(item);
+        }
+        return po;
+    }
+
+    private int product(String name, double stock, long costCents) throws SQLException {
+        Product p = new Product();
+        p.setSku(TAG + "-" + name);
+        p.setName(name + " " + TAG);
+        p.setStockQty(stock);
+        p.setCostPriceCents(costCents);
+        return productDAO.save(p).getId();
+    }
+}
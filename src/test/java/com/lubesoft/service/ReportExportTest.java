@@ -0,0 +1,96 @@
+package com.lubesoft.service;
+
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportExportTest {
+
+    // A day no other test writes to, refilled on each run
+    private static final DateRange DAY = new DateRange(LocalDate.of(1999, 12, 31), LocalDate.of(1999, 12, 31));
+    private static final int INVOICES = ReportService.EXPORT_CHUNK_ROWS * 2 + 150;
+
+    private static ReportService reportService;
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        DatabaseInitializer.initialize();
+        reportService = ReportService.getInstance();
+        String tag = Long.toString(System.currentTimeMillis(), 36);
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM invoices WHERE created_at >= ? AND created_at < ?")) {
+                DAY.bind(ps, 1);
+                ps.executeUpdate();
+            }
+            String sql = "INSERT INTO invoices(invoice_number,status,total_cents,created_at) VALUES(?,'OPEN',?,?)";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < INVOICES; i++) {
+                    ps.setString(1, "EXP-" + tag + "-" + i);
+                    ps.setLong(2, 10_00);
+                    ps.setString(3, String.format("1999-12-31 %02d:%02d:00", i / 60 % 24, i % 60));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void testPdfExportStreamsEveryRowWithProgress(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("sales.pdf");
+        List<Double> progress = new CopyOnWriteArrayList<>();
+
+        int rows = reportService.exportSalesToPdf(DAY, file.toString(), progress::add);
+
+        assertEquals(INVOICES, rows);
+        assertTrue(Files.size(file) > 0);
+        assertEquals("%PDF", new String(Files.readAllBytes(file), 0, 4));
+        // One report per flushed chunk, then completion
+        double total = INVOICES;
+        assertEquals(List.of(ReportService.EXPORT_CHUNK_ROWS / total, 2 * ReportService.EXPORT_CHUNK_ROWS / total, 1.0), progress);
+    }
+
+    @Test
+    void testExcelExportWritesEveryRowAndSizesColumns(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("sales.xlsx");
+
+        int rows = reportService.exportSalesToExcel(DAY, file.toString());
+
+        assertEquals(INVOICES, rows);
+        try (Workbook wb = new XSSFWorkbook(file.toFile())) {
+            Sheet sheet = wb.getSheetAt(0);
+            assertEquals(INVOICES, sheet.getLastRowNum());
+            assertEquals("1999-12-31 00:00:00", sheet.getRow(INVOICES).getCell(1).getStringCellValue());
+            assertTrue(sheet.getColumnWidth(1) >= "1999-12-31 00:00:00".length() * 256,
+                    "Date column should be sized from the sampled rows");
+        }
+    }
+
+    @Test
+    void testInterruptCancelsAndRemovesPartialFile(@TempDir Path dir) {
+        Path file = dir.resolve("cancelled.pdf");
+
+        Exception e = assertThrows(InterruptedException.class, () -> reportService.exportSalesToPdf(DAY,
+                file.toString(), fraction -> Thread.currentThread().interrupt()));
+
+        assertEquals("Export cancelled", e.getMessage());
+        assertFalse(Files.exists(file), "Partial file should be deleted");
+    }
+}
@@ -0,0 +1,226 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.InvoiceDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.DateRange;
+import org.junit.jupiter.api.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportJobServiceTest {
+
+    private static final DateRange CLOSED = new DateRange(LocalDate.of(2001, 3, 1), LocalDate.of(2001, 3, 31));
+
+    private ReportJobService jobs;
+
+    @BeforeAll
+    static void init() {
+        DatabaseInitializer.initialize();
+    }
+
+    @BeforeEach
+    void setup() {
+        jobs = new ReportJobService(ReportService.getInstance(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobs.shutdown();
+    }
+
+    @Test
+    void testClosedPeriodRepeatIsServedFromCache() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ReportJob<Integer> first = jobs.submit("test", CLOSED, ctx -> runs.incrementAndGet());
+        assertEquals(1, first.getResult().get(5, TimeUnit.SECONDS));
+
+        ReportJob<Integer> repeat = jobs.submit("test", CLOSED, ctx -> runs.incrementAndGet());
+        assertTrue(repeat.isFromCache());
+        assertTrue(repeat.getResult().isDone(), "Cached result should be complete on return");
+        assertEquals(1, repeat.getResult().get());
+        assertNotEquals(first.getId(), repeat.getId());
+        assertEquals(1, jobs.getCacheHits());
+    }
+
+    @Test
+    void testIdenticalRequestsRacingShareOneJob() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CyclicBarrier start = new CyclicBarrier(callers);
+        try {
+            List<Future<ReportJob<Integer>>> submitted = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                submitted.add(pool.submit(() -> {
+                    start.await();
+                    return jobs.submit("race", CLOSED, ctx -> {
+                        release.await(5, TimeUnit.SECONDS);
+                        return runs.incrementAndGet();
+                    });
+                }));
+            }
+            List<ReportJob<Integer>> handles = new ArrayList<>();
+            for (Future<ReportJob<Integer>> f : submitted) handles.add(f.get(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (ReportJob<Integer> job : handles) {
+                assertEquals(handles.get(0).getId(), job.getId());
+                assertEquals(1, job.getResult().get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testCancellingOneJoinedHandleLeavesTheOthersRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        ReportJobService.ReportTask<Integer> task = ctx -> {
+            release.await(5, TimeUnit.SECONDS);
+            return runs.incrementAndGet();
+        };
+        ReportJob<Integer> first = jobs.submit("joined", CLOSED, task);
+        ReportJob<Integer> second = jobs.submit("joined", CLOSED, task);
+        assertNotSame(first.getResult(), second.getResult(), "Each caller gets its own future");
+
+        // What TaskScope.latest does when the same report is asked for again
+        first.getResult().cancel(true);
+        release.countDown();
+        assertEquals(1, second.getResult().get(5, TimeUnit.SECONDS));
+        assertTrue(first.isCancelled());
+        assertEquals(1, runs.get());
+
+        CountDownLatch started = new CountDownLatch(1);
+        ReportJob<Integer> a = jobs.submit("abandoned", CLOSED, ctx -> {
+            started.countDown();
+            while (true) {
+                ctx.row();
+                Thread.sleep(1);
+            }
+        });
+        ReportJob<Integer> b = jobs.submit("abandoned", CLOSED, ctx -> 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        a.cancel();
+        assertEquals(1, jobs.getActiveJobs(), "Still wanted by the second caller");
+        b.cancel();
+        waitForIdle();
+        assertTrue(a.getRowsRead() > 0);
+    }
+
+    @Test
+    void testCachedRowsCannotBeChangedByACaller() throws Exception {
+        List<Map<String, Object>> rows = List.of(new HashMap<>(Map.of("name", "Oil")));
+        List<Map<String, Object>> first = jobs.submit("rows", CLOSED, ctx -> new ArrayList<>(rows))
+                .getResult().get(5, TimeUnit.SECONDS);
+        assertThrows(UnsupportedOperationException.class, () -> first.clear());
+
+        List<Map<String, Object>> cached = jobs.<List<Map<String, Object>>>submit("rows", CLOSED, ctx -> List.of()).getResult().get();
+        assertThrows(UnsupportedOperationException.class, () -> cached.get(0).put("name", "Changed"));
+        assertEquals("Oil", cached.get(0).get("name"));
+    }
+
+    @Test
+    void testOpenPeriodIsNotCached() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        DateRange open = new DateRange(LocalDate.now().minusDays(7), LocalDate.now().plusDays(1));
+        jobs.submit("test", open, ctx -> runs.incrementAndGet()).getResult().get(5, TimeUnit.SECONDS);
+        ReportJob<Integer> again = jobs.submit("test", open, ctx -> runs.incrementAndGet());
+
+        assertFalse(again.isFromCache());
+        assertEquals(2, again.getResult().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testVoidOfInvoiceInRangeInvalidates() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        DateRange otherMonth = new DateRange(LocalDate.of(2001, 5, 1), LocalDate.of(2001, 5, 31));
+        jobs.submit("test", CLOSED, ctx -> runs.incrementAndGet()).getResult().get(5, TimeUnit.SECONDS);
+        jobs.submit("test", otherMonth, ctx -> runs.incrementAndGet()).getResult().get(5, TimeUnit.SECONDS);
+
+        // An invoice created inside the cached month, voided today
+        int invoiceId = DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO invoices(invoice_number,status,created_at) VALUES(?,'OPEN','2001-03-15 10:00:00')")) {
+                ps.setString(1, "JOB-" + System.nanoTime());
+                ps.executeUpdate();
+            }
+            try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT last_insert_rowid()")) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        });
+        new InvoiceDAO().voidInvoice(invoiceId, List.of());
+
+        // The void reaches back to March 2001 through today, so both months go
+        assertFalse(jobs.submit("test", CLOSED, ctx -> runs.incrementAndGet()).isFromCache());
+
+        jobs.submit("test", otherMonth, ctx -> 0).getResult().get(5, TimeUnit.SECONDS);
+        assertTrue(jobs.submit("test", otherMonth, ctx -> 0).isFromCache());
+        jobs.invalidate(null, CLOSED);
+        assertTrue(jobs.submit("test", otherMonth, ctx -> 0).isFromCache(), "Change outside the range keeps it");
+    }
+
+    @Test
+    void testCancelStopsRowLoop() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        ReportJob<Integer> job = jobs.submit("slow", CLOSED, ctx -> {
+            while (true) {
+                ctx.row();
+                started.countDown();
+                Thread.sleep(1);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(jobs.findJob(job.getId()).isPresent());
+
+        assertTrue(jobs.cancel(job.getId()));
+        assertThrows(CancellationException.class, () -> job.getResult().get(5, TimeUnit.SECONDS));
+        assertTrue(job.isCancelled());
+        assertTrue(job.getRowsRead() > 0);
+        waitForIdle();
+        assertFalse(jobs.submit("slow", CLOSED, ctx -> 1).isFromCache(), "Cancelled jobs are never cached");
+    }
+
+    @Test
+    void testCancelInterruptsRunningQuery() throws Exception {
+        CountDownLatch watching = new CountDownLatch(1);
+        ReportJob<Long> job = jobs.submit("query", CLOSED, ctx -> {
+            try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+                 Statement st = conn.createStatement()) {
+                ctx.watch(st);
+                watching.countDown();
+                try (ResultSet rs = st.executeQuery(
+                        "WITH RECURSIVE n(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM n) SELECT count(*) FROM n")) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }
+        });
+        assertTrue(watching.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        job.cancel();
+        assertThrows(CancellationException.class, () -> job.getResult().get(5, TimeUnit.SECONDS));
+        waitForIdle();
+    }
+
+    private void waitForIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (jobs.getActiveJobs() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(0, jobs.getActiveJobs());
+    }
+}
@@ -0,0 +1,281 @@
+package com.lubesoft.service;
+
+import com.lubesoft.dao.ProductDAO;
+import com.lubesoft.db.DatabaseInitializer;
+import com.lubesoft.db.DatabaseManager;
+import com.lubesoft.model.Invoice;
+import com.lubesoft.model.InvoiceTotals;
+import com.lubesoft.model.Product;
+import org.junit.jupiter.api.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Simulated terminals selling the same products at once. Each terminal runs the POS
+ * workflow through POSService and InventoryService, and the checks compare the
+ * products' stock and reservations with what the terminals were told succeeded.
+ */
+class StockReservationTest {
+
+    private static final String TAG = "RSV-" + System.nanoTime();
+
+    private final POSService pos = POSService.getInstance();
+    private final InventoryService inventory = InventoryService.getInstance();
+    private final ProductDAO productDAO = new ProductDAO();
+
+    @BeforeAll
+    static void init() {
+        DatabaseInitializer.initialize();
+    }
+
+    @Test
+    void testReservationBlocksOtherTerminalsUntilReleased() throws Exception {
+        int productId = product("Filter", 2);
+        int first = pos.createInvoice(1).getId();
+        int second = pos.createInvoice(1).getId();
+
+        pos.addItem(first, productId, 2);
+        assertEquals(2, reserved(productId), 0.0001);
+        assertThrows(IllegalStateException.class, () -> pos.addItem(second, productId, 1));
+
+        pos.holdInvoice(first);
+        assertEquals(0, reserved(productId), 0.0001, "Holding should release the reservation");
+        pos.addItem(second, productId, 1);
+        assertThrows(IllegalStateException.class, () -> pos.resumeInvoice(first),
+                "Only one of the two units is left for the held invoice");
+        assertEquals("HELD", pos.getInvoice(first).orElseThrow().getStatus());
+
+        pos.voidInvoice(second);
+        pos.resumeInvoice(first);
+        assertEquals(2, reserved(productId), 0.0001);
+        pos.checkout(first, "CASH", 20_00, null);
+        Product sold = productDAO.findById(productId).orElseThrow();
+        assertEquals(0, sold.getStockQty(), 0.0001);
+        assertEquals(0, sold.getReservedQty(), 0.0001);
+    }
+
+    @Test
+    void testRemovingALineReleasesIt() throws Exception {
+        int productId = product("Wiper", 3);
+        int invoiceId = pos.createInvoice(1).getId();
+        InvoiceTotals totals = pos.addItem(invoiceId, productId, 3);
+        pos.removeItem(invoiceId, totals.getItem().getId());
+        assertEquals(0, reserved(productId), 0.0001);
+        assertEquals(3, productDAO.findById(productId).orElseThrow().getAvailableQty(), 0.0001);
+    }
+
+    @Test
+    void testFinishedInvoicesCannotMoveAgain() throws Exception {
+        int productId = product("Belt", 5);
+        int invoiceId = pos.createInvoice(1).getId();
+        pos.addItem(invoiceId, productId, 2);
+        pos.checkout(invoiceId, "CASH", 20_00, null);
+
+        assertThrows(IllegalStateException.class, () -> pos.checkout(invoiceId, "CASH", 20_00, null),
+                "A retried checkout must not sell twice");
+        assertThrows(IllegalStateException.class, () -> pos.holdInvoice(invoiceId));
+        assertThrows(IllegalStateException.class, () -> pos.resumeInvoice(invoiceId));
+        assertEquals(3, productDAO.findById(productId).orElseThrow().getStockQty(), 0.0001);
+
+        pos.voidInvoice(invoiceId);
+        assertEquals(5, productDAO.findById(productId).orElseThrow().getStockQty(), 0.0001);
+        assertThrows(IllegalStateException.class, () -> pos.voidInvoice(invoiceId), "Stock returns once");
+        assertThrows(IllegalStateException.class, () -> pos.resumeInvoice(invoiceId));
+        assertEquals(5, productDAO.findById(productId).orElseThrow().getStockQty(), 0.0001);
+        assertEquals(0, reserved(productId), 0.0001);
+    }
+
+    @Test
+    void testAbandonedInvoicesGiveBackTheirStock() throws Exception {
+        int productId = product("Grease", 6);
+        int walkedAway = pos.createInvoice(1).getId();
+        pos.addItem(walkedAway, productId, 2);
+        int empty = pos.createInvoice(1).getId();
+
+        assertEquals("HELD", pos.parkInvoice(walkedAway));
+        assertEquals("VOID", pos.parkInvoice(empty), "Nothing to come back to");
+        assertNull(pos.parkInvoice(walkedAway), "Already set aside");
+        assertEquals(0, reserved(productId), 0.0001);
+
+        int stale = pos.createInvoice(1).getId();
+        pos.addItem(stale, productId, 3);
+        int current = pos.createInvoice(1).getId();
+        pos.addItem(current, productId, 1);
+        DatabaseManager.getInstance().write(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE invoices SET created_at = datetime('now', '-2 days') WHERE id = ?")) {
+                ps.setInt(1, stale);
+                return ps.executeUpdate();
+            }
+        });
+
+        assertTrue(pos.holdStaleInvoices() >= 1);
+        assertEquals("HELD", pos.getInvoice(stale).orElseThrow().getStatus());
+        assertEquals("OPEN", pos.getInvoice(current).orElseThrow().getStatus());
+        assertEquals(1, reserved(productId), 0.0001, "Only the invoice still in use holds stock");
+        pos.resumeInvoice(stale);
+        assertEquals(4, reserved(productId), 0.0001);
+    }
+
+    @Test
+    void testReservationsMoveTheProductVersion() throws Exception {
+        int productId = product("Bulb", 4);
+        long loaded = productDAO.findById(productId).orElseThrow().getVersion();
+        int invoiceId = pos.createInvoice(1).getId();
+        InvoiceTotals totals = pos.addItem(invoiceId, productId, 1);
+        long reserved = productDAO.findById(productId).orElseThrow().getVersion();
+        assertTrue(reserved > loaded, "Reserving changes the row");
+        pos.removeItem(invoiceId, totals.getItem().getId());
+        long released = productDAO.findById(productId).orElseThrow().getVersion();
+        assertTrue(released > reserved, "So does giving it back");
+        pos.addItem(invoiceId, productId, 1);
+        pos.holdInvoice(invoiceId);
+        assertTrue(productDAO.findById(productId).orElseThrow().getVersion() > released + 1);
+    }
+
+    @Test
+    void testStaleProductSaveIsRefused() throws Exception {
+        int productId = product("Coolant", 10);
+        Product form = productDAO.findById(productId).orElseThrow();
+        int invoiceId = pos.createInvoice(1).getId();
+        pos.addItem(invoiceId, productId, 4);
+        pos.checkout(invoiceId, "CASH", 40_00, null);
+
+        form.setSellPriceCents(12_00);
+        assertThrows(SQLException.class, () -> productDAO.save(form), "Saving would put the 4 sold back");
+        assertEquals(6, productDAO.findById(productId).orElseThrow().getStockQty(), 0.0001);
+
+        Product fresh = productDAO.findById(productId).orElseThrow();
+        fresh.setSellPriceCents(12_00);
+        productDAO.save(fresh);
+        productDAO.save(fresh);
+        assertEquals(12_00, productDAO.findById(productId).orElseThrow().getSellPriceCents());
+    }
+
+    @Test
+    void testTerminalsNeverOversell() throws Exception {
+        int stock = 40;
+        int productId = product("Battery", stock);
+        int terminals = 12, attempts = 15;
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        AtomicInteger holding = new AtomicInteger();
+
+        runTerminals(terminals, terminal -> {
+            for (int i = 0; i < attempts; i++) {
+                Invoice inv = pos.createInvoice(1);
+                try {
+                    pos.addItem(inv.getId(), productId, 1);
+                } catch (IllegalStateException e) {
+                    refused.incrementAndGet();
+                    pos.voidInvoice(inv.getId());
+                    continue;
+                }
+                switch ((terminal + i) % 4) {
+                    case 0 -> pos.voidInvoice(inv.getId());
+                    case 1 -> {
+                        pos.holdInvoice(inv.getId());
+                        try {
+                            pos.resumeInvoice(inv.getId());
+                        } catch (IllegalStateException e) {
+                            refused.incrementAndGet();
+                            continue;
+                        }
+                        pos.checkout(inv.getId(), "CASH", 10_00, null);
+                        sold.incrementAndGet();
+                    }
+                    case 2 -> holding.incrementAndGet(); // left open on the terminal
+                    default -> {
+                        pos.checkout(inv.getId(), "CASH", 10_00, null);
+                        sold.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        Product after = productDAO.findById(productId).orElseThrow();
+        assertTrue(refused.get() > 0, "More was asked for than there was stock");
+        assertEquals(stock - sold.get(), after.getStockQty(), 0.0001, "Every sale moved stock exactly once");
+        assertEquals(holding.get(), after.getReservedQty(), 0.0001, "Open invoices hold exactly their lines");
+        assertTrue(after.getAvailableQty() >= 0, "Never sold or reserved more than was in stock");
+        assertEquals(after.getReservedQty(), reservedByLines(productId), 0.0001);
+    }
+
+    @Test
+    void testAdjustmentsAndSalesDoNotLoseUpdates() throws Exception {
+        int productId = product("Oil Filter", 500);
+        int terminals = 8, perTerminal = 20;
+
+        runTerminals(terminals, terminal -> {
+            for (int i = 0; i < perTerminal; i++) {
+                if (terminal % 2 == 0) {
+                    inventory.adjustStock(productId, 2, "Count " + TAG);
+                } else {
+                    Invoice inv = pos.createInvoice(1);
+                    pos.addItem(inv.getId(), productId, 1);
+                    pos.checkout(inv.getId(), "CASH", 10_00, null);
+                }
+            }
+        });
+
+        int half = terminals / 2 * perTerminal;
+        assertEquals(500 + 2 * half - half, productDAO.findById(productId).orElseThrow().getStockQty(), 0.0001);
+        assertThrows(IllegalStateException.class, () -> inventory.adjustStock(productId, -10_000, "Too much"));
+    }
+
+    interface Terminal {
+        void run(int terminal) throws Exception;
+    }
+
+    private static void runTerminals(int count, Terminal terminal) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(count);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        try {
+            for (int t = 0; t < count; t++) {
+                int id = t;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    terminal.run(id);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : results) f.get(120, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private int product(String name, double stock) throws SQLException {
+        Product p = new Product();
+        p.setSku(TAG + "-" + name);
+        p.setName(name + " " + TAG);
+        p.setSellPriceCents(10_00);
+        p.setStockQty(stock);
+        return productDAO.save(p).getId();
+    }
+
+    private double reserved(int productId) throws SQLException {
+        return productDAO.findById(productId).orElseThrow().getReservedQty();
+    }
+
+    private static double reservedByLines(int productId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(reserved_qty), 0) FROM invoice_items WHERE product_id = ?";
+        return DatabaseManager.getInstance().readSnapshot(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, productId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getDouble(1) : 0;
+                }
+            }
+        });
+    }
+}
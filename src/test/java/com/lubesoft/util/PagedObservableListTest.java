@@ -0,0 +1,161 @@
+package com.lubesoft.util;
+
+import com.lubesoft.model.PageCursor;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedObservableListTest {
+
+    // Stands in for the FX thread
+    private static ExecutorService uiThread;
+    private static UiExecutor executor;
+
+    @BeforeAll
+    static void setup() {
+        uiThread = Executors.newSingleThreadExecutor();
+        executor = new UiExecutor(2, uiThread, () -> false);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+        uiThread.shutdownNow();
+    }
+
+    @Test
+    void testRowsLoadOnDemandAndPrefetchNextPage() throws Exception {
+        FakeSource source = new FakeSource(250);
+        PagedObservableList<String> list = list(source, 5);
+        List<Integer> replaced = new CopyOnWriteArrayList<>();
+        onUi(() -> list.addListener((ListChangeListener<String>) c -> {
+            while (c.next()) if (c.wasReplaced()) replaced.add(c.getFrom());
+        }));
+
+        onUi(list::refresh);
+        await(() -> list.size() == 250);
+        assertNull(onUi(() -> list.get(0)), "Unloaded rows read as null");
+        await(() -> list.get(0) != null && list.get(10) != null);
+
+        assertEquals("row-000", onUi(() -> list.get(0)));
+        assertEquals("row-015", onUi(() -> list.get(15)), "Next page should have been prefetched");
+        assertTrue(replaced.containsAll(List.of(0, 10)));
+        assertEquals(0, source.offsetLookups.get(), "Sequential pages should continue by keyset");
+    }
+
+    @Test
+    void testJumpUsesCursorLookupAndOldPagesAreEvicted() throws Exception {
+        FakeSource source = new FakeSource(250);
+        PagedObservableList<String> list = list(source, 3);
+        onUi(list::refresh);
+        await(() -> list.size() == 250);
+
+        onUi(() -> list.get(205));
+        await(() -> list.get(205) != null);
+        assertEquals("row-205", onUi(() -> list.get(205)));
+        assertTrue(source.offsetLookups.get() > 0, "A jump should ask the source for its start cursor");
+
+        for (int page = 0; page < 25; page += 4) {
+            int row = page * 10;
+            onUi(() -> list.get(row));
+            await(() -> list.get(row) != null);
+        }
+        assertTrue(onUi(list::getLoadedPages) <= 3, "At most maxPages pages may be held");
+    }
+
+    @Test
+    void testRefreshPicksUpNewCount() throws Exception {
+        FakeSource source = new FakeSource(30);
+        PagedObservableList<String> list = list(source, 5);
+        onUi(list::refresh);
+        await(() -> list.size() == 30);
+        onUi(() -> list.get(25));
+        await(() -> list.get(25) != null);
+
+        source.rows = 12;
+        onUi(list::refresh);
+        await(() -> list.size() == 12);
+        assertEquals(0, onUi(list::getLoadedPages), "Refresh should drop loaded pages");
+        await(() -> list.get(11) != null);
+        assertEquals("row-011", onUi(() -> list.get(11)));
+    }
+
+    @Test
+    void testReplaceSwapsOneLoadedRow() throws Exception {
+        PagedObservableList<String> list = list(new FakeSource(30), 5);
+        onUi(list::refresh);
+        await(() -> list.size() == 30);
+        // Reading row 12 prefetches row 20's page; let it land before listening
+        await(() -> list.get(0) != null && list.get(12) != null && list.get(20) != null);
+        List<Integer> changed = new CopyOnWriteArrayList<>();
+        onUi(() -> list.addListener((ListChangeListener<String>) c -> {
+            while (c.next()) if (c.wasReplaced()) changed.add(c.getFrom());
+        }));
+
+        assertTrue(onUi(() -> list.replace("row-012"::equals, "row-012*")));
+        assertEquals("row-012*", onUi(() -> list.get(12)));
+        assertEquals(List.of(12), changed);
+        assertFalse(onUi(() -> list.replace("row-100"::equals, "row-100*")), "No loaded page holds the row");
+    }
+
+    private static PagedObservableList<String> list(FakeSource source, int maxPages) {
+        return new PagedObservableList<>(new TaskScope("test", executor), "rows", source, 10, maxPages);
+    }
+
+    private static <T> T onUi(Callable<T> action) throws Exception {
+        return uiThread.submit(action).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void onUi(Runnable action) throws Exception {
+        uiThread.submit(action).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void await(Callable<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (onUi(condition)) return;
+            Thread.sleep(10);
+        }
+        fail("Condition not met in time");
+    }
+
+    /** Rows "row-000".. in order; the cursor's sort value is the row itself. */
+    private static class FakeSource implements PagedObservableList.PageSource<String> {
+        volatile int rows;
+        final AtomicInteger offsetLookups = new AtomicInteger();
+
+        FakeSource(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int count() {
+            return rows;
+        }
+
+        @Override
+        public List<String> fetchPage(PageCursor after, int limit) {
+            int start = after == null ? 0 : after.getId() + 1;
+            return new ArrayList<>(IntStream.range(start, Math.min(start + limit, rows))
+                    .mapToObj(i -> String.format("row-%03d", i)).toList());
+        }
+
+        @Override
+        public PageCursor cursorAt(int offset) {
+            offsetLookups.incrementAndGet();
+            return offset == 0 ? null : cursorOf(String.format("row-%03d", offset - 1));
+        }
+
+        @Override
+        public PageCursor cursorOf(String row) {
+            return new PageCursor(row, Integer.parseInt(row.substring(4)));
+        }
+    }
+}
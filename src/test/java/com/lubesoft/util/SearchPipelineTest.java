@@ -0,0 +1,143 @@
+package com.lubesoft.util;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BiPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchPipelineTest {
+
+    private static final List<String> NAMES = List.of("Mobil 1 5W-30", "Mobil Super 10W-40",
+            "Castrol Edge 5W-30", "Oil Filter PH3593A", "Air Filter CA10467");
+    private static final BiPredicate<String, String> MATCHER = SearchPipeline.wordPrefixMatcher(s -> s);
+
+    // Stands in for the FX thread
+    private static ExecutorService uiThread;
+    private static UiExecutor executor;
+
+    @BeforeAll
+    static void setup() {
+        uiThread = Executors.newSingleThreadExecutor();
+        executor = new UiExecutor(2, uiThread, () -> false);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+        uiThread.shutdownNow();
+    }
+
+    @Test
+    void testKeystrokesAreDebouncedIntoOneQuery() throws Exception {
+        List<String> queries = new CopyOnWriteArrayList<>();
+        ObservableList<String> list = FXCollections.observableArrayList();
+        SearchPipeline<String> pipeline = pipeline(queries, list).withDebounce(100);
+
+        onUi(() -> {
+            for (String typed : List.of("m", "mo", "mob", "mobi", "mobil")) pipeline.submit(typed);
+        });
+        awaitList(list, 2);
+
+        assertEquals(List.of("mobil"), queries, "Only the last keystroke should reach the source");
+        assertEquals(List.of("Mobil 1 5W-30", "Mobil Super 10W-40"), new ArrayList<>(list));
+    }
+
+    @Test
+    void testRepeatedQueryIsServedFromCache() throws Exception {
+        List<String> queries = new CopyOnWriteArrayList<>();
+        ObservableList<String> list = FXCollections.observableArrayList();
+        SearchPipeline<String> pipeline = pipeline(queries, list);
+
+        onUi(() -> pipeline.submitNow("filter"));
+        awaitList(list, 2);
+        onUi(() -> pipeline.submitNow("castrol"));
+        awaitList(list, 1);
+        onUi(() -> pipeline.submitNow("Filter "));
+
+        assertEquals(2, list.size(), "Cached rows should be shown straight away");
+        assertEquals(List.of("filter", "castrol"), queries);
+        assertEquals(1, pipeline.getCacheHits());
+
+        onUi(() -> {
+            pipeline.invalidate();
+            pipeline.submitNow("filter");
+        });
+        awaitQueries(queries, 3);
+    }
+
+    @Test
+    void testCachedPrefixGivesProvisionalRows() throws Exception {
+        List<String> queries = new CopyOnWriteArrayList<>();
+        ObservableList<String> list = FXCollections.observableArrayList();
+        SearchPipeline<String> pipeline = pipeline(queries, list).withDebounce(5_000);
+
+        onUi(() -> pipeline.submitNow("mob"));
+        awaitList(list, 2);
+        onUi(() -> pipeline.submit("mob 5w"));
+
+        assertEquals(List.of("Mobil 1 5W-30"), new ArrayList<>(list),
+                "Narrowed prefix rows should show before the debounced query runs");
+        assertEquals(1, pipeline.getProvisionalHits());
+        assertEquals(List.of("mob"), queries);
+    }
+
+    @Test
+    void testLargeResultsArriveInChunks() throws Exception {
+        List<String> rows = IntStream.range(0, 230).mapToObj(i -> "Row " + i).toList();
+        ObservableList<String> list = FXCollections.observableArrayList();
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        list.addListener((javafx.collections.ListChangeListener<String>) c -> sizes.add(list.size()));
+        TaskScope scope = new TaskScope("test", executor);
+        SearchPipeline<String> pipeline = new SearchPipeline<>(scope, "rows", q -> rows, list, null, executor)
+                .withChunkSize(100);
+
+        onUi(() -> pipeline.submitNow("row"));
+        awaitList(list, 230);
+
+        assertEquals(List.of(100, 200, 230), sizes);
+        assertEquals(rows, new ArrayList<>(list));
+    }
+
+    @Test
+    void testWordPrefixMatcherFollowsFtsTokenizing() {
+        assertTrue(MATCHER.test("Mobil 1 5W-30", "mob 5w"));
+        assertTrue(MATCHER.test("Mobil 1 5W-30", "30"));
+        assertTrue(MATCHER.test("Oil Filter PH3593A", "ph35"));
+        assertFalse(MATCHER.test("Mobil 1 5W-30", "w30"));
+        assertFalse(MATCHER.test("Castrol Edge 5W-30", "mob"));
+    }
+
+    private SearchPipeline<String> pipeline(List<String> queries, ObservableList<String> list) {
+        TaskScope scope = new TaskScope("test", executor);
+        return new SearchPipeline<>(scope, "search", q -> {
+            queries.add(q);
+            return NAMES.stream().filter(n -> MATCHER.test(n, q)).toList();
+        }, list, MATCHER, executor);
+    }
+
+    private static void onUi(Runnable action) throws Exception {
+        uiThread.submit(action).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void awaitList(ObservableList<String> list, int size) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (uiThread.submit(list::size).get() == size) return;
+            Thread.sleep(10);
+        }
+        fail("List never reached " + size + " rows");
+    }
+
+    private static void awaitQueries(List<String> queries, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (queries.size() < count && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(count, queries.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.lubesoft.util;
+
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskScopeTest {
+
+    // Stands in for the FX thread: callbacks are delivered one at a time on this thread
+    private static ExecutorService uiThread;
+    private static UiExecutor executor;
+
+    @BeforeAll
+    static void setup() {
+        uiThread = Executors.newSingleThreadExecutor();
+        executor = new UiExecutor(2, uiThread, () -> false);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        executor.shutdown();
+        uiThread.shutdownNow();
+    }
+
+    @Test
+    void testResultIsDeliveredOnUiThread() throws Exception {
+        TaskScope scope = new TaskScope("test", executor);
+        CompletableFuture<String> delivered = new CompletableFuture<>();
+        scope.run(() -> Thread.currentThread().getName(),
+                worker -> delivered.complete(worker + "|" + Thread.currentThread().getName()),
+                delivered::completeExceptionally);
+
+        String[] threads = delivered.get(5, TimeUnit.SECONDS).split("\\|");
+        assertTrue(threads[0].startsWith("ui-task-"), "Work should run on a named worker");
+        assertFalse(threads[1].startsWith("ui-task-"), "Callback should run on the UI thread");
+        assertEquals(0, scope.getOutstanding());
+    }
+
+    @Test
+    void testErrorsGoToErrorCallback() throws Exception {
+        TaskScope scope = new TaskScope("test", executor);
+        CompletableFuture<Exception> failure = new CompletableFuture<>();
+        long failedBefore = executor.getFailed();
+        scope.run(() -> {
+            throw new IllegalStateException("boom");
+        }, result -> fail("Should not succeed"), failure::complete);
+
+        assertEquals("boom", failure.get(5, TimeUnit.SECONDS).getMessage());
+        assertEquals(failedBefore + 1, executor.getFailed());
+    }
+
+    @Test
+    void testLatestSupersedesEarlierRequest() throws Exception {
+        TaskScope scope = new TaskScope("test", executor);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        List<String> delivered = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> secondDone = new CompletableFuture<>();
+
+        TaskScope.Task<String> first = onUi(() -> scope.latest("search", () -> {
+            firstStarted.countDown();
+            Thread.sleep(5_000);
+            return "first";
+        }, delivered::add, e -> delivered.add("error")));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        onUi(() -> scope.latest("search", () -> "second", r -> {
+            delivered.add(r);
+            secondDone.complete(null);
+        }));
+
+        secondDone.get(5, TimeUnit.SECONDS);
+        assertTrue(first.isCancelled());
+        assertEquals(List.of("second"), delivered, "Superseded result must never be delivered");
+    }
+
+    @Test
+    void testCloseCancelsOutstandingWork() throws Exception {
+        TaskScope scope = new TaskScope("test", executor);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long cancelledBefore = executor.getCancelled();
+
+        TaskScope.Task<Object> task = onUi(() -> scope.run(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return null;
+        }, r -> fail("Closed scope should not deliver"), e -> fail("Closed scope should not deliver")));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        onUi(() -> {
+            scope.close();
+            return null;
+        });
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Running work should be interrupted");
+        assertTrue(task.isCancelled());
+        assertEquals(cancelledBefore + 1, executor.getCancelled());
+
+        TaskScope.Task<String> late = onUi(() -> scope.run(() -> "late", r -> fail("Closed scope should not run work")));
+        assertTrue(late.isCancelled());
+        // Let any stray callback reach the UI thread before checking
+        onUi(() -> null);
+        assertEquals(0, scope.getOutstanding());
+    }
+
+    private static <T> T onUi(Callable<T> action) throws Exception {
+        return uiThread.submit(action).get(5, TimeUnit.SECONDS);
+    }
+}